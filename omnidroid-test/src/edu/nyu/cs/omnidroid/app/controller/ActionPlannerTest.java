@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneLoudAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneSilentAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowAlertAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowNotificationAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOnWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
+
+/**
+ * Unit tests for {@link ActionPlanner} class.
+ */
+public class ActionPlannerTest extends TestCase {
+  private long nextDatabaseId = 1;
+
+  public void testDuplicatesRunOnce() throws OmnidroidException {
+    ArrayList<Action> actions = new ArrayList<Action>();
+    actions.add(ruleAction(new TurnOnWifiAction(null), "Rule A"));
+    actions.add(ruleAction(new ShowAlertAction(message("Hello")), "Rule A"));
+    actions.add(ruleAction(new TurnOnWifiAction(null), "Rule B"));
+    actions.add(ruleAction(new ShowAlertAction(message("Hello")), "Rule B"));
+    actions.add(ruleAction(new ShowAlertAction(message("Goodbye")), "Rule B"));
+
+    ArrayList<Action> planned = ActionPlanner.plan(actions);
+    assertEquals(3, planned.size());
+    assertSame(actions.get(0), planned.get(0));
+    assertSame(actions.get(1), planned.get(1));
+    assertSame(actions.get(4), planned.get(2));
+  }
+
+  public void testFirstRuleWinsConflicts() throws OmnidroidException {
+    ArrayList<Action> actions = new ArrayList<Action>();
+    actions.add(ruleAction(new SetPhoneSilentAction(null), "Rule A"));
+    actions.add(ruleAction(new SetPhoneLoudAction(null), "Rule B"));
+
+    ArrayList<Action> planned = ActionPlanner.plan(actions);
+    assertEquals(1, planned.size());
+    assertSame(actions.get(0), planned.get(0));
+  }
+
+  public void testNotificationsMerged() throws OmnidroidException {
+    ArrayList<Action> actions = new ArrayList<Action>();
+    actions.add(ruleAction(new ShowNotificationAction(message("First")), "Rule A"));
+    actions.add(ruleAction(new TurnOnWifiAction(null), "Rule A"));
+    actions.add(ruleAction(new ShowNotificationAction(message("Second")), "Rule B"));
+
+    ArrayList<Action> planned = ActionPlanner.plan(actions);
+    assertEquals(2, planned.size());
+    ShowNotificationAction merged = (ShowNotificationAction) planned.get(0);
+    assertEquals("First\nSecond", merged.getMessage());
+    assertEquals("Rule A, Rule B", merged.getRuleName());
+    assertEquals(actions.get(0).getDatabaseId(), merged.getDatabaseId());
+    assertSame(actions.get(1), planned.get(1));
+  }
+
+  public void testSingleNotificationKept() throws OmnidroidException {
+    ArrayList<Action> actions = new ArrayList<Action>();
+    actions.add(ruleAction(new ShowNotificationAction(message("Only")), "Rule A"));
+    assertSame(actions.get(0), ActionPlanner.plan(actions).get(0));
+    assertTrue(ActionPlanner.plan(new ArrayList<Action>()).isEmpty());
+  }
+
+  private Action ruleAction(Action action, String ruleName) {
+    action.setRuleName(ruleName);
+    action.setDatabaseId(nextDatabaseId++);
+    action.setActionType(Action.RULE_ACTION);
+    return action;
+  }
+
+  private static HashMap<String, String> message(String message) {
+    HashMap<String, String> parameters = new HashMap<String, String>();
+    parameters.put(ShowAlertAction.PARAM_ALERT_MESSAGE, message);
+    return parameters;
+  }
+}
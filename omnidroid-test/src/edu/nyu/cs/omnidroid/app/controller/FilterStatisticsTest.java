@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniPhoneNumber;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniText;
+import edu.nyu.cs.omnidroid.app.controller.events.SMSReceivedEvent;
+import edu.nyu.cs.omnidroid.app.controller.util.Tree;
+
+/**
+ * Unit tests for {@link FilterStatistics} class.
+ */
+public class FilterStatisticsTest extends TestCase {
+  private FilterStatistics statistics;
+  private Event event;
+  private Filter phoneFilter;
+  private Filter textFilter;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    statistics = FilterStatistics.instance();
+    statistics.reset();
+    event = new MockSMSReceivedEvent(TestData.getIntent("123-456-7890", "Some Other Text"));
+    phoneFilter = new Filter(SMSReceivedEvent.ATTRIB_PHONE_NO, OmniPhoneNumber.class.getName(),
+        OmniPhoneNumber.Filter.EQUALS.toString(), OmniPhoneNumber.class.getName(),
+        "555-555-5555");
+    textFilter = new Filter(SMSReceivedEvent.ATTRIB_MESSAGE_TEXT, OmniText.class.getName(),
+        OmniText.Filter.CONTAINS.toString(), OmniText.class.getName(), "Some");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    statistics.reset();
+    super.tearDown();
+  }
+
+  public void testRecordsResults() {
+    assertFalse(statistics.match(phoneFilter, event));
+    assertTrue(statistics.match(textFilter, event));
+    assertTrue(statistics.match(textFilter, event));
+
+    List<FilterStatistics.Entry> entries = statistics.getEntries();
+    assertEquals(2, entries.size());
+    for (FilterStatistics.Entry entry : entries) {
+      if (entry.getFilter().equals(phoneFilter)) {
+        assertEquals(1, entry.getEvaluations());
+        assertEquals(0, entry.getPasses());
+      } else {
+        assertEquals(textFilter, entry.getFilter());
+        assertEquals(2, entry.getEvaluations());
+        assertEquals(1.0, entry.getPassRate());
+      }
+    }
+  }
+
+  public void testReordersSiblings() {
+    Tree<Filter> root = new Tree<Filter>(null, null);
+    root.addChild(phoneFilter);
+    root.addChild(textFilter);
+
+    // Without measurements the insertion order is kept
+    List<Tree<Filter>> order = statistics.evaluationOrder(root);
+    assertEquals(phoneFilter, order.get(0).getItem());
+
+    for (int i = 0; i < FilterStatistics.REFRESH_INTERVAL; i++) {
+      statistics.match(phoneFilter, event);
+      statistics.match(textFilter, event);
+    }
+
+    // The filter that always passes is now tried first
+    order = statistics.evaluationOrder(root);
+    assertEquals(textFilter, order.get(0).getItem());
+    assertEquals(phoneFilter, order.get(1).getItem());
+    assertEquals(phoneFilter, root.getChildren().get(0).getItem());
+  }
+
+  public void testOrderDoesNotChangeResult() {
+    // Phone filter passes but its only child fails, the text filter passes on its own
+    Tree<Filter> root = new Tree<Filter>(null, null);
+    Tree<Filter> phoneBranch = root.addChild(new Filter(SMSReceivedEvent.ATTRIB_PHONE_NO,
+        OmniPhoneNumber.class.getName(), OmniPhoneNumber.Filter.EQUALS.toString(),
+        OmniPhoneNumber.class.getName(), "123-456-7890"));
+    phoneBranch.addChild(new Filter(SMSReceivedEvent.ATTRIB_MESSAGE_TEXT, OmniText.class
+        .getName(), OmniText.Filter.CONTAINS.toString(), OmniText.class.getName(), "Missing"));
+    root.addChild(textFilter);
+
+    Rule rule = new Rule("Any order", 1, root, false);
+    for (int i = 0; i < 2 * FilterStatistics.REFRESH_INTERVAL; i++) {
+      assertTrue(rule.passesFilters(event));
+    }
+  }
+}
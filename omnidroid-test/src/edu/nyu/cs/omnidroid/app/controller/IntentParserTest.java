@@ -17,6 +17,7 @@ package edu.nyu.cs.omnidroid.app.controller;
 
 import edu.nyu.cs.omnidroid.app.controller.Event;
 import edu.nyu.cs.omnidroid.app.controller.IntentParser;
+import edu.nyu.cs.omnidroid.app.controller.events.SystemEvent;
 import junit.framework.TestCase;
 import android.content.Intent;
 
@@ -37,4 +38,28 @@ public class IntentParserTest extends TestCase {
   public void testGetEvent() {
     assertEquals(IntentParser.getEvent(intent).getEventName(), event.getEventName());
   }
-}
\ No newline at end of file
+
+  /** Tests that parameterless system events are looked up by their action */
+  public void testGetSystemEvent() {
+    for (SystemEvent e : SystemEvent.values()) {
+      Event systemEvent = IntentParser.getEvent(new Intent(e.ACTION_NAME));
+      assertEquals(e.EVENT_NAME, systemEvent.getEventName());
+    }
+  }
+
+  /** Tests that unsupported actions return no event */
+  public void testGetUnsupportedEvent() {
+    assertNull(IntentParser.getEvent(new Intent("UNSUPPORTED_TEST_ACTION")));
+  }
+
+  /** Tests that a registered event factory is used for its action */
+  public void testRegisterEvent() {
+    final String action = "REGISTERED_TEST_ACTION";
+    IntentParser.registerEvent(action, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new MockSMSReceivedEvent(intent);
+      }
+    });
+    assertEquals(event.getEventName(), IntentParser.getEvent(new Intent(action)).getEventName());
+  }
+}
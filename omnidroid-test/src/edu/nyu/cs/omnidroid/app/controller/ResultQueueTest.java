@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import android.app.Service;
+import android.content.Intent;
+import android.database.Cursor;
+import android.os.IBinder;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
+import edu.nyu.cs.omnidroid.app.model.CursorHelper;
+import edu.nyu.cs.omnidroid.app.model.FailedActionsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.FailedActionsDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
+
+/**
+ * Unit tests for {@link ResultQueue} class.
+ */
+public class ResultQueueTest extends AndroidTestCase {
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+  private LogDbHelper logDbHelper;
+  private SQLiteDatabase logDatabase;
+  private long ruleActionId;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    logDbHelper = new LogDbHelper(getContext());
+    logDatabase = logDbHelper.getWritableDatabase();
+    logDbHelper.backup();
+    RuleTestData.prePopulateDatabase(database);
+    new FailedActionsDbAdapter(logDatabase).deleteAll();
+
+    Cursor cursor = new RuleActionDbAdapter(database).fetchAll();
+    assertTrue(cursor.moveToFirst());
+    ruleActionId = CursorHelper.getLongFromCursor(cursor, RuleActionDbAdapter.KEY_RULEACTIONID);
+    cursor.close();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+    omnidroidDbHelper.close();
+    logDbHelper.close();
+    super.tearDown();
+  }
+
+  public void testFailuresQueued() throws InterruptedException {
+    ResultQueue queue = ResultQueue.instance(getContext());
+    for (int i = 0; i < 20; i++) {
+      queue.add(failedSms(), ResultProcessor.RESULT_FAILURE_INTERNET, "No internet " + i);
+    }
+    // Successful rule actions leave the failed action queue alone
+    queue.add(failedSms(), ResultProcessor.RESULT_SUCCESS, null);
+    queue.flush();
+
+    Cursor cursor = new FailedActionsDbAdapter(logDatabase).fetchAll();
+    assertEquals(20, cursor.getCount());
+    cursor.close();
+
+    FailedActionsDbHelper failedActionsDbHelper = new FailedActionsDbHelper(getContext());
+    assertEquals(20, failedActionsDbHelper.getActions(ResultProcessor.RESULT_FAILURE_INTERNET)
+        .size());
+    failedActionsDbHelper.close();
+  }
+
+  public void testUnknownRuleActionSkipped() throws InterruptedException {
+    Intent intent = failedSms();
+    intent.putExtra(Action.DATABASE_ID, -5L);
+    ResultQueue queue = ResultQueue.instance(getContext());
+    queue.add(intent, ResultProcessor.RESULT_FAILURE_UNKNOWN, "Unknown");
+    queue.add(failedSms(), ResultProcessor.RESULT_FAILURE_UNKNOWN, "Known");
+    queue.flush();
+
+    Cursor cursor = new FailedActionsDbAdapter(logDatabase).fetchAll();
+    assertEquals(1, cursor.getCount());
+    cursor.close();
+  }
+
+  public void testStopWhenStored() throws InterruptedException {
+    ResultQueue queue = ResultQueue.instance(getContext());
+    StoppingService service = new StoppingService();
+    queue.add(failedSms(), ResultProcessor.RESULT_FAILURE_UNKNOWN, "Unknown");
+    queue.stopWhenStored(service);
+    assertTrue(service.awaitStop());
+
+    // The result was stored before the service was stopped
+    Cursor cursor = new FailedActionsDbAdapter(logDatabase).fetchAll();
+    assertEquals(1, cursor.getCount());
+    cursor.close();
+
+    // Nothing pending, so the service is stopped right away
+    service = new StoppingService();
+    queue.stopWhenStored(service);
+    assertTrue(service.stopped);
+  }
+
+  /** Records when the result queue stops it */
+  private static class StoppingService extends Service {
+    boolean stopped;
+
+    @Override
+    public IBinder onBind(Intent intent) {
+      return null;
+    }
+
+    @Override
+    public synchronized void stopSelf() {
+      stopped = true;
+      notifyAll();
+    }
+
+    synchronized boolean awaitStop() throws InterruptedException {
+      if (!stopped) {
+        wait(5000);
+      }
+      return stopped;
+    }
+  }
+
+  private Intent failedSms() {
+    Intent intent = new Intent();
+    intent.putExtra(SendSmsAction.PARAM_PHONE_NO, TestData.TEST_PHONE_NO);
+    intent.putExtra(SendSmsAction.PARAM_SMS, TestData.TEST_MESSAGE_TEXT);
+    intent.putExtra(Action.DATABASE_ID, ruleActionId);
+    intent.putExtra(Action.ACTION_TYPE, Action.RULE_ACTION);
+    intent.putExtra(Action.NOTIFICATION, false);
+    return intent;
+  }
+}
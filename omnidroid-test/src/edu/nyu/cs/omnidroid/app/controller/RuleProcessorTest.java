@@ -125,4 +125,24 @@ public class RuleProcessorTest extends AndroidTestCase {
     assertEquals(0, RuleProcessor.getActions(anotherEvent, coreRulesDbHelper, coreActionsDbHelper)
         .size());
   }
+
+  /**
+   * Tests that no further rules are evaluated once an exclusive rule matches
+   */
+  public void testRuleProcessor_exclusive() {
+    RuleDbAdapter ruleDbAdapter = new RuleDbAdapter(database);
+    Rule sayHello3 = RuleTestData.getRule(RuleTestData.RULE_SAY_HELLO3);
+    ruleDbAdapter.updatePriority(sayHello3.getRuleID(), 10, true);
+
+    final ArrayList<Rule> matched = new ArrayList<Rule>();
+    ArrayList<Action> actions = RuleProcessor.getActions(event, coreRulesDbHelper,
+        coreActionsDbHelper, new RuleProcessor.MatchListener() {
+          public void ruleMatched(Rule rule, ArrayList<Action> ruleActions) {
+            matched.add(rule);
+          }
+        });
+    assertEquals(1, matched.size());
+    assertEquals(sayHello3.ruleName, matched.get(0).ruleName);
+    assertEquals(2, actions.size());
+  }
 }
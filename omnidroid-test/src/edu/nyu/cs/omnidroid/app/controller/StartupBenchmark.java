@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import java.util.ArrayList;
+
+import android.content.Intent;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import edu.nyu.cs.omnidroid.app.controller.util.StartupTracer;
+import edu.nyu.cs.omnidroid.app.model.CoreActionsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.CoreRulesDbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+
+/**
+ * Measures the time from startup until the first event is handled: opening (and possibly
+ * migrating) the database, reading what the enabled rules need to decide which monitors to start,
+ * then matching an event against the rules. Results are written to the log.
+ */
+public class StartupBenchmark extends AndroidTestCase {
+  private static final String TAG = StartupBenchmark.class.getSimpleName();
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(this.getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+  }
+
+  /** Time to first event on a freshly created database, see DbBootstrap */
+  public void testColdStart() {
+    omnidroidDbHelper.close();
+    omnidroidDbHelper.remove();
+    long elapsed = startAndHandleEvent(true);
+    Log.i(TAG, "cold start, time to first event: " + elapsed + "ms");
+    assertTrue(elapsed >= 0);
+  }
+
+  /** Time to first event on a database that is already up to date */
+  public void testWarmStart() {
+    RuleTestData.prePopulateDatabase(database);
+    omnidroidDbHelper.close();
+    long elapsed = startAndHandleEvent(false);
+    Log.i(TAG, "warm start, time to first event: " + elapsed + "ms");
+    assertTrue(elapsed >= 0);
+  }
+
+  /**
+   * Run the startup work that precedes handling an event, then handle one.
+   * 
+   * @param freshInstall
+   *          whether the database is first created during the run
+   * @return milliseconds until the event was handled
+   */
+  private long startAndHandleEvent(boolean freshInstall) {
+    StartupTracer tracer = StartupTracer.instance();
+    tracer.restart();
+
+    StartupTracer.Step step = tracer.begin(freshInstall ? "create database" : "open database");
+    CoreRulesDbHelper coreRulesDbHelper = new CoreRulesDbHelper(getContext());
+    step.end();
+
+    step = tracer.begin("load rule requirements");
+    coreRulesDbHelper.getActiveRuleCount();
+    coreRulesDbHelper.getEnabledFilterAttributeNames();
+    coreRulesDbHelper.getEnabledEventNames();
+    step.end();
+
+    step = tracer.begin("handle event");
+    Intent intent = TestData.getIntent(TestData.TEST_PHONE_NO, TestData.TEST_MESSAGE_TEXT);
+    Event event = new MockSMSReceivedEvent(intent);
+    CoreActionsDbHelper coreActionsDbHelper = new CoreActionsDbHelper(getContext());
+    ArrayList<Action> actions = RuleProcessor.getActions(event, coreRulesDbHelper,
+        coreActionsDbHelper);
+    tracer.eventHandled();
+    step.end();
+
+    coreActionsDbHelper.close();
+    coreRulesDbHelper.close();
+    Log.i(TAG, actions.size() + " action(s) matched");
+    return tracer.getTimeToFirstEvent();
+  }
+}
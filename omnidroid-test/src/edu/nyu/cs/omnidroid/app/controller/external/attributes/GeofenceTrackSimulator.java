@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.location.Location;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.LocationSamplingPolicy.Sampling;
+import edu.nyu.cs.omnidroid.app.controller.util.DataTypeValidationException;
+
+/**
+ * Replays a GPS track against a set of geofences the way {@link LocationMonitor} would sample it,
+ * and counts the fixes taken against the boundary crossings they detect. Fixes are taken whenever
+ * both the interval and the minimum distance of the current sampling have passed, and are exact
+ * apart from the accuracy reported for the provider, so the same track always gives the same
+ * result.
+ */
+public class GeofenceTrackSimulator {
+  /** Reported accuracy (in meters) of a GPS fix. */
+  public static final float GPS_ACCURACY = 10;
+  /** Reported accuracy (in meters) of a network fix. */
+  public static final float COARSE_ACCURACY = 500;
+
+  /** Chooses the sampling after each fix. */
+  public interface SamplingSource {
+    Sampling getSampling(OmniArea lastFix);
+  }
+
+  /** Always samples the same way, like the monitor did before it adapted. */
+  public static SamplingSource fixed(final Sampling sampling) {
+    return new SamplingSource() {
+      public Sampling getSampling(OmniArea lastFix) {
+        return sampling;
+      }
+    };
+  }
+
+  /** Samples as the policy for the geofences decides. */
+  public static SamplingSource adaptive(List<OmniArea> geofences) {
+    final LocationSamplingPolicy policy = new LocationSamplingPolicy(geofences);
+    return new SamplingSource() {
+      public Sampling getSampling(OmniArea lastFix) {
+        return policy.getSampling(lastFix);
+      }
+    };
+  }
+
+  /** A true position on the track, one per second. */
+  public static class TrackPoint {
+    final long time;
+    final double latitude;
+    final double longitude;
+
+    TrackPoint(long time, double latitude, double longitude) {
+      this.time = time;
+      this.latitude = latitude;
+      this.longitude = longitude;
+    }
+  }
+
+  /** Builds a track from straight legs travelled at constant speeds. */
+  public static class TrackBuilder {
+    private final ArrayList<TrackPoint> points = new ArrayList<TrackPoint>();
+    private double latitude;
+    private double longitude;
+    private long time;
+
+    public TrackBuilder(double latitude, double longitude) {
+      this.latitude = latitude;
+      this.longitude = longitude;
+      points.add(new TrackPoint(time, latitude, longitude));
+    }
+
+    /** Travel in a straight line to the position at the speed (in meters per second). */
+    public TrackBuilder moveTo(double toLatitude, double toLongitude, double speed) {
+      float[] results = new float[1];
+      Location.distanceBetween(latitude, longitude, toLatitude, toLongitude, results);
+      int steps = Math.max(1, (int) Math.ceil(results[0] / speed));
+      double fromLatitude = latitude;
+      double fromLongitude = longitude;
+      for (int step = 1; step <= steps; step++) {
+        latitude = fromLatitude + (toLatitude - fromLatitude) * step / steps;
+        longitude = fromLongitude + (toLongitude - fromLongitude) * step / steps;
+        time += 1000;
+        points.add(new TrackPoint(time, latitude, longitude));
+      }
+      return this;
+    }
+
+    /** Stay at the current position for the number of seconds. */
+    public TrackBuilder stay(int seconds) {
+      for (int step = 0; step < seconds; step++) {
+        time += 1000;
+        points.add(new TrackPoint(time, latitude, longitude));
+      }
+      return this;
+    }
+
+    public List<TrackPoint> build() {
+      return new ArrayList<TrackPoint>(points);
+    }
+  }
+
+  /** What a replay measured. */
+  public static class Result {
+    int fixes;
+    int coarseFixes;
+    int transitions;
+    int detectedTransitions;
+    long totalDelay;
+
+    public int getFixes() {
+      return fixes;
+    }
+
+    public int getCoarseFixes() {
+      return coarseFixes;
+    }
+
+    /** @return the number of boundary crossings on the true track */
+    public int getTransitions() {
+      return transitions;
+    }
+
+    /** @return the number of boundary crossings the fixes noticed */
+    public int getDetectedTransitions() {
+      return detectedTransitions;
+    }
+
+    /** @return the mean time (in milliseconds) from a crossing to the fix that noticed it */
+    public long getMeanDelay() {
+      return detectedTransitions == 0 ? 0 : totalDelay / detectedTransitions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Result)) {
+        return false;
+      }
+      Result other = (Result) o;
+      return fixes == other.fixes && coarseFixes == other.coarseFixes
+          && transitions == other.transitions && detectedTransitions == other.detectedTransitions
+          && totalDelay == other.totalDelay;
+    }
+
+    @Override
+    public int hashCode() {
+      return fixes * 31 + detectedTransitions;
+    }
+
+    @Override
+    public String toString() {
+      return fixes + " fixes (" + coarseFixes + " coarse), detected " + detectedTransitions + "/"
+          + transitions + " transitions, mean delay " + getMeanDelay() + "ms";
+    }
+  }
+
+  private GeofenceTrackSimulator() {
+  }
+
+  /**
+   * Replay the track.
+   * 
+   * @param track
+   *          true positions, one per second
+   * @param geofences
+   *          the areas whose boundary crossings are counted
+   * @param source
+   *          decides the sampling after each fix
+   * @return the fixes taken and transitions detected
+   */
+  public static Result replay(List<TrackPoint> track, List<OmniArea> geofences,
+      SamplingSource source) {
+    Result result = new Result();
+    int fences = geofences.size();
+    Boolean[] trueInside = new Boolean[fences];
+    long[] lastTransitionTime = new long[fences];
+    boolean[] pending = new boolean[fences];
+    Boolean[] detectedInside = new Boolean[fences];
+
+    Sampling sampling = source.getSampling(null);
+    TrackPoint lastFix = null;
+    for (TrackPoint point : track) {
+      OmniArea exact = area(point, 0);
+      for (int i = 0; i < fences; i++) {
+        boolean inside = exact.matchFilter(OmniArea.Filter.NEAR, geofences.get(i));
+        if (trueInside[i] != null && trueInside[i] != inside) {
+          result.transitions++;
+          lastTransitionTime[i] = point.time;
+          pending[i] = true;
+        }
+        trueInside[i] = inside;
+      }
+
+      if (lastFix != null
+          && (point.time - lastFix.time < sampling.getInterval()
+              || distance(lastFix, point) < sampling.getMinDistance())) {
+        continue;
+      }
+      lastFix = point;
+      result.fixes++;
+      if (sampling.isCoarse()) {
+        result.coarseFixes++;
+      }
+      OmniArea fix = area(point, sampling.isCoarse() ? COARSE_ACCURACY : GPS_ACCURACY);
+      for (int i = 0; i < fences; i++) {
+        boolean near = fix.matchFilter(OmniArea.Filter.NEAR, geofences.get(i));
+        if (detectedInside[i] != null && detectedInside[i] != near) {
+          result.detectedTransitions++;
+          // A fix at the edge of its accuracy may notice a crossing before it happens
+          if (pending[i]) {
+            result.totalDelay += point.time - lastTransitionTime[i];
+          }
+          pending[i] = false;
+        }
+        detectedInside[i] = near;
+      }
+      sampling = source.getSampling(fix);
+    }
+    return result;
+  }
+
+  /** Build a geofence with the radius in meters. */
+  public static OmniArea geofence(double latitude, double longitude, double radius) {
+    try {
+      return new OmniArea("geofence", longitude, latitude, radius * OmniArea.MILES_IN_A_METER);
+    } catch (DataTypeValidationException e) {
+      throw new IllegalArgumentException(e.getMessage());
+    }
+  }
+
+  private static OmniArea area(TrackPoint point, float accuracy) {
+    return geofence(point.latitude, point.longitude, accuracy);
+  }
+
+  private static float distance(TrackPoint a, TrackPoint b) {
+    float[] results = new float[1];
+    Location.distanceBetween(a.latitude, a.longitude, b.latitude, b.longitude, results);
+    return results[0];
+  }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import android.location.LocationManager;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.LocationSamplingPolicy.Sampling;
+
+/**
+ * Unit tests for {@link LocationSamplingPolicy} class.
+ */
+public class LocationSamplingPolicyTest extends TestCase {
+  private static final double LATITUDE = 40.7308;
+  private static final double LONGITUDE = -73.9973;
+  /** Roughly the degrees of latitude in a meter. */
+  private static final double DEGREES_IN_A_METER = 1 / 111200.0;
+
+  private LocationSamplingPolicy policy;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    OmniArea geofence = GeofenceTrackSimulator.geofence(LATITUDE, LONGITUDE, 200);
+    policy = new LocationSamplingPolicy(Collections.singletonList(geofence));
+  }
+
+  /** Returns an exact fix the distance (in meters) north of the geofence center. */
+  private static OmniArea north(double meters) {
+    return GeofenceTrackSimulator.geofence(LATITUDE + meters * DEGREES_IN_A_METER, LONGITUDE, 0);
+  }
+
+  public void testNoGeofences() {
+    LocationSamplingPolicy empty = new LocationSamplingPolicy(Collections.<OmniArea> emptyList());
+    assertFalse(empty.hasGeofences());
+    assertEquals(LocationSamplingPolicy.DEFAULT, empty.getSampling(null));
+    assertEquals(LocationSamplingPolicy.DEFAULT, empty.getSampling(north(100)));
+  }
+
+  public void testFirstFix() {
+    Sampling sampling = policy.getSampling(null);
+    assertEquals(LocationManager.GPS_PROVIDER, sampling.getProvider());
+    assertEquals(LocationSamplingPolicy.MIN_INTERVAL, sampling.getInterval());
+  }
+
+  public void testDistanceToBoundary() {
+    assertEquals(200, policy.getDistanceToBoundary(north(0)), 2);
+    assertEquals(800, policy.getDistanceToBoundary(north(1000)), 5);
+    // 10 meters outside, but only accurate to 50 meters
+    OmniArea inaccurate = GeofenceTrackSimulator.geofence(LATITUDE + 210 * DEGREES_IN_A_METER,
+        LONGITUDE, 50);
+    assertEquals(0, policy.getDistanceToBoundary(inaccurate), 0);
+  }
+
+  public void testNearBoundary() {
+    Sampling sampling = policy.getSampling(north(220));
+    assertEquals(LocationManager.GPS_PROVIDER, sampling.getProvider());
+    assertEquals(LocationSamplingPolicy.MIN_INTERVAL, sampling.getInterval());
+    assertEquals(LocationSamplingPolicy.MIN_DISTANCE, sampling.getMinDistance());
+  }
+
+  public void testFarFromBoundary() {
+    Sampling sampling = policy.getSampling(north(100000));
+    assertTrue(sampling.isCoarse());
+    assertEquals(LocationSamplingPolicy.MAX_INTERVAL, sampling.getInterval());
+  }
+
+  public void testIntervalGrowsWithDistance() {
+    long previous = 0;
+    for (int meters = 200; meters < 100000; meters *= 2) {
+      Sampling sampling = policy.getSampling(north(meters));
+      assertTrue(sampling.getInterval() >= previous);
+      // Unless sampling as often as it can, the user can not reach the boundary before the next
+      // fix, even at the assumed speed
+      if (sampling.getInterval() > LocationSamplingPolicy.MIN_INTERVAL) {
+        double reach = sampling.getInterval() / 1000.0 * LocationSamplingPolicy.ASSUMED_SPEED;
+        assertTrue(reach <= policy.getDistanceToBoundary(north(meters)));
+      }
+      previous = sampling.getInterval();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import android.location.LocationManager;
+import android.util.Log;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.GeofenceTrackSimulator.Result;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.GeofenceTrackSimulator.TrackBuilder;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.GeofenceTrackSimulator.TrackPoint;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.LocationSamplingPolicy.Sampling;
+
+/**
+ * Replays GPS tracks through {@link GeofenceTrackSimulator} to compare the fixes the adaptive
+ * {@link LocationSamplingPolicy} takes, and the geofence transitions it detects, against sampling
+ * at a fixed rate. The results are logged under this class' tag.
+ */
+public class LocationSamplingSimulationTest extends TestCase {
+  private static final String TAG = LocationSamplingSimulationTest.class.getSimpleName();
+
+  private static final double LATITUDE = 40.7308;
+  private static final double LONGITUDE = -73.9973;
+  /** Roughly 10 km in degrees of latitude. */
+  private static final double TEN_KM = 0.09;
+  /** Driving speed in meters per second. */
+  private static final double SPEED = 15;
+
+  /** What the monitor did before it adapted. */
+  private static final Sampling FIVE_MINUTES = LocationSamplingPolicy.DEFAULT;
+  /** Sampling as often as the adaptive policy ever does, all the time. */
+  private static final Sampling FIFTEEN_SECONDS = new Sampling(LocationManager.GPS_PROVIDER,
+      LocationSamplingPolicy.MIN_INTERVAL, LocationSamplingPolicy.MIN_DISTANCE);
+
+  private final List<OmniArea> geofences = Collections.singletonList(GeofenceTrackSimulator
+      .geofence(LATITUDE, LONGITUDE, 200));
+
+  /** Drive into the geofence, stay for ten minutes and drive back out. */
+  private static List<TrackPoint> visitTrack() {
+    return new TrackBuilder(LATITUDE + TEN_KM, LONGITUDE).moveTo(LATITUDE, LONGITUDE, SPEED).stay(
+        600).moveTo(LATITUDE + TEN_KM, LONGITUDE, SPEED).build();
+  }
+
+  /** Drive straight through the geofence without stopping. */
+  private static List<TrackPoint> passTrack() {
+    return new TrackBuilder(LATITUDE + TEN_KM, LONGITUDE).moveTo(LATITUDE - TEN_KM, LONGITUDE,
+        SPEED).build();
+  }
+
+  private Result run(String name, List<TrackPoint> track,
+      GeofenceTrackSimulator.SamplingSource source) {
+    Result result = GeofenceTrackSimulator.replay(track, geofences, source);
+    Log.i(TAG, name + ": " + result);
+    return result;
+  }
+
+  public void testVisit() {
+    List<TrackPoint> track = visitTrack();
+    Result adaptive = run("visit, adaptive", track, GeofenceTrackSimulator.adaptive(geofences));
+    Result fast = run("visit, every 15s", track, GeofenceTrackSimulator.fixed(FIFTEEN_SECONDS));
+    run("visit, every 5min", track, GeofenceTrackSimulator.fixed(FIVE_MINUTES));
+
+    assertEquals(2, adaptive.getTransitions());
+    assertEquals(2, adaptive.getDetectedTransitions());
+    assertTrue(adaptive.getCoarseFixes() > 0);
+    assertTrue(adaptive.getFixes() < fast.getFixes() * 2 / 3);
+    assertTrue(adaptive.getMeanDelay() <= LocationSamplingPolicy.MIN_INTERVAL);
+  }
+
+  public void testPassThrough() {
+    List<TrackPoint> track = passTrack();
+    Result adaptive = run("pass, adaptive", track, GeofenceTrackSimulator.adaptive(geofences));
+    Result fast = run("pass, every 15s", track, GeofenceTrackSimulator.fixed(FIFTEEN_SECONDS));
+    run("pass, every 5min", track, GeofenceTrackSimulator.fixed(FIVE_MINUTES));
+
+    assertEquals(2, adaptive.getDetectedTransitions());
+    assertEquals(fast.getDetectedTransitions(), adaptive.getDetectedTransitions());
+    assertTrue(adaptive.getFixes() < fast.getFixes() * 2 / 3);
+  }
+
+  public void testDeterministic() {
+    List<TrackPoint> track = passTrack();
+    Result first = GeofenceTrackSimulator.replay(track, geofences, GeofenceTrackSimulator
+        .adaptive(geofences));
+    Result second = GeofenceTrackSimulator.replay(passTrack(), geofences, GeofenceTrackSimulator
+        .adaptive(geofences));
+    assertEquals(first, second);
+  }
+}
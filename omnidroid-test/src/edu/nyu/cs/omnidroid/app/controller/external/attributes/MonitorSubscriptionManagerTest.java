@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import edu.nyu.cs.omnidroid.app.controller.Event;
+import edu.nyu.cs.omnidroid.app.controller.ResultProcessor;
+import edu.nyu.cs.omnidroid.app.controller.events.LocationChangedEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.SMSReceivedEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.TimeTickEvent;
+
+/**
+ * Unit tests for {@link MonitorSubscriptionManager} class.
+ */
+public class MonitorSubscriptionManagerTest extends TestCase {
+
+  /** Counts how often it was started and stopped, and is required for one event. */
+  private static class FakeMonitor implements SystemServiceEventMonitor {
+    private final String eventName;
+    int starts;
+    int stops;
+
+    FakeMonitor(String eventName) {
+      this.eventName = eventName;
+    }
+
+    public String getSystemServiceName() {
+      return "FAKE_SERVICE";
+    }
+
+    public void init() {
+      starts++;
+    }
+
+    public void stop() {
+      stops++;
+    }
+
+    public String getMonitorName() {
+      return "Fake" + eventName;
+    }
+
+    public boolean isRequired(MonitorDemand demand) {
+      return demand.usesEvent(eventName);
+    }
+  }
+
+  private static MonitorDemand demand(Set<String> eventNames, Set<String> attributeNames,
+      Set<Integer> failureTypes) {
+    return new MonitorDemand(eventNames.size(), eventNames, attributeNames, Collections
+        .<String> emptySet(), failureTypes);
+  }
+
+  private static MonitorDemand eventDemand(String... eventNames) {
+    Set<String> names = new HashSet<String>();
+    Collections.addAll(names, eventNames);
+    return demand(names, Collections.<String> emptySet(), Collections.<Integer> emptySet());
+  }
+
+  /** Tests that monitors start and stop as the events rules use change */
+  public void testUpdateAll() {
+    FakeMonitor location = new FakeMonitor(LocationChangedEvent.EVENT_NAME);
+    FakeMonitor time = new FakeMonitor(TimeTickEvent.EVENT_NAME);
+    MonitorSubscriptionManager manager = new MonitorSubscriptionManager(location, time);
+
+    manager.updateAll(eventDemand(SMSReceivedEvent.EVENT_NAME));
+    assertFalse(manager.isStarted(location));
+    assertFalse(manager.isStarted(time));
+
+    manager.updateAll(eventDemand(LocationChangedEvent.EVENT_NAME));
+    assertTrue(manager.isStarted(location));
+    assertFalse(manager.isStarted(time));
+
+    // Updating with the same demand does not restart anything
+    manager.updateAll(eventDemand(LocationChangedEvent.EVENT_NAME));
+    assertEquals(1, location.starts);
+
+    manager.updateAll(eventDemand(TimeTickEvent.EVENT_NAME));
+    assertFalse(manager.isStarted(location));
+    assertTrue(manager.isStarted(time));
+    assertEquals(1, location.stops);
+
+    manager.stopAll();
+    assertFalse(manager.isStarted(time));
+    assertEquals(1, time.stops);
+  }
+
+  /** Tests that every monitor starts when the demand could not be read */
+  public void testUnknownDemand() {
+    FakeMonitor location = new FakeMonitor(LocationChangedEvent.EVENT_NAME);
+    MonitorSubscriptionManager manager = new MonitorSubscriptionManager(location);
+    manager.updateAll(null);
+    assertTrue(manager.isStarted(location));
+  }
+
+  /** Tests when the location and time monitors are required */
+  public void testMonitorRequirements() {
+    LocationMonitor location = new LocationMonitor(null);
+    TimeMonitor time = new TimeMonitor(null);
+    Set<String> none = Collections.emptySet();
+    Set<Integer> noFailures = Collections.emptySet();
+
+    MonitorDemand idle = eventDemand(SMSReceivedEvent.EVENT_NAME);
+    assertFalse(location.isRequired(idle));
+    assertFalse(time.isRequired(idle));
+
+    assertTrue(location.isRequired(eventDemand(LocationChangedEvent.EVENT_NAME)));
+    assertTrue(location.isRequired(demand(none, Collections.singleton(Event.ATTRIBUTE_LOCATION),
+        noFailures)));
+
+    assertTrue(time.isRequired(eventDemand(TimeTickEvent.EVENT_NAME)));
+    assertTrue(time.isRequired(demand(none, none, Collections
+        .singleton(ResultProcessor.RESULT_FAILURE_UNKNOWN))));
+  }
+}
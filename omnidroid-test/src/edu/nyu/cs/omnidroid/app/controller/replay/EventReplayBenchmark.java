@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import edu.nyu.cs.omnidroid.app.controller.RuleTestData;
+import edu.nyu.cs.omnidroid.app.controller.events.SMSReceivedEvent;
+import edu.nyu.cs.omnidroid.app.model.CoreActionsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.CoreRulesDbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+
+/**
+ * Replays a synthetic trace through {@link EventReplayer} against the {@link RuleTestData} rules
+ * and logs the report under this class' tag.
+ */
+public class EventReplayBenchmark extends AndroidTestCase {
+  private static final String TAG = EventReplayBenchmark.class.getSimpleName();
+  private static final int EVENTS = 500;
+
+  private DbHelper omnidroidDbHelper;
+  private CoreRulesDbHelper coreRulesDbHelper;
+  private CoreActionsDbHelper coreActionsDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(getContext());
+    SQLiteDatabase database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    RuleTestData.prePopulateDatabase(database);
+    coreRulesDbHelper = new CoreRulesDbHelper(getContext());
+    coreActionsDbHelper = new CoreActionsDbHelper(getContext());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    coreActionsDbHelper.close();
+    coreRulesDbHelper.close();
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    omnidroidDbHelper.close();
+    super.tearDown();
+  }
+
+  /** Every other text message comes from the number the test rules filter on. */
+  private static List<EventRecord> trace() {
+    List<EventRecord> records = new ArrayList<EventRecord>(EVENTS);
+    for (int i = 0; i < EVENTS; i++) {
+      HashMap<String, String> attributes = new HashMap<String, String>();
+      attributes.put(SMSReceivedEvent.ATTRIB_PHONE_NO, i % 2 == 0 ? "123-456-7890"
+          : "000-000-0000");
+      attributes.put(SMSReceivedEvent.ATTRIB_MESSAGE_TEXT, "Some Other Text");
+      records.add(new EventRecord(i * 10L, SMSReceivedEvent.APPLICATION_NAME,
+          SMSReceivedEvent.EVENT_NAME, attributes));
+    }
+    return records;
+  }
+
+  public void testFullSpeed() throws InterruptedException {
+    ReplayReport report = new EventReplayer(coreRulesDbHelper, coreActionsDbHelper).replay(
+        trace(), EventReplayer.FULL_SPEED);
+    Log.i(TAG, "Full speed: " + report);
+
+    assertEquals(EVENTS, report.getEventCount());
+    assertEquals(0, report.getFailedEventCount());
+    assertFalse(report.getRuleHits().isEmpty());
+    assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+  }
+
+  public void testScaledTime() throws InterruptedException {
+    // 5 seconds of recorded traffic replayed 10 times faster
+    ReplayReport report = new EventReplayer(coreRulesDbHelper, coreActionsDbHelper).replay(
+        trace(), 10);
+    Log.i(TAG, "Scaled time: " + report);
+
+    assertEquals(EVENTS, report.getEventCount());
+    assertTrue(report.getElapsedMillis() >= (EVENTS - 1) * 10 / 10);
+  }
+}
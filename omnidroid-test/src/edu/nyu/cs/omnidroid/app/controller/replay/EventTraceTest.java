@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link EventTrace} and {@link EventRecord} classes.
+ */
+public class EventTraceTest extends TestCase {
+
+  private static EventRecord record(long timestamp, String... keysAndValues) {
+    LinkedHashMap<String, String> attributes = new LinkedHashMap<String, String>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      attributes.put(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return new EventRecord(timestamp, "SMS", "SMS Received", attributes);
+  }
+
+  public void testRoundTrip() throws IOException {
+    List<EventRecord> records = new ArrayList<EventRecord>();
+    records.add(record(1000, "SMS Phonenumber", "5556", "SMS Text", "Hello"));
+    records.add(record(2000, "SMS Phonenumber", "5557", "SMS Text", "tab\there\nnew=line\\"));
+    records.add(record(3000));
+
+    StringWriter writer = new StringWriter();
+    EventTrace.write(writer, records);
+    assertEquals(records, EventTrace.read(new StringReader(writer.toString())));
+  }
+
+  public void testReadSkipsComments() throws IOException {
+    String trace = "# comment\n\n5\tPhone\tPhone is Ringing\tPhone Number=5556\n";
+    List<EventRecord> records = EventTrace.read(new StringReader(trace));
+    assertEquals(1, records.size());
+    assertEquals("Phone is Ringing", records.get(0).getEventName());
+    assertEquals("5556", records.get(0).getAttributes().get("Phone Number"));
+  }
+
+  public void testReadMalformed() {
+    String[] malformed = { "5\tPhone\n", "x\tPhone\tPhone is Ringing\n",
+        "5\tPhone\tPhone is Ringing\tnovalue\n" };
+    for (String trace : malformed) {
+      try {
+        EventTrace.read(new StringReader(trace));
+        fail("Expected an IOException for " + trace);
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+  }
+
+  public void testReplayedEvent() {
+    ReplayedEvent event = new ReplayedEvent(record(1000, "SMS Phonenumber", "5556"));
+    assertEquals("SMS Received", event.getEventName());
+    assertEquals("5556", event.getAttribute("SMS Phonenumber"));
+    try {
+      event.getAttribute("Unknown");
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+}
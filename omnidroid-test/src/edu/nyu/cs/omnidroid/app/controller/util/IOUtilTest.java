@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import android.test.AndroidTestCase;
+
+/**
+ * Unit tests for {@link IOUtil} class.
+ */
+public class IOUtilTest extends AndroidTestCase {
+  private String source;
+  private String target;
+  private String manifest;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    File dir = getContext().getCacheDir();
+    source = new File(dir, "ioutil_source").getPath();
+    target = new File(dir, "ioutil_target").getPath();
+    manifest = new File(dir, "ioutil_target.manifest").getPath();
+
+    FileOutputStream out = new FileOutputStream(source);
+    byte[] content = new byte[100000];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    out.write(content);
+    out.close();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    IOUtil.remove(source);
+    IOUtil.remove(target);
+    IOUtil.remove(manifest);
+    super.tearDown();
+  }
+
+  /** Test that a copy has the same content as its source */
+  public void testCopy() throws IOException {
+    IOUtil.copy(source, target);
+    assertTrue(Arrays.equals(content(source), content(target)));
+    assertEquals(IOUtil.checksum(source), IOUtil.checksum(target));
+  }
+
+  /** Test that copying over a longer file leaves nothing of it behind */
+  public void testCopyOverLongerFile() throws IOException {
+    RandomAccessFile file = new RandomAccessFile(target, "rw");
+    file.setLength(200000);
+    file.close();
+    IOUtil.copy(source, target);
+    assertEquals(new File(source).length(), new File(target).length());
+  }
+
+  /** Test that a manifest holds while its files are intact */
+  public void testManifest() {
+    IOUtil.copy(source, target);
+    IOUtil.writeManifest(manifest, target);
+    assertTrue(IOUtil.verifyManifest(manifest));
+  }
+
+  /** Test that a manifest no longer holds once a file it lists changes or is gone */
+  public void testManifestDetectsChanges() throws IOException {
+    IOUtil.copy(source, target);
+    IOUtil.writeManifest(manifest, target);
+    RandomAccessFile file = new RandomAccessFile(target, "rw");
+    file.seek(5000);
+    file.write(0xff);
+    file.close();
+    assertFalse(IOUtil.verifyManifest(manifest));
+
+    IOUtil.remove(target);
+    assertFalse(IOUtil.verifyManifest(manifest));
+  }
+
+  /** Test that there is nothing to verify without a manifest */
+  public void testMissingManifest() {
+    assertFalse(IOUtil.verifyManifest(manifest));
+  }
+
+  private static byte[] content(String path) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(path, "r");
+    byte[] content = new byte[(int) file.length()];
+    file.readFully(content);
+    file.close();
+    return content;
+  }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link InitGraph} class. Only background tasks are used, so no main thread
+ * handler is needed.
+ */
+public class InitGraphTest extends TestCase {
+  private static final long TIMEOUT = 5000;
+
+  private List<String> ran;
+  private InitGraph graph;
+
+  @Override
+  public void setUp() {
+    ran = Collections.synchronizedList(new ArrayList<String>());
+    graph = new InitGraph(null, StartupTracer.instance());
+  }
+
+  private InitGraph.Task task(final String name, String... dependencies) {
+    return new InitGraph.Task(name, false, dependencies) {
+      @Override
+      public void run() {
+        ran.add(name);
+      }
+    };
+  }
+
+  private void waitUntilDone() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (!graph.isDone() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(graph.isDone());
+  }
+
+  /** Tests that every task runs after the tasks it depends on */
+  public void testDependencyOrder() throws InterruptedException {
+    graph.add(task("monitors", "rules"));
+    graph.add(task("alert", "rules"));
+    graph.add(task("rules", "database"));
+    graph.add(task("database"));
+    graph.start();
+    waitUntilDone();
+
+    assertEquals(4, ran.size());
+    assertEquals("database", ran.get(0));
+    assertEquals("rules", ran.get(1));
+    assertTrue(ran.contains("monitors"));
+    assertTrue(ran.contains("alert"));
+  }
+
+  /** Tests that the dependents of a failed task still run */
+  public void testFailedTaskFinishes() throws InterruptedException {
+    graph.add(new InitGraph.Task("database", false) {
+      @Override
+      public void run() throws Exception {
+        throw new Exception("cannot open");
+      }
+    });
+    graph.add(task("monitors", "database"));
+    graph.start();
+    waitUntilDone();
+
+    assertEquals(1, ran.size());
+    assertEquals("monitors", ran.get(0));
+  }
+
+  /** Tests that unknown dependencies and cycles are rejected */
+  public void testInvalidGraph() {
+    graph.add(task("monitors", "unknown"));
+    try {
+      graph.start();
+      fail("Unknown dependency accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    graph = new InitGraph(null, StartupTracer.instance());
+    graph.add(task("a", "b"));
+    graph.add(task("b", "a"));
+    try {
+      graph.start();
+      fail("Cycle accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+}
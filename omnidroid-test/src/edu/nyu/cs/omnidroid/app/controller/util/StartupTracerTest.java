@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link StartupTracer} class.
+ */
+public class StartupTracerTest extends TestCase {
+  private StartupTracer tracer;
+
+  @Override
+  public void setUp() {
+    tracer = StartupTracer.instance();
+    tracer.restart();
+  }
+
+  @Override
+  public void tearDown() {
+    tracer.restart();
+  }
+
+  /** Tests that steps past the limit are timed but not kept */
+  public void testStepsCapped() {
+    for (int i = 0; i < StartupTracer.MAX_STEPS + 10; i++) {
+      tracer.begin("step " + i).end();
+    }
+    assertEquals(StartupTracer.MAX_STEPS, tracer.getSteps().size());
+    assertEquals("step 0", tracer.getSteps().get(0).getName());
+  }
+
+  /** Tests that restarting drops the steps and the first event of the previous trace */
+  public void testRestart() {
+    tracer.begin("step").end();
+    tracer.eventHandled();
+    assertTrue(tracer.getTimeToFirstEvent() >= 0);
+
+    tracer.restart();
+    assertEquals(0, tracer.getSteps().size());
+    assertEquals(-1, tracer.getTimeToFirstEvent());
+  }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
+
+import java.util.HashMap;
+
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import edu.nyu.cs.omnidroid.app.controller.Action;
+import edu.nyu.cs.omnidroid.app.controller.actions.BroadcastIntentAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowAlertAction;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniText;
+import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
+
+/**
+ * Android Unit Test for {@link ActionRegistry} class.
+ */
+public class ActionRegistryTest extends AndroidTestCase {
+  private DbHelper dbHelper;
+  private SQLiteDatabase database;
+  private RegisteredActionDbAdapter registeredActionDbAdapter;
+  private ActionRegistry registry;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    dbHelper = new DbHelper(getContext());
+    database = dbHelper.getReadableDatabase();
+    registeredActionDbAdapter = new RegisteredActionDbAdapter(database);
+    registry = new ActionRegistry(new RegisteredAppDbAdapter(database), registeredActionDbAdapter);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    database.close();
+    dbHelper.close();
+    super.tearDown();
+  }
+
+  public void testEveryRegisteredActionHasFactory() {
+    Cursor cursor = registeredActionDbAdapter.fetchAll();
+    assertTrue(cursor.getCount() > 0);
+    while (cursor.moveToNext()) {
+      String[] info = registry.getActionInfo(getLongFromCursor(cursor,
+          RegisteredActionDbAdapter.KEY_ACTIONID));
+      assertNotNull(info);
+      assertTrue(info[0] + ": " + info[1], ActionRegistry.isRegistered(info[0], info[1]));
+    }
+    cursor.close();
+    assertNull(registry.getActionInfo(-1));
+  }
+
+  public void testCreateBuiltInAction() throws OmnidroidException {
+    Action action = registry.createAction(ShowAlertAction.APP_NAME, ShowAlertAction.ACTION_NAME,
+        alertParameters());
+    assertTrue(action instanceof ShowAlertAction);
+  }
+
+  public void testUnknownAction() {
+    try {
+      registry.createAction(SendSmsAction.APP_NAME, "No Such Action",
+          new HashMap<String, String>());
+      fail("Expected OmnidroidException");
+    } catch (OmnidroidException e) {
+      assertEquals(120003, e.getCode());
+    }
+  }
+
+  public void testRegisterAction() throws OmnidroidException {
+    final Action alert = registry.createAction(ShowAlertAction.APP_NAME,
+        ShowAlertAction.ACTION_NAME, alertParameters());
+    assertFalse(ActionRegistry.isRegistered("Test App", "Test Action"));
+    ActionRegistry.register("Test App", "Test Action", new ActionRegistry.Factory() {
+      public Action create(HashMap<String, String> parameters) {
+        return alert;
+      }
+    });
+    assertTrue(ActionRegistry.isRegistered("Test App", "Test Action"));
+    assertSame(alert, registry.createAction("Test App", "Test Action", null));
+  }
+
+  public void testRegisterExternalAction() throws OmnidroidException {
+    HashMap<String, String> parameterTypes = new HashMap<String, String>();
+    parameterTypes.put("message", OmniText.DB_NAME);
+    SQLiteDatabase writableDatabase = dbHelper.getWritableDatabase();
+    dbHelper.backup();
+    try {
+      writableDatabase.beginTransaction();
+      try {
+        ActionRegistry.registerExternal(writableDatabase, "External App", "com.example.external",
+            "com.example.external.PerformReceiver", "External Action", parameterTypes);
+        writableDatabase.setTransactionSuccessful();
+      } finally {
+        writableDatabase.endTransaction();
+      }
+
+      ActionRegistry externalRegistry = new ActionRegistry(new RegisteredAppDbAdapter(
+          writableDatabase), new RegisteredActionDbAdapter(writableDatabase));
+      Action action = externalRegistry.createAction("External App", "External Action",
+          alertParameters());
+      assertTrue(action instanceof BroadcastIntentAction);
+      Intent intent = action.getIntent();
+      assertEquals(BroadcastIntentAction.ACTION_PERFORM, intent.getAction());
+      // Sent to the registered receiver only
+      assertEquals("com.example.external", intent.getComponent().getPackageName());
+      assertEquals("com.example.external.PerformReceiver", intent.getComponent().getClassName());
+      assertEquals("Hello", intent.getStringExtra(ShowAlertAction.PARAM_ALERT_MESSAGE));
+      assertEquals(Action.BY_BROADCAST, action.getExecutionMethod());
+    } finally {
+      dbHelper.restore();
+    }
+  }
+
+  public void testRegisterExternalBuiltInApp() {
+    SQLiteDatabase writableDatabase = dbHelper.getWritableDatabase();
+    try {
+      ActionRegistry.registerExternal(writableDatabase, SendSmsAction.APP_NAME,
+          "com.example.external", "com.example.external.PerformReceiver", "External Action",
+          new HashMap<String, String>());
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected, built-in applications can't take external actions
+    }
+  }
+
+  private static HashMap<String, String> alertParameters() {
+    HashMap<String, String> parameters = new HashMap<String, String>();
+    parameters.put(ShowAlertAction.PARAM_ALERT_MESSAGE, "Hello");
+    return parameters;
+  }
+}
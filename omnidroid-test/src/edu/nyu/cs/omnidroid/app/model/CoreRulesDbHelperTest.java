@@ -24,6 +24,7 @@ import edu.nyu.cs.omnidroid.app.controller.RuleTestData;
 import edu.nyu.cs.omnidroid.app.controller.events.SMSReceivedEvent;
 import edu.nyu.cs.omnidroid.app.model.CoreRulesDbHelper;
 import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
 
 /**
  * Unit tests for {@link CoreRuleDbHelper} class.
@@ -64,4 +65,19 @@ public class CoreRulesDbHelperTest extends AndroidTestCase {
     ArrayList<Rule> actualRules = coreDbHelper.getRulesMatchingEvent(appName, eventName);
     assertEquals(actualRules, expectedRules);
   }
+
+  /** Test that rules with a higher priority are returned first */
+  public void testGetRulesMatchingEvent_priority() {
+    Rule sayHello2 = RuleTestData.getRule(RuleTestData.RULE_SAY_HELLO2);
+    new RuleDbAdapter(database).updatePriority(sayHello2.getRuleID(), 5, false);
+
+    ArrayList<Rule> actualRules = coreDbHelper.getRulesMatchingEvent(
+        SMSReceivedEvent.APPLICATION_NAME, SMSReceivedEvent.EVENT_NAME);
+    assertEquals(RuleTestData.getRules().size(), actualRules.size());
+    assertEquals(sayHello2.ruleName, actualRules.get(0).ruleName);
+    assertEquals(5, actualRules.get(0).getPriority());
+    assertFalse(actualRules.get(0).isExclusive());
+    assertEquals(RuleTestData.getRule(RuleTestData.RULE_DO_NOT_DISTURB).ruleName, actualRules
+        .get(1).ruleName);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import edu.nyu.cs.omnidroid.app.controller.RuleTestData;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
+
+/**
+ * Measures how long the rule list takes to read while the services flood the database with log
+ * writes, the way an event storm does. Results are written to the log.
+ */
+public class DbConcurrencyBenchmark extends AndroidTestCase {
+  private static final String TAG = DbConcurrencyBenchmark.class.getSimpleName();
+
+  private static final int LOG_COUNT = 2000;
+  private static final int READ_COUNT = 200;
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+  private LogDbHelper logDbHelper;
+  private UIDbHelper uiDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(this.getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    logDbHelper = new LogDbHelper(getContext());
+    logDbHelper.getWritableDatabase();
+    logDbHelper.backup();
+    RuleTestData.prePopulateDatabase(database);
+    uiDbHelper = new UIDbHelper(getContext());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    uiDbHelper.close();
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+    logDbHelper.close();
+  }
+
+  /** Read the rule list while another thread inserts {@link #LOG_COUNT} logs */
+  public void testReadsDuringLogFlood() throws Exception {
+    int ruleCount = RuleTestData.getRules().size();
+    long idle = readRules(READ_COUNT, ruleCount, null);
+    Log.i(TAG, READ_COUNT + " idle reads took " + idle + "ms");
+
+    final int[] failed = new int[1];
+    Thread writer = new Thread(new Runnable() {
+      public void run() {
+        CoreGeneralLogsDbHelper logsDbHelper = new CoreGeneralLogsDbHelper(getContext());
+        try {
+          for (int i = 0; i < LOG_COUNT; i++) {
+            if (logsDbHelper.insert(new GeneralLog(TAG + " " + i, Logger.INFO)) == -1) {
+              failed[0]++;
+            }
+          }
+        } finally {
+          logsDbHelper.close();
+        }
+      }
+    });
+
+    long start = System.currentTimeMillis();
+    writer.start();
+    long[] worst = new long[1];
+    int reads = 0;
+    long busy = 0;
+    while (writer.isAlive()) {
+      busy += readRules(1, ruleCount, worst);
+      reads++;
+    }
+    writer.join();
+    Log.i(TAG, "inserted " + LOG_COUNT + " logs in " + (System.currentTimeMillis() - start)
+        + "ms, " + reads + " concurrent reads took " + busy + "ms, the slowest " + worst[0] + "ms");
+    assertEquals(0, failed[0]);
+  }
+
+  /** Test that all helpers write through one connection, which outlives all but its last user */
+  public void testSharedWriter() {
+    DbHelper other = new DbHelper(getContext());
+    SQLiteDatabase otherDatabase = other.getWritableDatabase();
+    assertSame(database, otherDatabase);
+
+    other.close();
+    assertFalse(other.isOpen());
+    assertTrue(omnidroidDbHelper.isOpen());
+    assertTrue(database.isOpen());
+  }
+
+  /**
+   * @return the milliseconds reading the rule list count times took, the slowest read is kept in
+   *         worst if given
+   */
+  private long readRules(int count, int ruleCount, long[] worst) {
+    long total = 0;
+    for (int i = 0; i < count; i++) {
+      long start = System.currentTimeMillis();
+      assertEquals(ruleCount, uiDbHelper.getRules().size());
+      long took = System.currentTimeMillis() - start;
+      if (worst != null && took > worst[0]) {
+        worst[0] = took;
+      }
+      total += took;
+    }
+    return total;
+  }
+}
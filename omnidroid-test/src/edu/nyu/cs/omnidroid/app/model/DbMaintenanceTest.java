@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabase;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.LogGeneralDbAdapter;
+
+/**
+ * Unit tests for {@link DbMaintenance} class.
+ */
+public class DbMaintenanceTest extends AndroidTestCase {
+  private static final int[] PREF_KEYS = { R.string.pref_key_maintenance_last_run,
+      R.string.pref_key_maintenance_duration, R.string.pref_key_maintenance_reclaimed,
+      R.string.pref_key_maintenance_intact };
+
+  private DbHelper omnidroidDbHelper;
+  private LogDbHelper logDbHelper;
+  private DbMaintenance maintenance;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(getContext());
+    omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    logDbHelper = new LogDbHelper(getContext());
+    logDbHelper.getWritableDatabase();
+    logDbHelper.backup();
+    clearPrefs();
+    maintenance = new DbMaintenance(getContext());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    clearPrefs();
+    // Try to restore the databases
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+    logDbHelper.close();
+  }
+
+  /** Test that a run is recorded and not due again right after */
+  public void testRun() {
+    assertTrue(maintenance.isDue());
+    assertEquals(0, maintenance.getLastRun());
+
+    assertTrue(maintenance.run());
+    assertTrue(maintenance.getLastRun() > 0);
+    assertTrue(maintenance.getLastDuration() >= 0);
+    assertTrue(maintenance.wasIntact());
+    assertFalse(maintenance.isDue());
+  }
+
+  /** Test that pages freed by pruning the logs are given back to the file system */
+  public void testReclaimsPrunedLogs() {
+    SQLiteDatabase logDatabase = logDbHelper.getWritableDatabase();
+    LogGeneralDbAdapter logGeneralDbAdapter = new LogGeneralDbAdapter(logDatabase);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      text.append("maintenance ");
+    }
+    logDatabase.beginTransaction();
+    try {
+      for (int i = 0; i < 1000; i++) {
+        logGeneralDbAdapter.insert(System.currentTimeMillis(), text.toString(), 0);
+      }
+      logDatabase.setTransactionSuccessful();
+    } finally {
+      logDatabase.endTransaction();
+    }
+    logDbHelper.cleanup(logDatabase);
+    logDbHelper.close();
+    long before = maintenance.getLogDatabaseSize();
+
+    assertTrue(maintenance.run());
+    assertTrue(maintenance.getLastReclaimed() > 0);
+    assertTrue(maintenance.getLogDatabaseSize() < before);
+  }
+
+  /** Test that the database sizes are reported */
+  public void testSizes() {
+    assertTrue(maintenance.getRulesDatabaseSize() > 0);
+    assertTrue(maintenance.getLogDatabaseSize() > 0);
+  }
+
+  private void clearPrefs() {
+    SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(getContext())
+        .edit();
+    for (int key : PREF_KEYS) {
+      editor.remove(getContext().getString(key));
+    }
+    editor.commit();
+  }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.os.Bundle;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link LogParameters} class.
+ */
+public class LogParametersTest extends TestCase {
+
+  public void testRoundTrip() {
+    LinkedHashMap<String, String> parameters = new LinkedHashMap<String, String>();
+    parameters.put("Phone Number", "5556");
+    parameters.put("Text", "tab\there\nnew=line\\ and, comma");
+    parameters.put("a=b", "");
+
+    String encoded = LogParameters.encode(parameters);
+    assertEquals(parameters, LogParameters.decode(encoded));
+    assertEquals("", LogParameters.encode(new LinkedHashMap<String, String>()));
+    assertTrue(LogParameters.decode("").isEmpty());
+    assertTrue(LogParameters.decode(null).isEmpty());
+  }
+
+  public void testFromExtras() {
+    Bundle extras = new Bundle();
+    extras.putString("Text", "Hello");
+    extras.putLong("DatabaseId", 42);
+    extras.putBoolean("notification", true);
+    extras.putByteArray("pdu", new byte[] { 1, 2 });
+
+    Map<String, String> parameters = LogParameters.fromExtras(extras);
+    assertEquals(3, parameters.size());
+    assertEquals("Hello", parameters.get("Text"));
+    assertEquals("42", parameters.get("DatabaseId"));
+    assertEquals("true", parameters.get("notification"));
+    assertTrue(LogParameters.fromExtras(null).isEmpty());
+  }
+
+  public void testDecodeBundleString() {
+    Map<String, String> extras = LogParameters
+        .decode("Bundle[{Phone Number=5556, Time=12:00, Text=a, b, c}]");
+    assertEquals(3, extras.size());
+    assertEquals("5556", extras.get("Phone Number"));
+    assertEquals("12:00", extras.get("Time"));
+    assertEquals("a, b, c", extras.get("Text"));
+
+    assertTrue(LogParameters.decode("Bundle[{}]").isEmpty());
+    assertTrue(LogParameters.decode("Bundle[mParcelledData.dataSize=120]").isEmpty());
+  }
+
+  public void testLikePattern() {
+    assertEquals("%\tText=100!%!_done!!\t%", LogParameters.likePattern("Text", "100%_done!"));
+  }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import junit.framework.TestCase;
+import edu.nyu.cs.omnidroid.app.controller.Event;
+import edu.nyu.cs.omnidroid.app.controller.TestData;
+
+/**
+ * Unit tests for {@link ParameterTemplate} class.
+ */
+public class ParameterTemplateTest extends TestCase {
+  private Event event;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    event = TestData.getSMSEvent();
+  }
+
+  public void testLiteral() {
+    ParameterTemplate template = ParameterTemplate.compile("no tags here");
+    assertFalse(template.hasAttributes());
+    assertEquals("no tags here", template.render(event));
+    assertEquals("", ParameterTemplate.compile("").render(event));
+  }
+
+  public void testAttributes() {
+    ParameterTemplate template = ParameterTemplate.compile("From <SMS Phonenumber>: <SMS Text>!");
+    assertTrue(template.hasAttributes());
+    assertEquals("From " + TestData.TEST_PHONE_NO + ": " + TestData.TEST_MESSAGE_TEXT + "!",
+        template.render(event));
+    assertEquals(TestData.TEST_PHONE_NO + TestData.TEST_PHONE_NO,
+        ParameterTemplate.compile("<SMS Phonenumber><SMS Phonenumber>").render(event));
+  }
+
+  public void testTextThatIsNotATag() {
+    assertEquals("a > b <", ParameterTemplate.compile("a > b <").render(event));
+    assertEquals("<> " + TestData.TEST_PHONE_NO,
+        ParameterTemplate.compile("<> <SMS Phonenumber>").render(event));
+    assertEquals("2 > 1 and " + TestData.TEST_PHONE_NO,
+        ParameterTemplate.compile("2 > 1 and <SMS Phonenumber>").render(event));
+  }
+
+  public void testUnknownAttribute() {
+    ParameterTemplate template = ParameterTemplate.compile("Call <Caller Name>");
+    try {
+      template.render(event);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("<Caller Name>"));
+    }
+  }
+
+  public void testCompiledOnce() {
+    String source = "Re: <SMS Text>";
+    assertSame(ParameterTemplate.compile(source), ParameterTemplate.compile(source));
+  }
+}
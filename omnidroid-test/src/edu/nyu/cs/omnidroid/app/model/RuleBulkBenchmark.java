@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import edu.nyu.cs.omnidroid.app.controller.RuleTestData;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionParameterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleFilterDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelEvent;
+import edu.nyu.cs.omnidroid.app.view.simple.model.Rule;
+import edu.nyu.cs.omnidroid.app.view.simple.model.RuleNode;
+
+/**
+ * Measures saving and deleting many rules through {@link UIDbHelper}, the way a large import or
+ * clearing the rule list does. Results are written to the log.
+ */
+public class RuleBulkBenchmark extends AndroidTestCase {
+  private static final String TAG = RuleBulkBenchmark.class.getSimpleName();
+
+  private static final int RULE_COUNT = 1000;
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+  private UIDbHelper uiDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(this.getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    RuleTestData.prePopulateDatabase(database);
+    uiDbHelper = new UIDbHelper(getContext());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    uiDbHelper.close();
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+  }
+
+  /** Save {@link #RULE_COUNT} rules in one call, then delete them in one call */
+  public void testSaveAndDeleteRules() throws Exception {
+    List<Rule> rules = copies(RULE_COUNT);
+
+    long start = System.currentTimeMillis();
+    List<Long> ruleIDs = uiDbHelper.saveRules(rules);
+    Log.i(TAG, "saved " + RULE_COUNT + " rules in " + (System.currentTimeMillis() - start) + "ms");
+    assertEquals(RULE_COUNT, ruleIDs.size());
+
+    ArrayList<Rule> saved = new ArrayList<Rule>(RULE_COUNT);
+    for (Long ruleID : ruleIDs) {
+      saved.add(new Rule(ruleID));
+    }
+    start = System.currentTimeMillis();
+    uiDbHelper.deleteRules(saved);
+    Log.i(TAG, "deleted " + RULE_COUNT + " rules in " + (System.currentTimeMillis() - start)
+        + "ms");
+
+    // Only the rules the database started with are left
+    int ruleCount = RuleTestData.getRules().size();
+    assertEquals(ruleCount, new RuleDbAdapter(database).fetchAll().getCount());
+    assertEquals(ruleCount, uiDbHelper.getRules().size());
+  }
+
+  /** Test that saving a rule again replaces its records instead of adding to them */
+  public void testSaveRuleReplaces() throws Exception {
+    int actionCount = new RuleActionDbAdapter(database).fetchAll().getCount();
+    int parameterCount = new RuleActionParameterDbAdapter(database).fetchAll().getCount();
+    int filterCount = new RuleFilterDbAdapter(database).fetchAll().getCount();
+
+    for (Rule sparse : uiDbHelper.getRules()) {
+      uiDbHelper.saveRule(uiDbHelper.loadRule(sparse.getDatabaseId()));
+    }
+
+    assertEquals(RuleTestData.getRules().size(), uiDbHelper.getRules().size());
+    assertEquals(actionCount, new RuleActionDbAdapter(database).fetchAll().getCount());
+    assertEquals(parameterCount, new RuleActionParameterDbAdapter(database).fetchAll()
+        .getCount());
+    assertEquals(filterCount, new RuleFilterDbAdapter(database).fetchAll().getCount());
+  }
+
+  /** Test that deleting all rules leaves no records of them behind */
+  public void testDeleteAllRules() {
+    uiDbHelper.deleteAllRules();
+
+    assertEquals(0, new RuleDbAdapter(database).fetchAll().getCount());
+    assertEquals(0, new RuleActionDbAdapter(database).fetchAll().getCount());
+    assertEquals(0, new RuleActionParameterDbAdapter(database).fetchAll().getCount());
+    assertEquals(0, new RuleFilterDbAdapter(database).fetchAll().getCount());
+  }
+
+  /**
+   * @return new rules copied round robin from the rules the database was populated with
+   */
+  private List<Rule> copies(int count) {
+    ArrayList<Rule> loaded = new ArrayList<Rule>();
+    for (Rule sparse : uiDbHelper.getRules()) {
+      loaded.add(uiDbHelper.loadRule(sparse.getDatabaseId()));
+    }
+
+    ArrayList<Rule> copies = new ArrayList<Rule>(count);
+    for (int i = 0; i < count; i++) {
+      Rule source = loaded.get(i % loaded.size());
+      Rule copy = new Rule();
+      copy.setName(source.getName() + " " + i);
+      copy.setDescription(source.getDescription());
+      copy.setIsEnabled(source.getIsEnabled());
+      copy.setRootEvent((ModelEvent) source.getRootNode().getItem());
+      for (RuleNode child : source.getRootNode().getChildren()) {
+        copy.getRootNode().getChildren().add(child);
+      }
+      copies.add(copy);
+    }
+    return copies;
+  }
+}
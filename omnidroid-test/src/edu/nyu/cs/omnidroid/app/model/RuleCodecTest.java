@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2009 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import edu.nyu.cs.omnidroid.app.controller.Rule;
+import edu.nyu.cs.omnidroid.app.controller.RuleTestData;
+import edu.nyu.cs.omnidroid.app.controller.events.SMSReceivedEvent;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionParameterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleFilterDbAdapter;
+
+/**
+ * Unit tests for {@link RuleCodec} class.
+ */
+public class RuleCodecTest extends AndroidTestCase {
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+  private CoreRulesDbHelper coreDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(this.getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+
+    coreDbHelper = new CoreRulesDbHelper(getContext());
+
+    omnidroidDbHelper.backup();
+    RuleTestData.prePopulateDatabase(database);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+  }
+
+  private void deleteAllRules() {
+    new RuleDbAdapter(database).deleteAll();
+    new RuleFilterDbAdapter(database).deleteAll();
+    new RuleActionDbAdapter(database).deleteAll();
+    new RuleActionParameterDbAdapter(database).deleteAll();
+  }
+
+  /** Test that exported rules import back into the same rules */
+  public void testExportImport() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int exported = new RuleCodec(database).exportRules(out);
+    assertEquals(RuleTestData.getRules().size(), exported);
+
+    deleteAllRules();
+    assertEquals(0, coreDbHelper.getRulesMatchingEvent(SMSReceivedEvent.APPLICATION_NAME,
+        SMSReceivedEvent.EVENT_NAME).size());
+
+    int imported = new RuleCodec(database).importRules(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(exported, imported);
+
+    ArrayList<Rule> actualRules = coreDbHelper.getRulesMatchingEvent(
+        SMSReceivedEvent.APPLICATION_NAME, SMSReceivedEvent.EVENT_NAME);
+    assertEquals(RuleTestData.getRules(), actualRules);
+  }
+
+  /** Test that a stream of another format is rejected without importing anything */
+  public void testImportRejectsUnknownFormat() {
+    deleteAllRules();
+    try {
+      new RuleCodec(database).importRules(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5,
+          6 }));
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      // Expected
+    }
+    assertEquals(0, new RuleDbAdapter(database).fetchAll().getCount());
+  }
+
+  /** Test that a truncated stream imports nothing */
+  public void testImportTruncatedStream() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RuleCodec(database).exportRules(out);
+    byte[] bytes = out.toByteArray();
+    byte[] truncated = new byte[bytes.length - 1];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+    deleteAllRules();
+    try {
+      new RuleCodec(database).importRules(new ByteArrayInputStream(truncated));
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      // Expected
+    }
+    assertEquals(0, new RuleDbAdapter(database).fetchAll().getCount());
+  }
+
+  /** Test that a stream with an unknown record in place of its end tag imports nothing */
+  public void testImportUnknownTag() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RuleCodec(database).exportRules(out);
+    byte[] bytes = out.toByteArray();
+    bytes[bytes.length - 1] = 7;
+
+    deleteAllRules();
+    try {
+      new RuleCodec(database).importRules(new ByteArrayInputStream(bytes));
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      // Expected
+    }
+    assertEquals(0, new RuleDbAdapter(database).fetchAll().getCount());
+  }
+
+  public void testImportBadLength() throws IOException {
+    // A rule whose name is longer than any stream holds, then one of negative length
+    assertCorrupt(new byte[] { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 });
+    assertCorrupt(new byte[] { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f });
+  }
+
+  private void assertCorrupt(byte[] nameLength) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(RuleCodec.MAGIC);
+    data.writeShort(RuleCodec.VERSION);
+    data.writeByte(1);
+    data.write(nameLength);
+    data.close();
+
+    try {
+      new RuleCodec(database).importRules(new ByteArrayInputStream(out.toByteArray()));
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+}
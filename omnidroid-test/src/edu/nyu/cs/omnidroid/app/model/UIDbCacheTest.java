@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.Map;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import edu.nyu.cs.omnidroid.app.model.UIDbCache.Category;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelAction;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelApplication;
+
+/**
+ * Unit tests for {@link UIDbCache} class.
+ */
+public class UIDbCacheTest extends AndroidTestCase {
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(this.getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    UIDbCache.invalidateAll();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+  }
+
+  /** Test that categories are only loaded when asked for */
+  public void testLoadsOnFirstUse() {
+    assertFalse(UIDbCache.isLoaded(Category.EVENTS));
+    assertFalse(UIDbCache.isLoaded(Category.APPLICATIONS));
+
+    Map<Long, ModelApplication> applications = UIDbCache.getApplications(database);
+    assertTrue(applications.size() > 0);
+    assertTrue(UIDbCache.isLoaded(Category.APPLICATIONS));
+    assertFalse(UIDbCache.isLoaded(Category.EVENTS));
+
+    // Later lookups share the loaded copy
+    assertSame(applications, UIDbCache.getApplications(database));
+  }
+
+  /** Test that invalidating a category makes the next lookup read the database again */
+  public void testInvalidate() {
+    Map<Long, ModelApplication> applications = UIDbCache.getApplications(database);
+    Map<Long, ModelAction> actions = UIDbCache.getActions(database);
+    UIDbCache.getEvents(database);
+
+    long appID = applications.keySet().iterator().next();
+    new RegisteredAppDbAdapter(database).update(appID, null, null, null, null, "user", "secret");
+    assertSame(applications, UIDbCache.getApplications(database));
+
+    UIDbCache.invalidate(Category.APPLICATIONS);
+    assertFalse(UIDbCache.isLoaded(Category.APPLICATIONS));
+    assertFalse(UIDbCache.isLoaded(Category.ACTIONS));
+    assertTrue(UIDbCache.isLoaded(Category.EVENTS));
+
+    Map<Long, ModelApplication> reloaded = UIDbCache.getApplications(database);
+    assertNotSame(applications, reloaded);
+    assertEquals("user", reloaded.get(appID).getUsername());
+    assertNotSame(actions, UIDbCache.getActions(database));
+  }
+
+  /** Test that migrating the database drops every cached category */
+  public void testMigrationInvalidates() {
+    UIDbCache.getDataTypeClassNames(database);
+    UIDbCache.getDataFilterNames(database);
+    omnidroidDbHelper.cleanup(database);
+    for (Category category : Category.values()) {
+      assertFalse(UIDbCache.isLoaded(category));
+    }
+  }
+}
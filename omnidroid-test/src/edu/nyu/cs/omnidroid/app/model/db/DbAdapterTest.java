@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+/**
+ * Android Unit Test for the statement cache of {@link DbAdapter}.
+ */
+public class DbAdapterTest extends AndroidTestCase {
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+  private RuleActionDbAdapter dbAdapter;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(this.getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    dbAdapter = new RuleActionDbAdapter(database);
+    omnidroidDbHelper.backup();
+    dbAdapter.deleteAll();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    dbAdapter.deleteAll();
+
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+
+    omnidroidDbHelper.close();
+    super.tearDown();
+  }
+
+  /** Test that the cached statements bind new values on every call */
+  public void testRepeatedStatements() {
+    for (long i = 1; i <= 10; i++) {
+      assertTrue(dbAdapter.insert(i, i * 10) != -1);
+    }
+    for (long i = 1; i <= 10; i++) {
+      Cursor cursor = dbAdapter.fetchAll(i, null);
+      assertEquals(1, cursor.getCount());
+      cursor.moveToFirst();
+      assertEquals(i * 10, cursor.getLong(cursor.getColumnIndex(RuleActionDbAdapter.KEY_ACTIONID)));
+      cursor.close();
+    }
+
+    Cursor cursor = dbAdapter.fetchAll(Long.valueOf(3), Long.valueOf(30));
+    long id = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+    cursor.close();
+    assertTrue(dbAdapter.delete(id));
+    assertFalse(dbAdapter.delete(id));
+    assertEquals(9, dbAdapter.fetchAll().getCount());
+  }
+
+  /** Test that adapters keep working after the statements of their database are released */
+  public void testReleaseStatements() {
+    long id = dbAdapter.insert(Long.valueOf(1), Long.valueOf(11));
+    DbAdapter.releaseStatements(database);
+
+    assertTrue(dbAdapter.insert(Long.valueOf(2), Long.valueOf(22)) != -1);
+    assertTrue(dbAdapter.delete(id));
+    assertEquals(1, dbAdapter.fetchAll().getCount());
+  }
+
+  /** Test that statements run within an enclosing transaction and count only their changes */
+  public void testEnclosingTransaction() {
+    DbAdapter adapter = new DbAdapter(database);
+    database.beginTransaction();
+    try {
+      assertTrue(dbAdapter.insert(Long.valueOf(1), Long.valueOf(11)) != -1);
+      assertTrue(dbAdapter.insert(Long.valueOf(1), Long.valueOf(12)) != -1);
+      assertEquals(2, adapter.executeUpdateDelete("DELETE FROM RuleActions WHERE FK_RuleID = ?",
+          Long.valueOf(1)));
+      assertTrue(dbAdapter.insert(Long.valueOf(2), Long.valueOf(22)) != -1);
+    } finally {
+      database.endTransaction();
+    }
+    // Not marked successful, so the enclosing transaction rolled back every statement
+    assertEquals(0, dbAdapter.fetchAll().getCount());
+  }
+
+  /** Test that statements evicted from the cache are compiled again when used */
+  public void testCacheEviction() {
+    DbAdapter adapter = new DbAdapter(database);
+    for (int i = 0; i < 100; i++) {
+      adapter.executeUpdateDelete("DELETE FROM RuleActions WHERE FK_RuleID = ? AND " + i + " = "
+          + i, Long.valueOf(i));
+    }
+    assertTrue(dbAdapter.insert(Long.valueOf(1), Long.valueOf(11)) != -1);
+    assertEquals(1, adapter.executeUpdateDelete("DELETE FROM RuleActions WHERE FK_RuleID = ?",
+        Long.valueOf(1)));
+  }
+
+  /** Test that booleans are bound and matched as 1 or 0 */
+  public void testBooleanArguments() {
+    RegisteredAppDbAdapter appDbAdapter = new RegisteredAppDbAdapter(database);
+    int enabled = appDbAdapter.fetchAll(null, null, true).getCount();
+    long id = appDbAdapter.insert("DbAdapterTest", "edu.nyu.cs.omnidroid.test", true);
+    assertEquals(enabled + 1, appDbAdapter.fetchAll(null, null, true).getCount());
+    assertEquals(1, appDbAdapter.fetchAll("DbAdapterTest", null, true).getCount());
+    assertEquals(0, appDbAdapter.fetchAll("DbAdapterTest", null, false).getCount());
+    assertTrue(appDbAdapter.delete(id));
+  }
+}
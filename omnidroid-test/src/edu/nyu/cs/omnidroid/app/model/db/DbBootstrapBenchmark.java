@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Measures creating the database on first launch, by {@link DbBootstrap} and by migrating from
+ * version 1 with {@link DbMigration} as fresh installs used to. Results are written to the log.
+ */
+public class DbBootstrapBenchmark extends AndroidTestCase {
+  private static final String TAG = DbBootstrapBenchmark.class.getSimpleName();
+
+  private static final int RUNS = 10;
+
+  private DbHelper omnidroidDbHelper;
+  private LogDbHelper logDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(getContext());
+    omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+    logDbHelper = new LogDbHelper(getContext());
+    logDbHelper.getWritableDatabase();
+    logDbHelper.backup();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    // Try to restore the databases
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+    logDbHelper.close();
+  }
+
+  /** Time opening the database where there is none yet, as on first launch */
+  public void testFirstLaunch() {
+    omnidroidDbHelper.close();
+    omnidroidDbHelper.remove();
+
+    long start = System.currentTimeMillis();
+    DbHelper dbHelper = new DbHelper(getContext());
+    SQLiteDatabase database = dbHelper.getWritableDatabase();
+    long elapsed = System.currentTimeMillis() - start;
+    Log.i(TAG, "first launch, database created in " + elapsed + "ms");
+
+    Cursor cursor = new RuleDbAdapter(database).fetchAll();
+    assertEquals(4, cursor.getCount());
+    cursor.close();
+    dbHelper.close();
+  }
+
+  /** Compare creating the database by bootstrap and by migrations, in memory */
+  public void testBootstrapAndMigrations() {
+    long bootstrap = 0;
+    long migrations = 0;
+    for (int i = 0; i < RUNS; i++) {
+      SQLiteDatabase db = SQLiteDatabase.create(null);
+      long start = System.currentTimeMillis();
+      db.beginTransaction();
+      try {
+        DbBootstrap.createLatest(getContext(), db);
+        db.setTransactionSuccessful();
+      } finally {
+        db.endTransaction();
+      }
+      bootstrap += System.currentTimeMillis() - start;
+      db.close();
+
+      db = SQLiteDatabase.create(null);
+      start = System.currentTimeMillis();
+      db.beginTransaction();
+      try {
+        DbMigration.migrateToLatest(getContext(), db, 1);
+        db.setTransactionSuccessful();
+      } finally {
+        db.endTransaction();
+      }
+      migrations += System.currentTimeMillis() - start;
+      db.close();
+    }
+    Log.i(TAG, "bootstrap: " + (bootstrap / RUNS) + "ms, migrations: " + (migrations / RUNS)
+        + "ms on average over " + RUNS + " runs");
+  }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+/**
+ * Android Unit Test for {@link DbBootstrap} class. Checks that a database created directly in its
+ * latest version is the same as one migrated to it from version 1 by {@link DbMigration}.
+ */
+public class DbBootstrapTest extends AndroidTestCase {
+  private LogDbHelper logDbHelper;
+  private SQLiteDatabase bootstrapped;
+  private SQLiteDatabase migrated;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // The last migration moves the logs into the log database
+    logDbHelper = new LogDbHelper(getContext());
+    logDbHelper.getWritableDatabase();
+    logDbHelper.backup();
+
+    bootstrapped = SQLiteDatabase.create(null);
+    bootstrapped.beginTransaction();
+    try {
+      DbBootstrap.createLatest(getContext(), bootstrapped);
+      bootstrapped.setTransactionSuccessful();
+    } finally {
+      bootstrapped.endTransaction();
+    }
+
+    migrated = SQLiteDatabase.create(null);
+    migrated.beginTransaction();
+    try {
+      DbMigration.migrateToLatest(getContext(), migrated, 1);
+      migrated.setTransactionSuccessful();
+    } finally {
+      migrated.endTransaction();
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    bootstrapped.close();
+    migrated.close();
+    // Try to restore the database
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+    super.tearDown();
+    logDbHelper.close();
+  }
+
+  /** Test that both databases have the same tables with the same columns */
+  public void testSameTables() {
+    List<String> tables = names(migrated, "table");
+    assertEquals(tables, names(bootstrapped, "table"));
+    for (String table : tables) {
+      assertEquals(table, query(migrated, "PRAGMA table_info(" + table + ")"), query(
+          bootstrapped, "PRAGMA table_info(" + table + ")"));
+    }
+  }
+
+  /** Test that both databases have the same indexes on the same columns */
+  public void testSameIndexes() {
+    List<String> indexes = names(migrated, "index");
+    assertEquals(indexes, names(bootstrapped, "index"));
+    for (String index : indexes) {
+      assertEquals(index, query(migrated, "PRAGMA index_info(" + index + ")"), query(bootstrapped,
+          "PRAGMA index_info(" + index + ")"));
+    }
+  }
+
+  /**
+   * Test that every table holds the same rows with the same ids, sqlite_sequence included so new
+   * records get the same ids too. Rules only differ in the time they were created.
+   */
+  public void testSameRows() {
+    for (String table : names(migrated, "table")) {
+      String sql = "SELECT * FROM " + table + " ORDER BY rowid";
+      if (table.equals("Rules")) {
+        sql = "SELECT " + RuleDbAdapter.KEY_RULEID + ", " + RuleDbAdapter.KEY_EVENTID + ", "
+            + RuleDbAdapter.KEY_RULENAME + ", " + RuleDbAdapter.KEY_RULEDESC + ", "
+            + RuleDbAdapter.KEY_ENABLED + ", " + RuleDbAdapter.KEY_NOTIFICATION + ", "
+            + RuleDbAdapter.KEY_PRIORITY + ", " + RuleDbAdapter.KEY_EXCLUSIVE + " FROM Rules "
+            + "ORDER BY rowid";
+      }
+      assertEquals(table, query(migrated, sql), query(bootstrapped, sql));
+    }
+  }
+
+  /** Test that the default rules are there */
+  public void testDefaultRules() {
+    Cursor cursor = new RuleDbAdapter(bootstrapped).fetchAll();
+    assertEquals(4, cursor.getCount());
+    cursor.close();
+  }
+
+  /**
+   * @return the names of the tables or indexes of a database, sorted
+   */
+  private static List<String> names(SQLiteDatabase db, String type) {
+    ArrayList<String> names = new ArrayList<String>();
+    for (List<String> row : query(db, "SELECT name FROM sqlite_master WHERE type = '" + type
+        + "' AND name NOT LIKE 'android_%' ORDER BY name")) {
+      names.add(row.get(0));
+    }
+    return names;
+  }
+
+  /**
+   * @return all rows a query returns, every value as a string
+   */
+  private static List<List<String>> query(SQLiteDatabase db, String sql) {
+    ArrayList<List<String>> rows = new ArrayList<List<String>>();
+    Cursor cursor = db.rawQuery(sql, null);
+    while (cursor.moveToNext()) {
+      ArrayList<String> row = new ArrayList<String>();
+      for (int i = 0; i < cursor.getColumnCount(); i++) {
+        row.add(cursor.isNull(i) ? null : cursor.getString(i));
+      }
+      rows.add(row);
+    }
+    cursor.close();
+    return rows;
+  }
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Android Unit Test for backing up and restoring the database with {@link DbHelper}.
+ */
+public class DbHelperTest extends AndroidTestCase {
+  private static final String TAG = DbHelperTest.class.getSimpleName();
+
+  private DbHelper omnidroidDbHelper;
+  private SQLiteDatabase database;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    omnidroidDbHelper.backup();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    // Try to restore the database
+    if (omnidroidDbHelper.isBackedUp()) {
+      omnidroidDbHelper.restore();
+    }
+    super.tearDown();
+    omnidroidDbHelper.close();
+  }
+
+  /** Test that restoring undoes the changes made since the backup */
+  public void testBackupAndRestore() {
+    int ruleCount = ruleCount(database);
+    new RuleDbAdapter(database).insert(1L, "backup", "backup", true);
+    assertEquals(ruleCount + 1, ruleCount(database));
+
+    omnidroidDbHelper.restore();
+    assertFalse(omnidroidDbHelper.isBackedUp());
+    database = omnidroidDbHelper.getWritableDatabase();
+    assertEquals(ruleCount, ruleCount(database));
+  }
+
+  /** Test that readers get a read-only connection of their own and leave the writer open */
+  public void testReaderConnection() {
+    DbHelper readerHelper = new DbHelper(getContext());
+    SQLiteDatabase reader = readerHelper.getReadableDatabase();
+    assertNotSame(database, reader);
+    assertTrue(reader.isReadOnly());
+    assertEquals(ruleCount(database), ruleCount(reader));
+    readerHelper.close();
+
+    assertFalse(reader.isOpen());
+    assertTrue(database.isOpen());
+    assertTrue(new RuleDbAdapter(database).insert(1L, "reader", "reader", true) != -1);
+  }
+
+  /** Test that restoring closes the connections of the other helpers of the database */
+  public void testRestoreClosesOtherHelpers() {
+    DbHelper otherHelper = new DbHelper(getContext());
+    otherHelper.getWritableDatabase();
+    SQLiteDatabase reader = otherHelper.getReadableDatabase();
+    assertTrue(otherHelper.isOpen());
+
+    omnidroidDbHelper.restore();
+    assertFalse(reader.isOpen());
+    assertFalse(otherHelper.isOpen());
+    otherHelper.close();
+  }
+
+  /** Test that a damaged backup is refused and the database left as it is */
+  public void testCorruptBackupNotRestored() throws Exception {
+    File backup = new File(getContext().getDatabasePath("omnidroid").getPath() + "_backup");
+    RandomAccessFile file = new RandomAccessFile(backup, "rw");
+    file.seek(file.length() / 2);
+    int value = file.read();
+    file.seek(file.length() / 2);
+    file.write(value ^ 0xff);
+    file.close();
+
+    try {
+      omnidroidDbHelper.restore();
+      fail("Restored a corrupt backup");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    assertTrue(database.isOpen());
+
+    // Undo the damage so tearDown can restore the backup
+    file = new RandomAccessFile(backup, "rw");
+    file.seek(file.length() / 2);
+    file.write(value);
+    file.close();
+  }
+
+  /** Time backing up and restoring a database of a few megabytes. Results are written to the log */
+  public void testBackupTime() {
+    // A database of its own, so the backup taken in setUp stays as it is
+    DbHelper dbHelper = new ScratchDbHelper(getContext());
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    String description = new String(new char[1000]).replace('\0', 'x');
+    RuleDbAdapter ruleDbAdapter = new RuleDbAdapter(db);
+    db.beginTransaction();
+    try {
+      for (int i = 0; i < 4000; i++) {
+        ruleDbAdapter.insert(1L, "rule " + i, description, false);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    long size = getContext().getDatabasePath(ScratchDbHelper.DATABASE_NAME).length();
+
+    try {
+      long start = System.currentTimeMillis();
+      dbHelper.backup();
+      Log.i(TAG, "backed up " + size + " bytes in " + (System.currentTimeMillis() - start)
+          + "ms");
+
+      start = System.currentTimeMillis();
+      dbHelper.restore();
+      Log.i(TAG, "restored " + size + " bytes in " + (System.currentTimeMillis() - start) + "ms");
+      assertEquals(4004, ruleCount(dbHelper.getWritableDatabase()));
+    } finally {
+      dbHelper.close();
+      dbHelper.remove();
+    }
+  }
+
+  /**
+   * Helper of a database that is only used by this test.
+   */
+  private static class ScratchDbHelper extends DbHelper {
+    private static final String DATABASE_NAME = "omnidroid_backup_time";
+
+    ScratchDbHelper(Context context) {
+      super(context, DATABASE_NAME, 1);
+    }
+
+    @Override
+    protected DbHelper newHelper(Context context) {
+      return new ScratchDbHelper(context);
+    }
+  }
+
+  private static int ruleCount(SQLiteDatabase db) {
+    Cursor cursor = new RuleDbAdapter(db).fetchAll();
+    int count = cursor.getCount();
+    cursor.close();
+    return count;
+  }
+}
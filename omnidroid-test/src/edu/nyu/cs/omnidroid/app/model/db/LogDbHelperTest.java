@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+/**
+ * Android Unit Test for {@link LogDbHelper} class.
+ */
+public class LogDbHelperTest extends AndroidTestCase {
+  private DbHelper omnidroidDbHelper;
+  private LogDbHelper logDbHelper;
+  private SQLiteDatabase database;
+  private SQLiteDatabase logDatabase;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    omnidroidDbHelper = new DbHelper(getContext());
+    database = omnidroidDbHelper.getWritableDatabase();
+    logDbHelper = new LogDbHelper(getContext());
+    logDatabase = logDbHelper.getWritableDatabase();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    omnidroidDbHelper.close();
+    logDbHelper.close();
+    super.tearDown();
+  }
+
+  /** Test that the logs are kept in the log database and the rules in the main one */
+  public void testLogsKeptApart() {
+    String[] logTables = { "LogEvent", "LogAction", "LogGeneral", "LogSearch", "LogSearchDoc",
+        "FailedActions", "FailedActionParameters" };
+    for (String table : logTables) {
+      assertTrue(table, exists(logDatabase, table));
+      assertFalse(table, exists(database, table));
+    }
+    assertTrue(exists(database, "Rules"));
+    assertFalse(exists(logDatabase, "Rules"));
+  }
+
+  /** Test that a log database reset leaves empty log tables behind */
+  public void testCleanup() {
+    logDbHelper.backup();
+    try {
+      new LogGeneralDbAdapter(logDatabase).insert(System.currentTimeMillis(), "cleanup", 0);
+      logDbHelper.cleanup(logDatabase);
+      Cursor cursor = new LogGeneralDbAdapter(logDatabase).fetchAll();
+      assertEquals(0, cursor.getCount());
+      cursor.close();
+    } finally {
+      logDbHelper.restore();
+    }
+  }
+
+  /** Test that the log database gives freed pages back on demand rather than on every commit */
+  public void testIncrementalVacuum() {
+    Cursor cursor = logDatabase.rawQuery("PRAGMA auto_vacuum", null);
+    assertTrue(cursor.moveToFirst());
+    // 2 is INCREMENTAL
+    assertEquals(2, cursor.getInt(0));
+    cursor.close();
+  }
+
+  /** Test that a version 1 file, which kept its free pages, is vacuumed when upgraded */
+  public void testVersion1Vacuumed() {
+    logDatabase.execSQL("PRAGMA auto_vacuum = NONE");
+    logDatabase.execSQL("VACUUM");
+    logDatabase.setVersion(1);
+
+    // Restoring a copy closes every connection, so the next open upgrades the file
+    logDbHelper.backup();
+    logDbHelper.restore();
+    logDatabase = logDbHelper.getWritableDatabase();
+    assertEquals(2, logDatabase.getVersion());
+    Cursor cursor = logDatabase.rawQuery("PRAGMA auto_vacuum", null);
+    assertTrue(cursor.moveToFirst());
+    assertEquals(2, cursor.getInt(0));
+    cursor.close();
+  }
+
+  /** Test that upgrading a version 23 file moves its logs, also when the upgrade runs again */
+  public void testMoveLogs() {
+    logDbHelper.backup();
+    SQLiteDatabase version23 = SQLiteDatabase.create(null);
+    try {
+      logDbHelper.cleanup(logDatabase);
+      LogDbHelper.createTables(version23);
+      long timestamp = System.currentTimeMillis();
+      LogGeneralDbAdapter logGeneralDbAdapter = new LogGeneralDbAdapter(version23);
+      for (int i = 0; i < 3; i++) {
+        logGeneralDbAdapter.insert(timestamp - i * LogPartitions.PARTITION_SPAN, "moved " + i, 0);
+      }
+      long failedActionId = new FailedActionsDbAdapter(version23).insert(1L, 1L, 1, "failed");
+      new FailedActionParameterDbAdapter(version23).insert(failedActionId, "name", "value");
+
+      // The log database commits, but the upgrade of the main database fails afterwards
+      version23.beginTransaction();
+      try {
+        DbMigration.moveLogs(getContext(), version23);
+      } finally {
+        version23.endTransaction();
+      }
+      assertTrue(exists(version23, "FailedActions"));
+
+      // The retried upgrade finds the logs copied already
+      DbMigration.moveLogs(getContext(), version23);
+      assertFalse(exists(version23, "FailedActions"));
+
+      logDatabase = logDbHelper.getWritableDatabase();
+      assertEquals(3, count(new LogGeneralDbAdapter(logDatabase).fetchAll()));
+      assertEquals(3, count(logDatabase.rawQuery("SELECT * FROM LogSearch", null)));
+      assertEquals(1, count(new FailedActionsDbAdapter(logDatabase).fetchAll()));
+      assertEquals(1, count(new FailedActionParameterDbAdapter(logDatabase).fetchAll()));
+    } finally {
+      version23.close();
+      logDbHelper.restore();
+    }
+  }
+
+  private static int count(Cursor cursor) {
+    int count = cursor.getCount();
+    cursor.close();
+    return count;
+  }
+
+  private static boolean exists(SQLiteDatabase db, String name) {
+    Cursor cursor = db.rawQuery("SELECT 1 FROM sqlite_master WHERE name = ?",
+        new String[] { name });
+    boolean exists = cursor.moveToFirst();
+    cursor.close();
+    return exists;
+  }
+}
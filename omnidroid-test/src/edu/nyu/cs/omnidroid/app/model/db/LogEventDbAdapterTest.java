@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import java.util.LinkedHashMap;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
+
+/**
+ * Android Unit Test for {@link LogEventDbAdapter} class.
+ */
+public class LogEventDbAdapterTest extends AndroidTestCase {
+
+  private LogEventDbAdapter dbAdapter;
+  private LogDbHelper logDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    logDbHelper = new LogDbHelper(this.getContext());
+    dbAdapter = new LogEventDbAdapter(logDbHelper.getWritableDatabase());
+    logDbHelper.backup();
+    dbAdapter.deleteAll();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    dbAdapter.deleteAll();
+
+    // Try to restore the database
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+
+    logDbHelper.close();
+    super.tearDown();
+  }
+
+  public void testFetchPage() {
+    // Two logs share a timestamp so the id has to break the tie between pages
+    long id1 = dbAdapter.insert(100, "App", "Event1", "", "Log1");
+    long id2 = dbAdapter.insert(200, "App", "Event2", "", "Log2");
+    long id3 = dbAdapter.insert(200, "App", "Event3", "", "Log3");
+
+    Cursor cursor = dbAdapter.fetchPage(null, 0, 2);
+    assertEquals(2, cursor.getCount());
+    cursor.moveToFirst();
+    assertEquals(id3, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.moveToNext();
+    assertEquals(id2, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.close();
+
+    cursor = dbAdapter.fetchPage(200L, id2, 2);
+    assertEquals(1, cursor.getCount());
+    cursor.moveToFirst();
+    assertEquals(id1, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.close();
+
+    cursor = dbAdapter.fetchPage(100L, id1, 2);
+    assertEquals(0, cursor.getCount());
+    cursor.close();
+  }
+
+  public void testFetchPageAcrossPartitions() {
+    long hour = LogPartitions.PARTITION_SPAN;
+    long id1 = dbAdapter.insert(hour + 1, "App", "Event1", "", "Log1");
+    long id2 = dbAdapter.insert(2 * hour + 1, "App", "Event2", "", "Log2");
+    long id3 = dbAdapter.insert(3 * hour + 1, "App", "Event3", "", "Log3");
+
+    Cursor cursor = dbAdapter.fetchPage(null, 0, 2);
+    assertEquals(2, cursor.getCount());
+    cursor.moveToFirst();
+    assertEquals(id3, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.moveToNext();
+    assertEquals(id2, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.close();
+
+    cursor = dbAdapter.fetchPage(2 * hour + 1, id2, 2);
+    assertEquals(1, cursor.getCount());
+    cursor.moveToFirst();
+    assertEquals(id1, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.close();
+  }
+
+  public void testFetchAndDelete() {
+    long id = dbAdapter.insert(LogPartitions.PARTITION_SPAN + 1, "App", "Event", "", "Log");
+
+    Cursor cursor = dbAdapter.fetch(id);
+    assertEquals(1, cursor.getCount());
+    assertEquals("Log", cursor.getString(cursor.getColumnIndex(LogDbAdapter.KEY_DESCRIPTION)));
+    cursor.close();
+
+    assertTrue(dbAdapter.delete(id));
+    assertFalse(dbAdapter.delete(id));
+  }
+
+  public void testFetchAllWithParameter() {
+    LinkedHashMap<String, String> parameters = new LinkedHashMap<String, String>();
+    parameters.put("Phone Number", "5556");
+    parameters.put("Text", "100%_done");
+    long id = dbAdapter.insert(100, "App", "Event1", LogParameters.encode(parameters), "Log1");
+    parameters.put("Phone Number", "55567");
+    dbAdapter.insert(200, "App", "Event2", LogParameters.encode(parameters), "Log2");
+
+    // Only whole values match, and LIKE wildcards in the value are taken literally
+    Cursor cursor = dbAdapter.fetchAllWithParameter("Phone Number", "5556");
+    assertEquals(1, cursor.getCount());
+    cursor.moveToFirst();
+    assertEquals(id, cursor.getLong(cursor.getColumnIndex(LogDbAdapter.KEY_ID)));
+    cursor.close();
+
+    cursor = dbAdapter.fetchAllWithParameter("Text", "100%_done");
+    assertEquals(2, cursor.getCount());
+    cursor.close();
+
+    cursor = dbAdapter.fetchAllWithParameter("Text", "100%");
+    assertEquals(0, cursor.getCount());
+    cursor.close();
+  }
+
+  public void testDeleteAllBefore() {
+    long hour = LogPartitions.PARTITION_SPAN;
+    dbAdapter.insert(hour + 1, "App", "Event1", "", "Log1");
+    dbAdapter.insert(2 * hour + 1, "App", "Event2", "", "Log2");
+    dbAdapter.insert(2 * hour + 2, "App", "Event3", "", "Log3");
+
+    // Only the partition wholly before the cutoff is dropped
+    assertEquals(1, dbAdapter.deleteAllBefore(2 * hour + 2));
+    Cursor cursor = dbAdapter.fetchAll();
+    assertEquals(2, cursor.getCount());
+    cursor.close();
+
+    cursor = dbAdapter.fetchAllSince(2 * hour + 1);
+    assertEquals(1, cursor.getCount());
+    cursor.close();
+  }
+}
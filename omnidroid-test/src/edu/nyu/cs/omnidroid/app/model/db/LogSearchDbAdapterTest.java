@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+/**
+ * Android Unit Test for {@link LogSearchDbAdapter} class.
+ */
+public class LogSearchDbAdapterTest extends AndroidTestCase {
+
+  private LogSearchDbAdapter dbAdapter;
+  private LogDbHelper logDbHelper;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    logDbHelper = new LogDbHelper(this.getContext());
+    dbAdapter = new LogSearchDbAdapter(logDbHelper.getWritableDatabase());
+    logDbHelper.backup();
+    dbAdapter.deleteAll();
+
+    dbAdapter.insert(LogSearchDbAdapter.LOG_TYPE_EVENT, 1, 100, "SMS Received",
+        "SMS from 5551234", "", "SMS", "");
+    dbAdapter.insert(LogSearchDbAdapter.LOG_TYPE_ACTION, 1, 200, "Set Phone Silent",
+        "Phone silenced", "", "Omnidroid", "Sleep during night");
+    dbAdapter.insert(LogSearchDbAdapter.LOG_TYPE_ACTION, 2, 300, "Set Phone Loud", "Phone loud",
+        "", "Omnidroid", "Wake up during daytime");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    dbAdapter.deleteAll();
+
+    // Try to restore the database
+    if (logDbHelper.isBackedUp()) {
+      logDbHelper.restore();
+    }
+
+    logDbHelper.close();
+    super.tearDown();
+  }
+
+  public void testSearchKeyword() {
+    Cursor cursor = dbAdapter.search("phone", null, null, null, null, 10);
+    assertEquals(2, cursor.getCount());
+    cursor.close();
+  }
+
+  public void testSearchRuleName() {
+    Cursor cursor = dbAdapter.search("phone", null, "Sleep during night", null, null, 10);
+    assertEquals(1, cursor.getCount());
+    cursor.moveToFirst();
+    assertEquals(1, cursor.getLong(cursor.getColumnIndex(LogSearchDbAdapter.KEY_LOGID)));
+    cursor.close();
+  }
+
+  public void testSearchTimeRange() {
+    Cursor cursor = dbAdapter.search("phone", null, null, 250L, null, 10);
+    assertEquals(1, cursor.getCount());
+    cursor.close();
+
+    cursor = dbAdapter.search(null, "SMS", null, null, 50L, 10);
+    assertEquals(0, cursor.getCount());
+    cursor.close();
+  }
+
+  public void testSearchRanking() {
+    dbAdapter.insert(LogSearchDbAdapter.LOG_TYPE_GENERAL, 1, 50, "Phone phone", "Phone", "", "",
+        "");
+    Cursor cursor = dbAdapter.search("phone", null, null, null, null, 2);
+    assertEquals(2, cursor.getCount());
+    // Most matches first, then the most recent
+    cursor.moveToFirst();
+    assertEquals(50, cursor.getLong(cursor.getColumnIndex(LogSearchDbAdapter.KEY_TIMESTAMP)));
+    assertEquals(3, cursor.getInt(cursor.getColumnIndex(LogSearchDbAdapter.KEY_MATCHES)));
+    cursor.moveToNext();
+    assertEquals(300, cursor.getLong(cursor.getColumnIndex(LogSearchDbAdapter.KEY_TIMESTAMP)));
+    cursor.close();
+  }
+
+  public void testSearchNothing() {
+    assertNull(dbAdapter.search(null, null, null, null, null, 10));
+  }
+
+  public void testSearchMalformedQuery() {
+    // FTS3 syntax in the keywords is matched literally instead of failing the query
+    Cursor cursor = dbAdapter.search("phone* \"silent OR (", null, null, null, null, 10);
+    assertEquals(0, cursor.getCount());
+    cursor.close();
+
+    cursor = dbAdapter.search("silent \" -", null, null, null, null, 10);
+    assertEquals(1, cursor.getCount());
+    cursor.close();
+
+    assertNull(dbAdapter.search("\" ( -", "\"", null, null, null, 10));
+  }
+
+  public void testDeleteAllBefore() {
+    assertEquals(1, dbAdapter.deleteAllBefore(LogSearchDbAdapter.LOG_TYPE_ACTION, 250));
+    Cursor cursor = dbAdapter.search("phone", null, null, null, null, 10);
+    assertEquals(1, cursor.getCount());
+    cursor.close();
+  }
+}
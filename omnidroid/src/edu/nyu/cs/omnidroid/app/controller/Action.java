@@ -15,7 +15,10 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.controller;
 
+import java.util.Map;
+
 import android.content.Intent;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
 
 /**
  * Action provides a general wrapper for the intent to be fired. Classes that extend Action
@@ -108,12 +111,12 @@ public abstract class Action {
 
   public abstract String getAppName();
 
-  public String getParameters() {
-    if (getIntent().getExtras() != null) {
-      return getIntent().getExtras().toString();
-    } else {
-      return "";
-    }
+  /**
+   * @return the parameters of the action, taken from the extras of its intent that have simple
+   *         values
+   */
+  public Map<String, String> getParameters() {
+    return LogParameters.fromExtras(getIntent().getExtras());
   }
 
   public void setRuleName(String ruleName) {
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import android.content.Intent;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneLoudAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneSilentAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneVibrateAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetScreenBrightnessAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowNotificationAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOffWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOnWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
+
+/**
+ * Cuts down the actions the rules matching one event fire before they are passed to
+ * {@link ActionExecuter}:
+ * <ul>
+ * <li>actions that would send the same intent are run once,</li>
+ * <li>of the actions that set the same phone state (ringer mode, WiFi, screen brightness) only the
+ * one from the rule processed first is run, since the rules are processed in order of
+ * priority,</li>
+ * <li>notifications are merged into one.</li>
+ * </ul>
+ */
+public class ActionPlanner {
+  private static final String TAG = ActionPlanner.class.getSimpleName();
+
+  /** Phone state each state setting action changes, by action class */
+  private static final HashMap<Class<? extends Action>, String> STATES =
+      new HashMap<Class<? extends Action>, String>();
+
+  static {
+    STATES.put(SetPhoneLoudAction.class, "ringer");
+    STATES.put(SetPhoneSilentAction.class, "ringer");
+    STATES.put(SetPhoneVibrateAction.class, "ringer");
+    STATES.put(TurnOnWifiAction.class, "wifi");
+    STATES.put(TurnOffWifiAction.class, "wifi");
+    STATES.put(SetScreenBrightnessAction.class, "brightness");
+  }
+
+  /**
+   * This is a static utility class which cannot be instantiated.
+   */
+  private ActionPlanner() {
+  }
+
+  /**
+   * Plan the actions fired for one event.
+   * 
+   * @param actions
+   *          the actions of all matching rules, in the order the rules were processed
+   * @return the actions to execute, in the same order, with notifications merged into the position
+   *         of the first one
+   */
+  public static ArrayList<Action> plan(List<Action> actions) {
+    ArrayList<Action> planned = new ArrayList<Action>(actions.size());
+    HashSet<String> intents = new HashSet<String>();
+    HashSet<String> states = new HashSet<String>();
+    ArrayList<ShowNotificationAction> notifications = new ArrayList<ShowNotificationAction>();
+    int notificationIndex = -1;
+
+    for (Action action : actions) {
+      if (!intents.add(intentKey(action))) {
+        continue;
+      }
+      String state = STATES.get(action.getClass());
+      if (state != null && !states.add(state)) {
+        Logger.d(TAG, "Dropped " + action.getDescription() + " of rule " + action.getRuleName()
+            + ", another rule already sets the " + state);
+        continue;
+      }
+      if (action instanceof ShowNotificationAction) {
+        if (notificationIndex < 0) {
+          notificationIndex = planned.size();
+          planned.add(action);
+        }
+        notifications.add((ShowNotificationAction) action);
+        continue;
+      }
+      planned.add(action);
+    }
+
+    if (notifications.size() > 1) {
+      Action merged = mergeNotifications(notifications);
+      if (merged != null) {
+        planned.set(notificationIndex, merged);
+      } else {
+        planned.addAll(notificationIndex + 1, notifications.subList(1, notifications.size()));
+      }
+    }
+    if (planned.size() < actions.size()) {
+      Logger.d(TAG, "Planned " + planned.size() + " of " + actions.size() + " action(s)");
+    }
+    return planned;
+  }
+
+  /**
+   * @return a string equal for actions that send the same intent, apart from which rule action
+   *         they came from
+   */
+  private static String intentKey(Action action) {
+    Intent intent = action.getIntent();
+    Map<String, String> extras = new TreeMap<String, String>(LogParameters.fromExtras(intent
+        .getExtras()));
+    extras.remove(Action.DATABASE_ID);
+    extras.remove(Action.ACTION_TYPE);
+    return action.getClass().getName() + '\n' + intent.getAction() + '\n' + intent.getDataString()
+        + '\n' + LogParameters.encode(extras);
+  }
+
+  /**
+   * @return one notification showing all the messages, carrying the database id of the first so
+   *         its result is still reported, or null if it cannot be created
+   */
+  private static Action mergeNotifications(List<ShowNotificationAction> notifications) {
+    StringBuilder ruleNames = new StringBuilder();
+    StringBuilder messages = new StringBuilder();
+    boolean showNotification = false;
+    for (ShowNotificationAction notification : notifications) {
+      if (ruleNames.length() > 0) {
+        ruleNames.append(", ");
+        messages.append('\n');
+      }
+      ruleNames.append(notification.getRuleName());
+      messages.append(notification.getMessage());
+      showNotification |= notification.showsNotification();
+    }
+
+    ShowNotificationAction first = notifications.get(0);
+    HashMap<String, String> parameters = new HashMap<String, String>();
+    parameters.put(ShowNotificationAction.PARAM_ALERT_MESSAGE, messages.toString());
+    ShowNotificationAction merged;
+    try {
+      merged = new ShowNotificationAction(parameters);
+    } catch (OmnidroidException e) {
+      Logger.w(TAG, "Cannot merge notifications", e);
+      return null;
+    }
+    merged.setRuleName(ruleNames.toString());
+    merged.setDatabaseId(first.getDatabaseId());
+    if (first.actionType != null) {
+      merged.setActionType(first.actionType);
+    }
+    merged.setNotification(showNotification);
+    return merged;
+  }
+}
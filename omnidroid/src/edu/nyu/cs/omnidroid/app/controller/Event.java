@@ -15,7 +15,10 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.controller;
 
+import java.util.Map;
+
 import android.content.Intent;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
 
 /**
  * This class encapsulates a generic event. It wraps the {@link android.content.Intent} that
@@ -103,13 +106,13 @@ public abstract class Event {
   }
 
   /**
-   * @return the parameters of the event as they are passed through the android intent.
+   * Returns the attributes of the event for logging. By default these are the extras of the
+   * intent that have simple values; events that decode their attributes from other data should
+   * override this.
+   * 
+   * @return the attributes of the event, keyed by name
    */
-  public String getParameters() {
-    if (intent.getExtras() != null) {
-      return intent.getExtras().toString();
-    } else {
-      return "";
-    }
+  public Map<String, String> getAttributes() {
+    return LogParameters.fromExtras(intent.getExtras());
   }
 }
\ No newline at end of file
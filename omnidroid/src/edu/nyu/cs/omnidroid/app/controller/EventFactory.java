@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2009, 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import android.content.Intent;
+
+/**
+ * Creates an {@link Event} from a received {@link Intent}. One factory is registered with
+ * {@link IntentParser} for each supported intent action.
+ */
+public interface EventFactory {
+  /**
+   * Create the event that wraps {@code intent}.
+   * 
+   * @param intent
+   *          an intent received by the system whose action this factory is registered for
+   * @return the Omnidroid event for the intent
+   */
+  public Event createEvent(Intent intent);
+}
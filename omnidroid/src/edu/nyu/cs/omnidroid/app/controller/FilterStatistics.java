@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.controller.util.Tree;
+
+/**
+ * Keeps running pass/fail counts and evaluation times for each {@link Filter}, and uses them to
+ * decide the order in which {@link Rule} evaluates sibling filters. A branch of the filter tree is
+ * tried earlier when it is cheap and likely to match, so a rule is usually decided after
+ * evaluating fewer filters. Since any branch that matches makes the rule match, the order does not
+ * change the result.
+ * <p>
+ * There is one set of statistics for the process, since rules are rebuilt from the database for
+ * every event. Filters with the same data share statistics. The estimates used for ordering are
+ * refreshed every {@link #REFRESH_INTERVAL} evaluations of a filter, so the order changes
+ * periodically rather than on every event.
+ * </p>
+ */
+public class FilterStatistics {
+  private static final String TAG = FilterStatistics.class.getSimpleName();
+
+  /** Evaluations of a filter between refreshes of its estimates */
+  public static final int REFRESH_INTERVAL = 32;
+
+  /** Number of filters statistics are kept for */
+  private static final int MAX_FILTERS = 256;
+
+  /** Assumed evaluation time of a filter that has not been measured yet, in nanoseconds */
+  private static final double PRIOR_COST = 200000;
+
+  /** How much more an area filter is assumed to cost, since it computes a distance */
+  private static final double AREA_COST_FACTOR = 4;
+
+  /** Assumed pass rate of a filter that has not been measured yet */
+  private static final double PRIOR_PASS_RATE = 0.5;
+
+  /** Lowest pass rate used for ordering, so filters that never passed still have a finite rank */
+  private static final double MIN_PASS_RATE = 0.001;
+
+  private static final FilterStatistics instance = new FilterStatistics();
+
+  /** Statistics of one filter. */
+  public static class Entry {
+    private final Filter filter;
+    private long evaluations;
+    private long passes;
+    private long totalTime;
+
+    /* Estimates used for ordering, refreshed every REFRESH_INTERVAL evaluations */
+    private double cost;
+    private double passRate;
+
+    private Entry(Filter filter) {
+      this.filter = filter;
+      cost = OmniArea.class.getName().equals(filter.filterOnDataType) ? PRIOR_COST
+          * AREA_COST_FACTOR : PRIOR_COST;
+      passRate = PRIOR_PASS_RATE;
+    }
+
+    private void record(boolean passed, long time) {
+      evaluations++;
+      if (passed) {
+        passes++;
+      }
+      totalTime += time;
+      if (evaluations % REFRESH_INTERVAL == 0) {
+        cost = getAverageTime();
+        passRate = getPassRate();
+      }
+    }
+
+    public Filter getFilter() {
+      return filter;
+    }
+
+    public long getEvaluations() {
+      return evaluations;
+    }
+
+    public long getPasses() {
+      return passes;
+    }
+
+    /**
+     * @return the fraction of evaluations that passed, or 0 if there were none
+     */
+    public double getPassRate() {
+      return evaluations == 0 ? 0 : (double) passes / evaluations;
+    }
+
+    /**
+     * @return the average evaluation time in nanoseconds, or 0 if there were no evaluations
+     */
+    public double getAverageTime() {
+      return evaluations == 0 ? 0 : (double) totalTime / evaluations;
+    }
+
+    @Override
+    public String toString() {
+      return filter.eventAttribute + " " + filter.filter + " " + filter.compareWithData + ": "
+          + passes + "/" + evaluations + " passed, " + (long) getAverageTime() + "ns average";
+    }
+  }
+
+  /** Expected cost and chance of success of evaluating a branch of the filter tree */
+  private static class Estimate {
+    final double cost;
+    final double success;
+
+    Estimate(double cost, double success) {
+      this.cost = cost;
+      this.success = success;
+    }
+
+    /**
+     * @return expected cost per success, branches with a lower rank are tried first
+     */
+    double rank() {
+      return cost / Math.max(success, MIN_PASS_RATE);
+    }
+  }
+
+  private final LinkedHashMap<Filter, Entry> entries = new LinkedHashMap<Filter, Entry>(16, 0.75f,
+      true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Filter, Entry> eldest) {
+      return size() > MAX_FILTERS;
+    }
+  };
+
+  /**
+   * @return the process wide statistics
+   */
+  public static FilterStatistics instance() {
+    return instance;
+  }
+
+  private Entry getEntry(Filter filter) {
+    Entry entry = entries.get(filter);
+    if (entry == null) {
+      entry = new Entry(filter);
+      entries.put(filter, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Evaluate a filter and record the result and the time it took.
+   * 
+   * @param filter
+   *          the filter to evaluate
+   * @param event
+   *          the event to evaluate it against
+   * @return whether the event passes the filter
+   */
+  public boolean match(Filter filter, Event event) {
+    long start = System.nanoTime();
+    boolean passed = filter.match(event);
+    long time = System.nanoTime() - start;
+    synchronized (this) {
+      getEntry(filter).record(passed, time);
+    }
+    return passed;
+  }
+
+  /**
+   * Order the children of a filter tree node for evaluation, cheapest expected cost per match
+   * first. The tree itself is not changed.
+   * 
+   * @param node
+   *          a node of a rule's filter tree
+   * @return the children of the node in evaluation order
+   */
+  public synchronized List<Tree<Filter>> evaluationOrder(Tree<Filter> node) {
+    ArrayList<Tree<Filter>> children = node.getChildren();
+    if (children.size() < 2) {
+      return children;
+    }
+    final Map<Tree<Filter>, Double> ranks = new IdentityHashMap<Tree<Filter>, Double>();
+    for (Tree<Filter> child : children) {
+      ranks.put(child, estimateBranch(child).rank());
+    }
+    ArrayList<Tree<Filter>> ordered = new ArrayList<Tree<Filter>>(children);
+    Collections.sort(ordered, new Comparator<Tree<Filter>>() {
+      public int compare(Tree<Filter> node1, Tree<Filter> node2) {
+        return ranks.get(node1).compareTo(ranks.get(node2));
+      }
+    });
+    return ordered;
+  }
+
+  /**
+   * @return the expected cost and chance of success of evaluating a node and, if it passes, its
+   *         children
+   */
+  private Estimate estimateBranch(Tree<Filter> node) {
+    Entry entry = getEntry(node.getItem());
+    if (node.isLeafNode()) {
+      return new Estimate(entry.cost, entry.passRate);
+    }
+    Estimate children = estimateChildren(node);
+    return new Estimate(entry.cost + entry.passRate * children.cost, entry.passRate
+        * children.success);
+  }
+
+  /**
+   * @return the expected cost and chance of success of trying the children of a node in
+   *         evaluation order until one matches, assuming they are independent
+   */
+  private Estimate estimateChildren(Tree<Filter> node) {
+    ArrayList<Estimate> estimates = new ArrayList<Estimate>();
+    for (Tree<Filter> child : node.getChildren()) {
+      estimates.add(estimateBranch(child));
+    }
+    Collections.sort(estimates, new Comparator<Estimate>() {
+      public int compare(Estimate estimate1, Estimate estimate2) {
+        return Double.compare(estimate1.rank(), estimate2.rank());
+      }
+    });
+    double cost = 0;
+    double failure = 1;
+    for (Estimate estimate : estimates) {
+      cost += failure * estimate.cost;
+      failure *= 1 - estimate.success;
+    }
+    return new Estimate(cost, 1 - failure);
+  }
+
+  /**
+   * @return the statistics of each filter evaluated so far, least recently used first
+   */
+  public synchronized List<Entry> getEntries() {
+    return new ArrayList<Entry>(entries.values());
+  }
+
+  /**
+   * Drop all statistics.
+   */
+  public synchronized void reset() {
+    entries.clear();
+  }
+
+  /**
+   * Write the statistics to the log.
+   */
+  public void dump() {
+    for (Entry entry : getEntries()) {
+      Logger.d(TAG, entry.toString());
+    }
+  }
+}
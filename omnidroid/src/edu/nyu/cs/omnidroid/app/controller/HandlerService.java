@@ -34,8 +34,10 @@ import edu.nyu.cs.omnidroid.app.controller.events.TimeTickEvent;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.EventMonitoringService;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
+import edu.nyu.cs.omnidroid.app.controller.util.StartupTracer;
 import edu.nyu.cs.omnidroid.app.model.CoreActionLogsDbHelper;
 import edu.nyu.cs.omnidroid.app.model.CoreActionsDbHelper;
 import edu.nyu.cs.omnidroid.app.model.CoreEventLogsDbHelper;
@@ -149,9 +151,9 @@ public class HandlerService extends Service {
       // Open our Log accessor utilities to do some log checking/updating
       CoreActionLogsDbHelper coreActionLogsDbHelper = new CoreActionLogsDbHelper(this);
 
-      // Get a list of actions that apply to this event.
-      ArrayList<Action> actions = RuleProcessor.getActions(event, coreRuleDbHelper,
-          coreActionsDbHelper);
+      // Get a list of actions that apply to this event, without duplicates or conflicts.
+      ArrayList<Action> actions = ActionPlanner.plan(RuleProcessor.getActions(event,
+          coreRuleDbHelper, coreActionsDbHelper));
 
       // Close Rule/Action Database connections
       coreActionsDbHelper.close();
@@ -182,6 +184,7 @@ public class HandlerService extends Service {
       } finally {
         actions.clear();
       }
+      StartupTracer.instance().eventHandled();
       
       FailedActionsDbHelper failedActionsDbHelper = new FailedActionsDbHelper(this);
       if (event.getEventName().equals(InternetAvailableEvent.EVENT_NAME)) {
@@ -189,7 +192,9 @@ public class HandlerService extends Service {
       } else if (event.getEventName().equals(ServiceAvailableEvent.EVENT_NAME)) {
         actions = failedActionsDbHelper.getActions(ResultProcessor.RESULT_FAILURE_SERVICE);
       } else if (event.getEventName().equals(TimeTickEvent.EVENT_NAME)) {
-        failedActionsDbHelper.deleteOldActions();
+        if (failedActionsDbHelper.deleteOldActions() > 0) {
+          EventMonitoringService.updateSubscriptions(this);
+        }
         actions = failedActionsDbHelper.getActions(ResultProcessor.RESULT_FAILURE_UNKNOWN);
       }
       failedActionsDbHelper.close();
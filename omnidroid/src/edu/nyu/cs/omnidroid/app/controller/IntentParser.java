@@ -15,6 +15,8 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.controller;
 
+import java.util.HashMap;
+
 import edu.nyu.cs.omnidroid.app.controller.events.LocationChangedEvent;
 import edu.nyu.cs.omnidroid.app.controller.events.InternetAvailableEvent;
 import edu.nyu.cs.omnidroid.app.controller.events.MissedCallEvent;
@@ -38,12 +40,95 @@ public class IntentParser {
   public static final String SMS_INTENT_ACTION = "android.provider.Telephony.SMS_RECEIVED";
   public static final String GMAIL_INTENT_ACTION = "android.intent.action.PROVIDER_CHANGED";
 
+  /** Maps each supported intent action to the factory that creates its event */
+  private static final HashMap<String, EventFactory> eventFactories = 
+      new HashMap<String, EventFactory>();
+
+  static {
+    registerEvent(SMS_INTENT_ACTION, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new SMSReceivedEvent(intent);
+      }
+    });
+    registerEvent(LocationChangedEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new LocationChangedEvent(intent);
+      }
+    });
+    registerEvent(PhoneRingingEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new PhoneRingingEvent(intent);
+      }
+    });
+    registerEvent(CallEndedEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new CallEndedEvent(intent);
+      }
+    });
+    registerEvent(TimeTickEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new TimeTickEvent(intent);
+      }
+    });
+    registerEvent(ServiceAvailableEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new ServiceAvailableEvent(intent);
+      }
+    });
+    registerEvent(InternetAvailableEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new InternetAvailableEvent(intent);
+      }
+    });
+    registerEvent(MissedCallEvent.ACTION_NAME, new EventFactory() {
+      public Event createEvent(Intent intent) {
+        return new MissedCallEvent(intent);
+      }
+    });
+    for (SystemEvent e : SystemEvent.values()) {
+      registerEvent(e.ACTION_NAME, new SystemEventFactory(e));
+    }
+  }
+
+  /**
+   * Creates a {@link SystemBroadcastedEvent} for one of the parameterless {@link SystemEvent}s.
+   */
+  private static class SystemEventFactory implements EventFactory {
+    private final SystemEvent systemEvent;
+
+    public SystemEventFactory(SystemEvent systemEvent) {
+      this.systemEvent = systemEvent;
+    }
+
+    public Event createEvent(Intent intent) {
+      return new SystemBroadcastedEvent(intent, systemEvent);
+    }
+  }
+
   /**
    * This is a static utility class which cannot be instantiated.
    */
   private IntentParser() {
   }
 
+  /**
+   * Register a factory for a new event type. Any previously registered factory for the same action
+   * is replaced.
+   * 
+   * @param action
+   *          the intent action that identifies the event
+   * @param factory
+   *          the factory that creates the event for intents with this action
+   */
+  public static void registerEvent(String action, EventFactory factory) {
+    if (action == null || factory == null) {
+      throw new IllegalArgumentException("The action and factory must not be null");
+    }
+    synchronized (eventFactories) {
+      eventFactories.put(action, factory);
+    }
+  }
+
   /**
    * Given an intent with a supported action type, create and return an Event of the appropriate
    * type. If the action is not supported, null is returned.
@@ -54,32 +139,13 @@ public class IntentParser {
    */
   public static Event getEvent(Intent intent) {
     Log.d("IntentParser:", "get Intent with action: " + intent.getAction());
-    Event event = null;
-    if (intent.getAction().equals(SMS_INTENT_ACTION)) {
-      // Handle SMS event
-      event = new SMSReceivedEvent(intent);
-    } else if (intent.getAction().equals(LocationChangedEvent.ACTION_NAME)) {
-      event = new LocationChangedEvent(intent);
-    } else if (intent.getAction().equals(PhoneRingingEvent.ACTION_NAME)) {
-      event = new PhoneRingingEvent(intent);
-    } else if (intent.getAction().equals(CallEndedEvent.ACTION_NAME)) {
-      event = new CallEndedEvent(intent);
-    } else if (intent.getAction().equals(TimeTickEvent.ACTION_NAME)) {
-      event = new TimeTickEvent(intent);
-    } else if (intent.getAction().equals(ServiceAvailableEvent.ACTION_NAME)) {
-      event = new ServiceAvailableEvent(intent);
-    } else if (intent.getAction().equals(InternetAvailableEvent.ACTION_NAME)) {
-      event = new InternetAvailableEvent(intent);
-    } else if (intent.getAction().equals(MissedCallEvent.ACTION_NAME)) {
-      event = new MissedCallEvent(intent);
-    } else {
-      for (SystemEvent e : SystemEvent.values()) {
-        if (intent.getAction().equals(e.ACTION_NAME)) {
-          Log.d("IntentParser:", e.ACTION_NAME);
-          event = new SystemBroadcastedEvent(intent, e);
-        }
-      }
+    EventFactory factory;
+    synchronized (eventFactories) {
+      factory = eventFactories.get(intent.getAction());
+    }
+    if (factory == null) {
+      return null;
     }
-    return event;
+    return factory.createEvent(intent);
   }
 }
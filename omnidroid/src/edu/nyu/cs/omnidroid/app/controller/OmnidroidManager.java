@@ -18,6 +18,7 @@ package edu.nyu.cs.omnidroid.app.controller;
 
 import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.bkgservice.BCReceiver;
+import edu.nyu.cs.omnidroid.app.controller.bkgservice.MaintenanceReceiver;
 import edu.nyu.cs.omnidroid.app.controller.external.attributes.EventMonitoringService;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import android.content.ComponentName;
@@ -49,12 +50,14 @@ public class OmnidroidManager {
       context.getPackageManager().setComponentEnabledSetting(componentName,
           PackageManager.COMPONENT_ENABLED_STATE_ENABLED, PackageManager.DONT_KILL_APP);
       EventMonitoringService.startService(context);
+      MaintenanceReceiver.schedule(context);
     } else {
       Logger.w(TAG, "Stopping Omnidroid.");
       // Stop service monitors and set app to disabled state
       context.getPackageManager().setComponentEnabledSetting(componentName,
           PackageManager.COMPONENT_ENABLED_STATE_DISABLED, PackageManager.DONT_KILL_APP);
       EventMonitoringService.stopService(context);
+      MaintenanceReceiver.cancel(context);
     }
 
     /*
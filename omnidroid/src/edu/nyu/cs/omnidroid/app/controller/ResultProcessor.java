@@ -46,50 +46,81 @@ public class ResultProcessor {
   public static final String TAG = ResultProcessor.class.getSimpleName();
 
   /**
+   * Report the result of an executed action. The user is notified right away, and the failed
+   * action queue is updated by {@link ResultQueue} on a background thread, so this returns without
+   * waiting for the database.
+   * 
    * @param context
    *        context in which database will be initialized
    * @param intent
    *        intent of an action to be processes
    * @param result
    *        integer identifying success or cause of failure
+   * @throws IllegalArgumentException
+   *        if result is not one of the RESULT_ codes
    */
   public static void process(Context context, Intent intent, int result, String message) {
-    FailedActionsDbHelper failedActionsDbHelper = new FailedActionsDbHelper(context);
     String actionType = intent.getStringExtra(Action.ACTION_TYPE);
-    long databaseId = intent.getLongExtra(Action.DATABASE_ID, -1L);
     boolean showNotification = intent.getBooleanExtra(Action.NOTIFICATION, true);
     //TODO add support for 3rd party actions 
        
     switch (result) {
     case RESULT_SUCCESS :
-      if (actionType.equals(Action.RULE_ACTION)) {
-        //TODO move action log here
-      } else if (actionType.equals(Action.FAILED_ACTION)) {
-        failedActionsDbHelper.delete(new Long(databaseId));
+    case RESULT_FAILURE_IRRECOVERABLE:
+      //TODO move action log here
+      if (Action.FAILED_ACTION.equals(actionType)) {
+        ResultQueue.instance(context).add(intent, result, message);
       }
       notifyResult(context, showNotification, message);
       break;
     case RESULT_FAILURE_SERVICE:
     case RESULT_FAILURE_INTERNET:
     case RESULT_FAILURE_UNKNOWN:
-      if (actionType.equals(Action.RULE_ACTION)) {
-        failedActionsDbHelper.insert(intent, result, message);
-      } else if (actionType.equals(Action.FAILED_ACTION)) {
-        failedActionsDbHelper.update(intent, result, message);
-      } 
+      ResultQueue.instance(context).add(intent, result, message);
       notifyResult(context, false, message);
-      break;
+      break;    
+    default :
+      throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Update the failed action queue for the result of an executed action.
+   * 
+   * @param failedActionsDbHelper
+   *        helper for the failed action queue
+   * @param intent
+   *        intent of an action to be processes
+   * @param result
+   *        integer identifying success or cause of failure
+   * @return whether actions were added to or removed from the queue
+   */
+  static boolean store(FailedActionsDbHelper failedActionsDbHelper, Intent intent, int result,
+      String message) {
+    String actionType = intent.getStringExtra(Action.ACTION_TYPE);
+    long databaseId = intent.getLongExtra(Action.DATABASE_ID, -1L);
+
+    switch (result) {
+    case RESULT_SUCCESS :
     case RESULT_FAILURE_IRRECOVERABLE:
-      if (actionType.equals(Action.FAILED_ACTION)) {
+      if (Action.FAILED_ACTION.equals(actionType)) {
         failedActionsDbHelper.delete(databaseId);
+        return true;
       }
-      notifyResult(context, showNotification, message);
-      break;    
+      return false;
+    case RESULT_FAILURE_SERVICE:
+    case RESULT_FAILURE_INTERNET:
+    case RESULT_FAILURE_UNKNOWN:
+      if (Action.RULE_ACTION.equals(actionType)) {
+        // Start the monitors that will trigger a retry
+        return failedActionsDbHelper.insert(intent, result, message) != -1;
+      } else if (Action.FAILED_ACTION.equals(actionType)) {
+        failedActionsDbHelper.update(intent, result, message);
+      }
+      return false;
     default :
-      failedActionsDbHelper.close();
       throw new IllegalArgumentException();
     }
-    failedActionsDbHelper.close();
   }
   
   private static void notifyResult(Context context, boolean showNotification, String message){
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.EventMonitoringService;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.FailedActionsDbHelper;
+
+/**
+ * Stores action results in the failed action queue on a background thread, so the services
+ * reporting results never wait for the database. Results are written in batches, each batch in one
+ * transaction, and the event monitors are updated once per batch if the queue changed.
+ * <p>
+ * A service that reported results must not stop itself directly, since the system may kill the
+ * process before the queue is stored. It calls {@link #stopWhenStored(Service)} instead.
+ */
+public class ResultQueue {
+  private static final String TAG = ResultQueue.class.getSimpleName();
+
+  /** Most results written in one transaction */
+  private static final int MAX_BATCH = 50;
+
+  /** Milliseconds to wait after the first result of a batch for more to arrive */
+  private static final long BATCH_DELAY = 100;
+
+  private static ResultQueue instance;
+
+  /** An action result waiting to be stored */
+  private static class Result {
+    final Intent intent;
+    final int result;
+    final String message;
+
+    Result(Intent intent, int result, String message) {
+      this.intent = intent;
+      this.result = result;
+      this.message = message;
+    }
+  }
+
+  private final Context context;
+  private final LinkedBlockingQueue<Result> queue = new LinkedBlockingQueue<Result>();
+
+  /** Results added but not yet stored, guarded by this */
+  private int pending;
+
+  /** Services to stop once no results are pending, guarded by this */
+  private final List<Service> stopping = new ArrayList<Service>();
+
+  private ResultQueue(Context context) {
+    this.context = context;
+    Thread worker = new Thread(new Runnable() {
+      public void run() {
+        processResults();
+      }
+    }, TAG);
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * @param context
+   *          any context of the application
+   * @return the process wide result queue, started on first use
+   */
+  public static synchronized ResultQueue instance(Context context) {
+    if (instance == null) {
+      instance = new ResultQueue(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /**
+   * Queue an action result to be stored.
+   * 
+   * @param intent
+   *          intent of the executed action
+   * @param result
+   *          one of the {@link ResultProcessor} result codes
+   * @param message
+   *          message describing the result, may be null
+   */
+  public void add(Intent intent, int result, String message) {
+    synchronized (this) {
+      pending++;
+    }
+    queue.add(new Result(new Intent(intent), result, message));
+  }
+
+  /**
+   * Wait until all results added so far are stored.
+   * 
+   * @throws InterruptedException
+   *           if the calling thread is interrupted while waiting
+   */
+  public synchronized void flush() throws InterruptedException {
+    while (pending > 0) {
+      wait();
+    }
+  }
+
+  /**
+   * Stop a service once all results added so far are stored, without blocking the caller. The
+   * service is stopped right away if nothing is pending.
+   * 
+   * @param service
+   *          the service that reported results
+   */
+  public void stopWhenStored(Service service) {
+    synchronized (this) {
+      if (pending > 0) {
+        stopping.add(service);
+        return;
+      }
+    }
+    service.stopSelf();
+  }
+
+  private void processResults() {
+    ArrayList<Result> batch = new ArrayList<Result>(MAX_BATCH);
+    while (true) {
+      try {
+        batch.add(queue.take());
+        Thread.sleep(BATCH_DELAY);
+      } catch (InterruptedException e) {
+        Logger.w(TAG, "Interrupted while waiting for results", e);
+      }
+      queue.drainTo(batch, MAX_BATCH - batch.size());
+      if (batch.isEmpty()) {
+        continue;
+      }
+
+      try {
+        store(batch);
+      } catch (RuntimeException e) {
+        Logger.e(TAG, "Could not store " + batch.size() + " action result(s)", e);
+      }
+      ArrayList<Service> stopped = new ArrayList<Service>();
+      synchronized (this) {
+        pending -= batch.size();
+        if (pending == 0) {
+          stopped.addAll(stopping);
+          stopping.clear();
+        }
+        notifyAll();
+      }
+      for (Service service : stopped) {
+        service.stopSelf();
+      }
+      batch.clear();
+    }
+  }
+
+  /**
+   * Store a batch of results in one transaction.
+   */
+  private void store(final List<Result> batch) {
+    final FailedActionsDbHelper failedActionsDbHelper = new FailedActionsDbHelper(context);
+    final boolean[] queueChanged = { false };
+    try {
+      failedActionsDbHelper.runInTransaction(new Runnable() {
+        public void run() {
+          for (Result result : batch) {
+            try {
+              queueChanged[0] |= ResultProcessor.store(failedActionsDbHelper, result.intent,
+                  result.result, result.message);
+            } catch (RuntimeException e) {
+              Logger.w(TAG, "Could not store result " + result.result, e);
+            }
+          }
+        }
+      });
+    } finally {
+      failedActionsDbHelper.close();
+    }
+    Logger.d(TAG, "Stored " + batch.size() + " action result(s)");
+
+    if (queueChanged[0]) {
+      EventMonitoringService.updateSubscriptions(context);
+    }
+  }
+}
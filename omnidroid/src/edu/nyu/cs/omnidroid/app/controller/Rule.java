@@ -16,6 +16,7 @@
 package edu.nyu.cs.omnidroid.app.controller;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 
 import edu.nyu.cs.omnidroid.app.controller.util.Tree;
 import edu.nyu.cs.omnidroid.app.model.CoreActionsDbHelper;
@@ -39,6 +40,28 @@ public class Rule {
   
   /** Shows whether notification service is on or off for this rule*/
   private Boolean showNotification;
+
+  /** Rules with a higher priority are evaluated first */
+  private final int priority;
+
+  /** Whether no further rules are evaluated once this rule matches */
+  private final boolean exclusive;
+
+  /** Number of filters evaluated at most to match this rule */
+  private final int cost;
+
+  /**
+   * Orders rules for evaluation: higher priority first, and of rules with the same priority the
+   * ones with fewer filters to evaluate first.
+   */
+  public static final Comparator<Rule> EVALUATION_ORDER = new Comparator<Rule>() {
+    public int compare(Rule rule1, Rule rule2) {
+      if (rule1.priority != rule2.priority) {
+        return rule1.priority > rule2.priority ? -1 : 1;
+      }
+      return rule1.cost - rule2.cost;
+    }
+  };
   
   /**
    * Constructs a rule from all rule parameters
@@ -52,6 +75,21 @@ public class Rule {
    *           if required parameters are null
    */
   public Rule(String ruleName, long ruleID, Tree<Filter> filterTree, Boolean showNotification) {
+    this(ruleName, ruleID, filterTree, showNotification, 0, false);
+  }
+
+  /**
+   * Constructs a rule from all rule parameters, including its evaluation order
+   * 
+   * @param priority
+   *          rules with a higher priority are evaluated first
+   * @param exclusive
+   *          whether no further rules are evaluated once this rule matches
+   * @throws IllegalArgumentException
+   *           if required parameters are null
+   */
+  public Rule(String ruleName, long ruleID, Tree<Filter> filterTree, Boolean showNotification,
+      int priority, boolean exclusive) {
     if (ruleName == null) {
       throw new IllegalArgumentException("ruleName cannot be null");
     }
@@ -59,6 +97,38 @@ public class Rule {
     this.ruleID = ruleID;
     this.filterTree = filterTree;
     this.showNotification = showNotification;
+    this.priority = priority;
+    this.exclusive = exclusive;
+    this.cost = filterTree == null ? 0 : countFilters(filterTree);
+  }
+
+  private static int countFilters(Tree<Filter> node) {
+    int count = node.getItem() == null ? 0 : 1;
+    for (Tree<Filter> child : node.getChildren()) {
+      count += countFilters(child);
+    }
+    return count;
+  }
+
+  /**
+   * @return the database id of this rule
+   */
+  public long getRuleID() {
+    return ruleID;
+  }
+
+  /**
+   * @return the priority of this rule, rules with a higher priority are evaluated first
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * @return whether no further rules are evaluated once this rule matches
+   */
+  public boolean isExclusive() {
+    return exclusive;
   }
 
   /**
@@ -99,21 +169,19 @@ public class Rule {
 
   /**
    * Recursively descends down the tree looking for a branch which returns true at the leaf level,
-   * which represents an "and" relationship between the filters
+   * which represents an "and" relationship between the filters. Siblings are tried in the order
+   * given by {@link FilterStatistics}, until one of them is true to the leaf level.
    * 
    * @param node
    *          the root of the tree on which to check the filters
-   * @return true if this is a leaf, or if at least one branch is true to the leaf level, false
-   *         otherwise
+   * @return true if at least one branch below this node is true to the leaf level, false otherwise
    */
   private boolean isFilterBranchTrue(Tree<Filter> node) {
-    if (node.isLeafNode()) {
-      return node.getItem().match(event);
-    }
-
-    for (Tree<Filter> currentNode : node.getChildren()) {
-      if (currentNode.getItem().match(event)) {
-        return isFilterBranchTrue(currentNode);
+    FilterStatistics statistics = FilterStatistics.instance();
+    for (Tree<Filter> currentNode : statistics.evaluationOrder(node)) {
+      if (statistics.match(currentNode.getItem(), event)
+          && (currentNode.isLeafNode() || isFilterBranchTrue(currentNode))) {
+        return true;
       }
     }
     return false;
@@ -35,10 +35,18 @@ public class RuleProcessor {
   private RuleProcessor() {
   }
 
+  /**
+   * Notified of each rule whose filters the event passes, along with the actions it fires.
+   */
+  public interface MatchListener {
+    public void ruleMatched(Rule rule, ArrayList<Action> actions);
+  }
+
   /**
    * Gets the {@link Rule}(s) triggered by this {@link Event} and compares the event attributes with
    * the {@link Filter}(s) defined for each rule. Returns the {@link Action}(s) to execute if this
-   * rule matches the event.
+   * rule matches the event. Rules are evaluated in order of priority, and no further rules are
+   * evaluated once an exclusive rule matches.
    * 
    * @param coreActionsDbHelper
    *          The helper class to get actions data from database
@@ -48,6 +56,18 @@ public class RuleProcessor {
    */
   public static ArrayList<Action> getActions(Event event, CoreRulesDbHelper coreRuleDbHelper,
       CoreActionsDbHelper coreActionsDbHelper) {
+    return getActions(event, coreRuleDbHelper, coreActionsDbHelper, null);
+  }
+
+  /**
+   * Same as {@link #getActions(Event, CoreRulesDbHelper, CoreActionsDbHelper)}, but also tells the
+   * listener about every rule that matched.
+   * 
+   * @param listener
+   *          notified of each matching rule, may be null
+   */
+  public static ArrayList<Action> getActions(Event event, CoreRulesDbHelper coreRuleDbHelper,
+      CoreActionsDbHelper coreActionsDbHelper, MatchListener listener) {
 
     ArrayList<Rule> rules = coreRuleDbHelper.getRulesMatchingEvent(event.getAppName(), event
         .getEventName());
@@ -57,7 +77,15 @@ public class RuleProcessor {
     ArrayList<Action> actions = new ArrayList<Action>();
     for (Rule currentRule : rules) {
       if (currentRule.passesFilters(event)) {
-        actions.addAll(currentRule.getActions(coreActionsDbHelper, event)) ;
+        ArrayList<Action> ruleActions = currentRule.getActions(coreActionsDbHelper, event);
+        if (listener != null) {
+          listener.ruleMatched(currentRule, ruleActions);
+        }
+        actions.addAll(ruleActions);
+        if (currentRule.isExclusive()) {
+          Logger.d(TAG, "Exclusive rule " + currentRule.ruleName + " matched, skipping the rest");
+          break;
+        }
       }
     }
     Logger.d(TAG, "get " + actions.size() + " action(s) for event " + event.getEventName()
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.actions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.Intent;
+import edu.nyu.cs.omnidroid.app.controller.Action;
+
+/**
+ * Action of another application that registered it at runtime, see
+ * {@link edu.nyu.cs.omnidroid.app.controller.bkgservice.ActionRegistrationReceiver}. Omnidroid has
+ * no code for such an action, so it performs it by broadcasting {@link #ACTION_PERFORM} to the
+ * receiver class the application registered. The intent names that class explicitly, since the
+ * parameters may carry event data such as message text that no other application should get. It
+ * holds the application and action names and each parameter as a string extra under its parameter
+ * name.
+ */
+public class BroadcastIntentAction extends Action {
+
+  /** Intent action broadcast to perform an action of another application */
+  public static final String ACTION_PERFORM = "edu.nyu.cs.omnidroid.app.intent.action.PERFORM";
+
+  /* Extras of the broadcast intent besides the parameters */
+  public static final String EXTRA_APP_NAME = "AppName";
+  public static final String EXTRA_ACTION_NAME = "ActionName";
+
+  private final String appName;
+  private final String pkgName;
+  private final String receiver;
+  private final String externalActionName;
+  private final HashMap<String, String> parameters;
+
+  /**
+   * @param appName
+   *          name of the application the action belongs to
+   * @param pkgName
+   *          package of the application
+   * @param receiver
+   *          class name of the receiver within the package, the broadcast is sent to
+   * @param actionName
+   *          name of the action
+   * @param parameters
+   *          the action parameter data by parameter name, may be null
+   */
+  public BroadcastIntentAction(String appName, String pkgName, String receiver, String actionName,
+      Map<String, String> parameters) {
+    super(ACTION_PERFORM, Action.BY_BROADCAST);
+    this.appName = appName;
+    this.pkgName = pkgName;
+    this.receiver = receiver;
+    this.externalActionName = actionName;
+    this.parameters = parameters == null ? new HashMap<String, String>()
+        : new HashMap<String, String>(parameters);
+  }
+
+  @Override
+  public Intent getIntent() {
+    Intent intent = new Intent(ACTION_PERFORM);
+    intent.setClassName(pkgName, receiver);
+    intent.putExtra(EXTRA_APP_NAME, appName);
+    intent.putExtra(EXTRA_ACTION_NAME, externalActionName);
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      intent.putExtra(parameter.getKey(), parameter.getValue());
+    }
+    intent.putExtra(DATABASE_ID, databaseId);
+    intent.putExtra(ACTION_TYPE, actionType);
+    intent.putExtra(NOTIFICATION, showNotification);
+    return intent;
+  }
+
+  @Override
+  public Map<String, String> getParameters() {
+    return new HashMap<String, String>(parameters);
+  }
+
+  @Override
+  public String getAppName() {
+    return appName;
+  }
+
+  @Override
+  public String getDescription() {
+    return appName + "-" + externalActionName;
+  }
+}
@@ -55,6 +55,13 @@ public class ShowNotificationAction extends OmniAction {
     return intent;
   }
 
+  /**
+   * @return the message shown on the notification bar
+   */
+  public String getMessage() {
+    return message;
+  }
+
   @Override
   public String getDescription() {
     return APP_NAME + "-" + ACTION_NAME;
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.bkgservice;
+
+import java.util.LinkedHashMap;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.database.sqlite.SQLiteDatabase;
+import edu.nyu.cs.omnidroid.app.controller.actions.BroadcastIntentAction;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.ActionRegistry;
+import edu.nyu.cs.omnidroid.app.model.UIDbCache;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+
+/**
+ * Lets other applications register their actions, which rules can then use like the built-in
+ * ones. An application broadcasts {@link #ACTION_REGISTER} with its application and action names,
+ * the names and data types of the action parameters and the class of its receiver for
+ * {@link BroadcastIntentAction#ACTION_PERFORM}. Senders need the REGISTER_ACTION permission
+ * declared in the manifest.
+ * <p>
+ * The package is not taken from an extra, which any sender could fill in. The sender adds a
+ * {@link PendingIntent} of its own instead, which only it can create, and the package is the one
+ * that created it. So no application can register actions under the name of another.
+ * </p>
+ * <p>
+ * When a rule fires the action, Omnidroid broadcasts {@link BroadcastIntentAction#ACTION_PERFORM}
+ * to that receiver only.
+ * </p>
+ */
+public class ActionRegistrationReceiver extends BroadcastReceiver {
+  private static final String TAG = ActionRegistrationReceiver.class.getSimpleName();
+
+  /** Intent action to register an action */
+  public static final String ACTION_REGISTER =
+      "edu.nyu.cs.omnidroid.app.intent.action.REGISTER_ACTION";
+
+  /* Extras of the registration intent */
+  public static final String EXTRA_APP_NAME = "AppName";
+  /** A PendingIntent created by the registering application, identifying its package */
+  public static final String EXTRA_IDENTITY = "Identity";
+  /** Class name of the receiver in the registering package that performs the actions */
+  public static final String EXTRA_RECEIVER_CLASS = "ReceiverClass";
+  public static final String EXTRA_ACTION_NAME = "ActionName";
+  /** String array of parameter names */
+  public static final String EXTRA_PARAMETER_NAMES = "ParameterNames";
+  /** String array of the data type names of the parameters, in the same order */
+  public static final String EXTRA_PARAMETER_TYPES = "ParameterTypes";
+
+  @Override
+  public void onReceive(Context context, Intent intent) {
+    if (!ACTION_REGISTER.equals(intent.getAction())) {
+      return;
+    }
+    String appName = intent.getStringExtra(EXTRA_APP_NAME);
+    String receiver = intent.getStringExtra(EXTRA_RECEIVER_CLASS);
+    String actionName = intent.getStringExtra(EXTRA_ACTION_NAME);
+    String[] names = intent.getStringArrayExtra(EXTRA_PARAMETER_NAMES);
+    String[] types = intent.getStringArrayExtra(EXTRA_PARAMETER_TYPES);
+
+    Object identity = intent.getParcelableExtra(EXTRA_IDENTITY);
+    if (!(identity instanceof PendingIntent)) {
+      Logger.w(TAG, "Ignoring action " + actionName + " without the identity of its sender.");
+      return;
+    }
+    String pkgName = ((PendingIntent) identity).getTargetPackage();
+    if (pkgName == null || receiver == null || !hasReceiver(context, pkgName, receiver)) {
+      Logger.w(TAG, "Ignoring action " + actionName + ", " + pkgName + " has no receiver "
+          + receiver);
+      return;
+    }
+    if ((names == null) != (types == null) || (names != null && names.length != types.length)) {
+      Logger.w(TAG, "Ignoring action " + actionName + ", parameter names and types don't match.");
+      return;
+    }
+    LinkedHashMap<String, String> parameters = new LinkedHashMap<String, String>();
+    for (int i = 0; names != null && i < names.length; i++) {
+      parameters.put(names[i], types[i]);
+    }
+
+    DbHelper dbHelper = new DbHelper(context);
+    try {
+      SQLiteDatabase database = dbHelper.getWritableDatabase();
+      database.beginTransaction();
+      try {
+        ActionRegistry.registerExternal(database, appName, pkgName, receiver, actionName,
+            parameters);
+        database.setTransactionSuccessful();
+      } finally {
+        database.endTransaction();
+      }
+      UIDbCache.invalidate(UIDbCache.Category.APPLICATIONS);
+      Logger.i(TAG, "Registered action " + appName + ": " + actionName);
+    } catch (IllegalArgumentException e) {
+      Logger.w(TAG, "Could not register action " + actionName + ": " + e.getMessage());
+    } finally {
+      dbHelper.close();
+    }
+  }
+
+  private static boolean hasReceiver(Context context, String pkgName, String receiver) {
+    try {
+      context.getPackageManager().getReceiverInfo(new ComponentName(pkgName, receiver), 0);
+      return true;
+    } catch (NameNotFoundException e) {
+      return false;
+    }
+  }
+}
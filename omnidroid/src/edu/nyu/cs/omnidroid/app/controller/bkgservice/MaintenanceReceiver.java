@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.bkgservice;
+
+import java.util.Calendar;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * This broadcast receiver is woken by a daily alarm at night to maintain the databases, see
+ * {@link MaintenanceService}.
+ */
+public class MaintenanceReceiver extends BroadcastReceiver {
+
+  // Hour of the day the maintenance is scheduled for, when the device is most likely idle
+  private static final int MAINTENANCE_HOUR = 3;
+
+  public void onReceive(Context context, Intent intent) {
+    // Keep the device awake until the service has run, the alarm only does during onReceive
+    MaintenanceService.acquireWakeLock(context);
+    context.startService(new Intent(context, MaintenanceService.class));
+  }
+
+  /**
+   * Schedule the daily maintenance, replacing the schedule if there is one already.
+   * 
+   * @param context
+   *          context to schedule the alarm in
+   */
+  public static void schedule(Context context) {
+    Calendar start = Calendar.getInstance();
+    start.set(Calendar.HOUR_OF_DAY, MAINTENANCE_HOUR);
+    start.set(Calendar.MINUTE, 0);
+    start.set(Calendar.SECOND, 0);
+    if (start.getTimeInMillis() <= System.currentTimeMillis()) {
+      start.add(Calendar.DAY_OF_MONTH, 1);
+    }
+
+    // Inexact, so the system can wake for it along with other alarms
+    AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    alarmManager.setInexactRepeating(AlarmManager.RTC_WAKEUP, start.getTimeInMillis(),
+        AlarmManager.INTERVAL_DAY, alarm(context));
+  }
+
+  /**
+   * Cancel the daily maintenance.
+   * 
+   * @param context
+   *          context the alarm was scheduled in
+   */
+  public static void cancel(Context context) {
+    AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    alarmManager.cancel(alarm(context));
+  }
+
+  /**
+   * @return the intent the alarm broadcasts to this receiver
+   */
+  private static PendingIntent alarm(Context context) {
+    return PendingIntent.getBroadcast(context, 0, new Intent(context, MaintenanceReceiver.class),
+        0);
+  }
+}
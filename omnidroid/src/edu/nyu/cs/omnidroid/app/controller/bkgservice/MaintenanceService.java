@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.bkgservice;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.PowerManager;
+import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.CoreEventLogsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.CoreGeneralLogsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.DbMaintenance;
+import edu.nyu.cs.omnidroid.app.model.GeneralLog;
+
+/**
+ * This service maintains the databases, see {@link DbMaintenance}, when started by
+ * {@link MaintenanceReceiver}. Maintenance only runs while the device is charging and idle, so it
+ * neither drains the battery nor delays the handling of events. Otherwise it waits for the next
+ * alarm.
+ */
+public class MaintenanceService extends IntentService {
+  private static final String TAG = MaintenanceService.class.getSimpleName();
+
+  // Battery extra telling whether and how the device is plugged in, 0 if it isn't
+  private static final String EXTRA_PLUGGED = "plugged";
+
+  // Held from the alarm until the maintenance is done
+  private static PowerManager.WakeLock wakeLock;
+
+  public MaintenanceService() {
+    super(TAG);
+  }
+
+  /**
+   * Keep the CPU awake until the service has maintained the databases.
+   * 
+   * @param context
+   *          context to get the power manager from
+   */
+  static synchronized void acquireWakeLock(Context context) {
+    if (wakeLock == null) {
+      PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+      wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, TAG);
+    }
+    wakeLock.acquire();
+  }
+
+  private static synchronized void releaseWakeLock() {
+    if (wakeLock != null && wakeLock.isHeld()) {
+      wakeLock.release();
+    }
+  }
+
+  @Override
+  protected void onHandleIntent(Intent intent) {
+    try {
+      DbMaintenance maintenance = new DbMaintenance(this);
+      if (!maintenance.isDue() || !isCharging() || !isIdle()) {
+        Logger.i(TAG, "Skipping database maintenance until the next alarm.");
+        return;
+      }
+
+      if (!maintenance.run()) {
+        CoreGeneralLogsDbHelper coreGeneralLogsDbHelper = new CoreGeneralLogsDbHelper(this);
+        coreGeneralLogsDbHelper.insert(new GeneralLog(getString(R.string.db_integrity_failed),
+            Logger.WARN));
+        coreGeneralLogsDbHelper.close();
+      }
+    } finally {
+      releaseWakeLock();
+    }
+  }
+
+  /**
+   * @return whether the device is plugged in
+   */
+  private boolean isCharging() {
+    // The battery broadcast is sticky, registering for it returns the last one
+    Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+    return battery != null && battery.getIntExtra(EXTRA_PLUGGED, 0) != 0;
+  }
+
+  /**
+   * @return whether no events were handled during the last minute
+   */
+  private boolean isIdle() {
+    CoreEventLogsDbHelper coreEventLogsDbHelper = new CoreEventLogsDbHelper(this);
+    try {
+      return coreEventLogsDbHelper.getLogCountDuringLastMinute() == 0;
+    } finally {
+      coreEventLogsDbHelper.close();
+    }
+  }
+}
@@ -15,6 +15,8 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.controller.events;
 
+import java.util.Map;
+
 import edu.nyu.cs.omnidroid.app.controller.Event;
 import android.content.Intent;
 import android.os.Bundle;
@@ -81,6 +83,17 @@ public class SMSReceivedEvent extends Event {
     // TODO(londinop): Add exception for invalid data field name
   }
 
+  /**
+   * Returns the sender and text decoded from the PDUs, instead of the PDUs themselves.
+   */
+  @Override
+  public Map<String, String> getAttributes() {
+    Map<String, String> attributes = super.getAttributes();
+    attributes.put(ATTRIB_PHONE_NO, getAttribute(ATTRIB_PHONE_NO));
+    attributes.put(ATTRIB_MESSAGE_TEXT, getAttribute(ATTRIB_MESSAGE_TEXT));
+    return attributes;
+  }
+
   /**
    * Examines the Protocol Description Unit (PDU) data in the text message intent to reconstruct the
    * phone number and text message data. Caches the information in global variables in case they are
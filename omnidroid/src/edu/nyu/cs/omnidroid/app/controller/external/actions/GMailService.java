@@ -62,7 +62,7 @@ public class GMailService extends Service {
    */
   private void extractUserCredentials() {
     DbHelper omniDbHelper = new DbHelper(this);
-    SQLiteDatabase database = omniDbHelper.getWritableDatabase();
+    SQLiteDatabase database = omniDbHelper.getReadableDatabase();
     RegisteredAppDbAdapter registeredAppDbAdapter = new RegisteredAppDbAdapter(database);
     
     account = registeredAppDbAdapter.getAccountCredentials(DbHelper.AppName.GMAIL, "");
@@ -33,6 +33,7 @@ import android.telephony.TelephonyManager;
 import android.widget.Toast;
 import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.ResultProcessor;
+import edu.nyu.cs.omnidroid.app.controller.ResultQueue;
 import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
 
 /**
@@ -153,7 +154,8 @@ public class SMSService extends Service {
           // Stop listening to events.
           ((TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE)).listen(this,
               PhoneStateListener.LISTEN_NONE);
-          stopSelf();
+          // Stay alive until the reported results are stored
+          ResultQueue.instance(smsServiceInstance).stopWhenStored(smsServiceInstance);
         }
       }
     }, PhoneStateListener.LISTEN_CALL_STATE);
@@ -56,7 +56,7 @@ public class UpdateTwitterStatusService extends Service {
 
   private void extractUserCredentials() {
     DbHelper omniDbHelper = new DbHelper(this);
-    SQLiteDatabase database = omniDbHelper.getWritableDatabase();
+    SQLiteDatabase database = omniDbHelper.getReadableDatabase();
     RegisteredAppDbAdapter registeredAppDbAdapter = new RegisteredAppDbAdapter(database);
     
     account = registeredAppDbAdapter.getAccountCredentials(DbHelper.AppName.TWITTER, "");
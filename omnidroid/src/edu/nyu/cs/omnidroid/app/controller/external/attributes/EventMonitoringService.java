@@ -16,13 +16,16 @@
 package edu.nyu.cs.omnidroid.app.controller.external.attributes;
 
 import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.controller.util.InitGraph;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.controller.util.StartupTracer;
 import edu.nyu.cs.omnidroid.app.model.CoreRulesDbHelper;
 import android.app.Service;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Binder;
+import android.os.Handler;
 import android.os.IBinder;
 import android.widget.Toast;
 
@@ -37,16 +40,40 @@ public class EventMonitoringService extends Service {
   private final IBinder mBinder = new LocalBinder();
   
   
+  // Kept apart as it also needs the areas the rules watch
+  private final LocationMonitor locationMonitor = new LocationMonitor(this);
+
   private final SystemServiceEventMonitor MONITORS[] = {
       new PhoneStateMonitor(this),
-      new LocationMonitor(this),
+      locationMonitor,
       new TimeMonitor(this),
       new NetworkStateMonitor(this)
   };
 
+  // Name of the startup task that reads what the enabled rules need
+  private static final String TASK_LOAD_RULES = "loadRules";
+
+  // Intent action asking a running service to start and stop monitors to match the rules
+  private static final String ACTION_UPDATE_SUBSCRIPTIONS =
+      "edu.nyu.cs.omnidroid.app.UPDATE_SUBSCRIPTIONS";
+
   // Keep track if already running or not
   private static boolean isAlreadyRunning = false;
 
+  private final MonitorSubscriptionManager subscriptions = new MonitorSubscriptionManager(MONITORS);
+  private Handler handler;
+  private InitGraph startup;
+
+  // What the enabled rules need, read by the loadRules task. Null if it failed.
+  private volatile MonitorDemand startupDemand;
+
+  // Sequence number of the latest subscription update, so older updates are dropped
+  private int updateSequence;
+
+  // Whether an update replaced the demand read at startup, which may be older
+  private boolean updatedSinceStartup;
+  private boolean destroyed;
+
   public class LocalBinder extends Binder {
     EventMonitoringService getService() {
       return EventMonitoringService.this;
@@ -80,9 +107,27 @@ public class EventMonitoringService extends Service {
     }
   }
 
+  /**
+   * Ask the service to start and stop monitors to match the rules. Call this whenever rules are
+   * added, removed, enabled or disabled, or the failed actions queue changes. Does nothing if the
+   * service is not running.
+   */
+  public static void updateSubscriptions(Context context) {
+    if (isAlreadyRunning) {
+      Intent intent = new Intent(context, EventMonitoringService.class);
+      intent.setAction(ACTION_UPDATE_SUBSCRIPTIONS);
+      context.startService(intent);
+    }
+  }
+
   /**
    * Actions performed on service initialization. EventMonitoringService performs initialization of
-   * each SystemServiceMonitor.
+   * each SystemServiceMonitor that the enabled rules need.
+   * <p>
+   * Opening the database, which may migrate it, and reading the enabled rules happen on a
+   * background thread. The user alert and each monitor start on the main thread once the rules are
+   * read, so onCreate itself returns right away.
+   * </p>
    */
   @Override
   public void onCreate() {
@@ -95,20 +140,78 @@ public class EventMonitoringService extends Service {
       }
     }
 
+    handler = new Handler();
+    StartupTracer.instance().restart();
+    startup = new InitGraph(handler, StartupTracer.instance());
+    startup.add(new InitGraph.Task(TASK_LOAD_RULES, false) {
+      @Override
+      public void run() {
+        startupDemand = MonitorDemand.load(EventMonitoringService.this);
+      }
+    });
+
     // TODO(acase): Move this to OmnidroidManager or BCReceiver
     // Let the user know we're activating rules
-    alertUserOnStartStop(true);
+    startup.add(new InitGraph.Task("alertUser", true, TASK_LOAD_RULES) {
+      @Override
+      public void run() {
+        MonitorDemand demand = startupDemand;
+        alertUserOnStartStop(true, demand == null ? 0 : demand.getActiveRuleCount());
+      }
+    });
 
     // Start System Monitors
-    for (SystemServiceEventMonitor monitor : MONITORS) {
-      try {
-        monitor.init();
-        Logger.w(TAG, monitor.getMonitorName() + ": Start\n");
-      } catch (Exception e) {
-        Logger.e(TAG, monitor.getMonitorName() + " did not start.\nThe following error occurred: "
-            + e + e.getMessage() + e.getStackTrace());
-      }
+    for (final SystemServiceEventMonitor monitor : MONITORS) {
+      startup.add(new InitGraph.Task(monitor.getMonitorName(), true, TASK_LOAD_RULES) {
+        @Override
+        public void run() {
+          if (!updatedSinceStartup) {
+            if (monitor == locationMonitor) {
+              setGeofences(startupDemand);
+            }
+            subscriptions.update(monitor, startupDemand);
+          }
+        }
+      });
     }
+    startup.start();
+  }
+
+  /**
+   * Handles subscription update requests by reading what the rules need on a background thread
+   * and then starting and stopping monitors on the main thread.
+   */
+  @Override
+  public void onStart(Intent intent, int startId) {
+    super.onStart(intent, startId);
+    if (intent == null || !ACTION_UPDATE_SUBSCRIPTIONS.equals(intent.getAction())
+        || handler == null) {
+      return;
+    }
+
+    final int sequence = ++updateSequence;
+    new Thread(new Runnable() {
+      public void run() {
+        MonitorDemand loaded = null;
+        try {
+          loaded = MonitorDemand.load(EventMonitoringService.this);
+        } catch (Exception e) {
+          Logger.e(TAG, "Could not read what the rules need.", e);
+        }
+        final MonitorDemand demand = loaded;
+        handler.post(new Runnable() {
+          public void run() {
+            // Drop the update if a newer one was requested or the service stopped meanwhile
+            if (sequence == updateSequence && !destroyed) {
+              Logger.i(TAG, "Updating subscriptions for " + demand);
+              updatedSinceStartup = true;
+              setGeofences(demand);
+              subscriptions.updateAll(demand);
+            }
+          }
+        });
+      }
+    }, TAG + ":updateSubscriptions").start();
   }
 
   /**
@@ -117,32 +220,39 @@ public class EventMonitoringService extends Service {
    */
   @Override
   public void onDestroy() {
-    for (SystemServiceEventMonitor monitor : MONITORS) {
-      try {
-        monitor.stop();
-        Logger.w(TAG, monitor.getMonitorName() + " stopped");
-      } catch (Exception e) {
-        Logger.e(TAG, monitor.getMonitorName() + " did not stop.\nThe following error occurred: "
-            + e + e.getMessage() + e.getStackTrace());
-      }
+    if (startup != null) {
+      startup.cancel();
     }
+    destroyed = true;
+    subscriptions.stopAll();
     isAlreadyRunning = false;
 
     // Let the user know we're de-activating rules
-    alertUserOnStartStop(false);
+    CoreRulesDbHelper dbHelper = new CoreRulesDbHelper(this);
+    int activeRuleCount = dbHelper.getActiveRuleCount();
+    dbHelper.close();
+    alertUserOnStartStop(false, activeRuleCount);
 
   }
 
+  /**
+   * Pass the areas the rules watch on to the location monitor, so it can sample according to how
+   * close the user is to them. Keeps the current areas if the demand is unknown.
+   */
+  private void setGeofences(MonitorDemand demand) {
+    if (demand != null) {
+      locationMonitor.setGeofences(demand.getGeofences());
+    }
+  }
+
   /**
    * Send a Toast alert to the user about how many rules are being
    * activated/deactivited.
    * 
    * @param enabling - whether Omnidroid is being enabled or disabled
+   * @param activeRuleCount - the number of enabled rules
    */
-  private void alertUserOnStartStop(boolean enabled) {
-    CoreRulesDbHelper dbHelper = new CoreRulesDbHelper(this);
-    int activeRuleCount = dbHelper.getActiveRuleCount();
-    dbHelper.close();
+  private void alertUserOnStartStop(boolean enabled, int activeRuleCount) {
     String messageText;
     String enabledText;
     if (enabled) {
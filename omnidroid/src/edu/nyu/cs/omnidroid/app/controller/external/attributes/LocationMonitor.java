@@ -15,6 +15,9 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.controller.external.attributes;
 
+import java.util.Collections;
+import java.util.List;
+
 import android.content.Context;
 import android.content.Intent;
 import android.location.Location;
@@ -25,23 +28,27 @@ import android.util.Log;
 import edu.nyu.cs.omnidroid.app.controller.Event;
 import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
 import edu.nyu.cs.omnidroid.app.controller.events.LocationChangedEvent;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.LocationSamplingPolicy.Sampling;
 import edu.nyu.cs.omnidroid.app.controller.util.DataTypeValidationException;
 
 /**
  * The class is responsible for communication with the Location Service. It provides access to
  * Location Services External Attribute, as well as Initiates Location Change Intents.
+ * <p>
+ * How often fixes are requested, and from which provider, follows a {@link LocationSamplingPolicy}
+ * built from the areas the enabled rules compare with, and is revised after every fix.
+ * </p>
  */
 public class LocationMonitor implements SystemServiceEventMonitor {
   private static final String SYSTEM_SERVICE_NAME = "LOCATION_SERVICE";
   private static final String MONITOR_NAME = "LocationMonitor";
   private static OmniArea lastLocation;
-  /** Minimum frequency in updates(in milliseconds). Default value is 300000 (5 minutes). */
-  private static final long MIN_PROVIDER_UPDATE_INTERVAL = 300000;
-  /** Minimum change in location(in meters). Default value is 50 meters. */
-  private static final float MIN_PROVIDER_UPDATE_DISTANCE = 50;
-  private static final String PROVIDER = LocationManager.GPS_PROVIDER;
 
   private Context context;
+  private LocationSamplingPolicy policy = new LocationSamplingPolicy(Collections
+      .<OmniArea> emptyList());
+  /** How updates are currently requested, null when the monitor is stopped. */
+  private Sampling sampling;
   
   public LocationMonitor(Context context) {
     this.context = context;
@@ -49,37 +56,88 @@ public class LocationMonitor implements SystemServiceEventMonitor {
   
   public void init() {
     lastLocation = null;
+    requestUpdates(policy.getSampling(null));
+  }
+
+  public void stop() {
+    if (sampling == null) {
+      return;
+    }
+    sampling = null;
+    LocationManager lm = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    lm.removeUpdates(locationListener);
+  }
+
+  /**
+   * Set the areas that NEAR and AWAY filters of enabled rules compare with, and revise the
+   * sampling if the monitor is running. Must be called from the main thread.
+   */
+  public void setGeofences(List<OmniArea> geofences) {
+    policy = new LocationSamplingPolicy(geofences);
+    if (sampling != null) {
+      updateSampling(lastLocation);
+    }
+  }
+
+  /**
+   * @return how updates are currently requested, or null if the monitor is stopped
+   */
+  public Sampling getSampling() {
+    return sampling;
+  }
+
+  /** Re-request updates if the policy samples differently from the given position. */
+  private void updateSampling(OmniArea position) {
+    Sampling next = policy.getSampling(position);
+    if (!next.equals(sampling)) {
+      LocationManager lm = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+      if (lm != null) {
+        lm.removeUpdates(locationListener);
+      }
+      requestUpdates(next);
+    }
+  }
+
+  private void requestUpdates(Sampling next) {
     LocationManager lm = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
     if (lm == null) {
       Log.i("LocationService", "Could not obtain LOCATION_SERVICE from the system.");
       return;
     }
-    lm.requestLocationUpdates(PROVIDER, MIN_PROVIDER_UPDATE_INTERVAL, MIN_PROVIDER_UPDATE_DISTANCE,
+    String provider = next.getProvider();
+    if (next.isCoarse() && !lm.isProviderEnabled(provider)) {
+      // Fall back to GPS at the same rate if the network provider is turned off
+      provider = LocationManager.GPS_PROVIDER;
+    }
+    Log.d(MONITOR_NAME, "Requesting " + provider + " updates: " + next);
+    lm.requestLocationUpdates(provider, next.getInterval(), next.getMinDistance(),
         locationListener);
-  }
-
-  public void stop() {
-    LocationManager lm = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
-    lm.removeUpdates(locationListener);
+    sampling = next;
   }
 
   private final LocationListener locationListener = new LocationListener() {
     public void onLocationChanged(Location location) {
       OmniArea newLocation;
       try {
-        newLocation = new OmniArea(null, location.getLatitude(), location.getLongitude(), location
-            .getAccuracy());
+        // OmniArea takes its arguments as longitude, latitude and a radius in miles
+        newLocation = new OmniArea(null, location.getLongitude(), location.getLatitude(), location
+            .getAccuracy()
+            * OmniArea.MILES_IN_A_METER);
       } catch (DataTypeValidationException e) {
         newLocation = null;
 
       }
 
       if (newLocation != null && lastLocation != newLocation) {
+        lastLocation = newLocation;
         // Create intent
         Intent intent = new Intent(LocationChangedEvent.ACTION_NAME);
         String temp = newLocation.toString();
         intent.putExtra(Event.ATTRIBUTE_LOCATION, temp);
         context.sendBroadcast(intent);
+        if (sampling != null) {
+          updateSampling(newLocation);
+        }
       }
     }
 
@@ -118,4 +176,13 @@ public class LocationMonitor implements SystemServiceEventMonitor {
   public String getSystemServiceName() {
     return SYSTEM_SERVICE_NAME;
   }
+
+  /**
+   * GPS is only needed for location events, or to keep the last known location that is attached
+   * to every event fresh for rules that filter on it.
+   */
+  public boolean isRequired(MonitorDemand demand) {
+    return demand.usesEvent(LocationChangedEvent.EVENT_NAME)
+        || demand.usesAttribute(Event.ATTRIBUTE_LOCATION);
+  }
 }
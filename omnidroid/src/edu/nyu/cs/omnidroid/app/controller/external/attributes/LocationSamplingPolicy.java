@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.location.LocationManager;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+
+/**
+ * Decides how often {@link LocationMonitor} asks for location fixes. NEAR and AWAY filters only
+ * change their outcome when the user crosses the boundary of one of the areas they compare with,
+ * so fixes are taken often close to a boundary and rarely far from all of them. Far enough away
+ * the coarse network provider is used instead of GPS.
+ * <p>
+ * The interval is picked so that even at {@link #ASSUMED_SPEED} the user covers at most half the
+ * distance to the nearest boundary between two fixes, and is rounded down to a power of two
+ * times {@link #MIN_INTERVAL} so that small moves do not change the sampling on every fix.
+ * </p>
+ */
+public class LocationSamplingPolicy {
+  /** Fastest expected travel speed (in meters per second), about 125 km/h. */
+  public static final double ASSUMED_SPEED = 35;
+  /** Shortest interval between fixes (in milliseconds), used right next to a boundary. */
+  public static final long MIN_INTERVAL = 15000;
+  /** Longest interval between fixes (in milliseconds), used far from every boundary. */
+  public static final long MAX_INTERVAL = 960000;
+  /** Minimum change in location (in meters) at {@link #MIN_INTERVAL}. */
+  public static final float MIN_DISTANCE = 10;
+  /** Distance to the nearest boundary (in meters) beyond which the coarse provider is used. */
+  public static final double COARSE_BOUNDARY_DISTANCE = 3000;
+
+  /** Used when no rule compares with an area, which is what the monitor always did before. */
+  public static final Sampling DEFAULT = new Sampling(LocationManager.GPS_PROVIDER, 300000, 50);
+
+  /**
+   * How the location provider is asked for updates.
+   */
+  public static class Sampling {
+    private final String provider;
+    private final long interval;
+    private final float minDistance;
+
+    public Sampling(String provider, long interval, float minDistance) {
+      this.provider = provider;
+      this.interval = interval;
+      this.minDistance = minDistance;
+    }
+
+    public String getProvider() {
+      return provider;
+    }
+
+    /** @return minimum time between fixes (in milliseconds) */
+    public long getInterval() {
+      return interval;
+    }
+
+    /** @return minimum change in location between fixes (in meters) */
+    public float getMinDistance() {
+      return minDistance;
+    }
+
+    public boolean isCoarse() {
+      return !LocationManager.GPS_PROVIDER.equals(provider);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Sampling)) {
+        return false;
+      }
+      Sampling other = (Sampling) o;
+      return provider.equals(other.provider) && interval == other.interval
+          && minDistance == other.minDistance;
+    }
+
+    @Override
+    public int hashCode() {
+      return provider.hashCode() * 31 + (int) interval;
+    }
+
+    @Override
+    public String toString() {
+      return provider + " every " + interval + "ms/" + minDistance + "m";
+    }
+  }
+
+  private final List<OmniArea> geofences;
+
+  /**
+   * @param geofences
+   *          the areas that NEAR and AWAY filters of enabled rules compare with
+   */
+  public LocationSamplingPolicy(List<OmniArea> geofences) {
+    this.geofences = new ArrayList<OmniArea>(geofences);
+  }
+
+  public boolean hasGeofences() {
+    return !geofences.isEmpty();
+  }
+
+  /**
+   * Returns how far (in meters) the position is from the nearest geofence boundary, less its
+   * accuracy.
+   * 
+   * @param position
+   *          the last fix, with its accuracy (in miles) as the proximity distance
+   * @return the distance, which is 0 when the fix is not accurate enough to tell which side of
+   *         a boundary it is on, or positive infinity if there are no geofences
+   */
+  public double getDistanceToBoundary(OmniArea position) {
+    double nearest = Double.POSITIVE_INFINITY;
+    for (OmniArea geofence : geofences) {
+      double toBoundary = Math.abs(OmniArea.getDistance(position, geofence)
+          - geofence.getProximityDistance());
+      nearest = Math.min(nearest, toBoundary);
+    }
+    double accuracy = position.getProximityDistance();
+    return Math.max(0, (nearest - accuracy) / OmniArea.MILES_IN_A_METER);
+  }
+
+  /**
+   * @param position
+   *          the last fix, or null if there is none yet
+   * @return how to sample the location from this position on
+   */
+  public Sampling getSampling(OmniArea position) {
+    if (geofences.isEmpty()) {
+      return DEFAULT;
+    }
+    if (position == null) {
+      // Get a first fix quickly, we do not know which side of any boundary we are on
+      return new Sampling(LocationManager.GPS_PROVIDER, MIN_INTERVAL, MIN_DISTANCE);
+    }
+
+    double distance = getDistanceToBoundary(position);
+    double safeInterval = distance / 2 / ASSUMED_SPEED * 1000;
+    long interval = MIN_INTERVAL;
+    while (interval * 2 <= safeInterval && interval * 2 <= MAX_INTERVAL) {
+      interval *= 2;
+    }
+    float minDistance = MIN_DISTANCE * (interval / MIN_INTERVAL);
+    String provider = distance > COARSE_BOUNDARY_DISTANCE ? LocationManager.NETWORK_PROVIDER
+        : LocationManager.GPS_PROVIDER;
+    return new Sampling(provider, interval, minDistance);
+  }
+}
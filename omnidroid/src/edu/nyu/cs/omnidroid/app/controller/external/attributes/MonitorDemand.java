@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import android.content.Context;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+import edu.nyu.cs.omnidroid.app.controller.util.DataTypeValidationException;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.CoreRulesDbHelper;
+import edu.nyu.cs.omnidroid.app.model.FailedActionsDbHelper;
+
+/**
+ * What the enabled rules and the queued failed actions need from the event monitors. Each
+ * {@link SystemServiceEventMonitor} decides from this whether it has to run.
+ */
+public class MonitorDemand {
+  private static final String TAG = MonitorDemand.class.getSimpleName();
+
+  private final int activeRuleCount;
+  private final Set<String> eventNames;
+  private final Set<String> attributeNames;
+  private final Set<String> actionNames;
+  private final Set<Integer> failureTypes;
+  private final List<OmniArea> geofences;
+
+  /**
+   * @param activeRuleCount
+   *          the number of enabled rules
+   * @param eventNames
+   *          names of the events enabled rules are triggered by
+   * @param attributeNames
+   *          names of the event attributes enabled rules filter on
+   * @param actionNames
+   *          names of the actions enabled rules perform
+   * @param failureTypes
+   *          the failure types of the queued failed actions
+   */
+  public MonitorDemand(int activeRuleCount, Set<String> eventNames, Set<String> attributeNames,
+      Set<String> actionNames, Set<Integer> failureTypes) {
+    this(activeRuleCount, eventNames, attributeNames, actionNames, failureTypes, Collections
+        .<OmniArea> emptyList());
+  }
+
+  /**
+   * @param geofences
+   *          the areas that NEAR and AWAY filters of enabled rules compare with
+   * @see #MonitorDemand(int, Set, Set, Set, Set)
+   */
+  public MonitorDemand(int activeRuleCount, Set<String> eventNames, Set<String> attributeNames,
+      Set<String> actionNames, Set<Integer> failureTypes, List<OmniArea> geofences) {
+    this.activeRuleCount = activeRuleCount;
+    this.eventNames = Collections.unmodifiableSet(eventNames);
+    this.attributeNames = Collections.unmodifiableSet(attributeNames);
+    this.actionNames = Collections.unmodifiableSet(actionNames);
+    this.failureTypes = Collections.unmodifiableSet(failureTypes);
+    this.geofences = Collections.unmodifiableList(geofences);
+  }
+
+  /**
+   * Read the current demand from the database. This opens the database, so it should not run on
+   * the main thread.
+   */
+  public static MonitorDemand load(Context context) {
+    CoreRulesDbHelper rulesDbHelper = new CoreRulesDbHelper(context);
+    FailedActionsDbHelper failedActionsDbHelper = new FailedActionsDbHelper(context);
+    try {
+      return new MonitorDemand(rulesDbHelper.getActiveRuleCount(), rulesDbHelper
+          .getEnabledEventNames(), rulesDbHelper.getEnabledFilterAttributeNames(), rulesDbHelper
+          .getEnabledActionNames(), failedActionsDbHelper.getFailureTypes(),
+          parseGeofences(rulesDbHelper.getEnabledAreaFilterValues()));
+    } finally {
+      failedActionsDbHelper.close();
+      rulesDbHelper.close();
+    }
+  }
+
+  private static List<OmniArea> parseGeofences(Set<String> areaFilterValues) {
+    ArrayList<OmniArea> geofences = new ArrayList<OmniArea>(areaFilterValues.size());
+    for (String value : areaFilterValues) {
+      try {
+        geofences.add(new OmniArea(value));
+      } catch (DataTypeValidationException e) {
+        Logger.w(TAG, "Ignoring area filter value that is not an area: " + value);
+      } catch (NumberFormatException e) {
+        Logger.w(TAG, "Ignoring area filter value that is not an area: " + value);
+      }
+    }
+    return geofences;
+  }
+
+  public int getActiveRuleCount() {
+    return activeRuleCount;
+  }
+
+  /**
+   * @return whether an enabled rule is triggered by the event
+   */
+  public boolean usesEvent(String eventName) {
+    return eventNames.contains(eventName);
+  }
+
+  /**
+   * @return whether an enabled rule filters on the attribute
+   */
+  public boolean usesAttribute(String attributeName) {
+    return attributeNames.contains(attributeName);
+  }
+
+  /**
+   * @return whether an enabled rule performs the action
+   */
+  public boolean usesAction(String actionName) {
+    return actionNames.contains(actionName);
+  }
+
+  /**
+   * @return whether any failed action is queued for a retry
+   */
+  public boolean hasFailedActions() {
+    return !failureTypes.isEmpty();
+  }
+
+  /**
+   * @return whether a failed action is queued with the failure type
+   */
+  public boolean hasFailedActions(int failureType) {
+    return failureTypes.contains(failureType);
+  }
+
+  /**
+   * @return the areas that NEAR and AWAY filters of enabled rules compare with
+   */
+  public List<OmniArea> getGeofences() {
+    return geofences;
+  }
+
+  @Override
+  public String toString() {
+    return activeRuleCount + " rule(s), events " + eventNames + ", attributes " + attributeNames
+        + ", actions " + actionNames + ", failures " + failureTypes + ", " + geofences.size()
+        + " geofence(s)";
+  }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.external.attributes;
+
+import java.util.ArrayList;
+
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+
+/**
+ * Keeps the running event monitors in line with what the enabled rules use. A monitor is started
+ * when the {@link MonitorDemand} requires it and stopped, releasing its system service
+ * registration, when it no longer does. All calls have to be made from the main thread, since
+ * monitors register listeners and receivers.
+ */
+public class MonitorSubscriptionManager {
+  private static final String TAG = MonitorSubscriptionManager.class.getSimpleName();
+
+  private final SystemServiceEventMonitor[] monitors;
+  private final ArrayList<SystemServiceEventMonitor> started =
+      new ArrayList<SystemServiceEventMonitor>();
+
+  /**
+   * @param monitors
+   *          the monitors to manage, none of which are running yet
+   */
+  public MonitorSubscriptionManager(SystemServiceEventMonitor... monitors) {
+    this.monitors = monitors;
+  }
+
+  /**
+   * @return the managed monitors
+   */
+  public SystemServiceEventMonitor[] getMonitors() {
+    return monitors;
+  }
+
+  /**
+   * @return whether the monitor is running
+   */
+  public boolean isStarted(SystemServiceEventMonitor monitor) {
+    return started.contains(monitor);
+  }
+
+  /**
+   * Start or stop every monitor to match the demand.
+   * 
+   * @param demand
+   *          what the enabled rules need, or null if that is unknown, which starts every monitor
+   */
+  public void updateAll(MonitorDemand demand) {
+    for (SystemServiceEventMonitor monitor : monitors) {
+      update(monitor, demand);
+    }
+  }
+
+  /**
+   * Start or stop a monitor to match the demand.
+   * 
+   * @param demand
+   *          what the enabled rules need, or null if that is unknown, which starts the monitor
+   */
+  public void update(SystemServiceEventMonitor monitor, MonitorDemand demand) {
+    boolean required = demand == null || monitor.isRequired(demand);
+    if (required && !isStarted(monitor)) {
+      start(monitor);
+    } else if (!required && isStarted(monitor)) {
+      stop(monitor);
+      Logger.i(TAG, monitor.getMonitorName() + ": No enabled rules need it, stopped");
+    } else if (!required) {
+      Logger.i(TAG, monitor.getMonitorName() + ": No enabled rules need it, not started");
+    }
+  }
+
+  /**
+   * Stop every running monitor.
+   */
+  public void stopAll() {
+    for (SystemServiceEventMonitor monitor : new ArrayList<SystemServiceEventMonitor>(started)) {
+      stop(monitor);
+    }
+  }
+
+  private void start(SystemServiceEventMonitor monitor) {
+    try {
+      monitor.init();
+      started.add(monitor);
+      Logger.w(TAG, monitor.getMonitorName() + ": Start\n");
+    } catch (Exception e) {
+      Logger.e(TAG, monitor.getMonitorName() + " did not start.\nThe following error occurred: "
+          + e + e.getMessage() + e.getStackTrace());
+    }
+  }
+
+  private void stop(SystemServiceEventMonitor monitor) {
+    started.remove(monitor);
+    try {
+      monitor.stop();
+      Logger.w(TAG, monitor.getMonitorName() + " stopped");
+    } catch (Exception e) {
+      Logger.e(TAG, monitor.getMonitorName() + " did not stop.\nThe following error occurred: "
+          + e + e.getMessage() + e.getStackTrace());
+    }
+  }
+}
@@ -23,6 +23,8 @@ import android.net.ConnectivityManager;
 import android.net.wifi.WifiManager;
 import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
+import edu.nyu.cs.omnidroid.app.controller.ResultProcessor;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowWebsiteAction;
 import edu.nyu.cs.omnidroid.app.controller.events.InternetAvailableEvent;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 
@@ -69,6 +71,16 @@ public class NetworkStateMonitor extends BroadcastReceiver implements SystemServ
   public String getSystemServiceName() {
     return SYSTEM_SERVICE_NAME;
   }
+
+  /**
+   * Needed for internet events, for actions that check {@link #isConnected()}, and to retry failed
+   * actions when the internet becomes available.
+   */
+  public boolean isRequired(MonitorDemand demand) {
+    return demand.usesEvent(InternetAvailableEvent.EVENT_NAME)
+        || demand.usesAction(ShowWebsiteAction.ACTION_NAME)
+        || demand.hasFailedActions(ResultProcessor.RESULT_FAILURE_INTERNET);
+  }
   
   public void init() {
     TelephonyManager tm = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
@@ -15,6 +15,8 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.controller.external.attributes;
 
+import edu.nyu.cs.omnidroid.app.controller.ResultProcessor;
+import edu.nyu.cs.omnidroid.app.controller.actions.CallPhoneAction;
 import edu.nyu.cs.omnidroid.app.controller.events.MissedCallEvent;
 import edu.nyu.cs.omnidroid.app.controller.events.PhoneRingingEvent;
 import edu.nyu.cs.omnidroid.app.controller.events.CallEndedEvent;
@@ -76,6 +78,7 @@ public class PhoneStateMonitor implements SystemServiceEventMonitor {
   public void stop() {
     TelephonyManager tm = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
     tm.listen(phoneStateListener, PhoneStateListener.LISTEN_NONE);
+    tm.listen(phoneStateListener1, PhoneStateListener.LISTEN_NONE);
   }
 
   private final PhoneStateListener phoneStateListener = new PhoneStateListener() {
@@ -163,6 +166,19 @@ public class PhoneStateMonitor implements SystemServiceEventMonitor {
   public String getSystemServiceName() {
     return SYSTEM_SERVICE_NAME;
   }
+
+  /**
+   * Needed for phone events, for actions that check {@link #isServiceAvailable()}, and to retry
+   * failed actions when the phone service becomes available.
+   */
+  public boolean isRequired(MonitorDemand demand) {
+    return demand.usesEvent(PhoneRingingEvent.EVENT_NAME)
+        || demand.usesEvent(CallEndedEvent.EVENT_NAME)
+        || demand.usesEvent(MissedCallEvent.EVENT_NAME)
+        || demand.usesEvent(ServiceAvailableEvent.EVENT_NAME)
+        || demand.usesAction(CallPhoneAction.ACTION_NAME)
+        || demand.hasFailedActions(ResultProcessor.RESULT_FAILURE_SERVICE);
+  }
   
   public static boolean isServiceAvailable() {
     return serviceAvailable;
@@ -28,4 +28,15 @@ public interface SystemServiceEventMonitor {
 
   /** EventMonitor service name */
   public String getMonitorName();
+
+  /**
+   * Whether this monitor has to run given what the enabled rules and queued failed actions use.
+   * Monitors that only raise events nobody listens to are stopped, which saves the system services
+   * they hold on to.
+   * 
+   * @param demand
+   *          what the enabled rules and failed actions need
+   * @return true if the monitor has to be running
+   */
+  public boolean isRequired(MonitorDemand demand);
 }
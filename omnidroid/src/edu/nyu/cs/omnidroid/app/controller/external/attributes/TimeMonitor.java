@@ -58,6 +58,13 @@ public class TimeMonitor extends BroadcastReceiver implements SystemServiceEvent
     return SYSTEM_SERVICE_NAME;
   }
 
+  /**
+   * Time ticks are needed for time rules, and to retry and expire queued failed actions.
+   */
+  public boolean isRequired(MonitorDemand demand) {
+    return demand.usesEvent(TimeTickEvent.EVENT_NAME) || demand.hasFailedActions();
+  }
+
   @Override
   public void onReceive(Context arg0, Intent arg1) {
     Log.d("TimeMonitor", "Intent received");
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.nyu.cs.omnidroid.app.model.EventLog;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
+
+/**
+ * One event to replay: when it happened, which event it was and the attributes it carried, keyed
+ * by the intent extra names the event reads them from.
+ */
+public class EventRecord {
+  private final long timestamp;
+  private final String appName;
+  private final String eventName;
+  private final Map<String, String> attributes;
+
+  /**
+   * @param timestamp
+   *          when the event happened (in milliseconds)
+   * @param appName
+   *          the name of the application of the event
+   * @param eventName
+   *          the name of the event
+   * @param attributes
+   *          the attributes of the event, keyed by intent extra name
+   */
+  public EventRecord(long timestamp, String appName, String eventName,
+      Map<String, String> attributes) {
+    if (appName == null || eventName == null || attributes == null) {
+      throw new IllegalArgumentException("appName, eventName and attributes cannot be null.");
+    }
+    this.timestamp = timestamp;
+    this.appName = appName;
+    this.eventName = eventName;
+    this.attributes = Collections.unmodifiableMap(new LinkedHashMap<String, String>(attributes));
+  }
+
+  /**
+   * Rebuild a record from an event log. Logs written before parameters were stored with
+   * {@link LogParameters} only kept the {@code Bundle.toString()} text of the extras, so those are
+   * rebuilt as well as they can be, without extras that were not strings, like the PDUs of a text
+   * message.
+   */
+  public static EventRecord fromLog(EventLog log) {
+    return new EventRecord(log.getTimestamp(), log.getAppName(), log.getEventName(), log
+        .getParameterMap());
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getAppName() {
+    return appName;
+  }
+
+  public String getEventName() {
+    return eventName;
+  }
+
+  /**
+   * @return the attributes of the event, keyed by intent extra name
+   */
+  public Map<String, String> getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof EventRecord)) {
+      return false;
+    }
+    EventRecord that = (EventRecord) o;
+    return timestamp == that.timestamp && appName.equals(that.appName)
+        && eventName.equals(that.eventName) && attributes.equals(that.attributes);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 17;
+    result = 37 * result + (int) (timestamp ^ (timestamp >>> 32));
+    result = 37 * result + eventName.hashCode();
+    result = 37 * result + attributes.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return timestamp + " " + appName + "/" + eventName + " " + attributes;
+  }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.omnidroid.app.controller.Action;
+import edu.nyu.cs.omnidroid.app.controller.Rule;
+import edu.nyu.cs.omnidroid.app.controller.RuleProcessor;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.CoreActionsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.CoreRulesDbHelper;
+
+/**
+ * Feeds recorded events through {@link RuleProcessor} against the rules in the database, to
+ * load-test rule sets offline with real traffic. The actions the matching rules fire are counted
+ * but never executed. Events are replayed either as fast as possible or in scaled time, keeping
+ * the gaps between their timestamps divided by a speed factor.
+ */
+public class EventReplayer {
+  private static final String TAG = EventReplayer.class.getSimpleName();
+
+  /** Speed to replay events back to back without waiting. */
+  public static final double FULL_SPEED = 0;
+
+  private static final long NANOS_IN_MILLI = 1000000;
+
+  private final CoreRulesDbHelper coreRulesDbHelper;
+  private final CoreActionsDbHelper coreActionsDbHelper;
+
+  /**
+   * @param coreRulesDbHelper
+   *          reads the rules to match the events with
+   * @param coreActionsDbHelper
+   *          reads the actions of matching rules
+   */
+  public EventReplayer(CoreRulesDbHelper coreRulesDbHelper,
+      CoreActionsDbHelper coreActionsDbHelper) {
+    this.coreRulesDbHelper = coreRulesDbHelper;
+    this.coreActionsDbHelper = coreActionsDbHelper;
+  }
+
+  /**
+   * Replay the records in order.
+   * 
+   * @param records
+   *          the events to replay, oldest first
+   * @param speed
+   *          how many times faster than recorded to replay, or {@link #FULL_SPEED}
+   * @return what the run measured
+   * @throws InterruptedException
+   *           if interrupted while waiting in scaled time
+   */
+  public ReplayReport replay(List<EventRecord> records, double speed)
+      throws InterruptedException {
+    if (speed < 0) {
+      throw new IllegalArgumentException("speed cannot be negative.");
+    }
+    final ReplayReport report = new ReplayReport();
+    RuleProcessor.MatchListener listener = new RuleProcessor.MatchListener() {
+      public void ruleMatched(Rule rule, ArrayList<Action> actions) {
+        report.ruleMatched(rule.ruleName + " #" + rule.getRuleID(), actions.size());
+      }
+    };
+
+    long start = System.nanoTime();
+    long firstTimestamp = records.isEmpty() ? 0 : records.get(0).getTimestamp();
+    for (EventRecord record : records) {
+      if (speed != FULL_SPEED) {
+        long due = start + (long) ((record.getTimestamp() - firstTimestamp) / speed)
+            * NANOS_IN_MILLI;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+          Thread.sleep(wait / NANOS_IN_MILLI, (int) (wait % NANOS_IN_MILLI));
+        }
+      }
+
+      long eventStart = System.nanoTime();
+      try {
+        RuleProcessor.getActions(new ReplayedEvent(record), coreRulesDbHelper,
+            coreActionsDbHelper, listener);
+      } catch (RuntimeException e) {
+        Logger.w(TAG, "Failed to process " + record, e);
+        report.eventFailed();
+      }
+      report.eventProcessed(System.nanoTime() - eventStart);
+    }
+    report.finished(System.nanoTime() - start);
+    return report;
+  }
+}
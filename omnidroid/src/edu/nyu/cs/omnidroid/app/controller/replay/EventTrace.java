@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.Context;
+import edu.nyu.cs.omnidroid.app.model.CoreEventLogsDbHelper;
+import edu.nyu.cs.omnidroid.app.model.EventLog;
+import edu.nyu.cs.omnidroid.app.model.Log;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
+
+/**
+ * Reads and writes event traces, and collects them from the event logs.
+ * <p>
+ * A trace file is text with one event per line: the timestamp, application name and event name,
+ * followed by one {@code key=value} field per attribute, all separated by tabs. Names and values
+ * are escaped as by {@link LogParameters}, and lines starting with {@code #} are comments.
+ * </p>
+ */
+public class EventTrace {
+  private static final String HEADER = "# Omnidroid event trace";
+  private static final char SEPARATOR = '\t';
+
+  /** Orders records oldest first. */
+  private static final Comparator<EventRecord> BY_TIMESTAMP = new Comparator<EventRecord>() {
+    public int compare(EventRecord a, EventRecord b) {
+      return a.getTimestamp() < b.getTimestamp() ? -1 : (a.getTimestamp() == b.getTimestamp() ? 0
+          : 1);
+    }
+  };
+
+  /**
+   * This is a static utility class which cannot be instantiated.
+   */
+  private EventTrace() {
+  }
+
+  /**
+   * Collect every logged event, oldest first.
+   * 
+   * @see EventRecord#fromLog(EventLog)
+   */
+  public static List<EventRecord> fromLogs(Context context) {
+    CoreEventLogsDbHelper logsDbHelper = new CoreEventLogsDbHelper(context);
+    List<Log> logs;
+    try {
+      logs = logsDbHelper.getLogs();
+    } finally {
+      logsDbHelper.close();
+    }
+    ArrayList<EventRecord> records = new ArrayList<EventRecord>(logs.size());
+    for (Log log : logs) {
+      records.add(EventRecord.fromLog((EventLog) log));
+    }
+    Collections.sort(records, BY_TIMESTAMP);
+    return records;
+  }
+
+  /**
+   * Write the records as a trace.
+   */
+  public static void write(Writer writer, Iterable<EventRecord> records) throws IOException {
+    writer.write(HEADER);
+    writer.write('\n');
+    StringBuilder line = new StringBuilder();
+    for (EventRecord record : records) {
+      line.setLength(0);
+      line.append(record.getTimestamp()).append(SEPARATOR);
+      LogParameters.escape(line, record.getAppName()).append(SEPARATOR);
+      LogParameters.escape(line, record.getEventName());
+      for (Map.Entry<String, String> attribute : record.getAttributes().entrySet()) {
+        line.append(SEPARATOR);
+        LogParameters.escape(line, attribute.getKey()).append('=');
+        LogParameters.escape(line, attribute.getValue());
+      }
+      line.append('\n');
+      writer.write(line.toString());
+    }
+    writer.flush();
+  }
+
+  /**
+   * Read a trace.
+   * 
+   * @return the records in the order of the trace
+   * @throws IOException
+   *           if reading fails or a line is malformed
+   */
+  public static List<EventRecord> read(Reader reader) throws IOException {
+    BufferedReader lines = new BufferedReader(reader);
+    ArrayList<EventRecord> records = new ArrayList<EventRecord>();
+    int lineNumber = 0;
+    String line;
+    while ((line = lines.readLine()) != null) {
+      lineNumber++;
+      if (line.length() == 0 || line.charAt(0) == '#') {
+        continue;
+      }
+      String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+      if (fields.length < 3) {
+        throw new IOException("Line " + lineNumber + " has fewer than 3 fields.");
+      }
+      long timestamp;
+      try {
+        timestamp = Long.parseLong(fields[0]);
+      } catch (NumberFormatException e) {
+        throw new IOException("Line " + lineNumber + " has no valid timestamp.");
+      }
+      LinkedHashMap<String, String> attributes = new LinkedHashMap<String, String>();
+      for (int i = 3; i < fields.length; i++) {
+        int equals = LogParameters.indexOfUnescaped(fields[i], '=');
+        if (equals < 0) {
+          throw new IOException("Line " + lineNumber + " has an attribute without a value.");
+        }
+        String name = LogParameters.unescape(fields[i].substring(0, equals));
+        attributes.put(name, LogParameters.unescape(fields[i].substring(equals + 1)));
+      }
+      records.add(new EventRecord(timestamp, LogParameters.unescape(fields[1]), LogParameters
+          .unescape(fields[2]), attributes));
+    }
+    return records;
+  }
+}
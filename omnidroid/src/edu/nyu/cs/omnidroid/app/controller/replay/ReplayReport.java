@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What an {@link EventReplayer} run measured: throughput, the number of times each rule matched
+ * and the distribution of the time it took to process each event.
+ */
+public class ReplayReport {
+  private static final long NANOS_IN_MICRO = 1000;
+  private static final long NANOS_IN_SECOND = 1000000000;
+
+  private int events;
+  private int failedEvents;
+  private int actions;
+  private long elapsedNanos;
+  private long[] latencies = new long[64];
+  private boolean sorted;
+  private final LinkedHashMap<String, Integer> ruleHits = new LinkedHashMap<String, Integer>();
+
+  void eventProcessed(long latencyNanos) {
+    if (events == latencies.length) {
+      long[] grown = new long[latencies.length * 2];
+      System.arraycopy(latencies, 0, grown, 0, events);
+      latencies = grown;
+    }
+    latencies[events++] = latencyNanos;
+    sorted = false;
+  }
+
+  void eventFailed() {
+    failedEvents++;
+  }
+
+  void ruleMatched(String ruleName, int ruleActions) {
+    Integer hits = ruleHits.get(ruleName);
+    ruleHits.put(ruleName, hits == null ? 1 : hits + 1);
+    actions += ruleActions;
+  }
+
+  void finished(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * @return the number of events processed, including failed ones
+   */
+  public int getEventCount() {
+    return events;
+  }
+
+  /**
+   * @return the number of events whose processing threw an exception
+   */
+  public int getFailedEventCount() {
+    return failedEvents;
+  }
+
+  /**
+   * @return the number of actions the matching rules fired, none of which were executed
+   */
+  public int getActionCount() {
+    return actions;
+  }
+
+  /**
+   * @return the wall clock time of the run (in milliseconds), including any waits in scaled time
+   */
+  public long getElapsedMillis() {
+    return elapsedNanos / (NANOS_IN_SECOND / 1000);
+  }
+
+  /**
+   * @return events processed per second of processing time, not counting waits in scaled time
+   */
+  public double getThroughput() {
+    long busy = 0;
+    for (int i = 0; i < events; i++) {
+      busy += latencies[i];
+    }
+    return busy == 0 ? 0 : events * (double) NANOS_IN_SECOND / busy;
+  }
+
+  /**
+   * @return the number of times each rule matched, keyed by rule name and id, in the order the
+   *         rules first matched
+   */
+  public Map<String, Integer> getRuleHits() {
+    return Collections.unmodifiableMap(ruleHits);
+  }
+
+  /**
+   * @param percentile
+   *          between 0 and 100
+   * @return the latency (in microseconds) that the percentile of events did not exceed, or 0 if
+   *         no events were processed
+   */
+  public long getLatencyPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100.");
+    }
+    if (events == 0) {
+      return 0;
+    }
+    if (!sorted) {
+      Arrays.sort(latencies, 0, events);
+      sorted = true;
+    }
+    int index = (int) Math.ceil(percentile / 100 * events) - 1;
+    return latencies[Math.max(0, index)] / NANOS_IN_MICRO;
+  }
+
+  /**
+   * @return the mean latency (in microseconds)
+   */
+  public long getMeanLatency() {
+    if (events == 0) {
+      return 0;
+    }
+    long total = 0;
+    for (int i = 0; i < events; i++) {
+      total += latencies[i];
+    }
+    return total / events / NANOS_IN_MICRO;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(events).append(" events (").append(failedEvents).append(" failed) in ").append(
+        getElapsedMillis()).append("ms, ").append(Math.round(getThroughput())).append(
+        " events/s, ").append(actions).append(" actions\n");
+    sb.append("latency us: mean ").append(getMeanLatency()).append(", p50 ").append(
+        getLatencyPercentile(50)).append(", p90 ").append(getLatencyPercentile(90)).append(
+        ", p99 ").append(getLatencyPercentile(99)).append(", max ").append(
+        getLatencyPercentile(100)).append('\n');
+    for (Map.Entry<String, Integer> hits : ruleHits.entrySet()) {
+      sb.append("  ").append(hits.getKey()).append(": ").append(hits.getValue()).append('\n');
+    }
+    return sb.toString();
+  }
+}
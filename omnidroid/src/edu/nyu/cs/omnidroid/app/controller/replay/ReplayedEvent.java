@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.replay;
+
+import java.util.Map;
+
+import android.content.Intent;
+import edu.nyu.cs.omnidroid.app.controller.Event;
+
+/**
+ * An {@link Event} rebuilt from an {@link EventRecord}. Every attribute is answered from the
+ * recorded extras, which works for the events that keep their attributes in extras of the same
+ * name, and for traces recorded with attribute names as keys.
+ */
+public class ReplayedEvent extends Event {
+  private final Map<String, String> attributes;
+
+  public ReplayedEvent(EventRecord record) {
+    super(record.getAppName(), record.getEventName(), toIntent(record));
+    attributes = record.getAttributes();
+  }
+
+  private static Intent toIntent(EventRecord record) {
+    Intent intent = new Intent();
+    for (Map.Entry<String, String> attribute : record.getAttributes().entrySet()) {
+      intent.putExtra(attribute.getKey(), attribute.getValue());
+    }
+    return intent;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getAttribute(String attributeName) throws IllegalArgumentException {
+    String value = attributes.get(attributeName);
+    if (value != null) {
+      return value;
+    }
+    return super.getAttribute(attributeName);
+  }
+}
@@ -17,7 +17,6 @@ package edu.nyu.cs.omnidroid.app.controller.util;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -25,6 +24,11 @@ import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * This is a utility class that implements some basic I/O operations.
@@ -101,7 +105,8 @@ public class IOUtil {
   }
 
   /**
-   * Copy file from source path to the target file path
+   * Copy file from source path to the target file path. The file is transferred between the file
+   * channels, without passing through a buffer of ours.
    * 
    * @param source
    *          is the source file path. Takes the same input as FileInputStream(string)
@@ -110,29 +115,130 @@ public class IOUtil {
    *          is the target file path. Takes the same input as FileInputStream(string)
    * 
    * @throws RuntimeException
-   *           when source or target file is failed to be located.
+   *           when source or target file is failed to be located, or copying fails.
    */
   public static void copy(String source, String target) {
-    InputStream in = null;
-    OutputStream out = null;
+    FileChannel in = null;
+    FileChannel out = null;
+
+    try {
+      in = new FileInputStream(source).getChannel();
+      out = new FileOutputStream(target).getChannel();
+      long size = in.size();
+      // transferTo may copy less than asked for, continue from where it stopped
+      for (long position = 0; position < size;) {
+        position += in.transferTo(position, size - position, out);
+      }
+
+    } catch (IOException e) {
+      throw new RuntimeException(e.getMessage(), e);
 
+    } finally {
+      close(in);
+      close(out);
+    }
+  }
+
+  /**
+   * @param file
+   *          is the file path. Takes the same input as FileInputStream(string)
+   * 
+   * @return the CRC-32 checksum of the file's content
+   * 
+   * @throws RuntimeException
+   *           when the file is failed to be located or read.
+   */
+  public static long checksum(String file) {
+    CheckedInputStream in = null;
     try {
-      in = new BufferedInputStream(new FileInputStream(source));
-      out = new BufferedOutputStream(new FileOutputStream(target));
-      for (int c = read(in); c != -1; c = read(in)) {
-        write(out, c);
+      in = new CheckedInputStream(new FileInputStream(file), new CRC32());
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer) != -1) {
+        // The checksum is updated as the file is read
       }
+      return in.getChecksum().getValue();
 
-    } catch (FileNotFoundException e) {
+    } catch (IOException e) {
       throw new RuntimeException(e.getMessage(), e);
 
     } finally {
       close(in);
+    }
+  }
+
+  /**
+   * Write a manifest of the length and checksum of files, to later check that they are intact
+   * with {@link #verifyManifest(String)}. The files must be in the manifest's directory.
+   * 
+   * @param manifest
+   *          is the manifest file path. Takes the same input as File(string)
+   * 
+   * @param files
+   *          are the paths of the files to list. Takes the same input as File(string)
+   * 
+   * @throws RuntimeException
+   *           when a file is failed to be read, or the manifest to be written.
+   */
+  public static void writeManifest(String manifest, String... files) {
+    Properties entries = new Properties();
+    for (String file : files) {
+      entries.setProperty(new File(file).getName(), manifestEntry(file));
+    }
+
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(manifest));
+      entries.store(out, null);
+
+    } catch (IOException e) {
+      throw new RuntimeException(e.getMessage(), e);
+
+    } finally {
       close(out);
     }
+  }
+
+  /**
+   * @param manifest
+   *          is the manifest file path written by {@link #writeManifest(String, String...)}. Takes
+   *          the same input as File(string)
+   * 
+   * @return whether the manifest exists and every file it lists has its length and checksum.
+   */
+  public static boolean verifyManifest(String manifest) {
+    File manifestFile = new File(manifest);
+    if (!manifestFile.exists()) {
+      return false;
+    }
 
-    close(in);
-    close(out);
+    Properties entries = new Properties();
+    InputStream in = null;
+    try {
+      in = new BufferedInputStream(new FileInputStream(manifestFile));
+      entries.load(in);
+
+    } catch (IOException e) {
+      return false;
+
+    } finally {
+      close(in);
+    }
+
+    for (Enumeration<?> names = entries.propertyNames(); names.hasMoreElements();) {
+      String name = (String) names.nextElement();
+      File file = new File(manifestFile.getParentFile(), name);
+      if (!file.exists() || !entries.getProperty(name).equals(manifestEntry(file.getPath()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the manifest entry of a file, its length and checksum
+   */
+  private static String manifestEntry(String file) {
+    return new File(file).length() + " " + Long.toHexString(checksum(file));
   }
 
   /**
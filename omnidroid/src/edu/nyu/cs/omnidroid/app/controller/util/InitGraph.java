@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import android.os.Handler;
+
+/**
+ * Runs a set of initialization tasks in dependency order. A task starts as soon as every task it
+ * depends on has finished. Tasks that must touch the main thread (registering receivers or
+ * listeners) are posted to its {@link Handler}, and the rest each run on a thread of their own, so
+ * independent work such as opening the database overlaps and the main thread is never blocked on
+ * it.
+ * <p>
+ * A task that throws is logged and counts as finished, so the tasks depending on it still run and
+ * have to cope with its results being missing. Each task is timed with the {@link StartupTracer},
+ * which is written to the log once every task finished.
+ * </p>
+ */
+public class InitGraph {
+  private static final String TAG = InitGraph.class.getSimpleName();
+
+  /**
+   * A unit of initialization work.
+   */
+  public abstract static class Task {
+    private final String name;
+    private final boolean onMainThread;
+    private final String[] dependencies;
+
+    /**
+     * @param name
+     *          unique name of the task, used by other tasks to depend on it
+     * @param onMainThread
+     *          whether the task has to run on the main thread
+     * @param dependencies
+     *          names of the tasks that have to finish before this one starts
+     */
+    public Task(String name, boolean onMainThread, String... dependencies) {
+      this.name = name;
+      this.onMainThread = onMainThread;
+      this.dependencies = dependencies;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Do the work of this task.
+     */
+    public abstract void run() throws Exception;
+  }
+
+  private final Handler mainHandler;
+  private final StartupTracer tracer;
+  private final LinkedHashMap<String, Task> tasks = new LinkedHashMap<String, Task>();
+
+  // Tasks waiting on each task, and how many unfinished dependencies each task has left
+  private final HashMap<String, ArrayList<Task>> dependents =
+      new HashMap<String, ArrayList<Task>>();
+  private final HashMap<String, Integer> waitingOn = new HashMap<String, Integer>();
+
+  private int unfinished;
+  private boolean started;
+  private volatile boolean cancelled;
+
+  /**
+   * @param mainHandler
+   *          a handler of the main thread, for tasks that have to run there
+   * @param tracer
+   *          the tracer to time the tasks with
+   */
+  public InitGraph(Handler mainHandler, StartupTracer tracer) {
+    this.mainHandler = mainHandler;
+    this.tracer = tracer;
+  }
+
+  /**
+   * Add a task to the graph. All tasks must be added before {@link #start()}.
+   * 
+   * @throws IllegalArgumentException
+   *           if a task with the same name was already added
+   * @throws IllegalStateException
+   *           if the graph already started
+   */
+  public synchronized void add(Task task) {
+    if (started) {
+      throw new IllegalStateException(TAG + " already started.");
+    }
+    if (tasks.containsKey(task.name)) {
+      throw new IllegalArgumentException("Duplicate task " + task.name);
+    }
+    tasks.put(task.name, task);
+  }
+
+  /**
+   * Start running the tasks. This returns right away; main thread tasks run once the caller gives
+   * the main thread back.
+   * 
+   * @throws IllegalArgumentException
+   *           if a task depends on a task that was not added, or the dependencies form a cycle
+   */
+  public synchronized void start() {
+    if (started) {
+      throw new IllegalStateException(TAG + " already started.");
+    }
+    ArrayList<Task> ready = new ArrayList<Task>();
+    for (Task task : tasks.values()) {
+      for (String dependency : task.dependencies) {
+        if (!tasks.containsKey(dependency)) {
+          throw new IllegalArgumentException(task.name + " depends on unknown task " + dependency);
+        }
+        ArrayList<Task> waiting = dependents.get(dependency);
+        if (waiting == null) {
+          waiting = new ArrayList<Task>();
+          dependents.put(dependency, waiting);
+        }
+        waiting.add(task);
+      }
+      waitingOn.put(task.name, task.dependencies.length);
+      if (task.dependencies.length == 0) {
+        ready.add(task);
+      }
+    }
+    checkAcyclic(ready);
+
+    started = true;
+    unfinished = tasks.size();
+    for (Task task : ready) {
+      schedule(task);
+    }
+  }
+
+  /**
+   * Stop starting tasks. Tasks that are already running finish, but nothing runs after them.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * @return whether every task has finished, or the graph was cancelled
+   */
+  public synchronized boolean isDone() {
+    return cancelled || (started && unfinished == 0);
+  }
+
+  /**
+   * Make sure every task can be reached from the tasks without dependencies.
+   */
+  private void checkAcyclic(ArrayList<Task> ready) {
+    HashMap<String, Integer> remaining = new HashMap<String, Integer>(waitingOn);
+    ArrayList<Task> queue = new ArrayList<Task>(ready);
+    int reached = 0;
+    while (reached < queue.size()) {
+      Task task = queue.get(reached++);
+      ArrayList<Task> waiting = dependents.get(task.name);
+      if (waiting == null) {
+        continue;
+      }
+      for (Task dependent : waiting) {
+        int left = remaining.get(dependent.name) - 1;
+        remaining.put(dependent.name, left);
+        if (left == 0) {
+          queue.add(dependent);
+        }
+      }
+    }
+    if (reached != tasks.size()) {
+      throw new IllegalArgumentException("Task dependencies form a cycle");
+    }
+  }
+
+  private void schedule(final Task task) {
+    Runnable runner = new Runnable() {
+      public void run() {
+        execute(task);
+      }
+    };
+    if (task.onMainThread) {
+      mainHandler.post(runner);
+    } else {
+      new Thread(runner, TAG + ":" + task.name).start();
+    }
+  }
+
+  private void execute(Task task) {
+    if (cancelled) {
+      return;
+    }
+    StartupTracer.Step step = tracer.begin(task.name);
+    try {
+      task.run();
+    } catch (Exception e) {
+      Logger.e(TAG, task.name + " failed.", e);
+    } finally {
+      step.end();
+    }
+    finished(task);
+  }
+
+  private void finished(Task task) {
+    ArrayList<Task> ready = new ArrayList<Task>();
+    synchronized (this) {
+      if (--unfinished == 0) {
+        tracer.dump();
+      }
+      ArrayList<Task> waiting = dependents.get(task.name);
+      if (waiting != null) {
+        for (Task dependent : waiting) {
+          int left = waitingOn.get(dependent.name) - 1;
+          waitingOn.put(dependent.name, left);
+          if (left == 0) {
+            ready.add(dependent);
+          }
+        }
+      }
+    }
+    for (Task dependent : ready) {
+      schedule(dependent);
+    }
+  }
+}
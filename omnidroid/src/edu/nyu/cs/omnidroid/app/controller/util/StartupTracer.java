@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.controller.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.SystemClock;
+
+/**
+ * Records how long each step of Omnidroid's startup takes, and how long it takes from the start of
+ * tracing until the first event is handled. There is one tracer for the process since startup spans
+ * the services and activities that take part in it.
+ * <p>
+ * A step is timed between {@link #begin(String)} and {@link Step#end()}. Steps may run on any
+ * thread and overlap; each records the thread it ran on. Tracing starts over with
+ * {@link #restart()} when the monitoring service is created, and the steps are written to the log
+ * once the first event is handled. At most {@link #MAX_STEPS} steps are kept per trace.
+ * </p>
+ */
+public class StartupTracer {
+  private static final String TAG = StartupTracer.class.getSimpleName();
+
+  private static final StartupTracer instance = new StartupTracer();
+
+  /** Maximum number of steps recorded in one trace, later steps are timed but not kept */
+  public static final int MAX_STEPS = 64;
+
+  /** A timed startup step. */
+  public class Step {
+    private final String name;
+    private final String thread;
+    private final long start;
+    private long end = -1;
+
+    private Step(String name, long start) {
+      this.name = name;
+      this.thread = Thread.currentThread().getName();
+      this.start = start;
+    }
+
+    /**
+     * Mark the step as finished.
+     */
+    public void end() {
+      synchronized (StartupTracer.this) {
+        end = SystemClock.uptimeMillis();
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getThread() {
+      return thread;
+    }
+
+    /**
+     * @return milliseconds from the start of tracing to the start of this step
+     */
+    public long getOffset() {
+      synchronized (StartupTracer.this) {
+        return start - origin;
+      }
+    }
+
+    /**
+     * @return how long the step took in milliseconds, or -1 if it has not ended
+     */
+    public long getDuration() {
+      synchronized (StartupTracer.this) {
+        return end < 0 ? -1 : end - start;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name + " [" + thread + "] +" + getOffset() + "ms " + getDuration() + "ms";
+    }
+  }
+
+  private long origin = SystemClock.uptimeMillis();
+  private long firstEventHandled = -1;
+  private final ArrayList<Step> steps = new ArrayList<Step>();
+  private int droppedSteps;
+
+  /**
+   * @return the process wide tracer
+   */
+  public static StartupTracer instance() {
+    return instance;
+  }
+
+  /**
+   * Start tracing over, dropping the steps recorded so far.
+   */
+  public synchronized void restart() {
+    origin = SystemClock.uptimeMillis();
+    firstEventHandled = -1;
+    steps.clear();
+    droppedSteps = 0;
+  }
+
+  /**
+   * Start timing a step.
+   * 
+   * @param name
+   *          the name of the step
+   * @return the step, which must be ended when it finishes
+   */
+  public synchronized Step begin(String name) {
+    Step step = new Step(name, SystemClock.uptimeMillis());
+    if (steps.size() < MAX_STEPS) {
+      steps.add(step);
+    } else {
+      droppedSteps++;
+    }
+    return step;
+  }
+
+  /**
+   * Record that an event was handled and write the trace to the log. Only the first call after
+   * tracing starts is recorded.
+   */
+  public synchronized void eventHandled() {
+    if (firstEventHandled < 0) {
+      firstEventHandled = SystemClock.uptimeMillis();
+      Logger.i(TAG, "First event handled " + (firstEventHandled - origin) + "ms after startup");
+      dump();
+    }
+  }
+
+  /**
+   * @return milliseconds from the start of tracing until the first event was handled, or -1 if no
+   *         event has been handled yet
+   */
+  public synchronized long getTimeToFirstEvent() {
+    return firstEventHandled < 0 ? -1 : firstEventHandled - origin;
+  }
+
+  /**
+   * @return the steps recorded so far, in the order they began
+   */
+  public synchronized List<Step> getSteps() {
+    return new ArrayList<Step>(steps);
+  }
+
+  /**
+   * Write the recorded steps to the log.
+   */
+  public synchronized void dump() {
+    for (Step step : steps) {
+      Logger.d(TAG, step.toString());
+    }
+    if (droppedSteps > 0) {
+      Logger.d(TAG, droppedSteps + " more steps not recorded");
+    }
+  }
+}
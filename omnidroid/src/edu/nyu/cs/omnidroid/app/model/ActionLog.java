@@ -15,6 +15,8 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model;
 
+import java.util.Map;
+
 import edu.nyu.cs.omnidroid.app.controller.Action;
 
 /**
@@ -45,7 +47,7 @@ public class ActionLog extends Log {
     this.logEventID = logEventID;
     this.appName = action.getAppName();
     this.actionName = action.getActionName();
-    this.parameters = action.getParameters();
+    this.parameters = LogParameters.encode(action.getParameters());
     this.text = action.getDescription();
   }
 
@@ -74,7 +76,7 @@ public class ActionLog extends Log {
    * @param actionName
    *          the name of the event for the action
    * @param parameters
-   *          the parameters for the action
+   *          the parameters for the action, encoded by {@link LogParameters}
    * @param text
    *          a textual description of the Log
    */
@@ -124,13 +126,23 @@ public class ActionLog extends Log {
     this.parameters = parameters;
   }
 
+  /**
+   * @return the parameters encoded by {@link LogParameters}
+   */
   public String getParameters() {
     return parameters;
   }
 
+  /**
+   * @return the parameters of the action, keyed by name
+   */
+  public Map<String, String> getParameterMap() {
+    return LogParameters.decode(parameters);
+  }
+
   public String toString() {
     return "ID: " + id + "\nTimestamp: " + timestamp + "\nLogEventID: " + logEventID
         + "\nRuleName: " + ruleName + "\nApplication Name: " + appName + "\nAction Name: "
-        + actionName + "\nParameters: " + parameters;
+        + actionName + "\nParameters: " + LogParameters.toDisplayString(getParameterMap());
   }
 }
\ No newline at end of file
@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getStringFromCursor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import edu.nyu.cs.omnidroid.app.controller.Action;
+import edu.nyu.cs.omnidroid.app.controller.actions.BroadcastIntentAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.CallPhoneAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SendGmailAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneLoudAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneSilentAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneVibrateAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetScreenBrightnessAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowAlertAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowNotificationAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowWebsiteAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOffWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOnWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.UpdateTwitterStatusAction;
+import edu.nyu.cs.omnidroid.app.controller.util.ExceptionMessageMap;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
+import edu.nyu.cs.omnidroid.app.model.db.DataTypeDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionParameterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
+
+/**
+ * Creates {@link Action} objects for the actions in the RegisteredActions table. Each action is
+ * looked up by its application and action name, and built by the {@link Factory} registered for
+ * that pair. The built-in Omnidroid actions are always registered, and code running in Omnidroid
+ * can add more with {@link #register(String, String, Factory)}.
+ * <p>
+ * Applications in other processes add rows to the registry tables instead, through
+ * {@link #registerExternal(SQLiteDatabase, String, String, String, String, Map)}. Their actions
+ * have no factory and are performed as a {@link BroadcastIntentAction} sent to the receiver the
+ * application named.
+ * </p>
+ */
+public class ActionRegistry {
+  private static final String TAG = ActionRegistry.class.getSimpleName();
+
+  /**
+   * Builds an action from its parameters.
+   */
+  public interface Factory {
+    /**
+     * @param parameters
+     *          the action parameter data by parameter name
+     * @return the new action
+     * @throws OmnidroidException
+     *           if the parameters are not valid for the action
+     */
+    public Action create(HashMap<String, String> parameters) throws OmnidroidException;
+  }
+
+  /** Factories by {@link #key(String, String)} */
+  private static final HashMap<String, Factory> factories = new HashMap<String, Factory>();
+
+  static {
+    register(SendSmsAction.APP_NAME, SendSmsAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new SendSmsAction(parameters);
+      }
+    });
+    register(CallPhoneAction.APP_NAME, CallPhoneAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new CallPhoneAction(parameters);
+      }
+    });
+    register(SendGmailAction.APP_NAME, SendGmailAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new SendGmailAction(parameters);
+      }
+    });
+    register(ShowAlertAction.APP_NAME, ShowAlertAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new ShowAlertAction(parameters);
+      }
+    });
+    register(ShowNotificationAction.APP_NAME, ShowNotificationAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new ShowNotificationAction(parameters);
+      }
+    });
+    register(ShowWebsiteAction.APP_NAME, ShowWebsiteAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new ShowWebsiteAction(parameters);
+      }
+    });
+    register(SetScreenBrightnessAction.APP_NAME, SetScreenBrightnessAction.ACTION_NAME,
+        new Factory() {
+          public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+            return new SetScreenBrightnessAction(parameters);
+          }
+        });
+    register(SetPhoneLoudAction.APP_NAME, SetPhoneLoudAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new SetPhoneLoudAction(parameters);
+      }
+    });
+    register(SetPhoneSilentAction.APP_NAME, SetPhoneSilentAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new SetPhoneSilentAction(parameters);
+      }
+    });
+    register(SetPhoneVibrateAction.APP_NAME, SetPhoneVibrateAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new SetPhoneVibrateAction(parameters);
+      }
+    });
+    register(TurnOffWifiAction.APP_NAME, TurnOffWifiAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new TurnOffWifiAction(parameters);
+      }
+    });
+    register(TurnOnWifiAction.APP_NAME, TurnOnWifiAction.ACTION_NAME, new Factory() {
+      public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+        return new TurnOnWifiAction(parameters);
+      }
+    });
+    register(UpdateTwitterStatusAction.APP_NAME, UpdateTwitterStatusAction.ACTION_NAME,
+        new Factory() {
+          public Action create(HashMap<String, String> parameters) throws OmnidroidException {
+            return new UpdateTwitterStatusAction(parameters);
+          }
+        });
+  }
+
+  /** {application name, action name} by RegisteredActions row id */
+  private final HashMap<Long, String[]> registeredActions = new HashMap<Long, String[]>();
+
+  /** {package name, receiver class} of external actions, by {@link #key(String, String)} */
+  private final HashMap<String, String[]> externalReceivers = new HashMap<String, String[]>();
+
+  /**
+   * Load the registered actions from the database.
+   * 
+   * @param registeredAppDbAdapter
+   *          adapter for the RegisteredApps table
+   * @param registeredActionDbAdapter
+   *          adapter for the RegisteredActions table
+   */
+  public ActionRegistry(RegisteredAppDbAdapter registeredAppDbAdapter,
+      RegisteredActionDbAdapter registeredActionDbAdapter) {
+    HashMap<Long, String> appNames = new HashMap<Long, String>();
+    HashMap<Long, String> pkgNames = new HashMap<Long, String>();
+    Cursor cursor = registeredAppDbAdapter.fetchAll();
+    while (cursor.moveToNext()) {
+      long appId = getLongFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPID);
+      appNames.put(appId, getStringFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPNAME));
+      pkgNames.put(appId, getStringFromCursor(cursor, RegisteredAppDbAdapter.KEY_PKGNAME));
+    }
+    cursor.close();
+
+    // Only applications that registered at runtime have a receiver
+    HashMap<Long, String> receivers = new HashMap<Long, String>();
+    cursor = registeredAppDbAdapter.fetchReceivers();
+    while (cursor.moveToNext()) {
+      receivers.put(getLongFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPID),
+          getStringFromCursor(cursor, RegisteredAppDbAdapter.KEY_RECEIVER));
+    }
+    cursor.close();
+
+    cursor = registeredActionDbAdapter.fetchAll();
+    while (cursor.moveToNext()) {
+      long appId = getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_APPID);
+      String appName = appNames.get(appId);
+      if (appName == null) {
+        continue;
+      }
+      String actionName = getStringFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONNAME);
+      registeredActions.put(getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONID),
+          new String[] { appName, actionName });
+      String receiver = receivers.get(appId);
+      if (receiver != null) {
+        externalReceivers.put(key(appName, actionName), new String[] { pkgNames.get(appId),
+            receiver });
+      }
+    }
+    cursor.close();
+  }
+
+  private static String key(String appName, String actionName) {
+    return appName + '\u0000' + actionName;
+  }
+
+  /**
+   * Register the factory that builds an action, replacing any earlier factory for it.
+   * 
+   * @param appName
+   *          name of the application the action belongs to
+   * @param actionName
+   *          name of the action
+   * @param factory
+   *          builds the action from its parameters
+   */
+  public static void register(String appName, String actionName, Factory factory) {
+    if (factory == null) {
+      throw new IllegalArgumentException("No factory given for " + appName + ": " + actionName);
+    }
+    synchronized (factories) {
+      factories.put(key(appName, actionName), factory);
+    }
+  }
+
+  /**
+   * Add an action of another application to the registry tables, along with its application if
+   * that is new. Registering an action again adds the parameters it didn't have yet. Must be called
+   * in a transaction.
+   * 
+   * @param database
+   *          the Omnidroid database
+   * @param appName
+   *          name of the application the action belongs to
+   * @param pkgName
+   *          package of the application, as proven by the caller
+   * @param receiver
+   *          class name of the receiver within the package that performs the actions
+   * @param actionName
+   *          name of the action
+   * @param parameters
+   *          data type names of the action parameters by parameter name, see DataTypes
+   * @return id of the action in the RegisteredActions table
+   * @throws IllegalArgumentException
+   *           if a name is missing, the application is registered by another package or is built
+   *           in, or a data type is unknown
+   */
+  public static long registerExternal(SQLiteDatabase database, String appName, String pkgName,
+      String receiver, String actionName, Map<String, String> parameters) {
+    if (appName == null || appName.length() == 0 || pkgName == null || pkgName.length() == 0
+        || receiver == null || receiver.length() == 0 || actionName == null
+        || actionName.length() == 0 || parameters == null) {
+      throw new IllegalArgumentException("Application, package, receiver and action name "
+          + "required.");
+    }
+
+    RegisteredAppDbAdapter registeredAppDbAdapter = new RegisteredAppDbAdapter(database);
+    long appId;
+    Cursor cursor = registeredAppDbAdapter.fetchAll(appName, null, null);
+    if (cursor.moveToFirst()) {
+      appId = getLongFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPID);
+      String registeredPkgName = getStringFromCursor(cursor, RegisteredAppDbAdapter.KEY_PKGNAME);
+      cursor.close();
+      if (!pkgName.equals(registeredPkgName)) {
+        throw new IllegalArgumentException(appName + " is registered by another package.");
+      }
+    } else {
+      cursor.close();
+      appId = registeredAppDbAdapter.insert(appName, pkgName, true);
+    }
+    registeredAppDbAdapter.updateReceiver(appId, receiver);
+
+    RegisteredActionDbAdapter registeredActionDbAdapter = new RegisteredActionDbAdapter(database);
+    long actionId;
+    cursor = registeredActionDbAdapter.fetchAll(actionName, appId);
+    if (cursor.moveToFirst()) {
+      actionId = getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONID);
+    } else {
+      actionId = registeredActionDbAdapter.insert(actionName, appId);
+    }
+    cursor.close();
+
+    DataTypeDbAdapter dataTypeDbAdapter = new DataTypeDbAdapter(database);
+    RegisteredActionParameterDbAdapter parameterDbAdapter = new RegisteredActionParameterDbAdapter(
+        database);
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      cursor = dataTypeDbAdapter.fetchAll(parameter.getValue(), null);
+      long dataTypeId = cursor.moveToFirst() ? getLongFromCursor(cursor,
+          DataTypeDbAdapter.KEY_DATATYPEID) : -1;
+      cursor.close();
+      if (dataTypeId == -1) {
+        throw new IllegalArgumentException("Unknown data type " + parameter.getValue());
+      }
+
+      cursor = parameterDbAdapter.fetchAll(parameter.getKey(), actionId, null);
+      boolean exists = cursor.moveToFirst();
+      cursor.close();
+      if (!exists) {
+        parameterDbAdapter.insert(parameter.getKey(), actionId, dataTypeId);
+      }
+    }
+    return actionId;
+  }
+
+  /**
+   * @param appName
+   *          name of the application the action belongs to
+   * @param actionName
+   *          name of the action
+   * @return whether a factory is registered for the action
+   */
+  public static boolean isRegistered(String appName, String actionName) {
+    synchronized (factories) {
+      return factories.containsKey(key(appName, actionName));
+    }
+  }
+
+  /**
+   * @param actionId
+   *          id of the action in the RegisteredActions table
+   * @return String array {application name, action name}, or null if there is no such action
+   */
+  public String[] getActionInfo(long actionId) {
+    return registeredActions.get(actionId);
+  }
+
+  /**
+   * This method initializes an Action object from a given action name and parameters
+   * 
+   * @param appName
+   *          Name of the application
+   * @param actionName
+   *          Name of the action
+   * @param actionParams
+   *          Parameters required to initialize the action
+   * @return An action object
+   * @throws OmnidroidException
+   *           if no factory is registered for the action and it is not an external action, or it
+   *           cannot be initialized
+   */
+  public Action createAction(String appName, String actionName,
+      HashMap<String, String> actionParams) throws OmnidroidException {
+    Factory factory;
+    synchronized (factories) {
+      factory = factories.get(key(appName, actionName));
+    }
+    if (factory == null) {
+      String[] receiver = externalReceivers.get(key(appName, actionName));
+      if (receiver != null) {
+        return new BroadcastIntentAction(appName, receiver[0], receiver[1], actionName,
+            actionParams);
+      }
+      Logger.d(TAG, "No action registered for " + appName + ": " + actionName);
+      throw new OmnidroidException(120003, ExceptionMessageMap.getMessage(new Integer(120003)
+          .toString()));
+    }
+    return factory.create(actionParams);
+  }
+}
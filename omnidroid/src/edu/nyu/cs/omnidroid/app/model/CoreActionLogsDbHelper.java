@@ -15,19 +15,35 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model;
 
-import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
-import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getStringFromCursor;
+import java.util.ArrayList;
+import java.util.List;
 
 import android.content.Context;
 import android.database.Cursor;
 import edu.nyu.cs.omnidroid.app.model.db.LogActionDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
 
 /**
  * This class serves as a access layer to the database for Omnidroid's {@code LogAction} storage.
  * 
  */
 public class CoreActionLogsDbHelper extends CoreLogsDbHelper {
+  /* Maps LogAction rows into ActionLogs */
+  private static final RowMapper<Log> LOG_MAPPER = new RowMapper<Log>(LogDbAdapter.KEY_ID,
+      LogDbAdapter.KEY_TIMESTAMP, LogActionDbAdapter.KEY_LOGEVENTID,
+      LogActionDbAdapter.KEY_RULENAME, LogActionDbAdapter.KEY_ACTIONAPPNAME,
+      LogActionDbAdapter.KEY_ACTIONEVENTNAME, LogActionDbAdapter.KEY_ACTIONPARAMETERS,
+      LogDbAdapter.KEY_DESCRIPTION) {
+    @Override
+    public Log map(Cursor cursor, int[] columns) {
+      return new ActionLog(cursor.getLong(columns[0]), cursor.getLong(columns[1]), cursor
+          .getLong(columns[2]), cursor.getString(columns[3]), cursor.getString(columns[4]),
+          cursor.getString(columns[5]), cursor.getString(columns[6]), cursor
+              .getString(columns[7]));
+    }
+  };
+
   /**
    * Creates a new CoreActionDbHelper within the current context and initializes all necessary
    * database adapters.
@@ -38,23 +54,32 @@ public class CoreActionLogsDbHelper extends CoreLogsDbHelper {
   public CoreActionLogsDbHelper(Context context) {
     super(context);
     logDbAdapter = new LogActionDbAdapter(database);
+    logType = ModelLog.TYPE_ACTION;
+    logMapper = LOG_MAPPER;
   }
 
-  @Override
-  public Log getLog(Cursor cursor) {
-    // Get log data from the DB
-    long id = getLongFromCursor(cursor, LogActionDbAdapter.KEY_ID);
-    long timestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-    long logEventId = getLongFromCursor(cursor, LogActionDbAdapter.KEY_LOGEVENTID);
-    String ruleName = getStringFromCursor(cursor, LogActionDbAdapter.KEY_RULENAME);
-    String appName = getStringFromCursor(cursor, LogActionDbAdapter.KEY_ACTIONAPPNAME);
-    String eventName = getStringFromCursor(cursor, LogActionDbAdapter.KEY_ACTIONEVENTNAME);
-    String eventParams = getStringFromCursor(cursor, LogActionDbAdapter.KEY_ACTIONPARAMETERS);
-    String text = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
+  /**
+   * @return the logged actions whose parameter of that name has exactly the value, newest first
+   */
+  public List<Log> getLogsWithParameter(String name, String value) {
+    Cursor logTable = ((LogActionDbAdapter) logDbAdapter).fetchAllWithParameter(name, value);
+    List<Log> candidates = logMapper.mapAll(logTable);
+    logTable.close();
 
-    // Create a Log object from the data
-    ActionLog log = new ActionLog(id, timestamp, logEventId, ruleName, appName, eventName,
-        eventParams, text);
-    return log;
+    ArrayList<Log> logs = new ArrayList<Log>(candidates.size());
+    for (Log log : candidates) {
+      if (value.equals(((ActionLog) log).getParameterMap().get(name))) {
+        logs.add(log);
+      }
+    }
+    return logs;
+  }
+
+  @Override
+  protected void indexLog(long id, Log log) {
+    ActionLog actionLog = (ActionLog) log;
+    logSearchDbAdapter.insert(logType, id, actionLog.getTimestamp(), actionLog.getActionName(),
+        actionLog.getText(), actionLog.getParameters(), actionLog.getAppName(), actionLog
+            .getRuleName());
   }
 }
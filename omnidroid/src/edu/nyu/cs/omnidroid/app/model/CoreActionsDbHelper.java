@@ -27,20 +27,6 @@ import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 import edu.nyu.cs.omnidroid.app.controller.Action;
 import edu.nyu.cs.omnidroid.app.controller.Event;
-import edu.nyu.cs.omnidroid.app.controller.actions.CallPhoneAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SendGmailAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneLoudAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneSilentAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneVibrateAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetScreenBrightnessAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.ShowAlertAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.ShowNotificationAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.ShowWebsiteAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.TurnOffWifiAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.TurnOnWifiAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.UpdateTwitterStatusAction;
-import edu.nyu.cs.omnidroid.app.controller.util.ExceptionMessageMap;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
 import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
@@ -64,6 +50,7 @@ public class CoreActionsDbHelper {
   private RegisteredActionDbAdapter registeredActionDbAdapter;
   private RegisteredActionParameterDbAdapter registeredActionParameterDbAdapter;
   private RegisteredAppDbAdapter registeredAppDbAdapter;
+  private ActionRegistry actionRegistry;
 
   // Action info constants
   private final int APP_NAME = 0;
@@ -87,79 +74,24 @@ public class CoreActionsDbHelper {
    */
   public void close() {
     Log.i(TAG, "closing database.");
-    database.close();
-    
-    // Not necessary, but also close all omnidroidDbHelper databases just in case.
     dbHelper.close();
   }
 
   /**
-   * This method initializes an Action object from a given action name and parameters
-   * 
-   * @param appName
-   *          Name of the application
-   * @param actionName
-   *          Name of the action
-   * @param actionParams
-   *          Parameters required to initialize the action
-   * @return An action object
-   * @throws OmnidroidException
-   *           if the given action cannot be initialized by this method
+   * @return the registry for the actions in this database, loaded on first use
    */
-  private Action getAction(String appName, String actionName, HashMap<String, String> actionParams)
-      throws OmnidroidException {
-    // TODO:(Rutvij) Fetch this hard coded data from database.
-
-    if (appName.equals(SendSmsAction.APP_NAME) 
-        && actionName.equals(SendSmsAction.ACTION_NAME)) {
-      return new SendSmsAction(actionParams);
-    } else if (appName.equals(CallPhoneAction.APP_NAME)
-        && actionName.equals(CallPhoneAction.ACTION_NAME)) {
-      return new CallPhoneAction(actionParams);
-    } else if (appName.equals(SendGmailAction.APP_NAME)
-        && actionName.equals(SendGmailAction.ACTION_NAME)) {
-      return new SendGmailAction(actionParams);
-    } else if (appName.equals(ShowAlertAction.APP_NAME)
-        && actionName.equals(ShowAlertAction.ACTION_NAME)) {
-      return new ShowAlertAction(actionParams);
-    } else if (appName.equals(ShowNotificationAction.APP_NAME)
-        && actionName.equals(ShowNotificationAction.ACTION_NAME)) {
-      return new ShowNotificationAction(actionParams);
-    } else if (appName.equals(ShowWebsiteAction.APP_NAME)
-        && actionName.equals(ShowWebsiteAction.ACTION_NAME)) {
-      return new ShowWebsiteAction(actionParams);
-    } else if (appName.equals(SetScreenBrightnessAction.APP_NAME)
-        && actionName.equals(SetScreenBrightnessAction.ACTION_NAME)) {
-      return new SetScreenBrightnessAction(actionParams);
-    } else if (appName.equals(SetPhoneLoudAction.APP_NAME)
-        && actionName.equals(SetPhoneLoudAction.ACTION_NAME)) {
-      return new SetPhoneLoudAction(actionParams);
-    } else if (appName.equals(SetPhoneSilentAction.APP_NAME)
-        && actionName.equals(SetPhoneSilentAction.ACTION_NAME)) {
-      return new SetPhoneSilentAction(actionParams);
-    } else if (appName.equals(SetPhoneVibrateAction.APP_NAME)
-        && actionName.equals(SetPhoneVibrateAction.ACTION_NAME)) {
-      return new SetPhoneVibrateAction(actionParams);
-    } else if (appName.equals(TurnOffWifiAction.APP_NAME)
-        && actionName.equals(TurnOffWifiAction.ACTION_NAME)) {
-      return new TurnOffWifiAction(actionParams);
-    } else if (appName.equals(TurnOnWifiAction.APP_NAME)
-        && actionName.equals(TurnOnWifiAction.ACTION_NAME)) {
-      return new TurnOnWifiAction(actionParams);
-    } else if (appName.equals(UpdateTwitterStatusAction.APP_NAME)
-        && actionName.equals(UpdateTwitterStatusAction.ACTION_NAME)) {
-      return new UpdateTwitterStatusAction(actionParams);
-    } else {
-    	Log.d(TAG, "doesn't catch AppName is: " + appName + " and actionName is: " + actionName);
-      throw new OmnidroidException(120003, ExceptionMessageMap.getMessage(new Integer(120003)
-          .toString()));
+  private ActionRegistry getActionRegistry() {
+    if (actionRegistry == null) {
+      actionRegistry = new ActionRegistry(registeredAppDbAdapter, registeredActionDbAdapter);
     }
+    return actionRegistry;
   }
 
   /**
    * This method checks the parameter data to see if it already has value or it should extract value
    * from the event. The paramData should contain valid tags like "<Phone Ring Time>" in order to 
-   * retrieve related information.
+   * retrieve related information. The parameter data is compiled into a {@link ParameterTemplate}
+   * once and reused for later events.
    * 
    * @param paramData
    *          The parameter data
@@ -168,44 +100,14 @@ public class CoreActionsDbHelper {
    * @return The parameter data with actual value that can be used in intent
    * @throws IllegalStateException
    *           when this object is already closed
+   * @throws IllegalArgumentException
+   *           when a tag names an attribute the event does not have
    */
   public String fillParamWithEventAttrib(String paramData, Event event) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
-    
-    StringBuilder retVal = new StringBuilder();
-    
-    //the index of current cursor
-    int cursor = 0;
-    while (cursor < paramData.length()) {
-      int openBracketIdx = paramData.indexOf('<', cursor);
-      int closeBracketIdx = paramData.indexOf('>', cursor);
-      
-      //if no valid brancket pair found, append whatever left, and return the string.
-      if (openBracketIdx == -1 || closeBracketIdx == -1 || openBracketIdx + 1 >= closeBracketIdx) {
-        retVal.append(paramData.substring(cursor));
-        break;
-      }
-      
-      //else if the pair is found, substitute "<attr>" with the actual attribute and append that to
-      //the retVal
-      String attr = paramData.substring(openBracketIdx + 1, closeBracketIdx);
-      String param = paramData.substring(openBracketIdx, closeBracketIdx + 1);
-      String paramAttr;
-      try {
-        paramAttr = event.getAttribute(attr);
-      } catch (IllegalArgumentException e) {
-        paramAttr = param;
-      }
-      retVal.append(paramData.substring(cursor, openBracketIdx));
-      retVal.append(paramAttr);
-      
-      //update cursor
-      cursor = closeBracketIdx + 1;
-    }
-    Log.d("fillParamWithEventAttrib", paramData + " -> " + retVal.toString());
-    return retVal.toString();
+    return ParameterTemplate.compile(paramData).render(event);
   }
   
   /**
@@ -218,7 +120,7 @@ public class CoreActionsDbHelper {
    *           when this object is already closed
    */
   private ArrayList<Long> getRuleActionIds(Long ruleId) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -243,14 +145,11 @@ public class CoreActionsDbHelper {
    *           when this object is already closed
    */
   private String[] getRegisteredActionInfo(Long ruleActionId) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
     Long actionId;
-    Long appId;
-    String actionName;
-    String appName;
 
     Cursor cursor = ruleActionDbAdpater.fetch(ruleActionId);
     if (cursor.moveToFirst()) {
@@ -261,26 +160,7 @@ public class CoreActionsDbHelper {
       return null;
     }
 
-    cursor = registeredActionDbAdapter.fetch(actionId);
-    if (cursor.moveToFirst()) {
-      actionName = getStringFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONNAME);
-      appId = getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_APPID);
-      cursor.close();
-    } else {
-      cursor.close();
-      return null;
-    }
-
-    cursor = registeredAppDbAdapter.fetch(appId);
-    if (cursor.moveToFirst()) {
-      appName = getStringFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPNAME);
-      cursor.close();
-    } else {
-      cursor.close();
-      return null;
-    }
-
-    return new String[] { appName, actionName };
+    return getActionRegistry().getActionInfo(actionId);
   }
 
   /**
@@ -298,10 +178,12 @@ public class CoreActionsDbHelper {
    *          An empty map of Action parameter Id to Registered action parameter Id
    * @throws IllegalStateException
    *           when this object is already closed
+   * @throws IllegalArgumentException
+   *           when a parameter refers to an attribute the event does not have
    */
   private void addDataAndRegisteredParamId(Long ruleActionId, Event event,
       HashMap<Long, String> paramsData, HashMap<Long, Long> paramsRegisteredParamId) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -309,17 +191,20 @@ public class CoreActionsDbHelper {
     String paramData;
     Long paramRegisteredParamId;
     Cursor cursor = ruleActionParameterDbAdapter.fetchAll(ruleActionId, null, null);
-    for (int i = 0; i < cursor.getCount(); i++) {
-      cursor.moveToNext();
-      paramId = getLongFromCursor(cursor, RuleActionParameterDbAdapter.KEY_RULEACTIONPARAMETERID);
-      paramData = getStringFromCursor(cursor,
-          RuleActionParameterDbAdapter.KEY_RULEACTIONPARAMETERDATA);
-      paramRegisteredParamId = getLongFromCursor(cursor,
-          RuleActionParameterDbAdapter.KEY_ACTIONPARAMETERID);
-      paramsData.put(paramId, fillParamWithEventAttrib(paramData, event));
-      paramsRegisteredParamId.put(paramId, paramRegisteredParamId);
+    try {
+      for (int i = 0; i < cursor.getCount(); i++) {
+        cursor.moveToNext();
+        paramId = getLongFromCursor(cursor, RuleActionParameterDbAdapter.KEY_RULEACTIONPARAMETERID);
+        paramData = getStringFromCursor(cursor,
+            RuleActionParameterDbAdapter.KEY_RULEACTIONPARAMETERDATA);
+        paramRegisteredParamId = getLongFromCursor(cursor,
+            RuleActionParameterDbAdapter.KEY_ACTIONPARAMETERID);
+        paramsData.put(paramId, ParameterTemplate.compile(paramData).render(event));
+        paramsRegisteredParamId.put(paramId, paramRegisteredParamId);
+      }
+    } finally {
+      cursor.close();
     }
-    cursor.close();
   }
 
   /**
@@ -332,7 +217,7 @@ public class CoreActionsDbHelper {
    *           when this object is already closed
    */
   private HashMap<Long, String> getRegisteredActionParamNames() {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -368,7 +253,7 @@ public class CoreActionsDbHelper {
    *           when this object is already closed
    */
   public ArrayList<Action> getActions(long ruleId, String ruleName, Event event) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -384,6 +269,10 @@ public class CoreActionsDbHelper {
     String appName;
     HashMap<Long, String> paramsData; // <ruleActionParamId, ruleActionParamData>
     HashMap<Long, Long> paramsRegisteredParamId; // <ruleActionParamId, registeredActionParamId>
+
+    // Get registered action parameter names
+    // <registeredActionParamId, registeredActionParamName>
+    HashMap<Long, String> registeredParamNames = getRegisteredActionParamNames();
     for (Long ruleActionId : ruleActionIds) {
       // get action info
       actionInfo = getRegisteredActionInfo(ruleActionId);
@@ -397,11 +286,13 @@ public class CoreActionsDbHelper {
       // get parameter ids and data for the current action
       paramsData = new HashMap<Long, String>();
       paramsRegisteredParamId = new HashMap<Long, Long>();
-      addDataAndRegisteredParamId(ruleActionId, event, paramsData, paramsRegisteredParamId);
-
-      // Get registered action parameter names
-      // <registeredActionParamId, registeredActionParamName>
-      HashMap<Long, String> registeredParamNames = getRegisteredActionParamNames();
+      try {
+        addDataAndRegisteredParamId(ruleActionId, event, paramsData, paramsRegisteredParamId);
+      } catch (IllegalArgumentException e) {
+        Logger.w(TAG, e.getMessage());
+        Logger.w(TAG, "Action " + actionName + " cannot be initialized");
+        continue;
+      }
 
       // Create a map of parameter name to parameter data
       // <registeredActionParamName, ruleActionParamData>
@@ -413,7 +304,7 @@ public class CoreActionsDbHelper {
 
       // create action using action parameters, action name and application name
       try {
-        action = getAction(appName, actionName, actionParams);
+        action = getActionRegistry().createAction(appName, actionName, actionParams);
         action.setRuleName(ruleName);
         action.setDatabaseId(ruleActionId);
         action.setActionType(Action.RULE_ACTION);
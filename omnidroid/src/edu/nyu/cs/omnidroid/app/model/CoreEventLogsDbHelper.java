@@ -15,21 +15,32 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model;
 
-import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
-import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getStringFromCursor;
-
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import android.content.Context;
 import android.database.Cursor;
 import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.LogEventDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
 
 /**
  * This class serves as a access layer to the database for Omnidroid's {@code LogEvent} storage.
  * 
  */
 public class CoreEventLogsDbHelper extends CoreLogsDbHelper {
+  /* Maps LogEvent rows into EventLogs */
+  private static final RowMapper<Log> LOG_MAPPER = new RowMapper<Log>(LogDbAdapter.KEY_ID,
+      LogDbAdapter.KEY_TIMESTAMP, LogEventDbAdapter.KEY_APPNAME, LogEventDbAdapter.KEY_EVENTNAME,
+      LogEventDbAdapter.KEY_EVENTPARAMETERS, LogDbAdapter.KEY_DESCRIPTION) {
+    @Override
+    public Log map(Cursor cursor, int[] columns) {
+      return new EventLog(cursor.getLong(columns[0]), cursor.getLong(columns[1]), cursor
+          .getString(columns[2]), cursor.getString(columns[3]), cursor.getString(columns[4]),
+          cursor.getString(columns[5]));
+    }
+  };
 
   /**
    * Creates a new CoreEventDbHelper within the current context and initializes all necessary
@@ -41,21 +52,32 @@ public class CoreEventLogsDbHelper extends CoreLogsDbHelper {
   public CoreEventLogsDbHelper(Context context) {
     super(context);
     logDbAdapter = new LogEventDbAdapter(database);
+    logType = ModelLog.TYPE_EVENT;
+    logMapper = LOG_MAPPER;
   }
 
   @Override
-  public Log getLog(Cursor cursor) {
-    // Get Log data from the DB
-    long id = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-    long timestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-    String appName = getStringFromCursor(cursor, LogEventDbAdapter.KEY_APPNAME);
-    String eventName = getStringFromCursor(cursor, LogEventDbAdapter.KEY_EVENTNAME);
-    String parameters = getStringFromCursor(cursor, LogEventDbAdapter.KEY_EVENTPARAMETERS);
-    String text = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
+  protected void indexLog(long id, Log log) {
+    EventLog eventLog = (EventLog) log;
+    logSearchDbAdapter.insert(logType, id, eventLog.getTimestamp(), eventLog.getEventName(),
+        eventLog.getText(), eventLog.getParameters(), eventLog.getAppName(), "");
+  }
+
+  /**
+   * @return the logged events whose attribute of that name has exactly the value, newest first
+   */
+  public List<Log> getLogsWithAttribute(String name, String value) {
+    Cursor logTable = ((LogEventDbAdapter) logDbAdapter).fetchAllWithParameter(name, value);
+    List<Log> candidates = logMapper.mapAll(logTable);
+    logTable.close();
 
-    // Create a new Log object from the data
-    EventLog log = new EventLog(id, timestamp, appName, eventName, parameters, text);
-    return log;
+    ArrayList<Log> logs = new ArrayList<Log>(candidates.size());
+    for (Log log : candidates) {
+      if (value.equals(((EventLog) log).getParameterMap().get(name))) {
+        logs.add(log);
+      }
+    }
+    return logs;
   }
 
   /**
@@ -19,12 +19,22 @@ import android.content.Context;
 import android.database.Cursor;
 import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.LogGeneralDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
 
 /**
  * This class serves as a access layer to the database for Omnidroid's {@code LogGeneral} storage.
  * 
  */
 public class CoreGeneralLogsDbHelper extends CoreLogsDbHelper {
+  /* Maps LogGeneral rows into GeneralLogs */
+  private static final RowMapper<Log> LOG_MAPPER = new RowMapper<Log>(LogDbAdapter.KEY_ID,
+      LogDbAdapter.KEY_TIMESTAMP, LogDbAdapter.KEY_DESCRIPTION, LogGeneralDbAdapter.KEY_LEVEL) {
+    @Override
+    public Log map(Cursor cursor, int[] columns) {
+      return new GeneralLog(cursor.getLong(columns[0]), cursor.getLong(columns[1]), cursor
+          .getString(columns[2]), cursor.getInt(columns[3]));
+    }
+  };
 
   /**
    * Creates a new CoreGeneralDbHelper within the current context and initializes all necessary
@@ -36,18 +46,13 @@ public class CoreGeneralLogsDbHelper extends CoreLogsDbHelper {
   public CoreGeneralLogsDbHelper(Context context) {
     super(context);
     logDbAdapter = new LogGeneralDbAdapter(database);
+    logType = ModelLog.TYPE_GENERAL;
+    logMapper = LOG_MAPPER;
   }
 
   @Override
-  public Log getLog(Cursor cursor) {
-    // Get the log from the db
-    long id = CursorHelper.getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-    long timestamp = CursorHelper.getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-    String text = CursorHelper.getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-    int level = CursorHelper.getIntFromCursor(cursor, LogGeneralDbAdapter.KEY_LEVEL);
-    // Make an object out of it
-    GeneralLog log = new GeneralLog(id, timestamp, text, level);
-    return log;
+  protected void indexLog(long id, Log log) {
+    logSearchDbAdapter.insert(logType, id, log.getTimestamp(), log.getText(), log.getText(), "",
+        "", "");
   }
-
 }
@@ -15,7 +15,6 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -28,6 +27,9 @@ import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
 import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.LogPartitions;
+import edu.nyu.cs.omnidroid.app.model.db.LogSearchDbAdapter;
 
 /**
  * Abstract base class that provides general access to the Log DB layer.
@@ -51,6 +53,19 @@ abstract public class CoreLogsDbHelper {
   protected DbHelper dbHelper;
   protected SQLiteDatabase database;
   protected LogDbAdapter logDbAdapter;
+  protected LogSearchDbAdapter logSearchDbAdapter;
+
+  // The {@code ModelLog} type of the logs handled by this helper
+  protected int logType;
+
+  // Maps the rows of the log table into {@code Log}s
+  protected RowMapper<Log> logMapper;
+
+  /*
+   * Oldest partition kept by the last pruning of old logs. Nothing more can be pruned until the
+   * cutoff moves past it, which happens at most once per partition span.
+   */
+  private long oldestKeptPartition = Long.MIN_VALUE;
 
   /**
    * Creates a new CoreLogsDbHelper within the current context and initializes all necessary
@@ -61,8 +76,9 @@ abstract public class CoreLogsDbHelper {
    */
   public CoreLogsDbHelper(Context context) {
     this.context = context;
-    dbHelper = new DbHelper(context);
+    dbHelper = new LogDbHelper(context);
     database = dbHelper.getWritableDatabase();
+    logSearchDbAdapter = new LogSearchDbAdapter(database);
   }
 
   /**
@@ -71,9 +87,6 @@ abstract public class CoreLogsDbHelper {
    */
   public void close() {
     Logger.i(TAG, "closing database.");
-    database.close();
-
-    // Not necessary, but also close all dbHelper databases just in case.
     dbHelper.close();
   }
 
@@ -83,7 +96,19 @@ abstract public class CoreLogsDbHelper {
    *          is a cursor to the current log to return
    * @return the {@code Log} at the cursor position
    */
-  abstract public Log getLog(Cursor log);
+  public Log getLog(Cursor log) {
+    return logMapper.mapCurrent(log);
+  }
+
+  /**
+   * Add a newly inserted log to the full text search index.
+   * 
+   * @param id
+   *          the id the log was stored under
+   * @param log
+   *          the log that was stored
+   */
+  abstract protected void indexLog(long id, Log log);
 
   /*
    * Retrieves a cursor to the log that matched the ID passed in.
@@ -93,7 +118,10 @@ abstract public class CoreLogsDbHelper {
    * @return a cursor to the event log requested.
    */
   public Log getLogMatchingID(long id) {
-    return getLog(logDbAdapter.fetch(id));
+    Cursor cursor = logDbAdapter.fetch(id);
+    Log log = getLog(cursor);
+    cursor.close();
+    return log;
   }
 
   /**
@@ -104,30 +132,49 @@ abstract public class CoreLogsDbHelper {
    * @return id of the record inserted, -1 if unsuccessful
    */
   public long insert(Log log) {
-    deleteOldLogs();
-    log.setTimestamp((new Date()).getTime());
-    return logDbAdapter.insert(log);
+    long id;
+    boolean success = false;
+    database.beginTransaction();
+    try {
+      deleteOldLogs();
+      log.setTimestamp((new Date()).getTime());
+      id = logDbAdapter.insert(log);
+      if (id != -1) {
+        indexLog(id, log);
+      }
+      database.setTransactionSuccessful();
+      success = true;
+    } finally {
+      database.endTransaction();
+      if (!success) {
+        // The pruning was rolled back along with the insert
+        oldestKeptPartition = Long.MIN_VALUE;
+      }
+    }
+    return id;
   }
 
   /**
    * @return a List of {@code nLog}s that are stored in the DB.
    */
   public List<Log> getLogs() {
-    ArrayList<Log> logs = new ArrayList<Log>();
-
-    // Fetch all rules that match this event and are enabled
+    // Build a log for each row in the database
     Cursor logTable = logDbAdapter.fetchAll();
-
-    // Build a rule for each row in the database and add it to the rule list
-    while (logTable.moveToNext()) {
-      logs.add(getLog(logTable));
-    }
+    List<Log> logs = logMapper.mapAll(logTable);
     logTable.close();
     return logs;
   }
 
+  /**
+   * Delete the logs older than the log limit set in preferences. Logs are dropped a whole partition
+   * at a time, so this only touches the database when the cutoff has crossed into a new partition
+   * since the last call.
+   * 
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
   public void deleteOldLogs() {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -146,8 +193,16 @@ abstract public class CoreLogsDbHelper {
     // Convert hours to a limit based on timestamp
     long logsBeforeTimestamp = (new Date()).getTime() - (logLimitHours * LogDbAdapter.TIME_IN_HOUR);
 
-    // Delete the old logs
+    long oldestKept = LogPartitions.partitionNumber(logsBeforeTimestamp);
+    if (oldestKept <= oldestKeptPartition) {
+      return;
+    }
+
+    // Delete the old logs, a whole partition at a time, along with their search index entries
     logDbAdapter.deleteAllBefore(logsBeforeTimestamp);
+    logSearchDbAdapter.deleteAllBefore(logType, LogPartitions
+        .partitionStart(logsBeforeTimestamp));
+    oldestKeptPartition = oldestKept;
   }
 
 }
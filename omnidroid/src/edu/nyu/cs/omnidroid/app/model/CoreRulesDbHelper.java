@@ -15,8 +15,13 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model;
 
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getColumnIndexes;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 import android.content.Context;
 import android.database.Cursor;
@@ -24,15 +29,18 @@ import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 import edu.nyu.cs.omnidroid.app.controller.Filter;
 import edu.nyu.cs.omnidroid.app.controller.Rule;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
 import edu.nyu.cs.omnidroid.app.controller.util.ExceptionMessageMap;
 import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidRuntimeException;
 import edu.nyu.cs.omnidroid.app.controller.util.Tree;
 import edu.nyu.cs.omnidroid.app.model.db.DataFilterDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.DataTypeDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventAttributeDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RuleFilterDbAdapter;
 
@@ -50,6 +58,8 @@ public class CoreRulesDbHelper {
   private RegisteredEventAttributeDbAdapter eventAttributeDbAdapter;
   private RuleDbAdapter ruleDbAdapter;
   private RuleFilterDbAdapter filterDbAdapter;
+  private RuleActionDbAdapter ruleActionDbAdapter;
+  private RegisteredActionDbAdapter actionDbAdapter;
   private DataFilterDbAdapter filterComparisonDbAdapter;
   private DataTypeDbAdapter filterDataTypeDbAdapter;
 
@@ -71,6 +81,8 @@ public class CoreRulesDbHelper {
     eventAttributeDbAdapter = new RegisteredEventAttributeDbAdapter(database);
     ruleDbAdapter = new RuleDbAdapter(database);
     filterDbAdapter = new RuleFilterDbAdapter(database);
+    ruleActionDbAdapter = new RuleActionDbAdapter(database);
+    actionDbAdapter = new RegisteredActionDbAdapter(database);
     filterComparisonDbAdapter = new DataFilterDbAdapter(database);
     filterDataTypeDbAdapter = new DataTypeDbAdapter(database);
   }
@@ -80,7 +92,8 @@ public class CoreRulesDbHelper {
    * 
    * @param eventName
    *          the name of the event to be matched in the database
-   * @return a list of rules and their associated filter tree that matches the provided event
+   * @return a list of rules and their associated filter tree that matches the provided event, in
+   *         the order they are evaluated, see {@link Rule#EVALUATION_ORDER}
    * @throws IllegalStateException
    *           when this object is already closed
    */
@@ -88,7 +101,7 @@ public class CoreRulesDbHelper {
     if (appName == null || eventName == null) {
       throw new OmnidroidRuntimeException(140000, ExceptionMessageMap
           .getMessage(new Integer(140000).toString()));
-    } else if (!database.isOpen()) {
+    } else if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -121,7 +134,8 @@ public class CoreRulesDbHelper {
     eventCursor.close();
 
     // Fetch all rules that match this event and are enabled
-    Cursor ruleTable = ruleDbAdapter.fetchAll(eventID, null, null, true, null);
+    Cursor ruleTable = ruleDbAdapter.fetchAll(eventID, null, null, true,
+        RuleDbAdapter.ORDER_BY_PRIORITY);
 
     if (ruleTable.getCount() == 0) {
       Log.d(TAG, "No rules matched this event, return empty list");
@@ -130,11 +144,17 @@ public class CoreRulesDbHelper {
     }
 
     // Build a rule for each row in the database and add it to the rule list
+    int[] columns = getColumnIndexes(ruleTable, RuleDbAdapter.KEY_RULEID,
+        RuleDbAdapter.KEY_RULENAME, RuleDbAdapter.KEY_NOTIFICATION, RuleDbAdapter.KEY_PRIORITY,
+        RuleDbAdapter.KEY_EXCLUSIVE);
     while (ruleTable.moveToNext()) {
-      rules.add(getRule(ruleTable));
+      rules.add(getRule(ruleTable, columns));
     }
 
     ruleTable.close();
+
+    // Evaluate cheap rules first within each priority, the sort keeps the rule id order of ties
+    Collections.sort(rules, Rule.EVALUATION_ORDER);
     return rules;
   }
 
@@ -144,19 +164,24 @@ public class CoreRulesDbHelper {
    * 
    * @param ruleRecord
    *          a {@link Cursor} that points to the rule record to retrieve from the database.
+   * @param columns
+   *          indexes of the rule id, name, notification, priority and exclusive columns in
+   *          ruleRecord
    * @return a Rule object built from the database record
    */
-  private Rule getRule(Cursor ruleRecord) {
-    long ruleID = CursorHelper.getLongFromCursor(ruleRecord, RuleDbAdapter.KEY_RULEID);
-    String ruleName = CursorHelper.getStringFromCursor(ruleRecord, RuleDbAdapter.KEY_RULENAME);
-    boolean notify = CursorHelper.getBooleanFromCursor(ruleRecord, RuleDbAdapter.KEY_NOTIFICATION);
+  private Rule getRule(Cursor ruleRecord, int[] columns) {
+    long ruleID = ruleRecord.getLong(columns[0]);
+    String ruleName = ruleRecord.getString(columns[1]);
+    boolean notify = RowMapper.getBoolean(ruleRecord, columns[2]);
+    int priority = ruleRecord.getInt(columns[3]);
+    boolean exclusive = RowMapper.getBoolean(ruleRecord, columns[4]);
   
     // Get all filters that belong to this rule
     Cursor filterTable = filterDbAdapter.fetchAll(ruleID, null, null, null, null, null);
     Tree<Filter> filterTree = buildFilterTree(filterTable);
 
     filterTable.close();
-    return new Rule(ruleName, ruleID, filterTree, notify);
+    return new Rule(ruleName, ruleID, filterTree, notify, priority, exclusive);
   }
 
   /**
@@ -180,25 +205,26 @@ public class CoreRulesDbHelper {
     HashMap<Long, Tree<Filter>> visited = new HashMap<Long, Tree<Filter>>();
     visited.put(rootID, root);
 
-    // Iterate through each filter for this rule and construct a tree
-    while (filterTable.moveToNext()) {
-      long filterID = CursorHelper.getLongFromCursor(filterTable,
-          RuleFilterDbAdapter.KEY_RULEFILTERID);
+    // Read the rule's filters once instead of fetching each of them again by id
+    ArrayList<FilterRow> filterRows = FILTER_MAPPER.mapAll(filterTable);
+    HashMap<Long, FilterRow> filtersById = new HashMap<Long, FilterRow>();
+    for (FilterRow row : filterRows) {
+      filtersById.put(row.id, row);
+    }
 
-      Cursor currentFilter;
-      currentFilter = filterDbAdapter.fetch(filterID);
+    // Iterate through each filter for this rule and construct a tree
+    for (FilterRow row : filterRows) {
+      long filterID = row.id;
+      FilterRow currentFilter = row;
 
       while (!visited.containsKey(filterID)) {
-        currentFilter.moveToFirst();
-
         // Create a new Filter node from the database
         Filter filter = getFilter(currentFilter);
         Tree<Filter> newNode = new Tree<Filter>(null, filter);
 
         visited.put(filterID, newNode);
 
-        long parentID = CursorHelper.getLongFromCursor(currentFilter,
-            RuleFilterDbAdapter.KEY_PARENTRULEFILTERID);
+        long parentID = currentFilter.parentId;
         filterID = parentID;
 
         /*
@@ -211,39 +237,51 @@ public class CoreRulesDbHelper {
           parentNode.addSubTree(newNode);
           newNode = parentNode;
 
-          currentFilter = filterDbAdapter.fetch(filterID);
-          currentFilter.moveToFirst();
+          currentFilter = filtersById.get(filterID);
+          if (currentFilter == null) {
+            currentFilter = fetchFilterRow(filterID);
+          }
         } else {
           parentNode = visited.get(filterID);
           parentNode.addSubTree(newNode);
         }
       }
-
-      currentFilter.close();
     }
     return root;
   }
 
+  /**
+   * Fetch a single filter row that was not part of the rule's filter table.
+   */
+  private FilterRow fetchFilterRow(long filterID) {
+    Cursor cursor = filterDbAdapter.fetch(filterID);
+    try {
+      cursor.moveToFirst();
+      return FILTER_MAPPER.mapCurrent(cursor);
+    } finally {
+      cursor.close();
+    }
+  }
+
   /**
    * Populate a {@link Filter} from the RuleFilters, FilterData, and FilterType database tables
    * 
    * @param filterRecord
-   *          a {@link Cursor} that points to the filter record to retrieve from the database.
+   *          the filter record to retrieve from the database.
    * @return a Filter built from the database records
    */
-  private Filter getFilter(Cursor filterRecord) {
+  private Filter getFilter(FilterRow filterRecord) {
     Cursor cursor;
 
     // Gets the name of the event attribute for this filter
-    cursor = eventAttributeDbAdapter.fetch(CursorHelper.getLongFromCursor(filterRecord,
-        RuleFilterDbAdapter.KEY_EVENTATTRIBUTEID));
+    cursor = eventAttributeDbAdapter.fetch(filterRecord.attributeId);
     cursor.moveToFirst();
     String eventAttributeName = CursorHelper.getStringFromCursor(cursor,
         RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTENAME);
+    cursor.close();
 
     // Gets the comparison filter of the OmniType for this filter
-    cursor = filterComparisonDbAdapter.fetch(CursorHelper.getLongFromCursor(filterRecord,
-        RuleFilterDbAdapter.KEY_DATAFILTERID));
+    cursor = filterComparisonDbAdapter.fetch(filterRecord.dataFilterId);
     cursor.moveToFirst();
     String comparison = CursorHelper.getStringFromCursor(cursor,
         DataFilterDbAdapter.KEY_DATAFILTERNAME);
@@ -252,35 +290,59 @@ public class CoreRulesDbHelper {
         DataFilterDbAdapter.KEY_FILTERONDATATYPEID);
     long compareWithDataTypeID = CursorHelper.getLongFromCursor(cursor,
         DataFilterDbAdapter.KEY_COMPAREWITHDATATYPEID);
+    cursor.close();
 
     // Gets the OmniType of the event attribute to be compared
     cursor = filterDataTypeDbAdapter.fetch(filterOnDataTypeID);
     String filterOnDataType = CursorHelper.getStringFromCursor(cursor,
         DataTypeDbAdapter.KEY_DATATYPECLASSNAME);
+    cursor.close();
 
     // Gets the OmniType of the user filter data
     cursor = filterDataTypeDbAdapter.fetch(compareWithDataTypeID);
     String compareWithDataType = CursorHelper.getStringFromCursor(cursor,
         DataTypeDbAdapter.KEY_DATATYPECLASSNAME);
-
-    // Gets the data to be compared using this filter
-    String data = CursorHelper.getStringFromCursor(filterRecord,
-        RuleFilterDbAdapter.KEY_RULEFILTERDATA);
-
     cursor.close();
 
-    return new Filter(eventAttributeName, filterOnDataType, comparison, compareWithDataType, data);
+    return new Filter(eventAttributeName, filterOnDataType, comparison, compareWithDataType,
+        filterRecord.data);
   }
 
+  /**
+   * The columns of a RuleFilters row needed to build its node of the filter tree.
+   */
+  private static class FilterRow {
+    final long id;
+    final long parentId;
+    final long attributeId;
+    final long dataFilterId;
+    final String data;
+
+    FilterRow(long id, long parentId, long attributeId, long dataFilterId, String data) {
+      this.id = id;
+      this.parentId = parentId;
+      this.attributeId = attributeId;
+      this.dataFilterId = dataFilterId;
+      this.data = data;
+    }
+  }
+
+  private static final RowMapper<FilterRow> FILTER_MAPPER = new RowMapper<FilterRow>(
+      RuleFilterDbAdapter.KEY_RULEFILTERID, RuleFilterDbAdapter.KEY_PARENTRULEFILTERID,
+      RuleFilterDbAdapter.KEY_EVENTATTRIBUTEID, RuleFilterDbAdapter.KEY_DATAFILTERID,
+      RuleFilterDbAdapter.KEY_RULEFILTERDATA) {
+    public FilterRow map(Cursor cursor, int[] columns) {
+      return new FilterRow(cursor.getLong(columns[0]), cursor.getLong(columns[1]), cursor
+          .getLong(columns[2]), cursor.getLong(columns[3]), cursor.getString(columns[4]));
+    }
+  };
+
   /**
    * Close this database helper object. Attempting to use this object after this call will cause an
    * {@link IllegalStateException} being raised.
    */
   public void close() {
     Log.i(TAG, "closing database.");
-    database.close();
-    
-    // Not necessary, but also close all omnidroidDbHelper databases just in case.
     dbHelper.close();
   }
 
@@ -291,4 +353,150 @@ public class CoreRulesDbHelper {
     ruleTable.close();
     return ruleCount;
   }
+
+  /**
+   * @return names of the events that at least one enabled rule is triggered by
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public Set<String> getEnabledEventNames() {
+    if (!dbHelper.isOpen()) {
+      throw new IllegalStateException(TAG + " is already closed.");
+    }
+
+    HashSet<String> eventNames = new HashSet<String>();
+    for (long eventID : getEnabledRuleColumn(RuleDbAdapter.KEY_EVENTID)) {
+      Cursor cursor = eventDbAdapter.fetch(eventID);
+      if (cursor.getCount() > 0) {
+        eventNames.add(CursorHelper.getStringFromCursor(cursor,
+            RegisteredEventDbAdapter.KEY_EVENTNAME));
+      }
+      cursor.close();
+    }
+    return eventNames;
+  }
+
+  /**
+   * @return names of the event attributes that enabled rules filter on
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public Set<String> getEnabledFilterAttributeNames() {
+    if (!dbHelper.isOpen()) {
+      throw new IllegalStateException(TAG + " is already closed.");
+    }
+
+    HashSet<Long> attributeIDs = new HashSet<Long>();
+    for (long ruleID : getEnabledRuleColumn(RuleDbAdapter.KEY_RULEID)) {
+      Cursor cursor = filterDbAdapter.fetchAll(ruleID, null, null, null, null, null);
+      int column = cursor.getColumnIndexOrThrow(RuleFilterDbAdapter.KEY_EVENTATTRIBUTEID);
+      while (cursor.moveToNext()) {
+        attributeIDs.add(cursor.getLong(column));
+      }
+      cursor.close();
+    }
+
+    HashSet<String> attributeNames = new HashSet<String>();
+    for (long attributeID : attributeIDs) {
+      Cursor cursor = eventAttributeDbAdapter.fetch(attributeID);
+      if (cursor.getCount() > 0) {
+        attributeNames.add(CursorHelper.getStringFromCursor(cursor,
+            RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTENAME));
+      }
+      cursor.close();
+    }
+    return attributeNames;
+  }
+
+  /**
+   * @return names of the actions that enabled rules perform
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public Set<String> getEnabledActionNames() {
+    if (!dbHelper.isOpen()) {
+      throw new IllegalStateException(TAG + " is already closed.");
+    }
+
+    HashSet<Long> actionIDs = new HashSet<Long>();
+    for (long ruleID : getEnabledRuleColumn(RuleDbAdapter.KEY_RULEID)) {
+      Cursor cursor = ruleActionDbAdapter.fetchAll(ruleID, null);
+      int column = cursor.getColumnIndexOrThrow(RuleActionDbAdapter.KEY_ACTIONID);
+      while (cursor.moveToNext()) {
+        actionIDs.add(cursor.getLong(column));
+      }
+      cursor.close();
+    }
+
+    HashSet<String> actionNames = new HashSet<String>();
+    for (long actionID : actionIDs) {
+      Cursor cursor = actionDbAdapter.fetch(actionID);
+      if (cursor.getCount() > 0) {
+        actionNames.add(CursorHelper.getStringFromCursor(cursor,
+            RegisteredActionDbAdapter.KEY_ACTIONNAME));
+      }
+      cursor.close();
+    }
+    return actionNames;
+  }
+
+  /**
+   * @return the compare values of every filter on an enabled rule that compares with an
+   *         {@link OmniArea}, i.e. the areas the NEAR and AWAY filters watch
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public Set<String> getEnabledAreaFilterValues() {
+    if (!dbHelper.isOpen()) {
+      throw new IllegalStateException(TAG + " is already closed.");
+    }
+
+    HashSet<String> values = new HashSet<String>();
+    Cursor dataTypeCursor = filterDataTypeDbAdapter.fetchAll(OmniArea.DB_NAME, null);
+    if (!dataTypeCursor.moveToFirst()) {
+      dataTypeCursor.close();
+      return values;
+    }
+    long areaTypeID = CursorHelper.getLongFromCursor(dataTypeCursor,
+        DataTypeDbAdapter.KEY_DATATYPEID);
+    dataTypeCursor.close();
+
+    HashSet<Long> areaFilterIDs = new HashSet<Long>();
+    Cursor dataFilterCursor = filterComparisonDbAdapter.fetchAll(null, null, null, areaTypeID);
+    int idColumn = dataFilterCursor.getColumnIndexOrThrow(DataFilterDbAdapter.KEY_DATAFILTERID);
+    while (dataFilterCursor.moveToNext()) {
+      areaFilterIDs.add(dataFilterCursor.getLong(idColumn));
+    }
+    dataFilterCursor.close();
+    if (areaFilterIDs.isEmpty()) {
+      return values;
+    }
+
+    for (long ruleID : getEnabledRuleColumn(RuleDbAdapter.KEY_RULEID)) {
+      Cursor cursor = filterDbAdapter.fetchAll(ruleID, null, null, null, null, null);
+      int[] columns = getColumnIndexes(cursor, RuleFilterDbAdapter.KEY_DATAFILTERID,
+          RuleFilterDbAdapter.KEY_RULEFILTERDATA);
+      while (cursor.moveToNext()) {
+        if (areaFilterIDs.contains(cursor.getLong(columns[0]))) {
+          values.add(cursor.getString(columns[1]));
+        }
+      }
+      cursor.close();
+    }
+    return values;
+  }
+
+  /**
+   * @return the distinct values of a numeric column over all enabled rules
+   */
+  private Set<Long> getEnabledRuleColumn(String columnName) {
+    HashSet<Long> values = new HashSet<Long>();
+    Cursor ruleTable = ruleDbAdapter.fetchAll(null, null, null, true, null);
+    int column = ruleTable.getColumnIndexOrThrow(columnName);
+    while (ruleTable.moveToNext()) {
+      values.add(ruleTable.getLong(column));
+    }
+    ruleTable.close();
+    return values;
+  }
 }
@@ -22,6 +22,29 @@ import android.database.Cursor;
  */
 public class CursorHelper {
 
+  /**
+   * Look up the indexes of several columns at once, for reading many rows of a cursor without a
+   * lookup per field. See also {@link RowMapper}.
+   * 
+   * @param cursor
+   *          is the cursor to look the columns up in
+   * 
+   * @param columnNames
+   *          are names of the columns to look up
+   * 
+   * @return indexes of the columns, in the order they were named
+   * 
+   * @throws IllegalArgumentException
+   *           if the cursor does not have one of the columns
+   */
+  public static int[] getColumnIndexes(Cursor cursor, String... columnNames) {
+    int[] columns = new int[columnNames.length];
+    for (int i = 0; i < columnNames.length; i++) {
+      columns[i] = cursor.getColumnIndexOrThrow(columnNames[i]);
+    }
+    return columns;
+  }
+
   /**
    * Helper method to get integer column value from cursor.
    * 
@@ -50,9 +50,6 @@ public class DataFilterIDLookup {
    */
   public void close() {
     Log.i(TAG, "closing database.");
-    database.close();
-    
-    // Not necessary, but also close all omnidroidDbHelper databases just in case.
     omnidroidDbHelper.close();
   }
 
@@ -67,7 +64,7 @@ public class DataFilterIDLookup {
    *           when this object is already closed
    */
   public long getDataFilterID(String dataTypeName, String dataFilterName) {
-    if (!database.isOpen()) {
+    if (!omnidroidDbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
     
@@ -94,7 +91,7 @@ public class DataFilterIDLookup {
   public long getDataFilterID(String dataTypeName, String compareDataTypeName, String dataFilterName) {
     if (dataTypeName == null || dataFilterName == null) {
       throw new IllegalArgumentException("Arguments null.");
-    } else if (!database.isOpen()) {
+    } else if (!omnidroidDbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -47,9 +47,6 @@ public class DataTypeIDLookup {
    */
   public void close() {
     Log.i(TAG, "closing database.");
-    database.close();
-    
-    // Not necessary, but also close all omnidroidDbHelper databases just in case.
     omnidroidDbHelper.close();
   }
   
@@ -66,7 +63,7 @@ public class DataTypeIDLookup {
   public long getDataTypeID(String dataTypeName) {
     if (dataTypeName == null) {
       throw new IllegalArgumentException("Arguments null.");
-    } else if (!database.isOpen()) {
+    } else if (!omnidroidDbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
     
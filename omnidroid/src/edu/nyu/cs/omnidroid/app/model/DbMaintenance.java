@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
+import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
+
+/**
+ * Maintains the rules and the log database: gives the pages freed by pruning the logs back to the
+ * file system, refreshes the statistics the query planner chooses indexes by and checks that the
+ * databases are intact. The outcome of the last run is kept in the preferences.
+ */
+public class DbMaintenance {
+  private static final String TAG = DbMaintenance.class.getSimpleName();
+
+  // Time after the last run before the databases are maintained again
+  private static final long INTERVAL = 12L * LogDbAdapter.TIME_IN_HOUR;
+
+  private Context context;
+  private SharedPreferences prefs;
+
+  /**
+   * @param context
+   *          context for the application database resource
+   */
+  public DbMaintenance(Context context) {
+    this.context = context;
+    prefs = PreferenceManager.getDefaultSharedPreferences(context);
+  }
+
+  /**
+   * Maintain the databases and record the outcome.
+   * 
+   * @return whether the databases were found intact
+   */
+  public boolean run() {
+    long start = System.currentTimeMillis();
+    long reclaimed = 0;
+    boolean intact = true;
+
+    DbHelper[] dbHelpers = { new DbHelper(context), new LogDbHelper(context) };
+    for (DbHelper dbHelper : dbHelpers) {
+      try {
+        reclaimed += dbHelper.vacuumAndAnalyze();
+        if (!dbHelper.checkIntegrity()) {
+          Logger.e(TAG, dbHelper.getClass().getSimpleName() + " failed the integrity check.");
+          intact = false;
+        }
+      } finally {
+        dbHelper.close();
+      }
+    }
+
+    long duration = System.currentTimeMillis() - start;
+    Logger.i(TAG, "Maintained databases in " + duration + "ms, reclaimed " + reclaimed
+        + " bytes.");
+    prefs.edit().putLong(context.getString(R.string.pref_key_maintenance_last_run), start)
+        .putLong(context.getString(R.string.pref_key_maintenance_duration), duration).putLong(
+            context.getString(R.string.pref_key_maintenance_reclaimed), reclaimed).putBoolean(
+            context.getString(R.string.pref_key_maintenance_intact), intact).commit();
+    return intact;
+  }
+
+  /**
+   * @return whether the last run was long enough ago to run again
+   */
+  public boolean isDue() {
+    return getLastRun() + INTERVAL <= System.currentTimeMillis();
+  }
+
+  /**
+   * @return time of the last run, or 0 if the databases haven't been maintained yet
+   */
+  public long getLastRun() {
+    return prefs.getLong(context.getString(R.string.pref_key_maintenance_last_run), 0);
+  }
+
+  /**
+   * @return milliseconds the last run took
+   */
+  public long getLastDuration() {
+    return prefs.getLong(context.getString(R.string.pref_key_maintenance_duration), 0);
+  }
+
+  /**
+   * @return bytes the last run reclaimed
+   */
+  public long getLastReclaimed() {
+    return prefs.getLong(context.getString(R.string.pref_key_maintenance_reclaimed), 0);
+  }
+
+  /**
+   * @return whether the last run found the databases intact
+   */
+  public boolean wasIntact() {
+    return prefs.getBoolean(context.getString(R.string.pref_key_maintenance_intact), true);
+  }
+
+  /**
+   * @return size in bytes of the rules database on disk
+   */
+  public long getRulesDatabaseSize() {
+    return new DbHelper(context).getSize();
+  }
+
+  /**
+   * @return size in bytes of the log database on disk
+   */
+  public long getLogDatabaseSize() {
+    return new LogDbHelper(context).getSize();
+  }
+}
@@ -15,6 +15,8 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model;
 
+import java.util.Map;
+
 import edu.nyu.cs.omnidroid.app.controller.Event;
 
 /**
@@ -40,8 +42,9 @@ public class EventLog extends Log {
     super();
     this.appName = event.getAppName();
     this.eventName = event.getEventName();
-    this.parameters = event.getParameters();
-    this.text = event.getEventName() + event.getParameters();
+    Map<String, String> attributes = event.getAttributes();
+    this.parameters = LogParameters.encode(attributes);
+    this.text = event.getEventName() + LogParameters.toDisplayString(attributes);
   }
 
   /**
@@ -72,7 +75,7 @@ public class EventLog extends Log {
    * @param actionName
    *          the name of the event for the event
    * @param parameters
-   *          the parameters for the aevent
+   *          the parameters for the event, encoded by {@link LogParameters}
    * @param text
    *          a textual description of the Log
    */
@@ -104,12 +107,23 @@ public class EventLog extends Log {
     this.parameters = parameters;
   }
 
+  /**
+   * @return the parameters encoded by {@link LogParameters}
+   */
   public String getParameters() {
     return parameters;
   }
 
+  /**
+   * @return the attributes of the event, keyed by name
+   */
+  public Map<String, String> getParameterMap() {
+    return LogParameters.decode(parameters);
+  }
+
   public String toString() {
     return "ID: " + id + "\n" + "Timestamp: " + timestamp + "\n" + "Application Name: " + appName
-        + "\n" + "Event Name: " + eventName + "\nParameters: " + parameters + "\nText: " + text;
+        + "\n" + "Event Name: " + eventName + "\nParameters: "
+        + LogParameters.toDisplayString(getParameterMap()) + "\nText: " + text;
   }
 }
@@ -19,6 +19,10 @@ import static edu.nyu.cs.omnidroid.app.model.CursorHelper.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import android.content.Context;
 import android.content.Intent;
@@ -28,25 +32,12 @@ import android.os.Bundle;
 import android.util.Log;
 import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.Action;
-import edu.nyu.cs.omnidroid.app.controller.actions.CallPhoneAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SendGmailAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneLoudAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneSilentAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneVibrateAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.SetScreenBrightnessAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.ShowAlertAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.ShowNotificationAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.ShowWebsiteAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.TurnOffWifiAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.TurnOnWifiAction;
-import edu.nyu.cs.omnidroid.app.controller.actions.UpdateTwitterStatusAction;
-import edu.nyu.cs.omnidroid.app.controller.util.ExceptionMessageMap;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import edu.nyu.cs.omnidroid.app.controller.util.OmnidroidException;
 import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
 import edu.nyu.cs.omnidroid.app.model.db.FailedActionParameterDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.FailedActionsDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
@@ -62,12 +53,31 @@ public class FailedActionsDbHelper {
 
   private DbHelper dbHelper;
   private SQLiteDatabase database;
+
+  // The failed actions are kept in the log database
+  private DbHelper logDbHelper;
+  private SQLiteDatabase logDatabase;
   private FailedActionsDbAdapter failedActionsDbAdapter;
   private FailedActionParameterDbAdapter failedActionParameterDbAdapter;
   private RegisteredActionDbAdapter registeredActionDbAdapter;
   private RegisteredAppDbAdapter registeredAppDbAdapter;
   private RuleDbAdapter ruleDbAdapter;
   private RuleActionDbAdapter ruleActionDbAdapter;
+  private ActionRegistry actionRegistry;
+
+  /** Number of rule action lookups cached */
+  private static final int RULE_ACTION_CACHE_SIZE = 128;
+
+  /** {rule id, action id} by rule action id, least recently used first */
+  private static final LinkedHashMap<Long, long[]> ruleActions =
+      new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+          return size() > RULE_ACTION_CACHE_SIZE;
+        }
+      };
   
   private Context context;
   
@@ -79,8 +89,10 @@ public class FailedActionsDbHelper {
     this.context = context;
     dbHelper = new DbHelper(context);
     database = dbHelper.getWritableDatabase();
-    failedActionsDbAdapter = new FailedActionsDbAdapter(database);
-    failedActionParameterDbAdapter = new FailedActionParameterDbAdapter(database);
+    logDbHelper = new LogDbHelper(context);
+    logDatabase = logDbHelper.getWritableDatabase();
+    failedActionsDbAdapter = new FailedActionsDbAdapter(logDatabase);
+    failedActionParameterDbAdapter = new FailedActionParameterDbAdapter(logDatabase);
     registeredActionDbAdapter = new RegisteredActionDbAdapter(database);
     registeredAppDbAdapter = new RegisteredAppDbAdapter(database);
     ruleDbAdapter = new RuleDbAdapter(database);
@@ -93,8 +105,18 @@ public class FailedActionsDbHelper {
    */
   public void close() {
     Log.i(TAG, "closing database.");
-    database.close();
     dbHelper.close();
+    logDbHelper.close();
+  }
+
+  /**
+   * @return the registry for the actions in this database, loaded on first use
+   */
+  private ActionRegistry getActionRegistry() {
+    if (actionRegistry == null) {
+      actionRegistry = new ActionRegistry(registeredAppDbAdapter, registeredActionDbAdapter);
+    }
+    return actionRegistry;
   }
 
   /**
@@ -109,7 +131,7 @@ public class FailedActionsDbHelper {
    *           when this object is already closed
    */
   public ArrayList<Action> getActions(int failureType) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
@@ -130,7 +152,8 @@ public class FailedActionsDbHelper {
       Cursor cursor = failedActionsDbAdapter.fetch(failedActionId);
       cursor = ruleDbAdapter.fetch(getLongFromCursor(cursor, FailedActionsDbAdapter.KEY_RULEID));
       try {
-        action = getAction(actionInfo[KEY_APP_NAME], actionInfo[KEY_ACTION_NAME], actionParams);
+        action = getActionRegistry().createAction(actionInfo[KEY_APP_NAME],
+            actionInfo[KEY_ACTION_NAME], actionParams);
         action.setRuleName(getStringFromCursor(cursor, RuleDbAdapter.KEY_RULENAME));
         action.setNotification(getBooleanFromCursor(cursor, RuleDbAdapter.KEY_NOTIFICATION));
         action.setDatabaseId(failedActionId);
@@ -150,76 +173,15 @@ public class FailedActionsDbHelper {
     
     HashMap<String, String> parameters = new HashMap<String, String>();
     Cursor cursor = failedActionParameterDbAdapter.fetchAll(failedActionId, null, null); 
+    int[] columns = getColumnIndexes(cursor, FailedActionParameterDbAdapter.KEY_ACTIONPARAMETERNAME,
+        FailedActionParameterDbAdapter.KEY_FAILEDACTIONPARAMETERDATA);
     while (cursor.moveToNext()) {
-      parameters.put(getStringFromCursor(cursor, FailedActionParameterDbAdapter.KEY_ACTIONPARAMETERNAME),
-          getStringFromCursor(cursor, FailedActionParameterDbAdapter.KEY_FAILEDACTIONPARAMETERDATA));
+      parameters.put(cursor.getString(columns[0]), cursor.getString(columns[1]));
     }
     cursor.close();
     return parameters;
   } 
   
-  /**
-   * This method initializes an Action object from a given action name and parameters
-   * 
-   * @param appName
-   *          Name of the application
-   * @param actionName
-   *          Name of the action
-   * @param actionParams
-   *          Parameters required to initialize the action
-   * @return An action object
-   * @throws OmnidroidException
-   *           if the given action cannot be initialized by this method
-   */
-  private Action getAction(String appName, String actionName, HashMap<String, String> actionParams)
-      throws OmnidroidException {
-
-    if (appName.equals(SendSmsAction.APP_NAME) 
-        && actionName.equals(SendSmsAction.ACTION_NAME)) {
-      return new SendSmsAction(actionParams);
-    } else if (appName.equals(CallPhoneAction.APP_NAME)
-        && actionName.equals(CallPhoneAction.ACTION_NAME)) {
-      return new CallPhoneAction(actionParams);
-    } else if (appName.equals(SendGmailAction.APP_NAME)
-        && actionName.equals(SendGmailAction.ACTION_NAME)) {
-      return new SendGmailAction(actionParams);
-    } else if (appName.equals(ShowAlertAction.APP_NAME)
-        && actionName.equals(ShowAlertAction.ACTION_NAME)) {
-      return new ShowAlertAction(actionParams);
-    } else if (appName.equals(ShowNotificationAction.APP_NAME)
-        && actionName.equals(ShowNotificationAction.ACTION_NAME)) {
-      return new ShowNotificationAction(actionParams);
-    } else if (appName.equals(ShowWebsiteAction.APP_NAME)
-        && actionName.equals(ShowWebsiteAction.ACTION_NAME)) {
-      return new ShowWebsiteAction(actionParams);
-    } else if (appName.equals(SetScreenBrightnessAction.APP_NAME)
-        && actionName.equals(SetScreenBrightnessAction.ACTION_NAME)) {
-      return new SetScreenBrightnessAction(actionParams);
-    } else if (appName.equals(SetPhoneLoudAction.APP_NAME)
-        && actionName.equals(SetPhoneLoudAction.ACTION_NAME)) {
-      return new SetPhoneLoudAction(actionParams);
-    } else if (appName.equals(SetPhoneSilentAction.APP_NAME)
-        && actionName.equals(SetPhoneSilentAction.ACTION_NAME)) {
-      return new SetPhoneSilentAction(actionParams);
-    } else if (appName.equals(SetPhoneVibrateAction.APP_NAME)
-        && actionName.equals(SetPhoneVibrateAction.ACTION_NAME)) {
-      return new SetPhoneVibrateAction(actionParams);
-    } else if (appName.equals(TurnOffWifiAction.APP_NAME)
-        && actionName.equals(TurnOffWifiAction.ACTION_NAME)) {
-      return new TurnOffWifiAction(actionParams);
-    } else if (appName.equals(TurnOnWifiAction.APP_NAME)
-        && actionName.equals(TurnOnWifiAction.ACTION_NAME)) {
-      return new TurnOnWifiAction(actionParams);
-    } else if (appName.equals(UpdateTwitterStatusAction.APP_NAME)
-        && actionName.equals(UpdateTwitterStatusAction.ACTION_NAME)) {
-      return new UpdateTwitterStatusAction(actionParams);
-    } else {
-      Log.d(TAG, "doesn't catch AppName is: " + appName + " and actionName is: " + actionName);
-      throw new OmnidroidException(120003, ExceptionMessageMap.getMessage(new Integer(120003)
-          .toString()));
-    }
-  }
-  
   /**
    * This method returns an ArrayList of action ids which are to be executed for a given failed
    * 
@@ -230,14 +192,15 @@ public class FailedActionsDbHelper {
    *           when this object is already closed
    */
   private ArrayList<Long> getFailedActionIds(int failureType) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
     Cursor cursor = failedActionsDbAdapter.fetchAll(null, null, failureType);
     ArrayList<Long> ruleActionIds = new ArrayList<Long>();
+    int idColumn = cursor.getColumnIndexOrThrow(FailedActionsDbAdapter.KEY_FAILEDACTIONID);
     while (cursor.moveToNext()) {
-      ruleActionIds.add(getLongFromCursor(cursor, FailedActionsDbAdapter.KEY_FAILEDACTIONID));
+      ruleActionIds.add(cursor.getLong(idColumn));
     }
     cursor.close();
     return ruleActionIds;
@@ -254,14 +217,11 @@ public class FailedActionsDbHelper {
    *           when this object is already closed
    */
   private String[] getRegisteredActionInfo(Long failedActionId) {
-    if (!database.isOpen()) {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
     Long actionId;
-    Long appId;
-    String actionName;
-    String appName;
 
     Cursor cursor = failedActionsDbAdapter.fetch(failedActionId);
     if (cursor.moveToFirst()) {
@@ -272,40 +232,86 @@ public class FailedActionsDbHelper {
       return null;
     }
 
-    cursor = registeredActionDbAdapter.fetch(actionId);
-    if (cursor.moveToFirst()) {
-      actionName = getStringFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONNAME);
-      appId = getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_APPID);
-      cursor.close();
-    } else {
-      cursor.close();
-      return null;
+    return getActionRegistry().getActionInfo(actionId);
+  }
+
+  /**
+   * Run work in one database transaction, committing it if the work returns normally.
+   * 
+   * @param work
+   *          the database work to run
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public void runInTransaction(Runnable work) {
+    if (!dbHelper.isOpen()) {
+      throw new IllegalStateException(TAG + " is already closed.");
+    }
+    logDatabase.beginTransaction();
+    try {
+      work.run();
+      logDatabase.setTransactionSuccessful();
+    } finally {
+      logDatabase.endTransaction();
     }
+  }
 
-    cursor = registeredAppDbAdapter.fetch(appId);
-    if (cursor.moveToFirst()) {
-      appName = getStringFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPNAME);
-      cursor.close();
-    } else {
+  public boolean delete(long failedActionId) {
+    // Not every failed action has parameters, so always delete the action itself as well
+    boolean parametersDeleted = failedActionParameterDbAdapter.delete(failedActionId);
+    return failedActionsDbAdapter.delete(failedActionId) || parametersDeleted;
+  }
+
+  /**
+   * Look up the rule and registered action of a rule action. Rule action ids are never reused, so
+   * the lookups are cached for the process.
+   * 
+   * @param ruleActionId
+   *          id of the rule action
+   * @return {rule id, action id}, or null if there is no such rule action
+   */
+  private long[] getRuleAction(long ruleActionId) {
+    synchronized (ruleActions) {
+      long[] ruleAction = ruleActions.get(ruleActionId);
+      if (ruleAction != null) {
+        return ruleAction;
+      }
+    }
+    Cursor cursor = ruleActionDbAdapter.fetch(ruleActionId);
+    if (cursor.getCount() == 0) {
       cursor.close();
       return null;
     }
-
-    return new String[] { appName, actionName };
-  }
-  public boolean delete(long failedActionId) {
-    return failedActionParameterDbAdapter.delete(failedActionId) && 
-        failedActionsDbAdapter.delete(failedActionId);
+    long[] ruleAction = { getLongFromCursor(cursor, RuleActionDbAdapter.KEY_RULEID),
+        getLongFromCursor(cursor, RuleActionDbAdapter.KEY_ACTIONID) };
+    cursor.close();
+    synchronized (ruleActions) {
+      ruleActions.put(ruleActionId, ruleAction);
+    }
+    return ruleAction;
   }
-  
+
+  /**
+   * Queue a rule action that failed, along with its parameters.
+   * 
+   * @param intent
+   *          intent of the failed action
+   * @param failureType
+   *          cause of the failure, one of the ResultProcessor failure codes
+   * @param message
+   *          message describing the failure
+   * @return id of the queued action, or -1 if it could not be queued
+   */
   public long insert (Intent intent, int failureType, String message ) {
  
     long ruleActionId = intent.getLongExtra(Action.DATABASE_ID, -1);
-    Logger.w(TAG, "ruleActionId aris" + ruleActionId);
-    Cursor cursor = ruleActionDbAdapter.fetch(ruleActionId);
-    long ruleId = getLongFromCursor(cursor, RuleActionDbAdapter.KEY_RULEID);
-    long actionId = getLongFromCursor(cursor, RuleActionDbAdapter.KEY_ACTIONID);
-    long failedActionId = failedActionsDbAdapter.insert(ruleId, actionId, failureType, message);
+    long[] ruleAction = getRuleAction(ruleActionId);
+    if (ruleAction == null) {
+      Logger.w(TAG, "Cannot queue action of unknown rule action " + ruleActionId);
+      return -1;
+    }
+    long failedActionId = failedActionsDbAdapter.insert(ruleAction[0], ruleAction[1], failureType,
+        message);
     
     Logger.w(TAG, "inserting action into database, failure type "+ failureType);
     
@@ -342,18 +348,48 @@ public class FailedActionsDbHelper {
   /**
    * 
    */
-  public void deleteOldActions() {
-    if (!database.isOpen()) {
+  /**
+   * @return the failure types that at least one queued action failed with
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public Set<Integer> getFailureTypes() {
+    if (!dbHelper.isOpen()) {
+      throw new IllegalStateException(TAG + " is already closed.");
+    }
+
+    HashSet<Integer> failureTypes = new HashSet<Integer>();
+    Cursor cursor = failedActionsDbAdapter.fetchAll();
+    int column = cursor.getColumnIndexOrThrow(FailedActionsDbAdapter.KEY_FAILURE_TYPE);
+    while (cursor.moveToNext()) {
+      failureTypes.add(cursor.getInt(column));
+    }
+    cursor.close();
+    return failureTypes;
+  }
+
+  /**
+   * Delete the failed actions that were queued too long ago, notifying the user of each.
+   * 
+   * @return the number of failed actions deleted
+   * @throws IllegalStateException
+   *           when this object is already closed
+   */
+  public int deleteOldActions() {
+    if (!dbHelper.isOpen()) {
       throw new IllegalStateException(TAG + " is already closed.");
     }
 
     Cursor cursor = failedActionsDbAdapter.fetchOldActions();
+    int deleted = cursor.getCount();
+    int[] columns = getColumnIndexes(cursor, FailedActionsDbAdapter.KEY_MESSAGE,
+        FailedActionsDbAdapter.KEY_FAILEDACTIONID);
     while (cursor.moveToNext()) {
       UtilUI.showNotification(context, UtilUI.NOTIFICATION_RULE, context.getString(R.string
-          .omnidroid), getStringFromCursor(cursor, FailedActionsDbAdapter.KEY_MESSAGE));
-      failedActionsDbAdapter.delete(getLongFromCursor(cursor, 
-          FailedActionsDbAdapter.KEY_FAILEDACTIONID));
+          .omnidroid), cursor.getString(columns[0]));
+      failedActionsDbAdapter.delete(cursor.getLong(columns[1]));
     }
     cursor.close();
+    return deleted;
   }
 }
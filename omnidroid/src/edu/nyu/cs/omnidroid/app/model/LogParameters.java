@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.os.Bundle;
+
+/**
+ * Encodes the attributes of an event, or the parameters of an action, for the parameters column
+ * of the log tables.
+ * <p>
+ * The encoding is a tab separated list of {@code name=value} fields, with a tab before the first
+ * and after the last field, e.g. {@code "\tPhone Number=5556\tTime=12:00\t"}. Backslashes, tabs,
+ * line breaks and equal signs within names and values are escaped with a backslash. It decodes
+ * back to the same names and values, and since every field is enclosed in tabs a single
+ * {@code LIKE} pattern from {@link #likePattern(String, String)} matches one field exactly.
+ * </p>
+ * <p>
+ * Logs written before this encoding hold the text of {@code Bundle.toString()}, which
+ * {@link #decode(String)} parses as well as it can.
+ * </p>
+ */
+public class LogParameters {
+  private static final char SEPARATOR = '\t';
+  private static final char ESCAPE = '\\';
+
+  /** Escape character of the LIKE patterns, set with an ESCAPE clause */
+  public static final String LIKE_ESCAPE = "!";
+
+  private static final String LEGACY_PREFIX = "Bundle[";
+  private static final String BUNDLE_PREFIX = "Bundle[{";
+  private static final String BUNDLE_SUFFIX = "}]";
+
+  /**
+   * This is a static utility class which cannot be instantiated.
+   */
+  private LogParameters() {
+  }
+
+  /**
+   * Collect the extras of an intent whose values are strings, numbers, booleans or characters.
+   * Other values, like arrays or parcelables, are left out.
+   * 
+   * @param extras
+   *          the extras, may be null
+   * @return the extras as strings, in no particular order
+   */
+  public static Map<String, String> fromExtras(Bundle extras) {
+    LinkedHashMap<String, String> values = new LinkedHashMap<String, String>();
+    if (extras == null) {
+      return values;
+    }
+    for (String key : extras.keySet()) {
+      Object value = extras.get(key);
+      if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+          || value instanceof Character) {
+        values.put(key, value.toString());
+      }
+    }
+    return values;
+  }
+
+  /**
+   * @return the encoded parameters, or an empty string if there are none
+   */
+  public static String encode(Map<String, String> parameters) {
+    if (parameters.isEmpty()) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append(SEPARATOR);
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      escape(sb, parameter.getKey()).append('=');
+      escape(sb, parameter.getValue()).append(SEPARATOR);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @param encoded
+   *          the value of a parameters column
+   * @return the parameters in the order they were encoded
+   */
+  public static Map<String, String> decode(String encoded) {
+    if (encoded == null || encoded.length() == 0) {
+      return new LinkedHashMap<String, String>();
+    }
+    if (encoded.startsWith(LEGACY_PREFIX)) {
+      return parseBundleString(encoded);
+    }
+    LinkedHashMap<String, String> parameters = new LinkedHashMap<String, String>();
+    for (String field : encoded.split(String.valueOf(SEPARATOR))) {
+      int equals = indexOfUnescaped(field, '=');
+      if (equals >= 0) {
+        parameters.put(unescape(field.substring(0, equals)), unescape(field
+            .substring(equals + 1)));
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Build a pattern for {@code column LIKE ? ESCAPE '!'} that matches the encoded parameters
+   * holding the value for the name. Note that SQLite's LIKE ignores the case of ASCII letters.
+   */
+  public static String likePattern(String name, String value) {
+    StringBuilder field = new StringBuilder();
+    field.append(SEPARATOR);
+    escape(field, name).append('=');
+    escape(field, value).append(SEPARATOR);
+
+    StringBuilder pattern = new StringBuilder("%");
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+      if (c == '%' || c == '_' || c == LIKE_ESCAPE.charAt(0)) {
+        pattern.append(LIKE_ESCAPE);
+      }
+      pattern.append(c);
+    }
+    return pattern.append('%').toString();
+  }
+
+  /**
+   * @return the parameters for display, like {@code {Phone Number=5556, Time=12:00}}
+   */
+  public static String toDisplayString(Map<String, String> parameters) {
+    return parameters.isEmpty() ? "" : parameters.toString();
+  }
+
+  /**
+   * Append text with backslashes, tabs, line breaks and equal signs escaped.
+   */
+  public static StringBuilder escape(StringBuilder out, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+      case '\\':
+        out.append("\\\\");
+        break;
+      case '\t':
+        out.append("\\t");
+        break;
+      case '\n':
+        out.append("\\n");
+        break;
+      case '\r':
+        out.append("\\r");
+        break;
+      case '=':
+        out.append("\\=");
+        break;
+      default:
+        out.append(c);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Undo {@link #escape(StringBuilder, String)}.
+   */
+  public static String unescape(String text) {
+    if (text.indexOf(ESCAPE) < 0) {
+      return text;
+    }
+    StringBuilder out = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == ESCAPE && i + 1 < text.length()) {
+        c = text.charAt(++i);
+        if (c == 't') {
+          c = '\t';
+        } else if (c == 'n') {
+          c = '\n';
+        } else if (c == 'r') {
+          c = '\r';
+        }
+      }
+      out.append(c);
+    }
+    return out.toString();
+  }
+
+  /**
+   * @return the index of the first occurrence of target in the escaped text that is not itself
+   *         escaped, or -1 if there is none
+   */
+  public static int indexOfUnescaped(String text, char target) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == ESCAPE) {
+        i++;
+      } else if (c == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parse the text of {@code Bundle.toString()}, which looks like {@code Bundle[{a=1, b=2}]}. This
+   * is best effort: values that themselves contain {@code ", key="} are split up, and only the
+   * text of values that were not strings is kept.
+   * 
+   * @return the extras, or an empty map if the bundle was never unparcelled
+   */
+  static Map<String, String> parseBundleString(String bundle) {
+    LinkedHashMap<String, String> extras = new LinkedHashMap<String, String>();
+    if (!bundle.startsWith(BUNDLE_PREFIX) || !bundle.endsWith(BUNDLE_SUFFIX)) {
+      return extras;
+    }
+    String body = bundle.substring(BUNDLE_PREFIX.length(), bundle.length()
+        - BUNDLE_SUFFIX.length());
+    if (body.length() == 0) {
+      return extras;
+    }
+    // Split only before something that looks like the next key
+    for (String entry : body.split(", (?=[^,=\\s][^,=]*=)")) {
+      int equals = entry.indexOf('=');
+      if (equals > 0) {
+        extras.put(entry.substring(0, equals), entry.substring(equals + 1));
+      }
+    }
+    return extras;
+  }
+}
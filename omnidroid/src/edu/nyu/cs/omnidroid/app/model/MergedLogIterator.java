@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
+
+/**
+ * Merges several newest first {@link PagedLogIterator}s into one newest first stream. Only the
+ * head log of each source is compared, so the merged logs are produced as the sources page them in
+ * rather than by loading and sorting every table.
+ */
+public class MergedLogIterator implements Iterator<ModelLog> {
+  /** Orders sources by their next log, newest first */
+  private static final Comparator<PagedLogIterator> NEWEST_FIRST = 
+      new Comparator<PagedLogIterator>() {
+    public int compare(PagedLogIterator source1, PagedLogIterator source2) {
+      ModelLog log1 = source1.peek();
+      ModelLog log2 = source2.peek();
+      int result = log1.compareTo(log2);
+      if (result == 0) {
+        // Keep the order stable for logs written in the same millisecond
+        result = log1.getType() - log2.getType();
+      }
+      return result;
+    }
+  };
+
+  // Sources that still have logs, keyed by their next log
+  private final PriorityQueue<PagedLogIterator> sources;
+
+  public MergedLogIterator(PagedLogIterator... sources) {
+    this.sources = new PriorityQueue<PagedLogIterator>(Math.max(1, sources.length), NEWEST_FIRST);
+    for (PagedLogIterator source : sources) {
+      if (source.hasNext()) {
+        this.sources.add(source);
+      }
+    }
+  }
+
+  public boolean hasNext() {
+    return !sources.isEmpty();
+  }
+
+  public ModelLog next() {
+    PagedLogIterator source = sources.poll();
+    if (source == null) {
+      throw new NoSuchElementException();
+    }
+    ModelLog log = source.next();
+    if (source.hasNext()) {
+      sources.add(source);
+    }
+    return log;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import android.database.Cursor;
+import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.model.db.LogActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogEventDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
+
+/**
+ * Maps the rows of a log table into the {@link ModelLog}s shown by the log viewer.
+ */
+public class ModelLogMapper extends RowMapper<ModelLog> {
+  /** Maps {@code LogEvent} rows */
+  public static final ModelLogMapper EVENT_LOGS = new ModelLogMapper(
+      LogEventDbAdapter.KEY_EVENTNAME, R.drawable.icon_event_unknown, ModelLog.TYPE_EVENT);
+
+  /** Maps {@code LogAction} rows */
+  public static final ModelLogMapper ACTION_LOGS = new ModelLogMapper(
+      LogActionDbAdapter.KEY_ACTIONEVENTNAME, R.drawable.icon_action_unknown, ModelLog.TYPE_ACTION);
+
+  /** Maps {@code LogGeneral} rows */
+  public static final ModelLogMapper GENERAL_LOGS = new ModelLogMapper(
+      LogDbAdapter.KEY_DESCRIPTION, R.drawable.icon_log_general, ModelLog.TYPE_GENERAL);
+
+  /* Positions of the columns in the indexes passed to map */
+  private static final int ID = 0;
+  private static final int TIMESTAMP = 1;
+  private static final int NAME = 2;
+  private static final int DESCRIPTION = 3;
+
+  private final int iconResId;
+  private final int type;
+
+  /**
+   * @param nameColumn
+   *          the column used as the {@link ModelLog} name
+   * @param iconResId
+   *          the icon for the logs of this table
+   * @param type
+   *          the {@link ModelLog} type of the logs of this table
+   */
+  public ModelLogMapper(String nameColumn, int iconResId, int type) {
+    super(LogDbAdapter.KEY_ID, LogDbAdapter.KEY_TIMESTAMP, nameColumn,
+        LogDbAdapter.KEY_DESCRIPTION);
+    this.iconResId = iconResId;
+    this.type = type;
+  }
+
+  @Override
+  public ModelLog map(Cursor cursor, int[] columns) {
+    return new ModelLog(cursor.getLong(columns[ID]), cursor.getString(columns[NAME]), cursor
+        .getString(columns[DESCRIPTION]), iconResId, cursor.getLong(columns[TIMESTAMP]), type);
+  }
+}
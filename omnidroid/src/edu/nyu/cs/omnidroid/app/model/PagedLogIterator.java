@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
+
+/**
+ * Iterates over the logs of one log table, newest first, loading them from the database one page
+ * at a time. Only the current page is held in memory and no cursor is kept open between pages.
+ */
+public class PagedLogIterator implements Iterator<ModelLog> {
+  /** Number of logs loaded per database query */
+  public static final int DEFAULT_PAGE_SIZE = 50;
+
+  private final LogDbAdapter logDbAdapter;
+  private final ModelLogMapper logMapper;
+  private final int pageSize;
+
+  // The current page and the position of the next log within it
+  private ArrayList<ModelLog> page = new ArrayList<ModelLog>();
+  private int position = 0;
+
+  // Keyset of the last log loaded, null before the first page is loaded
+  private Long lastTimestamp = null;
+  private long lastId = 0;
+
+  // Set once a page shorter than pageSize is returned
+  private boolean exhausted = false;
+
+  /**
+   * @param logDbAdapter
+   *          adapter of the log table to iterate over
+   * @param logMapper
+   *          maps the rows of the log table into {@link ModelLog}s
+   * @param pageSize
+   *          number of logs to load per database query
+   */
+  public PagedLogIterator(LogDbAdapter logDbAdapter, ModelLogMapper logMapper, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive.");
+    }
+    this.logDbAdapter = logDbAdapter;
+    this.logMapper = logMapper;
+    this.pageSize = pageSize;
+  }
+
+  public boolean hasNext() {
+    if (position < page.size()) {
+      return true;
+    }
+    if (exhausted) {
+      return false;
+    }
+    loadNextPage();
+    return position < page.size();
+  }
+
+  public ModelLog next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return page.get(position++);
+  }
+
+  /**
+   * @return the next log without consuming it, or null if there are no more logs
+   */
+  public ModelLog peek() {
+    return hasNext() ? page.get(position) : null;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Replace the current page with the next page of logs from the database.
+   */
+  private void loadNextPage() {
+    position = 0;
+
+    Cursor cursor = logDbAdapter.fetchPage(lastTimestamp, lastId, pageSize);
+    page = logMapper.mapAll(cursor);
+    cursor.close();
+
+    if (!page.isEmpty()) {
+      ModelLog last = page.get(page.size() - 1);
+      lastTimestamp = last.getTimestamp();
+      lastId = last.getDatabaseId();
+    }
+
+    if (page.size() < pageSize) {
+      exhausted = true;
+    }
+  }
+}
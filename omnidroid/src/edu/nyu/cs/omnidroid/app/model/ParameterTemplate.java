@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.nyu.cs.omnidroid.app.controller.Event;
+
+/**
+ * An action parameter value in which tags like {@code <SMS Phonenumber>} stand for attributes of
+ * the triggering event. The value is split into literal text and attribute references once, when
+ * it is compiled, so rendering it for an event is a single pass over the segments.
+ * <p>
+ * A tag is a {@code <} followed by a non-empty name and the next {@code >}. Text that does not
+ * form a tag, like a lone {@code <}, is kept as it is.
+ * </p>
+ */
+public class ParameterTemplate {
+  /** Number of compiled templates kept for reuse */
+  private static final int CACHE_SIZE = 256;
+
+  /** Compiled templates by their source, least recently used first */
+  private static final LinkedHashMap<String, ParameterTemplate> cache =
+      new LinkedHashMap<String, ParameterTemplate>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParameterTemplate> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  private final String source;
+  /** Literal text and attribute names, in order */
+  private final String[] segments;
+  /** Whether the segment at the same index is an attribute name */
+  private final boolean[] attributes;
+  /** Total length of the literal segments */
+  private final int literalLength;
+
+  private ParameterTemplate(String source, String[] segments, boolean[] attributes,
+      int literalLength) {
+    this.source = source;
+    this.segments = segments;
+    this.attributes = attributes;
+    this.literalLength = literalLength;
+  }
+
+  /**
+   * Compile a parameter value, reusing the template compiled earlier for the same value.
+   * 
+   * @param source
+   *          the parameter value as stored with the rule
+   * @return the compiled template
+   */
+  public static ParameterTemplate compile(String source) {
+    synchronized (cache) {
+      ParameterTemplate template = cache.get(source);
+      if (template == null) {
+        template = parse(source);
+        cache.put(source, template);
+      }
+      return template;
+    }
+  }
+
+  private static ParameterTemplate parse(String source) {
+    ArrayList<String> segments = new ArrayList<String>();
+    ArrayList<Boolean> attributes = new ArrayList<Boolean>();
+    int literalLength = 0;
+    int literalStart = 0;
+    int position = 0;
+    while (position < source.length()) {
+      int open = source.indexOf('<', position);
+      int close = open < 0 ? -1 : source.indexOf('>', open + 1);
+      if (close < 0) {
+        break;
+      }
+      if (close == open + 1) {
+        // "<>" is not a tag, keep looking after it
+        position = close + 1;
+        continue;
+      }
+      if (open > literalStart) {
+        segments.add(source.substring(literalStart, open));
+        attributes.add(false);
+        literalLength += open - literalStart;
+      }
+      segments.add(source.substring(open + 1, close));
+      attributes.add(true);
+      literalStart = position = close + 1;
+    }
+    if (literalStart < source.length()) {
+      segments.add(source.substring(literalStart));
+      attributes.add(false);
+      literalLength += source.length() - literalStart;
+    }
+
+    boolean[] isAttribute = new boolean[attributes.size()];
+    for (int i = 0; i < isAttribute.length; i++) {
+      isAttribute[i] = attributes.get(i);
+    }
+    return new ParameterTemplate(source, segments.toArray(new String[segments.size()]),
+        isAttribute, literalLength);
+  }
+
+  /**
+   * @return whether the template refers to any event attribute
+   */
+  public boolean hasAttributes() {
+    for (boolean attribute : attributes) {
+      if (attribute) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Substitute the attributes of the event into the template.
+   * 
+   * @param event
+   *          the event whose attributes the tags refer to
+   * @return the parameter value for the event
+   * @throws IllegalArgumentException
+   *           if a tag names an attribute the event does not have
+   */
+  public String render(Event event) {
+    if (segments.length == 1 && !attributes[0]) {
+      return segments[0];
+    }
+    StringBuilder sb = new StringBuilder(literalLength + 16 * segments.length);
+    for (int i = 0; i < segments.length; i++) {
+      if (!attributes[i]) {
+        sb.append(segments[i]);
+        continue;
+      }
+      String value;
+      try {
+        value = event.getAttribute(segments[i]);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown attribute <" + segments[i] + "> for event "
+            + event.getEventName() + " in action parameter \"" + source + "\"");
+      }
+      sb.append(value);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+}
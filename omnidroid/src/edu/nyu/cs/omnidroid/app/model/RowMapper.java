@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import java.util.ArrayList;
+
+import android.database.Cursor;
+
+/**
+ * Maps the rows of a cursor into objects. The indexes of the columns a mapper reads are looked up
+ * once per cursor rather than once per field of every row, so loading a large table costs one
+ * {@link Cursor#getColumnIndexOrThrow(String)} per column.
+ * <p>
+ * Subclasses name the columns they read in the constructor and get the resolved indexes in the
+ * same order in {@link #map(Cursor, int[])}:
+ * 
+ * <pre>
+ * new RowMapper&lt;Long&gt;(KEY_ID) {
+ *   public Long map(Cursor cursor, int[] columns) {
+ *     return cursor.getLong(columns[0]);
+ *   }
+ * };
+ * </pre>
+ * 
+ * </p>
+ * 
+ * @param <T>
+ *          the type rows are mapped into
+ */
+public abstract class RowMapper<T> {
+  private final String[] columnNames;
+
+  /**
+   * @param columnNames
+   *          names of the columns this mapper reads
+   */
+  public RowMapper(String... columnNames) {
+    this.columnNames = columnNames;
+  }
+
+  /**
+   * Map the row the cursor is on.
+   * 
+   * @param cursor
+   *          the cursor, positioned on the row to map
+   * @param columns
+   *          indexes of this mapper's columns in the cursor, in the order they were named
+   * @return the object for the row
+   */
+  public abstract T map(Cursor cursor, int[] columns);
+
+  /**
+   * @return indexes of this mapper's columns in cursor, in the order they were named
+   * @throws IllegalArgumentException
+   *           if the cursor does not have one of the columns
+   */
+  public int[] getColumnIndexes(Cursor cursor) {
+    return CursorHelper.getColumnIndexes(cursor, columnNames);
+  }
+
+  /**
+   * Map the row the cursor is on. Use {@link #mapAll(Cursor)} to map more than one row.
+   * 
+   * @return the object for the current row
+   */
+  public T mapCurrent(Cursor cursor) {
+    return map(cursor, getColumnIndexes(cursor));
+  }
+
+  /**
+   * Map the remaining rows of the cursor. The cursor is left after the last row and is not closed.
+   * 
+   * @return the objects for the rows, in cursor order
+   */
+  public ArrayList<T> mapAll(Cursor cursor) {
+    int[] columns = getColumnIndexes(cursor);
+    ArrayList<T> rows = new ArrayList<T>(cursor.getCount());
+    while (cursor.moveToNext()) {
+      rows.add(map(cursor, columns));
+    }
+    return rows;
+  }
+
+  /**
+   * @return the boolean value of column, stored as 1 for true
+   */
+  public static boolean getBoolean(Cursor cursor, int column) {
+    return cursor.getInt(column) == 1;
+  }
+}
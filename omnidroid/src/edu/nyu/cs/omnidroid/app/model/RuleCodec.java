@@ -0,0 +1,622 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getBooleanFromCursor;
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getIntFromCursor;
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getStringFromCursor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import edu.nyu.cs.omnidroid.app.controller.util.DualKey;
+import edu.nyu.cs.omnidroid.app.model.db.DataFilterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.DataTypeDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionParameterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventAttributeDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleActionParameterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RuleFilterDbAdapter;
+
+/**
+ * Exports rules to and imports rules from a compact binary stream, so rules can be moved between
+ * devices without copying the whole database.
+ * <p>
+ * Rules are written with the names of their event, attributes, filters, actions and parameters
+ * rather than their row ids, so a stream can be imported into any database that has the same
+ * applications registered. Names are written once per stream and referred to by index afterwards.
+ * </p>
+ * <p>
+ * Stream layout: a header ({@link #MAGIC}, {@link #VERSION}), then one record per rule, then an
+ * end tag. A rule record holds the rule fields, its event, its filter tree in pre-order with a
+ * child count per filter, and its actions with their parameters.
+ * </p>
+ */
+public class RuleCodec {
+  /** Marks the start of a rule stream */
+  public static final int MAGIC = 0x4F6D5275;
+
+  /** Version of the stream layout written by this codec */
+  public static final int VERSION = 2;
+
+  /* Longest text a stream may hold for one value, longer ones mean the stream is damaged */
+  private static final int MAX_DATA_LENGTH = 1 << 20;
+
+  /* Record tags */
+  private static final int TAG_END = 0;
+  private static final int TAG_RULE = 1;
+
+  /* Parent id of the top level rule filters */
+  private static final long ROOT_FILTER_ID = -1L;
+
+  /* Event id of the attributes that apply to all events */
+  private static final long GLOBAL_ATTRIBUTE_EVENT_ID = -1L;
+
+  private final SQLiteDatabase database;
+
+  private final RuleDbAdapter ruleDbAdapter;
+  private final RuleFilterDbAdapter ruleFilterDbAdapter;
+  private final RuleActionDbAdapter ruleActionDbAdapter;
+  private final RuleActionParameterDbAdapter ruleActionParameterDbAdapter;
+
+  /* Names of the registered items keyed by id, used when exporting */
+  private final Map<Long, DualKey<String, String>> eventNames =
+      new HashMap<Long, DualKey<String, String>>();
+  private final Map<Long, String> attributeNames = new HashMap<Long, String>();
+  private final Map<Long, DualKey<String, String>> filterNames =
+      new HashMap<Long, DualKey<String, String>>();
+  private final Map<Long, DualKey<String, String>> actionNames =
+      new HashMap<Long, DualKey<String, String>>();
+  private final Map<Long, String> parameterNames = new HashMap<Long, String>();
+
+  /* Ids of the registered items keyed by name, used when importing */
+  private final Map<DualKey<String, String>, Long> eventIds =
+      new HashMap<DualKey<String, String>, Long>();
+  private final Map<DualKey<Long, String>, Long> attributeIds =
+      new HashMap<DualKey<Long, String>, Long>();
+  private final Map<Long, Long> attributeDataTypes = new HashMap<Long, Long>();
+  private final Map<DualKey<Long, DualKey<String, String>>, Long> filterIds =
+      new HashMap<DualKey<Long, DualKey<String, String>>, Long>();
+  private final Map<DualKey<String, String>, Long> actionIds =
+      new HashMap<DualKey<String, String>, Long>();
+  private final Map<DualKey<Long, String>, Long> parameterIds =
+      new HashMap<DualKey<Long, String>, Long>();
+
+  /**
+   * Create a codec for the rules in database. The registered events, attributes, filters, actions
+   * and parameters are loaded once here.
+   * 
+   * @param database
+   *          the database to export rules from or import rules into
+   */
+  public RuleCodec(SQLiteDatabase database) {
+    this.database = database;
+    ruleDbAdapter = new RuleDbAdapter(database);
+    ruleFilterDbAdapter = new RuleFilterDbAdapter(database);
+    ruleActionDbAdapter = new RuleActionDbAdapter(database);
+    ruleActionParameterDbAdapter = new RuleActionParameterDbAdapter(database);
+    loadRegistry();
+  }
+
+  /**
+   * Load the names and ids of all registered items.
+   */
+  private void loadRegistry() {
+    HashMap<Long, String> appNames = new HashMap<Long, String>();
+    Cursor cursor = new RegisteredAppDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      appNames.put(getLongFromCursor(cursor, RegisteredAppDbAdapter.KEY_APPID), getStringFromCursor(
+          cursor, RegisteredAppDbAdapter.KEY_APPNAME));
+    }
+    cursor.close();
+
+    HashMap<Long, String> dataTypeNames = new HashMap<Long, String>();
+    cursor = new DataTypeDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      dataTypeNames.put(getLongFromCursor(cursor, DataTypeDbAdapter.KEY_DATATYPEID),
+          getStringFromCursor(cursor, DataTypeDbAdapter.KEY_DATATYPENAME));
+    }
+    cursor.close();
+
+    cursor = new RegisteredEventDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      long id = getLongFromCursor(cursor, RegisteredEventDbAdapter.KEY_EVENTID);
+      DualKey<String, String> name = new DualKey<String, String>(appNames.get(getLongFromCursor(
+          cursor, RegisteredEventDbAdapter.KEY_APPID)), getStringFromCursor(cursor,
+          RegisteredEventDbAdapter.KEY_EVENTNAME));
+      eventNames.put(id, name);
+      eventIds.put(name, id);
+    }
+    cursor.close();
+
+    cursor = new RegisteredEventAttributeDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      long id = getLongFromCursor(cursor, RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTEID);
+      String name = getStringFromCursor(cursor,
+          RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTENAME);
+      attributeNames.put(id, name);
+      attributeIds.put(new DualKey<Long, String>(getLongFromCursor(cursor,
+          RegisteredEventAttributeDbAdapter.KEY_EVENTID), name), id);
+      attributeDataTypes.put(id, getLongFromCursor(cursor,
+          RegisteredEventAttributeDbAdapter.KEY_DATATYPEID));
+    }
+    cursor.close();
+
+    // Filter names are only unique for a pair of data types, so key them by both
+    cursor = new DataFilterDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      long id = getLongFromCursor(cursor, DataFilterDbAdapter.KEY_DATAFILTERID);
+      DualKey<String, String> name = new DualKey<String, String>(getStringFromCursor(cursor,
+          DataFilterDbAdapter.KEY_DATAFILTERNAME), dataTypeNames.get(getLongFromCursor(cursor,
+          DataFilterDbAdapter.KEY_COMPAREWITHDATATYPEID)));
+      filterNames.put(id, name);
+      filterIds.put(new DualKey<Long, DualKey<String, String>>(getLongFromCursor(cursor,
+          DataFilterDbAdapter.KEY_FILTERONDATATYPEID), name), id);
+    }
+    cursor.close();
+
+    cursor = new RegisteredActionDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      long id = getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONID);
+      DualKey<String, String> name = new DualKey<String, String>(appNames.get(getLongFromCursor(
+          cursor, RegisteredActionDbAdapter.KEY_APPID)), getStringFromCursor(cursor,
+          RegisteredActionDbAdapter.KEY_ACTIONNAME));
+      actionNames.put(id, name);
+      actionIds.put(name, id);
+    }
+    cursor.close();
+
+    cursor = new RegisteredActionParameterDbAdapter(database).fetchAll();
+    while (cursor.moveToNext()) {
+      long id = getLongFromCursor(cursor, RegisteredActionParameterDbAdapter.KEY_ACTIONPARAMETERID);
+      String name = getStringFromCursor(cursor,
+          RegisteredActionParameterDbAdapter.KEY_ACTIONPARAMETERNAME);
+      parameterNames.put(id, name);
+      parameterIds.put(new DualKey<Long, String>(getLongFromCursor(cursor,
+          RegisteredActionParameterDbAdapter.KEY_ACTIONID), name), id);
+    }
+    cursor.close();
+  }
+
+  /**
+   * Export all rules.
+   * 
+   * @param out
+   *          the stream to write to, left open
+   * @return number of rules exported
+   * @throws IOException
+   *           if writing fails
+   */
+  public int exportRules(OutputStream out) throws IOException {
+    return exportRules(out, null);
+  }
+
+  /**
+   * Export a set of rules. Each rule table is read in a single pass.
+   * 
+   * @param out
+   *          the stream to write to, left open
+   * @param ruleIDs
+   *          ids of the rules to export, or null for all rules
+   * @return number of rules exported
+   * @throws IOException
+   *           if writing fails
+   */
+  public int exportRules(OutputStream out, List<Long> ruleIDs) throws IOException {
+    HashSet<Long> exported = ruleIDs == null ? null : new HashSet<Long>(ruleIDs);
+
+    // Group the filters by rule and parent, the actions by rule and the parameters by action
+    HashMap<DualKey<Long, Long>, List<ExportedFilter>> filters =
+        new HashMap<DualKey<Long, Long>, List<ExportedFilter>>();
+    Cursor cursor = ruleFilterDbAdapter.fetchAll();
+    while (cursor.moveToNext()) {
+      ExportedFilter filter = new ExportedFilter(getLongFromCursor(cursor,
+          RuleFilterDbAdapter.KEY_RULEFILTERID), getLongFromCursor(cursor,
+          RuleFilterDbAdapter.KEY_EVENTATTRIBUTEID), getLongFromCursor(cursor,
+          RuleFilterDbAdapter.KEY_DATAFILTERID), getStringFromCursor(cursor,
+          RuleFilterDbAdapter.KEY_RULEFILTERDATA));
+      add(filters, new DualKey<Long, Long>(getLongFromCursor(cursor,
+          RuleFilterDbAdapter.KEY_RULEID), getLongFromCursor(cursor,
+          RuleFilterDbAdapter.KEY_PARENTRULEFILTERID)), filter);
+    }
+    cursor.close();
+
+    HashMap<Long, List<DualKey<Long, Long>>> actions =
+        new HashMap<Long, List<DualKey<Long, Long>>>();
+    cursor = ruleActionDbAdapter.fetchAll();
+    while (cursor.moveToNext()) {
+      add(actions, getLongFromCursor(cursor, RuleActionDbAdapter.KEY_RULEID),
+          new DualKey<Long, Long>(getLongFromCursor(cursor, RuleActionDbAdapter.KEY_RULEACTIONID),
+              getLongFromCursor(cursor, RuleActionDbAdapter.KEY_ACTIONID)));
+    }
+    cursor.close();
+
+    HashMap<Long, List<DualKey<Long, String>>> parameters =
+        new HashMap<Long, List<DualKey<Long, String>>>();
+    cursor = ruleActionParameterDbAdapter.fetchAll();
+    while (cursor.moveToNext()) {
+      add(parameters, getLongFromCursor(cursor, RuleActionParameterDbAdapter.KEY_RULEACTIONID),
+          new DualKey<Long, String>(getLongFromCursor(cursor,
+              RuleActionParameterDbAdapter.KEY_ACTIONPARAMETERID), getStringFromCursor(cursor,
+              RuleActionParameterDbAdapter.KEY_RULEACTIONPARAMETERDATA)));
+    }
+    cursor.close();
+
+    Encoder encoder = new Encoder(out);
+    int count = 0;
+    cursor = ruleDbAdapter.fetchAll();
+    while (cursor.moveToNext()) {
+      long ruleID = getLongFromCursor(cursor, RuleDbAdapter.KEY_RULEID);
+      if (exported != null && !exported.contains(ruleID)) {
+        continue;
+      }
+      encoder.writeTag(TAG_RULE);
+      encoder.writeData(getStringFromCursor(cursor, RuleDbAdapter.KEY_RULENAME));
+      encoder.writeData(getStringFromCursor(cursor, RuleDbAdapter.KEY_RULEDESC));
+      encoder.writeBoolean(getBooleanFromCursor(cursor, RuleDbAdapter.KEY_ENABLED));
+      encoder.writeBoolean(getBooleanFromCursor(cursor, RuleDbAdapter.KEY_NOTIFICATION));
+      encoder.writeInt(getIntFromCursor(cursor, RuleDbAdapter.KEY_PRIORITY));
+      encoder.writeBoolean(getBooleanFromCursor(cursor, RuleDbAdapter.KEY_EXCLUSIVE));
+      encoder.writeNames(eventNames.get(getLongFromCursor(cursor, RuleDbAdapter.KEY_EVENTID)));
+
+      writeFilters(encoder, filters, ruleID, ROOT_FILTER_ID);
+
+      List<DualKey<Long, Long>> ruleActions = get(actions, ruleID);
+      encoder.writeCount(ruleActions.size());
+      for (DualKey<Long, Long> ruleAction : ruleActions) {
+        encoder.writeNames(actionNames.get(ruleAction.getKey2()));
+        List<DualKey<Long, String>> ruleActionParameters = get(parameters, ruleAction.getKey1());
+        encoder.writeCount(ruleActionParameters.size());
+        for (DualKey<Long, String> parameter : ruleActionParameters) {
+          encoder.writeName(parameterNames.get(parameter.getKey1()));
+          encoder.writeData(parameter.getKey2());
+        }
+      }
+      count++;
+    }
+    cursor.close();
+    encoder.finish();
+    return count;
+  }
+
+  /**
+   * Write the children of a filter, and their children, in pre-order.
+   */
+  private void writeFilters(Encoder encoder, Map<DualKey<Long, Long>, List<ExportedFilter>> filters,
+      long ruleID, long parentID) throws IOException {
+    List<ExportedFilter> children = get(filters, new DualKey<Long, Long>(ruleID, parentID));
+    encoder.writeCount(children.size());
+    for (ExportedFilter filter : children) {
+      encoder.writeName(attributeNames.get(filter.attributeID));
+      encoder.writeNames(filterNames.get(filter.dataFilterID));
+      encoder.writeData(filter.data);
+      writeFilters(encoder, filters, ruleID, filter.id);
+    }
+  }
+
+  /**
+   * Import all rules from a stream in one transaction. Nothing is imported if any rule refers to an
+   * event, attribute, filter, action or parameter that is not registered in this database.
+   * 
+   * @param in
+   *          the stream to read from, left open
+   * @return number of rules imported
+   * @throws IOException
+   *           if reading fails, the stream is not a supported rule stream, it holds a record other
+   *           than a rule before its end, or a rule cannot be resolved against this database
+   */
+  public int importRules(InputStream in) throws IOException {
+    Decoder decoder = new Decoder(in);
+    int count = 0;
+    database.beginTransaction();
+    try {
+      int tag;
+      while ((tag = decoder.readTag()) != TAG_END) {
+        if (tag != TAG_RULE) {
+          throw new IOException("Corrupt rule stream: bad tag " + tag + ".");
+        }
+        importRule(decoder);
+        count++;
+      }
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+    return count;
+  }
+
+  /**
+   * Read one rule record and insert it.
+   * 
+   * @return id of the inserted rule
+   */
+  private long importRule(Decoder decoder) throws IOException {
+    String name = decoder.readData();
+    String description = decoder.readData();
+    boolean enabled = decoder.readBoolean();
+    boolean notification = decoder.readBoolean();
+    // Version 1 streams were written before rules had a priority
+    int priority = decoder.version >= 2 ? decoder.readInt() : 0;
+    boolean exclusive = decoder.version >= 2 ? decoder.readBoolean() : false;
+    DualKey<String, String> eventName = decoder.readNames();
+    Long eventID = resolve(eventIds, eventName, "event");
+
+    long ruleID = ruleDbAdapter.insert(eventID, name, description, enabled);
+    ruleDbAdapter.update(ruleID, null, null, null, null, notification);
+    ruleDbAdapter.updatePriority(ruleID, priority, exclusive);
+
+    readFilters(decoder, ruleID, eventID, ROOT_FILTER_ID);
+
+    int actionCount = decoder.readCount();
+    for (int i = 0; i < actionCount; i++) {
+      Long actionID = resolve(actionIds, decoder.readNames(), "action");
+      long ruleActionID = ruleActionDbAdapter.insert(ruleID, actionID);
+      int parameterCount = decoder.readCount();
+      for (int j = 0; j < parameterCount; j++) {
+        Long parameterID = resolve(parameterIds, new DualKey<Long, String>(actionID, decoder
+            .readName()), "action parameter");
+        ruleActionParameterDbAdapter.insert(ruleActionID, parameterID, decoder.readData());
+      }
+    }
+    return ruleID;
+  }
+
+  /**
+   * Read the children of a filter, and their children, and insert them.
+   */
+  private void readFilters(Decoder decoder, long ruleID, long eventID, long parentID)
+      throws IOException {
+    int count = decoder.readCount();
+    for (int i = 0; i < count; i++) {
+      String attributeName = decoder.readName();
+      Long attributeID = attributeIds.get(new DualKey<Long, String>(eventID, attributeName));
+      if (attributeID == null) {
+        attributeID = resolve(attributeIds, new DualKey<Long, String>(GLOBAL_ATTRIBUTE_EVENT_ID,
+            attributeName), "attribute");
+      }
+      Long dataFilterID = resolve(filterIds, new DualKey<Long, DualKey<String, String>>(
+          attributeDataTypes.get(attributeID), decoder.readNames()), "filter");
+      long ruleFilterID = ruleFilterDbAdapter.insert(ruleID, attributeID, -1L, dataFilterID,
+          parentID, decoder.readData());
+      readFilters(decoder, ruleID, eventID, ruleFilterID);
+    }
+  }
+
+  /**
+   * @return the id registered for key
+   * @throws IOException
+   *           if nothing is registered for key
+   */
+  private static <K> Long resolve(Map<K, Long> ids, K key, String kind) throws IOException {
+    Long id = ids.get(key);
+    if (id == null) {
+      throw new IOException("Unknown " + kind + " in rule stream: " + key);
+    }
+    return id;
+  }
+
+  private static <K, V> void add(Map<K, List<V>> map, K key, V value) {
+    List<V> values = map.get(key);
+    if (values == null) {
+      values = new ArrayList<V>();
+      map.put(key, values);
+    }
+    values.add(value);
+  }
+
+  private static <K, V> List<V> get(Map<K, List<V>> map, K key) {
+    List<V> values = map.get(key);
+    return values == null ? new ArrayList<V>(0) : values;
+  }
+
+  /**
+   * A rule filter row as needed for exporting.
+   */
+  private static class ExportedFilter {
+    private final long id;
+    private final long attributeID;
+    private final long dataFilterID;
+    private final String data;
+
+    ExportedFilter(long id, long attributeID, long dataFilterID, String data) {
+      this.id = id;
+      this.attributeID = attributeID;
+      this.dataFilterID = dataFilterID;
+      this.data = data;
+    }
+  }
+
+  /**
+   * Writes the primitives of a rule stream. Names are written in full the first time and as an
+   * index into the names written so far after that.
+   */
+  private static class Encoder {
+    private final DataOutputStream out;
+    private final HashMap<String, Integer> names = new HashMap<String, Integer>();
+
+    /**
+     * Create an encoder and write the stream header.
+     */
+    Encoder(OutputStream out) throws IOException {
+      this.out = new DataOutputStream(out);
+      this.out.writeInt(MAGIC);
+      this.out.writeShort(VERSION);
+    }
+
+    void writeTag(int tag) throws IOException {
+      out.writeByte(tag);
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+      out.writeBoolean(value);
+    }
+
+    void writeInt(int value) throws IOException {
+      out.writeInt(value);
+    }
+
+    void writeCount(int count) throws IOException {
+      writeVarInt(out, count);
+    }
+
+    void writeName(String name) throws IOException {
+      Integer index = names.get(name);
+      if (index != null) {
+        writeVarInt(out, index + 1);
+        return;
+      }
+      writeVarInt(out, 0);
+      writeData(name);
+      names.put(name, names.size());
+    }
+
+    void writeNames(DualKey<String, String> name) throws IOException {
+      writeName(name.getKey1());
+      writeName(name.getKey2());
+    }
+
+    void writeData(String data) throws IOException {
+      byte[] bytes = data.getBytes("UTF-8");
+      writeVarInt(out, bytes.length);
+      out.write(bytes);
+    }
+
+    /**
+     * Write the end tag and flush the stream.
+     */
+    void finish() throws IOException {
+      writeTag(TAG_END);
+      out.flush();
+    }
+  }
+
+  /**
+   * Reads the primitives of a rule stream.
+   */
+  private static class Decoder {
+    private final DataInputStream in;
+    private final ArrayList<String> names = new ArrayList<String>();
+    /** Version of the stream layout being read */
+    final int version;
+
+    /**
+     * Create a decoder and check the stream header.
+     * 
+     * @throws IOException
+     *           if the stream is not a rule stream of a supported version
+     */
+    Decoder(InputStream in) throws IOException {
+      this.in = new DataInputStream(in);
+      if (this.in.readInt() != MAGIC) {
+        throw new IOException("Not a rule stream.");
+      }
+      version = this.in.readShort();
+      if (version < 1 || version > VERSION) {
+        throw new IOException("Unsupported rule stream version " + version + ".");
+      }
+    }
+
+    int readTag() throws IOException {
+      return in.readUnsignedByte();
+    }
+
+    boolean readBoolean() throws IOException {
+      return in.readBoolean();
+    }
+
+    int readInt() throws IOException {
+      return in.readInt();
+    }
+
+    int readCount() throws IOException {
+      return readVarInt(in);
+    }
+
+    String readName() throws IOException {
+      int index = readVarInt(in);
+      if (index == 0) {
+        String name = readData();
+        names.add(name);
+        return name;
+      }
+      if (index > names.size()) {
+        throw new IOException("Corrupt rule stream: bad name index " + index + ".");
+      }
+      return names.get(index - 1);
+    }
+
+    DualKey<String, String> readNames() throws IOException {
+      return new DualKey<String, String>(readName(), readName());
+    }
+
+    String readData() throws IOException {
+      int length = readVarInt(in);
+      if (length > MAX_DATA_LENGTH) {
+        throw new IOException("Corrupt rule stream: bad length.");
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, "UTF-8");
+    }
+  }
+
+  /**
+   * Write a non negative int in 7 bit groups, low group first.
+   */
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  /**
+   * Read an int written by {@link #writeVarInt(DataOutputStream, int)}.
+   * 
+   * @throws IOException
+   *           if the value doesn't end within five bytes or is negative
+   */
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) {
+          break;
+        }
+        return value;
+      }
+    }
+    throw new IOException("Corrupt rule stream: bad length.");
+  }
+}
@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model;
+
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getColumnIndexes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.model.db.DataFilterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.DataTypeDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionParameterDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventAttributeDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventDbAdapter;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelAction;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelApplication;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelAttribute;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelEvent;
+import edu.nyu.cs.omnidroid.app.view.simple.model.ModelParameter;
+
+/**
+ * Process-wide cache of the registry tables the UI looks things up in. Each {@link Category} is
+ * read from the database the first time it is asked for and kept until it is invalidated, so
+ * opening a screen only loads what that screen uses and every {@link UIDbHelper} shares one copy.
+ * <p>
+ * The maps handed out are read-only snapshots. Whoever changes a registry table must call
+ * {@link #invalidate(Category)} so the next lookup reads it again; DbMigration and DbHelper
+ * invalidate everything when they rebuild or replace the database.
+ * </p>
+ */
+public class UIDbCache {
+
+  /**
+   * The registries that are cached and invalidated independently.
+   */
+  public enum Category {
+    DATA_TYPES, DATA_FILTERS, APPLICATIONS, EVENTS, GLOBAL_ATTRIBUTES, SPECIFIC_ATTRIBUTES,
+    ACTIONS
+  }
+
+  /* Maps RegisteredApps rows into ModelApplications */
+  private static final RowMapper<ModelApplication> APPLICATION_MAPPER =
+      new RowMapper<ModelApplication>(RegisteredAppDbAdapter.KEY_APPNAME,
+          RegisteredAppDbAdapter.KEY_APPID, RegisteredAppDbAdapter.KEY_LOGIN,
+          RegisteredAppDbAdapter.KEY_USERNAME, RegisteredAppDbAdapter.KEY_PASSWORD) {
+        @Override
+        public ModelApplication map(Cursor cursor, int[] columns) {
+          // TODO(ehotou) After implementing desc for app, load it here
+          return new ModelApplication(cursor.getString(columns[0]), "",
+              R.drawable.icon_application_unknown, cursor.getLong(columns[1]), getBoolean(cursor,
+                  columns[2]), cursor.getString(columns[3]), cursor.getString(columns[4]));
+        }
+      };
+
+  /* Maps RegisteredEvents rows into ModelEvents */
+  private static final RowMapper<ModelEvent> EVENT_MAPPER = new RowMapper<ModelEvent>(
+      RegisteredEventDbAdapter.KEY_EVENTID, RegisteredEventDbAdapter.KEY_EVENTNAME) {
+    @Override
+    public ModelEvent map(Cursor cursor, int[] columns) {
+      // TODO(ehotou) After implementing description for event, load it here
+      return new ModelEvent(cursor.getLong(columns[0]), cursor.getString(columns[1]), "",
+          R.drawable.icon_event_unknown);
+    }
+  };
+
+  /* Maps RegisteredEventAttributes rows into ModelAttributes */
+  private static final RowMapper<ModelAttribute> ATTRIBUTE_MAPPER =
+      new RowMapper<ModelAttribute>(RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTEID,
+          RegisteredEventAttributeDbAdapter.KEY_EVENTID,
+          RegisteredEventAttributeDbAdapter.KEY_DATATYPEID,
+          RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTENAME) {
+        @Override
+        public ModelAttribute map(Cursor cursor, int[] columns) {
+          // TODO(ehotou) After implementing desc for attribute, load it here
+          return new ModelAttribute(cursor.getLong(columns[0]), cursor.getLong(columns[1]), cursor
+              .getLong(columns[2]), cursor.getString(columns[3]), "",
+              R.drawable.icon_attribute_unknown);
+        }
+      };
+
+  /* Maps RegisteredActionParameters rows into ModelParameters */
+  private static final RowMapper<ModelParameter> PARAMETER_MAPPER =
+      new RowMapper<ModelParameter>(RegisteredActionParameterDbAdapter.KEY_ACTIONPARAMETERID,
+          RegisteredActionParameterDbAdapter.KEY_ACTIONID,
+          RegisteredActionParameterDbAdapter.KEY_DATATYPEID,
+          RegisteredActionParameterDbAdapter.KEY_ACTIONPARAMETERNAME) {
+        @Override
+        public ModelParameter map(Cursor cursor, int[] columns) {
+          // TODO(ehotou) After implementing desc for parameter, load it here
+          return new ModelParameter(cursor.getLong(columns[0]), cursor.getLong(columns[1]), cursor
+              .getLong(columns[2]), cursor.getString(columns[3]), "");
+        }
+      };
+
+  // Loaded registries, null until first asked for or after being invalidated
+  private static Map<Long, String> dataTypeClassNames;
+  private static Map<Long, String> dataFilterNames;
+  private static Map<Long, ModelApplication> applications;
+  private static Map<Long, ModelEvent> events;
+  private static Map<Long, ModelAttribute> globalAttributes;
+  private static Map<Long, ModelAttribute> specificAttributes;
+  private static Map<Long, ModelAction> actions;
+
+  /**
+   * This class does not need to be instantiated.
+   */
+  private UIDbCache() {
+  }
+
+  /**
+   * Drop a cached registry so the next lookup reads it from the database again. Actions hold their
+   * application, so invalidating {@link Category#APPLICATIONS} also invalidates
+   * {@link Category#ACTIONS}.
+   * 
+   * @param category
+   *          the registry that changed
+   */
+  public static synchronized void invalidate(Category category) {
+    switch (category) {
+    case DATA_TYPES:
+      dataTypeClassNames = null;
+      break;
+    case DATA_FILTERS:
+      dataFilterNames = null;
+      break;
+    case APPLICATIONS:
+      applications = null;
+      actions = null;
+      break;
+    case EVENTS:
+      events = null;
+      break;
+    case GLOBAL_ATTRIBUTES:
+      globalAttributes = null;
+      break;
+    case SPECIFIC_ATTRIBUTES:
+      specificAttributes = null;
+      break;
+    case ACTIONS:
+      actions = null;
+      break;
+    }
+  }
+
+  /**
+   * Drop every cached registry.
+   */
+  public static synchronized void invalidateAll() {
+    for (Category category : Category.values()) {
+      invalidate(category);
+    }
+  }
+
+  /**
+   * @return whether category is currently loaded
+   */
+  public static synchronized boolean isLoaded(Category category) {
+    switch (category) {
+    case DATA_TYPES:
+      return dataTypeClassNames != null;
+    case DATA_FILTERS:
+      return dataFilterNames != null;
+    case APPLICATIONS:
+      return applications != null;
+    case EVENTS:
+      return events != null;
+    case GLOBAL_ATTRIBUTES:
+      return globalAttributes != null;
+    case SPECIFIC_ATTRIBUTES:
+      return specificAttributes != null;
+    default:
+      return actions != null;
+    }
+  }
+
+  /**
+   * @return data type class names keyed by data type id
+   */
+  public static synchronized Map<Long, String> getDataTypeClassNames(SQLiteDatabase db) {
+    if (dataTypeClassNames == null) {
+      Map<Long, String> classNames = new HashMap<Long, String>();
+      Cursor cursor = new DataTypeDbAdapter(db).fetchAll();
+      int[] columns = getColumnIndexes(cursor, DataTypeDbAdapter.KEY_DATATYPEID,
+          DataTypeDbAdapter.KEY_DATATYPECLASSNAME);
+      while (cursor.moveToNext()) {
+        classNames.put(cursor.getLong(columns[0]), cursor.getString(columns[1]));
+      }
+      cursor.close();
+      dataTypeClassNames = Collections.unmodifiableMap(classNames);
+    }
+    return dataTypeClassNames;
+  }
+
+  /**
+   * @return data filter display names keyed by data filter id
+   */
+  public static synchronized Map<Long, String> getDataFilterNames(SQLiteDatabase db) {
+    if (dataFilterNames == null) {
+      Map<Long, String> names = new HashMap<Long, String>();
+      Cursor cursor = new DataFilterDbAdapter(db).fetchAll();
+      int[] columns = getColumnIndexes(cursor, DataFilterDbAdapter.KEY_DATAFILTERID,
+          DataFilterDbAdapter.KEY_DATAFILTERDISPLAYNAME);
+      while (cursor.moveToNext()) {
+        names.put(cursor.getLong(columns[0]), cursor.getString(columns[1]));
+      }
+      cursor.close();
+      dataFilterNames = Collections.unmodifiableMap(names);
+    }
+    return dataFilterNames;
+  }
+
+  /**
+   * @return registered applications keyed by application id
+   */
+  public static synchronized Map<Long, ModelApplication> getApplications(SQLiteDatabase db) {
+    if (applications == null) {
+      Map<Long, ModelApplication> loaded = new HashMap<Long, ModelApplication>();
+      Cursor cursor = new RegisteredAppDbAdapter(db).fetchAll();
+      for (ModelApplication application : APPLICATION_MAPPER.mapAll(cursor)) {
+        loaded.put(application.getDatabaseId(), application);
+      }
+      cursor.close();
+      applications = Collections.unmodifiableMap(loaded);
+    }
+    return applications;
+  }
+
+  /**
+   * @return registered events keyed by event id, iterating in alphabetical order
+   */
+  public static synchronized Map<Long, ModelEvent> getEvents(SQLiteDatabase db) {
+    if (events == null) {
+      Map<Long, ModelEvent> loaded = new LinkedHashMap<Long, ModelEvent>();
+      Cursor cursor = new RegisteredEventDbAdapter(db).fetchAllOrdered();
+      for (ModelEvent event : EVENT_MAPPER.mapAll(cursor)) {
+        loaded.put(event.getDatabaseId(), event);
+      }
+      cursor.close();
+      events = Collections.unmodifiableMap(loaded);
+    }
+    return events;
+  }
+
+  /**
+   * @return attributes shared by all events keyed by attribute id
+   */
+  public static synchronized Map<Long, ModelAttribute> getGlobalAttributes(SQLiteDatabase db) {
+    if (globalAttributes == null) {
+      Cursor cursor = new RegisteredEventAttributeDbAdapter(db).fetchAllGlobalAttributes();
+      globalAttributes = mapAttributes(cursor);
+    }
+    return globalAttributes;
+  }
+
+  /**
+   * @return attributes that belong to a single event keyed by attribute id
+   */
+  public static synchronized Map<Long, ModelAttribute> getSpecificAttributes(SQLiteDatabase db) {
+    if (specificAttributes == null) {
+      Cursor cursor = new RegisteredEventAttributeDbAdapter(db).fetchAllSpecificAttibutes();
+      specificAttributes = mapAttributes(cursor);
+    }
+    return specificAttributes;
+  }
+
+  private static Map<Long, ModelAttribute> mapAttributes(Cursor cursor) {
+    Map<Long, ModelAttribute> loaded = new HashMap<Long, ModelAttribute>();
+    for (ModelAttribute attribute : ATTRIBUTE_MAPPER.mapAll(cursor)) {
+      loaded.put(attribute.getDatabaseId(), attribute);
+    }
+    cursor.close();
+    return Collections.unmodifiableMap(loaded);
+  }
+
+  /**
+   * @return registered actions, with their application and parameters, keyed by action id
+   */
+  public static synchronized Map<Long, ModelAction> getActions(SQLiteDatabase db) {
+    if (actions == null) {
+      Map<Long, ModelApplication> applications = getApplications(db);
+
+      // Load Action Parameters, grouped by action in the order they were registered
+      HashMap<Long, ArrayList<ModelParameter>> actionParameters =
+          new HashMap<Long, ArrayList<ModelParameter>>();
+      Cursor cursor = new RegisteredActionParameterDbAdapter(db).fetchAll();
+      for (ModelParameter parameter : PARAMETER_MAPPER.mapAll(cursor)) {
+        ArrayList<ModelParameter> parameterList = actionParameters.get(parameter
+            .getForeignKeyActionId());
+        if (parameterList == null) {
+          parameterList = new ArrayList<ModelParameter>();
+          actionParameters.put(parameter.getForeignKeyActionId(), parameterList);
+        }
+        parameterList.add(parameter);
+      }
+      cursor.close();
+
+      Map<Long, ModelAction> loaded = new HashMap<Long, ModelAction>();
+      cursor = new RegisteredActionDbAdapter(db).fetchAll();
+      int[] columns = getColumnIndexes(cursor, RegisteredActionDbAdapter.KEY_ACTIONID,
+          RegisteredActionDbAdapter.KEY_ACTIONNAME, RegisteredActionDbAdapter.KEY_APPID);
+      while (cursor.moveToNext()) {
+        long actionID = cursor.getLong(columns[0]);
+        ModelApplication application = applications.get(cursor.getLong(columns[2]));
+
+        ArrayList<ModelParameter> parameterList = actionParameters.get(actionID);
+        if (parameterList == null) {
+          parameterList = new ArrayList<ModelParameter>();
+        }
+
+        ModelAction action = new ModelAction(cursor.getString(columns[1]), "", // TODO(ehotou)
+            // After implementing desc for action, load it here
+            R.drawable.icon_action_unknown, actionID, application, parameterList);
+        loaded.put(actionID, action);
+      }
+      cursor.close();
+      actions = Collections.unmodifiableMap(loaded);
+    }
+    return actions;
+  }
+}
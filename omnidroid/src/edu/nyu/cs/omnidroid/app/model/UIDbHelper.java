@@ -16,15 +16,19 @@
 package edu.nyu.cs.omnidroid.app.model;
 
 import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getBooleanFromCursor;
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getColumnIndexes;
+import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getIntFromCursor;
 import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
 import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getStringFromCursor;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -36,18 +40,16 @@ import android.util.Log;
 import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.datatypes.DataType;
 import edu.nyu.cs.omnidroid.app.controller.datatypes.FactoryDataType;
+import edu.nyu.cs.omnidroid.app.controller.external.attributes.EventMonitoringService;
 import edu.nyu.cs.omnidroid.app.model.db.DataFilterDbAdapter;
-import edu.nyu.cs.omnidroid.app.model.db.DataTypeDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.DbHelper;
 import edu.nyu.cs.omnidroid.app.model.db.LogActionDbAdapter;
-import edu.nyu.cs.omnidroid.app.model.db.LogDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogDbHelper;
 import edu.nyu.cs.omnidroid.app.model.db.LogGeneralDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.LogEventDbAdapter;
+import edu.nyu.cs.omnidroid.app.model.db.LogSearchDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionDbAdapter;
-import edu.nyu.cs.omnidroid.app.model.db.RegisteredActionParameterDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RegisteredAppDbAdapter;
-import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventAttributeDbAdapter;
-import edu.nyu.cs.omnidroid.app.model.db.RegisteredEventDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RuleActionDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RuleActionParameterDbAdapter;
 import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
@@ -73,18 +75,19 @@ import edu.nyu.cs.omnidroid.app.view.simple.model.RuleNode;
 public class UIDbHelper {
   private static final String TAG = UIDbHelper.class.getSimpleName();
 
+  // Most rule ids written into one delete statement
+  private static final int DELETE_CHUNK_SIZE = 500;
+
   // Database management
   private DbHelper dbHelper;
   private SQLiteDatabase database;
+  private LogDbHelper logDbHelper;
+  private SQLiteDatabase logDatabase;
 
   // Database Adapters
-  private DataTypeDbAdapter dataTypeDbAdapter;
   private DataFilterDbAdapter dataFilterDbAdapter;
   private RegisteredAppDbAdapter registeredAppDbAdapter;
-  private RegisteredEventDbAdapter registeredEventDbAdapter;
   private RegisteredActionDbAdapter registeredActionDbAdapter;
-  private RegisteredEventAttributeDbAdapter registeredEventAttributeDbAdapter;
-  private RegisteredActionParameterDbAdapter registeredActionParameterDbAdapter;
   private RuleFilterDbAdapter ruleFilterDbAdapter;
   private RuleActionDbAdapter ruleActionDbAdapter;
   private RuleActionParameterDbAdapter ruleActionParameterDbAdapter;
@@ -92,17 +95,7 @@ public class UIDbHelper {
   private LogEventDbAdapter logEventDbAdapter;
   private LogActionDbAdapter logActionDbAdapter;
   private LogGeneralDbAdapter logGeneralDbAdapter;
-
-  // Hash maps for storing cached data for quick lookup
-  private Map<Long, String> dataTypeNames;
-  private Map<Long, String> dataTypeClassNames;
-  private Map<Long, String> dataFilterNames;
-  private Map<Long, ModelApplication> applications;
-  private Map<Long, ModelEvent> events;
-  private Map<Long, ModelAction> actions;
-  private Map<Long, ModelAttribute> globalAttributes;
-  private Map<Long, ModelAttribute> specificAttributes;
-  private Map<Long, ModelParameter> parameters;
+  private LogSearchDbAdapter logSearchDbAdapter;
 
   // Get user configured settings
   private SharedPreferences settings;
@@ -110,46 +103,42 @@ public class UIDbHelper {
   // This flag marks whether this helper is closed
   private boolean isClosed = false;
 
+  private Context context;
+
   /**
    * Reset the db, drop all necessary table, and recreate them and repopulate them again
    */
   public void resetDB() {
     dbHelper.cleanup(database);
+    logDbHelper.cleanup(logDatabase);
+    rulesChanged();
   }
 
   public UIDbHelper(Context context) {
+    this.context = context;
     dbHelper = new DbHelper(context);
+
+    // The UI edits rules and clears logs, so it works on the shared writers. The logs have a
+    // database of their own, so listing rules doesn't queue behind the services' log writes.
     database = dbHelper.getWritableDatabase();
+    logDbHelper = new LogDbHelper(context);
+    logDatabase = logDbHelper.getWritableDatabase();
 
     // Initialize db adapters
-    dataTypeDbAdapter = new DataTypeDbAdapter(database);
     dataFilterDbAdapter = new DataFilterDbAdapter(database);
     registeredAppDbAdapter = new RegisteredAppDbAdapter(database);
-    registeredEventDbAdapter = new RegisteredEventDbAdapter(database);
     registeredActionDbAdapter = new RegisteredActionDbAdapter(database);
-    registeredEventAttributeDbAdapter = new RegisteredEventAttributeDbAdapter(database);
-    registeredActionParameterDbAdapter = new RegisteredActionParameterDbAdapter(database);
     ruleFilterDbAdapter = new RuleFilterDbAdapter(database);
     ruleActionDbAdapter = new RuleActionDbAdapter(database);
     ruleActionParameterDbAdapter = new RuleActionParameterDbAdapter(database);
     ruleDbAdapter = new RuleDbAdapter(database);
-    logEventDbAdapter = new LogEventDbAdapter(database);
-    logActionDbAdapter = new LogActionDbAdapter(database);
-    logGeneralDbAdapter = new LogGeneralDbAdapter(database);
-
-    // Initialize db cache
-    dataTypeNames = new HashMap<Long, String>();
-    dataTypeClassNames = new HashMap<Long, String>();
-    dataFilterNames = new HashMap<Long, String>();
-    applications = new HashMap<Long, ModelApplication>();
-    events = new LinkedHashMap<Long, ModelEvent>();
-    actions = new HashMap<Long, ModelAction>();
-    globalAttributes = new HashMap<Long, ModelAttribute>();
-    specificAttributes = new HashMap<Long, ModelAttribute>();
-    parameters = new HashMap<Long, ModelParameter>();
-
-    // Load db cache maps
-    loadDbCache();
+    logEventDbAdapter = new LogEventDbAdapter(logDatabase);
+    logActionDbAdapter = new LogActionDbAdapter(logDatabase);
+    logGeneralDbAdapter = new LogGeneralDbAdapter(logDatabase);
+    logSearchDbAdapter = new LogSearchDbAdapter(logDatabase);
+
+    // Load Preferences. Registries are loaded on first use through UIDbCache.
+    settings = dbHelper.getSharedPreferences();
   }
 
   /**
@@ -159,133 +148,7 @@ public class UIDbHelper {
   public void close() {
     isClosed = true;
     dbHelper.close();
-    database.close();
-  }
-
-  /**
-   * Load cached data into hash maps
-   */
-  private void loadDbCache() {
-
-    // TODO(ehotou) Consider lazy initialization for some of these stuff.
-
-    // Load Preferences
-    settings = dbHelper.getSharedPreferences();
-
-    // Load DataTypes
-    Cursor cursor = dataTypeDbAdapter.fetchAll();
-    while (cursor.moveToNext()) {
-      dataTypeNames.put(getLongFromCursor(cursor, DataTypeDbAdapter.KEY_DATATYPEID),
-          getStringFromCursor(cursor, DataTypeDbAdapter.KEY_DATATYPENAME));
-      dataTypeClassNames.put(getLongFromCursor(cursor, DataTypeDbAdapter.KEY_DATATYPEID),
-          getStringFromCursor(cursor, DataTypeDbAdapter.KEY_DATATYPECLASSNAME));
-    }
-    cursor.close();
-
-    // Load Filters
-    cursor = dataFilterDbAdapter.fetchAll();
-    while (cursor.moveToNext()) {
-
-      dataFilterNames.put(getLongFromCursor(cursor, DataFilterDbAdapter.KEY_DATAFILTERID),
-          getStringFromCursor(cursor, DataFilterDbAdapter.KEY_DATAFILTERDISPLAYNAME));
-    }
-    cursor.close();
-
-    // Load Applications
-    cursor = registeredAppDbAdapter.fetchAll();
-    while (cursor.moveToNext()) {
-      ModelApplication application = new ModelApplication(getStringFromCursor(cursor,
-          RegisteredAppDbAdapter.KEY_APPNAME), "", // TODO(ehotou) After implementing desc for app,
-          // load it here
-          R.drawable.icon_application_unknown, getLongFromCursor(cursor,
-              RegisteredAppDbAdapter.KEY_APPID), getBooleanFromCursor(cursor,
-              RegisteredAppDbAdapter.KEY_LOGIN), getStringFromCursor(cursor,
-              RegisteredAppDbAdapter.KEY_USERNAME), getStringFromCursor(cursor,
-              RegisteredAppDbAdapter.KEY_PASSWORD));
-      applications.put(application.getDatabaseId(), application);
-    }
-    cursor.close();
-
-    // Load Events in alphabetical order
-    cursor = registeredEventDbAdapter.fetchAllOrdered();
-    while (cursor.moveToNext()) {
-      ModelEvent event = new ModelEvent(getLongFromCursor(cursor,
-          RegisteredEventDbAdapter.KEY_EVENTID), getStringFromCursor(cursor,
-          RegisteredEventDbAdapter.KEY_EVENTNAME), "", // TODO(ehotou) After implementing
-          // description for event, load it here
-          R.drawable.icon_event_unknown);
-      events.put(event.getDatabaseId(), event);
-    }
-    cursor.close();
-
-    // Load Event Attributes
-    cursor = registeredEventAttributeDbAdapter.fetchAllGlobalAttributes();
-    while (cursor.moveToNext()) {
-      ModelAttribute attribute = new ModelAttribute(getLongFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTEID), getLongFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_EVENTID), getLongFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_DATATYPEID), getStringFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTENAME), "", // TODO(ehotou) After
-          // implementing desc for attribute, load it here
-          R.drawable.icon_attribute_unknown);
-
-      globalAttributes.put(attribute.getDatabaseId(), attribute);
-    }
-    cursor.close();
-
-    cursor = registeredEventAttributeDbAdapter.fetchAllSpecificAttibutes();
-    while (cursor.moveToNext()) {
-      ModelAttribute attribute = new ModelAttribute(getLongFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTEID), getLongFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_EVENTID), getLongFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_DATATYPEID), getStringFromCursor(cursor,
-          RegisteredEventAttributeDbAdapter.KEY_EVENTATTRIBUTENAME), "", // TODO(ehotou) After
-          // implementing desc for attribute, load it here
-          R.drawable.icon_attribute_unknown);
-
-      specificAttributes.put(attribute.getDatabaseId(), attribute);
-    }
-    cursor.close();
-
-    // Load Action Parameters
-    cursor = registeredActionParameterDbAdapter.fetchAll();
-    while (cursor.moveToNext()) {
-      ModelParameter parameter = new ModelParameter(getLongFromCursor(cursor,
-          RegisteredActionParameterDbAdapter.KEY_ACTIONPARAMETERID), getLongFromCursor(cursor,
-          RegisteredActionParameterDbAdapter.KEY_ACTIONID), getLongFromCursor(cursor,
-          RegisteredActionParameterDbAdapter.KEY_DATATYPEID), getStringFromCursor(cursor,
-          RegisteredActionParameterDbAdapter.KEY_ACTIONPARAMETERNAME), "" // TODO(ehotou) After
-      // implementing desc for parameter, load it here
-      );
-
-      parameters.put(parameter.getDatabaseId(), parameter);
-    }
-    cursor.close();
-
-    // Load Actions
-    cursor = registeredActionDbAdapter.fetchAll();
-    while (cursor.moveToNext()) {
-      ModelApplication application = applications.get(getLongFromCursor(cursor,
-          RegisteredActionDbAdapter.KEY_APPID));
-
-      long actionID = getLongFromCursor(cursor, RegisteredActionDbAdapter.KEY_ACTIONID);
-
-      // Load parameters for each action
-      ArrayList<ModelParameter> parameterList = new ArrayList<ModelParameter>();
-      for (ModelParameter parameter : parameters.values()) {
-        if (parameter.getForeignKeyActionId() == actionID) {
-          parameterList.add(parameter);
-        }
-      }
-
-      ModelAction action = new ModelAction(getStringFromCursor(cursor,
-          RegisteredActionDbAdapter.KEY_ACTIONNAME), "", // TODO(ehotou) After implementing desc for
-          // action, load it here
-          R.drawable.icon_action_unknown, actionID, application, parameterList);
-
-      actions.put(actionID, action);
-    }
-    cursor.close();
+    logDbHelper.close();
   }
 
   /**
@@ -300,7 +163,7 @@ public class UIDbHelper {
    * @return a dataType object
    */
   private DataType getDataType(long dataTypeID, String data) {
-    String dataTypeClassName = dataTypeClassNames.get(dataTypeID);
+    String dataTypeClassName = UIDbCache.getDataTypeClassNames(database).get(dataTypeID);
     return FactoryDataType.createObject(dataTypeClassName, data);
   }
 
@@ -313,6 +176,7 @@ public class UIDbHelper {
     if (isClosed) {
       throw new IllegalStateException(TAG + " is closed.");
     }
+    Map<Long, ModelApplication> applications = UIDbCache.getApplications(database);
     ArrayList<ModelApplication> applicationList = new ArrayList<ModelApplication>(applications
         .size());
     applicationList.addAll(applications.values());
@@ -332,8 +196,10 @@ public class UIDbHelper {
     if (isClosed) {
       throw new IllegalStateException(TAG + " is closed.");
     }
-    return registeredAppDbAdapter.update(modelApp.getDatabaseId(), null, null, null, null, modelApp
-        .getUsername(), modelApp.getPassword());
+    boolean updated = registeredAppDbAdapter.update(modelApp.getDatabaseId(), null, null, null,
+        null, modelApp.getUsername(), modelApp.getPassword());
+    UIDbCache.invalidate(UIDbCache.Category.APPLICATIONS);
+    return updated;
   }
 
   /**
@@ -349,7 +215,10 @@ public class UIDbHelper {
     if (isClosed) {
       throw new IllegalStateException(TAG + " is closed.");
     }
-    return registeredAppDbAdapter.update(modelApp.getDatabaseId(), null, null, null, null, "", "");
+    boolean updated = registeredAppDbAdapter.update(modelApp.getDatabaseId(), null, null, null,
+        null, "", "");
+    UIDbCache.invalidate(UIDbCache.Category.APPLICATIONS);
+    return updated;
   }
 
   /**
@@ -385,6 +254,7 @@ public class UIDbHelper {
     if (isClosed) {
       throw new IllegalStateException(TAG + " is closed.");
     }
+    Map<Long, ModelEvent> events = UIDbCache.getEvents(database);
     ArrayList<ModelEvent> eventList = new ArrayList<ModelEvent>(events.size());
     eventList.addAll(events.values());
     return eventList;
@@ -402,6 +272,7 @@ public class UIDbHelper {
     if (isClosed) {
       throw new IllegalStateException(TAG + " is closed.");
     }
+    Map<Long, ModelAction> actions = UIDbCache.getActions(database);
     ArrayList<ModelAction> actionList = new ArrayList<ModelAction>(actions.size());
     for (ModelAction action : actions.values()) {
       if (action.getApplication().getDatabaseId() == application.getDatabaseId()) {
@@ -424,6 +295,8 @@ public class UIDbHelper {
       throw new IllegalStateException(TAG + " is closed.");
     }
 
+    Map<Long, ModelAttribute> globalAttributes = UIDbCache.getGlobalAttributes(database);
+    Map<Long, ModelAttribute> specificAttributes = UIDbCache.getSpecificAttributes(database);
     List<ModelAttribute> attributesList = new ArrayList<ModelAttribute>(specificAttributes.size());
 
     attributesList.addAll(globalAttributes.values());
@@ -473,6 +346,7 @@ public class UIDbHelper {
     // set compareWithDatatypeID to null
     Cursor cursor = dataFilterDbAdapter.fetchAll(null, null, attribute.getDatatype(), null);
     ArrayList<ModelFilter> filterList = new ArrayList<ModelFilter>(cursor.getCount());
+    Map<Long, String> dataFilterNames = UIDbCache.getDataFilterNames(database);
 
     while (cursor.moveToNext()) {
       long filterID = getLongFromCursor(cursor, DataFilterDbAdapter.KEY_DATAFILTERID);
@@ -524,7 +398,8 @@ public class UIDbHelper {
     Rule rule = loadRuleSparse(cursorRule);
 
     // Fetch and set the root event.
-    ModelEvent event = events.get(getLongFromCursor(cursorRule, RuleDbAdapter.KEY_EVENTID));
+    ModelEvent event = UIDbCache.getEvents(database).get(getLongFromCursor(cursorRule,
+        RuleDbAdapter.KEY_EVENTID));
     rule.setRootEvent(event);
     Log.d("UIDbhelper", "rule name: " + rule.getName());
     // Add all filters for this rule to the root node in a tree format.
@@ -550,6 +425,8 @@ public class UIDbHelper {
     rule.setDescription(getStringFromCursor(cursorRule, RuleDbAdapter.KEY_RULEDESC));
     rule.setIsEnabled(getBooleanFromCursor(cursorRule, RuleDbAdapter.KEY_ENABLED));
     rule.setNotification(getBooleanFromCursor(cursorRule, RuleDbAdapter.KEY_NOTIFICATION));
+    rule.setPriority(getIntFromCursor(cursorRule, RuleDbAdapter.KEY_PRIORITY));
+    rule.setExclusive(getBooleanFromCursor(cursorRule, RuleDbAdapter.KEY_EXCLUSIVE));
     return rule;
   }
 
@@ -573,6 +450,10 @@ public class UIDbHelper {
     // All filters keyed by filterId for quick lookup below.
     HashMap<Long, ModelRuleFilter> filtersUnlinked = new HashMap<Long, ModelRuleFilter>();
 
+    Map<Long, ModelAttribute> globalAttributes = UIDbCache.getGlobalAttributes(database);
+    Map<Long, ModelAttribute> specificAttributes = UIDbCache.getSpecificAttributes(database);
+    Map<Long, String> dataFilterNames = UIDbCache.getDataFilterNames(database);
+
     // Fetch all ruleFilter associated with this rule, set other parameters to be null
     Cursor cursorRuleFilters = ruleFilterDbAdapter.fetchAll(ruleId, null, null, null, null, null);
 
@@ -665,6 +546,7 @@ public class UIDbHelper {
 
     ArrayList<ModelRuleAction> ruleActionList = new ArrayList<ModelRuleAction>(cursorRuleActions
         .getCount());
+    Map<Long, ModelAction> actions = UIDbCache.getActions(database);
 
     while (cursorRuleActions.moveToNext()) {
 
@@ -714,18 +596,67 @@ public class UIDbHelper {
    *           if this helper is closed
    */
   public long saveRule(Rule rule) throws Exception {
+    return saveRules(Collections.singletonList(rule)).get(0);
+  }
+
+  /**
+   * Save a set of rules to the database in one transaction, either all of them are saved or none
+   * is. A rule that already has a database id replaces its old records.
+   * 
+   * @return ids of the saved rule records, in the order of the rules
+   * 
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public List<Long> saveRules(List<? extends Rule> rules) throws Exception {
     if (isClosed) {
       throw new IllegalStateException(TAG + " is closed.");
     }
 
-    ModelEvent event = (ModelEvent) rule.getRootNode().getItem();
-    ArrayList<RuleNode> ruleFilterList = rule.getFilterBranches();
-    ArrayList<ModelRuleAction> ruleActionList = rule.getActions();
+    ArrayList<Long> ruleIDs = new ArrayList<Long>(rules.size());
+    database.beginTransaction();
+    try {
+      // Rules are saved as new records, keep the evaluation order of the ones they replace
+      ArrayList<Long> replacedIDs = new ArrayList<Long>();
+      HashMap<Long, Integer> priorities = new HashMap<Long, Integer>();
+      HashMap<Long, Boolean> exclusives = new HashMap<Long, Boolean>();
+      for (Rule rule : rules) {
+        if (rule.getDatabaseId() > 0) {
+          Cursor cursor = ruleDbAdapter.fetch(rule.getDatabaseId());
+          if (cursor.getCount() > 0) {
+            priorities.put(rule.getDatabaseId(), getIntFromCursor(cursor,
+                RuleDbAdapter.KEY_PRIORITY));
+            exclusives.put(rule.getDatabaseId(), getBooleanFromCursor(cursor,
+                RuleDbAdapter.KEY_EXCLUSIVE));
+          }
+          cursor.close();
+          replacedIDs.add(rule.getDatabaseId());
+        }
+      }
+      deleteRuleRecords(replacedIDs);
 
-    if (rule.getDatabaseId() > 0) {
-      deleteRule(rule.getDatabaseId());
+      for (Rule rule : rules) {
+        long ruleID = insertRule(rule);
+        ruleDbAdapter.updatePriority(ruleID, priorities.get(rule.getDatabaseId()), exclusives
+            .get(rule.getDatabaseId()));
+        ruleIDs.add(ruleID);
+      }
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
     }
 
+    rulesChanged();
+    return ruleIDs;
+  }
+
+  /**
+   * Insert the records of one rule.
+   * 
+   * @return id of the new rule record
+   */
+  private long insertRule(Rule rule) {
+    ModelEvent event = (ModelEvent) rule.getRootNode().getItem();
     String ruleName = rule.getName();
     String ruleDesc = rule.getDescription();
     long ruleID = ruleDbAdapter.insert(event.getDatabaseId(), ruleName == null
@@ -733,7 +664,7 @@ public class UIDbHelper {
         || ruleDesc.length() == 0 ? "" : ruleDesc, rule.getIsEnabled());
 
     // Create all ruleAction records
-    for (ModelRuleAction ruleAction : ruleActionList) {
+    for (ModelRuleAction ruleAction : rule.getActions()) {
 
       long ruleActionID = ruleActionDbAdapter.insert(ruleID, ruleAction.getModelAction()
           .getDatabaseId());
@@ -747,10 +678,9 @@ public class UIDbHelper {
     }
 
     // Save all rule filters
-    for (RuleNode filterNode : ruleFilterList) {
+    for (RuleNode filterNode : rule.getFilterBranches()) {
       saveFilterRuleNode(ruleID, -1, filterNode);
     }
-
     return ruleID;
   }
 
@@ -783,39 +713,7 @@ public class UIDbHelper {
    *          is id of the rule to be delete
    */
   public void deleteRule(long ruleID) {
-    if (isClosed) {
-      throw new IllegalStateException(TAG + " is closed.");
-    }
-
-    ruleDbAdapter.delete(ruleID);
-
-    // Delete all rule actions from database
-    Cursor cursorRuleAction = ruleActionDbAdapter.fetchAll(ruleID, null);
-    while (cursorRuleAction.moveToNext()) {
-
-      long ruleActionID = getLongFromCursor(cursorRuleAction, RuleActionDbAdapter.KEY_RULEACTIONID);
-      ruleActionDbAdapter.delete(ruleActionID);
-
-      // Delete all rule parameters of this rule action
-      Cursor cursorRuleActionParameter = ruleActionParameterDbAdapter.fetchAll(ruleActionID, null,
-          null);
-      while (cursorRuleActionParameter.moveToNext()) {
-        long ruleActionParameterID = getLongFromCursor(cursorRuleActionParameter,
-            RuleActionParameterDbAdapter.KEY_RULEACTIONPARAMETERID);
-        ruleActionParameterDbAdapter.delete(ruleActionParameterID);
-      }
-      cursorRuleActionParameter.close();
-
-    }
-    cursorRuleAction.close();
-
-    // Delete all rule filters from database
-    Cursor cursorFilter = ruleFilterDbAdapter.fetchAll(ruleID, null, null, null, null, null);
-    while (cursorFilter.moveToNext()) {
-      long ruleFilterID = getLongFromCursor(cursorFilter, RuleFilterDbAdapter.KEY_RULEFILTERID);
-      ruleFilterDbAdapter.delete(ruleFilterID);
-    }
-    cursorFilter.close();
+    deleteRuleIDs(Collections.singletonList(ruleID));
   }
 
   /**
@@ -825,8 +723,45 @@ public class UIDbHelper {
    *          is the set of Rules to be deleted
    */
   public void deleteRules(List<? extends Rule> rules) {
+    ArrayList<Long> ruleIDs = new ArrayList<Long>(rules.size());
     for (Rule rule : rules) {
-      deleteRule(rule.getDatabaseId());
+      ruleIDs.add(rule.getDatabaseId());
+    }
+    deleteRuleIDs(ruleIDs);
+  }
+
+  /**
+   * Delete a set of rules in one transaction.
+   * 
+   * @param ruleIDs
+   *          are ids of the rules to be deleted
+   */
+  private void deleteRuleIDs(List<Long> ruleIDs) {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+    database.beginTransaction();
+    try {
+      deleteRuleRecords(ruleIDs);
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+    rulesChanged();
+  }
+
+  /**
+   * Delete the records of a set of rules with one statement per table, without notifying anyone.
+   * The rule ids are written into the statements, so very large sets are deleted in chunks.
+   */
+  private void deleteRuleRecords(List<Long> ruleIDs) {
+    for (int from = 0; from < ruleIDs.size(); from += DELETE_CHUNK_SIZE) {
+      List<Long> chunk = ruleIDs.subList(from, Math.min(from + DELETE_CHUNK_SIZE, ruleIDs.size()));
+      // Parameters are found through their rule actions, so delete them first
+      ruleActionParameterDbAdapter.deleteByRules(chunk);
+      ruleActionDbAdapter.deleteByRules(chunk);
+      ruleFilterDbAdapter.deleteByRules(chunk);
+      ruleDbAdapter.deleteRules(chunk);
     }
   }
 
@@ -834,7 +769,20 @@ public class UIDbHelper {
    * Delete all rules
    */
   public void deleteAllRules() {
-    deleteRules(getRules());
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+    database.beginTransaction();
+    try {
+      ruleActionParameterDbAdapter.deleteAll();
+      ruleActionDbAdapter.deleteAll();
+      ruleFilterDbAdapter.deleteAll();
+      ruleDbAdapter.deleteAll();
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+    rulesChanged();
   }
 
   /**
@@ -848,6 +796,14 @@ public class UIDbHelper {
    */
   public void setRuleEnabled(long ruleID, boolean enabled) {
     ruleDbAdapter.update(ruleID, null, null, null, enabled, null);
+    rulesChanged();
+  }
+
+  /**
+   * Let the event monitors know the set of enabled rules changed, so they only run when needed.
+   */
+  private void rulesChanged() {
+    EventMonitoringService.updateSubscriptions(context);
   }
 
   public List<ModelLog> getEventLogs() {
@@ -856,17 +812,7 @@ public class UIDbHelper {
     }
 
     Cursor cursor = logEventDbAdapter.fetchAll();
-    ArrayList<ModelLog> logList = new ArrayList<ModelLog>(cursor.getCount());
-
-    while (cursor.moveToNext()) {
-      Long logID = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-      Long logTimestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-      String logName = getStringFromCursor(cursor, LogEventDbAdapter.KEY_EVENTNAME);
-      String logDesc = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-      logList.add(new ModelLog(logID, logName, logDesc, R.drawable.icon_event_unknown,
-          logTimestamp, ModelLog.TYPE_EVENT));
-    }
-
+    List<ModelLog> logList = ModelLogMapper.EVENT_LOGS.mapAll(cursor);
     cursor.close();
     return logList;
   }
@@ -902,12 +848,7 @@ public class UIDbHelper {
     }
 
     Cursor cursor = logEventDbAdapter.fetch(eventID);
-    long logID = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-    String logName = getStringFromCursor(cursor, LogEventDbAdapter.KEY_EVENTNAME);
-    long logTimestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-    String logDesc = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-    ModelLog log = new ModelLog(logID, logName, logDesc, R.drawable.icon_event_unknown,
-        logTimestamp, ModelLog.TYPE_EVENT);
+    ModelLog log = ModelLogMapper.EVENT_LOGS.mapCurrent(cursor);
     cursor.close();
     return log;
   }
@@ -918,6 +859,7 @@ public class UIDbHelper {
     }
 
     logEventDbAdapter.deleteAll();
+    logSearchDbAdapter.deleteAll(ModelLog.TYPE_EVENT);
   }
 
   public void deleteActionLogs() {
@@ -926,6 +868,7 @@ public class UIDbHelper {
     }
 
     logActionDbAdapter.deleteAll();
+    logSearchDbAdapter.deleteAll(ModelLog.TYPE_ACTION);
   }
 
   public List<ModelLog> getActionLogs() {
@@ -934,16 +877,7 @@ public class UIDbHelper {
     }
 
     Cursor cursor = logActionDbAdapter.fetchAll();
-    ArrayList<ModelLog> logList = new ArrayList<ModelLog>(cursor.getCount());
-
-    while (cursor.moveToNext()) {
-      long logID = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-      String logName = getStringFromCursor(cursor, LogActionDbAdapter.KEY_ACTIONEVENTNAME);
-      long logTimestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-      String logDesc = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-      logList.add(new ModelLog(logID, logName, logDesc, R.drawable.icon_action_unknown,
-          logTimestamp, ModelLog.TYPE_ACTION));
-    }
+    List<ModelLog> logList = ModelLogMapper.ACTION_LOGS.mapAll(cursor);
     cursor.close();
     return logList;
   }
@@ -954,12 +888,7 @@ public class UIDbHelper {
     }
 
     Cursor cursor = logActionDbAdapter.fetch(id);
-    long logID = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-    String logName = getStringFromCursor(cursor, LogActionDbAdapter.KEY_ACTIONEVENTNAME);
-    long logTimestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-    String logDesc = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-    ModelLog log = new ModelLog(logID, logName, logDesc, R.drawable.icon_action_unknown,
-        logTimestamp, ModelLog.TYPE_ACTION);
+    ModelLog log = ModelLogMapper.ACTION_LOGS.mapCurrent(cursor);
     cursor.close();
     return log;
   }
@@ -970,16 +899,7 @@ public class UIDbHelper {
     }
 
     Cursor cursor = logGeneralDbAdapter.fetchAll();
-    ArrayList<ModelLog> logList = new ArrayList<ModelLog>(cursor.getCount());
-
-    while (cursor.moveToNext()) {
-      long logID = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-      String logName = getStringFromCursor(cursor, LogGeneralDbAdapter.KEY_DESCRIPTION);
-      long logTimestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-      String logDesc = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-      logList.add(new ModelLog(logID, logName, logDesc, R.drawable.icon_log_general, logTimestamp,
-          ModelLog.TYPE_GENERAL));
-    }
+    List<ModelLog> logList = ModelLogMapper.GENERAL_LOGS.mapAll(cursor);
     cursor.close();
     return logList;
   }
@@ -990,12 +910,7 @@ public class UIDbHelper {
     }
 
     Cursor cursor = logGeneralDbAdapter.fetch(id);
-    long logID = getLongFromCursor(cursor, LogDbAdapter.KEY_ID);
-    String logName = getStringFromCursor(cursor, LogGeneralDbAdapter.KEY_DESCRIPTION);
-    long logTimestamp = getLongFromCursor(cursor, LogDbAdapter.KEY_TIMESTAMP);
-    String logDesc = getStringFromCursor(cursor, LogDbAdapter.KEY_DESCRIPTION);
-    ModelLog log = new ModelLog(logID, logName, logDesc, R.drawable.icon_log_general, logTimestamp,
-        ModelLog.TYPE_GENERAL);
+    ModelLog log = ModelLogMapper.GENERAL_LOGS.mapCurrent(cursor);
     cursor.close();
     return log;
   }
@@ -1006,6 +921,60 @@ public class UIDbHelper {
     }
 
     logGeneralDbAdapter.deleteAll();
+    logSearchDbAdapter.deleteAll(ModelLog.TYPE_GENERAL);
+  }
+
+  /**
+   * @return the event logs, newest first, loaded from the database one page at a time
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public PagedLogIterator getEventLogIterator() {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+
+    return new PagedLogIterator(logEventDbAdapter, ModelLogMapper.EVENT_LOGS,
+        PagedLogIterator.DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * @return the action logs, newest first, loaded from the database one page at a time
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public PagedLogIterator getActionLogIterator() {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+
+    return new PagedLogIterator(logActionDbAdapter, ModelLogMapper.ACTION_LOGS,
+        PagedLogIterator.DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * @return the general logs, newest first, loaded from the database one page at a time
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public PagedLogIterator getGeneralLogIterator() {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+
+    return new PagedLogIterator(logGeneralDbAdapter, ModelLogMapper.GENERAL_LOGS,
+        PagedLogIterator.DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * @return the event, action and general logs merged newest first, loaded from the database one
+   *         page at a time
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public Iterator<ModelLog> getAllLogIterator() {
+    return new MergedLogIterator(getGeneralLogIterator(), getEventLogIterator(),
+        getActionLogIterator());
   }
 
   public List<ModelLog> getAllLogs() {
@@ -1042,6 +1011,59 @@ public class UIDbHelper {
     logEventDbAdapter.deleteAll();
     logActionDbAdapter.deleteAll();
     logGeneralDbAdapter.deleteAll();
+    logSearchDbAdapter.deleteAll();
+  }
+
+  /**
+   * Search all logs through the full text index. Results are ranked by the number of times the
+   * search terms occur in the log, most recent first among equally ranked logs.
+   * 
+   * @param keywords
+   *          words to search for in the log names, descriptions and parameters, or null
+   * @param appName
+   *          only return logs of this application, or null for any
+   * @param ruleName
+   *          only return action logs of this rule, or null for any
+   * @param fromTimestamp
+   *          only return logs at or after this time, or null for no lower bound
+   * @param toTimestamp
+   *          only return logs at or before this time, or null for no upper bound
+   * @param limit
+   *          maximum number of logs to return
+   * @return the matching logs, best match first
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public List<ModelLog> searchLogs(String keywords, String appName, String ruleName,
+      Long fromTimestamp, Long toTimestamp, int limit) {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+
+    Cursor cursor = logSearchDbAdapter.search(keywords, appName, ruleName, fromTimestamp,
+        toTimestamp, limit);
+    if (cursor == null) {
+      return new ArrayList<ModelLog>();
+    }
+    int[] columns = getColumnIndexes(cursor, LogSearchDbAdapter.KEY_LOGTYPE,
+        LogSearchDbAdapter.KEY_LOGID, LogSearchDbAdapter.KEY_NAME,
+        LogSearchDbAdapter.KEY_DESCRIPTION, LogSearchDbAdapter.KEY_TIMESTAMP);
+    List<ModelLog> logs = new ArrayList<ModelLog>(cursor.getCount());
+    while (cursor.moveToNext()) {
+      int logType = cursor.getInt(columns[0]);
+      int iconResId;
+      if (logType == ModelLog.TYPE_EVENT) {
+        iconResId = R.drawable.icon_event_unknown;
+      } else if (logType == ModelLog.TYPE_ACTION) {
+        iconResId = R.drawable.icon_action_unknown;
+      } else {
+        iconResId = R.drawable.icon_log_general;
+      }
+      logs.add(new ModelLog(cursor.getLong(columns[1]), cursor.getString(columns[2]), cursor
+          .getString(columns[3]), iconResId, cursor.getLong(columns[4]), logType));
+    }
+    cursor.close();
+    return logs;
   }
 
   /**
@@ -1074,4 +1096,56 @@ public class UIDbHelper {
     ruleDbAdapter.update(ruleId, null, null, null, null, notification);
   }
 
+  /**
+   * Set the evaluation order of one rule record
+   * 
+   * @param ruleId
+   *          is id of the rule record to be updated
+   * @param priority
+   *          rules with a higher priority are evaluated first
+   * @param exclusive
+   *          whether no further rules are evaluated once this rule matches
+   */
+  public void setRulePriority(long ruleId, int priority, boolean exclusive) {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+
+    ruleDbAdapter.updatePriority(ruleId, priority, exclusive);
+  }
+
+  /**
+   * Export all rules to a stream, see {@link RuleCodec}.
+   * 
+   * @return number of rules exported
+   * @throws IOException
+   *           if writing fails
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public int exportRules(OutputStream out) throws IOException {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+    return new RuleCodec(database).exportRules(out);
+  }
+
+  /**
+   * Import the rules of a stream written by {@link #exportRules(OutputStream)}, in one transaction.
+   * 
+   * @return number of rules imported
+   * @throws IOException
+   *           if reading fails or a rule refers to something not registered in this database
+   * @throws IllegalStateException
+   *           if this helper is closed
+   */
+  public int importRules(InputStream in) throws IOException {
+    if (isClosed) {
+      throw new IllegalStateException(TAG + " is closed.");
+    }
+    int imported = new RuleCodec(database).importRules(in);
+    rulesChanged();
+    return imported;
+  }
+
 }
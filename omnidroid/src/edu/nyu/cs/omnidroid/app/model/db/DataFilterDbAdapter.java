@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the DataFilters table. Defines basic CRUD methods. 
@@ -62,6 +61,12 @@ public class DataFilterDbAdapter extends DbAdapter {
       + KEY_COMPAREWITHDATATYPEID + " integer);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_DATAFILTERNAME,
+      KEY_DATAFILTERDISPLAYNAME, KEY_FILTERONDATATYPEID, KEY_COMPAREWITHDATATYPEID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_DATAFILTERID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_DATAFILTERID);
+
   /**
    * Constructor.
    * 
@@ -98,13 +103,8 @@ public class DataFilterDbAdapter extends DbAdapter {
         filterOnDataTypeID == null || compareWithDataTypeID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_DATAFILTERNAME, dataFilterName);
-    initialValues.put(KEY_DATAFILTERDISPLAYNAME, dataFilterDisplayName);
-    initialValues.put(KEY_FILTERONDATATYPEID, filterOnDataTypeID);
-    initialValues.put(KEY_COMPAREWITHDATATYPEID, compareWithDataTypeID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, dataFilterName, dataFilterDisplayName, filterOnDataTypeID,
+        compareWithDataTypeID);
   }
 
   /**
@@ -120,8 +120,7 @@ public class DataFilterDbAdapter extends DbAdapter {
     if (dataFilterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_DATAFILTERID + "=" + dataFilterID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, dataFilterID) > 0;
   }
 
   /**
@@ -147,9 +146,7 @@ public class DataFilterDbAdapter extends DbAdapter {
     if (dataFilterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_DATAFILTERID + "="
-        + dataFilterID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, dataFilterID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -183,25 +180,10 @@ public class DataFilterDbAdapter extends DbAdapter {
    */
   public Cursor fetchAll(String dataFilterName, String dataFilterDisplayName, 
       Long filterOnDataTypeID, Long compareWithDataTypeID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (dataFilterName != null) {
-      qb.appendWhere(" AND " + KEY_DATAFILTERNAME + " = ");
-      qb.appendWhereEscapeString(dataFilterName);
-    }
-    if (dataFilterDisplayName != null) {
-      qb.appendWhere(" AND " + KEY_DATAFILTERDISPLAYNAME + " = ");
-      qb.appendWhereEscapeString(dataFilterDisplayName);
-    }
-    if (filterOnDataTypeID != null) {
-      qb.appendWhere(" AND " + KEY_FILTERONDATATYPEID + " = " + filterOnDataTypeID);
-    }
-    if (compareWithDataTypeID != null) {
-      qb.appendWhere(" AND " + KEY_COMPAREWITHDATATYPEID + " = " + compareWithDataTypeID);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_DATAFILTERNAME,
+        KEY_DATAFILTERDISPLAYNAME, KEY_FILTERONDATATYPEID, KEY_COMPAREWITHDATATYPEID },
+        new Object[] { dataFilterName, dataFilterDisplayName, filterOnDataTypeID,
+        compareWithDataTypeID }, null);
   }
 
   /**
@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the DataTypes table. Defines basic CRUD methods. 
@@ -50,6 +49,12 @@ public class DataTypeDbAdapter extends DbAdapter {
       + KEY_DATATYPECLASSNAME + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_DATATYPENAME,
+      KEY_DATATYPECLASSNAME);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_DATATYPEID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_DATATYPEID);
+
   /**
    * Constructor.
    * 
@@ -75,11 +80,7 @@ public class DataTypeDbAdapter extends DbAdapter {
     if (dataTypeName == null || dataTypeClassName == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_DATATYPENAME, dataTypeName);
-    initialValues.put(KEY_DATATYPECLASSNAME, dataTypeClassName);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, dataTypeName, dataTypeClassName);
   }
 
   /**
@@ -95,8 +96,7 @@ public class DataTypeDbAdapter extends DbAdapter {
     if (dataTypeID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_DATATYPEID + "=" + dataTypeID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, dataTypeID) > 0;
   }
 
   /**
@@ -122,9 +122,7 @@ public class DataTypeDbAdapter extends DbAdapter {
     if (dataTypeID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_DATATYPEID + "=" + dataTypeID,
-        null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, dataTypeID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -149,19 +147,8 @@ public class DataTypeDbAdapter extends DbAdapter {
    * @return a Cursor that contains all DataType records which matches the parameters.
    */
   public Cursor fetchAll(String dataTypeName, String dataTypeClassName) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (dataTypeName != null) {
-      qb.appendWhere(" AND " + KEY_DATATYPENAME + " = ");
-      qb.appendWhereEscapeString(dataTypeName);
-    }
-    if (dataTypeClassName != null) {
-      qb.appendWhere(" AND " + KEY_DATATYPECLASSNAME + " = ");
-      qb.appendWhereEscapeString(dataTypeClassName);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_DATATYPENAME,
+        KEY_DATATYPECLASSNAME }, new Object[] { dataTypeName, dataTypeClassName }, null);
   }
 
   /**
@@ -15,15 +15,93 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model.db;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 
 /**
  * A generic class of all database adapter of Omnidroid.
+ * 
+ * <p>
+ * Adapters run their frequent operations through constant SQL with '?' placeholders, so SQLite
+ * parses each statement once. Inserts, deletes and updates use {@link SQLiteStatement}s compiled
+ * once per database and shared by all adapters working within it. The statements are closed by
+ * {@link #releaseStatements(SQLiteDatabase)}, which {@link DbHelper#close()} calls.
+ * </p>
+ * 
+ * <p>
+ * A compiled statement runs within a transaction, which holds the database lock, so no other write
+ * to the database can run between a statement and the query of its result. The lock of the
+ * statement cache is always taken after the database lock.
+ * </p>
  */
 public class DbAdapter {
+  // Log using standard log since logging itself goes through the adapters
+  private static final String TAG = DbAdapter.class.getSimpleName();
+
+  // Most compiled statements kept for one database, the least recently used is closed first
+  private static final int STATEMENT_CACHE_SIZE = 64;
+
+  private static final String SELECT_CHANGES = "SELECT changes()";
+
+  // Compiled statements of each open database
+  private static final HashMap<SQLiteDatabase, StatementCache> statementCaches =
+      new HashMap<SQLiteDatabase, StatementCache>();
 
   protected SQLiteDatabase database;
 
+  /**
+   * The compiled statements of one database keyed by their SQL. Statements are only bound and run
+   * while holding the lock of their cache, since a database is shared between threads. A released
+   * cache is closed once the last adapter using it is done.
+   */
+  private static class StatementCache extends LinkedHashMap<String, SQLiteStatement> {
+    private static final long serialVersionUID = 1L;
+
+    // Adapters running a statement from this cache, guarded by statementCaches
+    int users;
+
+    // Whether the statements of the database were released, guarded by statementCaches
+    boolean released;
+
+    StatementCache() {
+      super(16, 0.75f, true);
+    }
+
+    SQLiteStatement compile(SQLiteDatabase database, String sql) {
+      SQLiteStatement statement = get(sql);
+      if (statement == null) {
+        statement = database.compileStatement(sql);
+        put(sql, statement);
+      }
+      return statement;
+    }
+
+    synchronized void closeAll() {
+      for (SQLiteStatement statement : values()) {
+        statement.close();
+      }
+      clear();
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+      if (size() > STATEMENT_CACHE_SIZE) {
+        eldest.getValue().close();
+        return true;
+      }
+      return false;
+    }
+  }
+
   /**
    * Constructor.
    * 
@@ -34,4 +112,261 @@ public class DbAdapter {
     this.database = database;
   }
 
+  /**
+   * Close the statements compiled for a database. Call it before the database is closed. A
+   * statement still running finishes first, its statements are closed once it is done.
+   * 
+   * @param database
+   *          the database whose statements are closed
+   */
+  public static void releaseStatements(SQLiteDatabase database) {
+    StatementCache cache;
+    synchronized (statementCaches) {
+      cache = statementCaches.remove(database);
+      if (cache == null) {
+        return;
+      }
+      cache.released = true;
+      if (cache.users > 0) {
+        return;
+      }
+    }
+    cache.closeAll();
+  }
+
+  /**
+   * Start using the statement cache of this adapter's database, a new one if its statements were
+   * released. Every call must be paired with {@link #releaseCache(StatementCache)}.
+   * 
+   * @return the statement cache of this adapter's database
+   */
+  private StatementCache acquireCache() {
+    synchronized (statementCaches) {
+      StatementCache cache = statementCaches.get(database);
+      if (cache == null) {
+        cache = new StatementCache();
+        statementCaches.put(database, cache);
+      }
+      cache.users++;
+      return cache;
+    }
+  }
+
+  /**
+   * Stop using a statement cache, closing its statements if it was released meanwhile and this
+   * was its last user.
+   */
+  private static void releaseCache(StatementCache cache) {
+    synchronized (statementCaches) {
+      if (--cache.users > 0 || !cache.released) {
+        return;
+      }
+    }
+    cache.closeAll();
+  }
+
+  /**
+   * Run an insert statement, compiling it on first use.
+   * 
+   * @param sql
+   *          the insert statement, see {@link #insertSql(String, String...)}
+   * @param bindArgs
+   *          the values bound to the placeholders of the statement
+   * @return row id of the inserted record, or -1 if the insert failed.
+   */
+  protected long executeInsert(String sql, Object... bindArgs) {
+    long rowId;
+    database.beginTransaction();
+    StatementCache cache = acquireCache();
+    try {
+      synchronized (cache) {
+        SQLiteStatement statement = cache.compile(database, sql);
+        bind(statement, bindArgs);
+        try {
+          rowId = statement.executeInsert();
+        } catch (SQLException e) {
+          Log.e(TAG, "Failed to run " + sql, e);
+          rowId = -1;
+        }
+      }
+      // A failed insert changed nothing, so it does not roll back an enclosing transaction
+      database.setTransactionSuccessful();
+    } finally {
+      releaseCache(cache);
+      database.endTransaction();
+    }
+    return rowId;
+  }
+
+  /**
+   * Run an update or delete statement, compiling it on first use.
+   * 
+   * @param sql
+   *          the update or delete statement, see {@link #deleteSql(String, String)}
+   * @param bindArgs
+   *          the values bound to the placeholders of the statement
+   * @return number of records changed
+   */
+  protected int executeUpdateDelete(String sql, Object... bindArgs) {
+    int changes;
+    database.beginTransaction();
+    StatementCache cache = acquireCache();
+    try {
+      synchronized (cache) {
+        SQLiteStatement statement = cache.compile(database, sql);
+        bind(statement, bindArgs);
+        statement.execute();
+        changes = (int) cache.compile(database, SELECT_CHANGES).simpleQueryForLong();
+      }
+      database.setTransactionSuccessful();
+    } finally {
+      releaseCache(cache);
+      database.endTransaction();
+    }
+    return changes;
+  }
+
+  /**
+   * Run a query with its arguments bound rather than written into the SQL.
+   * 
+   * @param sql
+   *          the query, see {@link #selectSql(String, String[], String)}
+   * @param selectionArgs
+   *          the values bound to the placeholders of the query
+   * @return a Cursor over the result
+   */
+  protected Cursor rawQuery(String sql, Object... selectionArgs) {
+    String[] args = new String[selectionArgs.length];
+    for (int i = 0; i < selectionArgs.length; i++) {
+      args[i] = toArg(selectionArgs[i]);
+    }
+    return database.rawQuery(sql, args);
+  }
+
+  /**
+   * Query the records of a table whose columns equal the given values. Columns with a null value
+   * are not filtered on, so the SQL only varies with which filters are used.
+   * 
+   * @param table
+   *          the table to query
+   * @param columns
+   *          the columns to return
+   * @param keys
+   *          the columns to filter on
+   * @param values
+   *          the value of each column in keys, or null to match any
+   * @param orderBy
+   *          the ORDER BY clause, or null to leave the order undefined
+   * @return a Cursor over the matching records
+   */
+  protected Cursor fetchWhere(String table, String[] columns, String[] keys, Object[] values,
+      String orderBy) {
+    StringBuilder sql = select(table, columns);
+    String[] args = new String[values.length];
+    int argCount = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (values[i] != null) {
+        sql.append(argCount == 0 ? " WHERE " : " AND ").append(keys[i]).append(" = ?");
+        args[argCount++] = toArg(values[i]);
+      }
+    }
+    if (orderBy != null) {
+      sql.append(" ORDER BY ").append(orderBy);
+    }
+    if (argCount < args.length) {
+      String[] usedArgs = new String[argCount];
+      System.arraycopy(args, 0, usedArgs, 0, argCount);
+      args = usedArgs;
+    }
+    return database.rawQuery(sql.toString(), args);
+  }
+
+  /**
+   * @return an insert statement for the columns, with a placeholder for each
+   */
+  protected static String insertSql(String table, String... columns) {
+    StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+    StringBuilder placeholders = new StringBuilder();
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+        placeholders.append(", ");
+      }
+      sql.append(columns[i]);
+      placeholders.append('?');
+    }
+    return sql.append(") VALUES (").append(placeholders).append(')').toString();
+  }
+
+  /**
+   * @return a query for the columns of the records whose key equals a placeholder
+   */
+  protected static String selectSql(String table, String[] columns, String key) {
+    return select(table, columns).append(" WHERE ").append(key).append(" = ?").toString();
+  }
+
+  /**
+   * @return a delete statement for the records whose key equals a placeholder
+   */
+  protected static String deleteSql(String table, String key) {
+    return "DELETE FROM " + table + " WHERE " + key + " = ?";
+  }
+
+  /**
+   * Build the right hand side of an {@code IN} clause for a set of row ids.
+   * 
+   * @param ids
+   *          the ids, must not be empty
+   * @return the ids as a parenthesized, comma separated list
+   */
+  protected static String inList(Collection<Long> ids) {
+    StringBuilder list = new StringBuilder("(");
+    for (Iterator<Long> it = ids.iterator(); it.hasNext();) {
+      list.append(it.next().longValue());
+      if (it.hasNext()) {
+        list.append(',');
+      }
+    }
+    return list.append(')').toString();
+  }
+
+  private static StringBuilder select(String table, String[] columns) {
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(columns[i]);
+    }
+    return sql.append(" FROM ").append(table);
+  }
+
+  /**
+   * Bind values the way {@link android.content.ContentValues} stores them, booleans as 1 or 0.
+   */
+  private static void bind(SQLiteStatement statement, Object[] bindArgs) {
+    statement.clearBindings();
+    for (int i = 0; i < bindArgs.length; i++) {
+      Object value = bindArgs[i];
+      if (value == null) {
+        statement.bindNull(i + 1);
+      } else if (value instanceof Boolean) {
+        statement.bindLong(i + 1, ((Boolean) value).booleanValue() ? 1 : 0);
+      } else if (value instanceof Float || value instanceof Double) {
+        statement.bindDouble(i + 1, ((Number) value).doubleValue());
+      } else if (value instanceof Number) {
+        statement.bindLong(i + 1, ((Number) value).longValue());
+      } else {
+        statement.bindString(i + 1, value.toString());
+      }
+    }
+  }
+
+  private static String toArg(Object value) {
+    if (value instanceof Boolean) {
+      return ((Boolean) value).booleanValue() ? "1" : "0";
+    }
+    return value.toString();
+  }
+
 }
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.controller.Event;
+import edu.nyu.cs.omnidroid.app.controller.actions.CallPhoneAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.OmniAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SendGmailAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SendSmsAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneLoudAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneSilentAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetPhoneVibrateAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.SetScreenBrightnessAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowAlertAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowNotificationAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.ShowWebsiteAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOffWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.TurnOnWifiAction;
+import edu.nyu.cs.omnidroid.app.controller.actions.UpdateTwitterStatusAction;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniArea;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniDate;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniDayOfWeek;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniPasswordInput;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniPhoneNumber;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniText;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniTimePeriod;
+import edu.nyu.cs.omnidroid.app.controller.datatypes.OmniUserAccount;
+import edu.nyu.cs.omnidroid.app.controller.events.CallEndedEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.InternetAvailableEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.LocationChangedEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.MissedCallEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.PhoneRingingEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.SMSReceivedEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.ServiceAvailableEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.SystemEvent;
+import edu.nyu.cs.omnidroid.app.controller.events.TimeTickEvent;
+import edu.nyu.cs.omnidroid.app.model.UIDbCache;
+
+/**
+ * Creates a fresh Omnidroid database directly in its latest version, instead of replaying every
+ * step of {@link DbMigration} from version 1. The result must be the same database the migrations
+ * produce: the same tables, columns and indexes, and the same rows with the same ids, since rules
+ * refer to the registries by id. Registry rows the migrations delete again still take up their id,
+ * so the ids after them are skipped here.
+ * 
+ * When a migration changes the schema or the registries, change this class along with it.
+ * DbBootstrapTest compares both ways of creating the database.
+ */
+public class DbBootstrap {
+  private static final String TAG = DbBootstrap.class.getSimpleName();
+
+  private static final String TIME_NIGHT = "0001-01-01 00:00:00";
+  private static final String TIME_MORNING = "0001-01-01 09:00:00";
+
+  private static final String SQL_SKIP_IDS = "UPDATE sqlite_sequence SET seq = seq + ? "
+      + "WHERE name = ?";
+
+  /**
+   * This class does not need to be instantiated.
+   */
+  private DbBootstrap() {
+  }
+
+  /**
+   * Create the tables of the latest version of the Omnidroid database and populate them. The
+   * caller runs this in a transaction, as SQLiteOpenHelper does for onCreate.
+   * 
+   * @param context
+   *          the context to read the default rules from
+   * @param db
+   *          the empty database to create
+   */
+  public static void createLatest(Context context, SQLiteDatabase db) {
+    // Use standard Logger since DB may not be setup yet
+    Log.i(TAG, "Creating latest database");
+    createTables(db);
+    populate(context, db);
+
+    UIDbCache.invalidateAll();
+  }
+
+  /**
+   * Create the tables and indexes of the latest schema.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   */
+  private static void createTables(SQLiteDatabase db) {
+    db.execSQL(RegisteredAppDbAdapter.DATABASE_CREATE_LATEST);
+    db.execSQL(RegisteredEventDbAdapter.getSqliteCreateStatement());
+    db.execSQL(RegisteredEventAttributeDbAdapter.getSqliteCreateStatement());
+    db.execSQL(RegisteredActionDbAdapter.getSqliteCreateStatement());
+    db.execSQL(RegisteredActionParameterDbAdapter.getSqliteCreateStatement());
+    db.execSQL(DataFilterDbAdapter.getSqliteCreateStatement());
+    db.execSQL(DataTypeDbAdapter.getSqliteCreateStatement());
+    db.execSQL(ExternalAttributeDbAdapter.getSqliteCreateStatement());
+    db.execSQL(RuleDbAdapter.DATABASE_CREATE_LATEST);
+    db.execSQL(RuleFilterDbAdapter.getSqliteCreateStatement());
+    db.execSQL(RuleActionDbAdapter.getSqliteCreateStatement());
+    db.execSQL(RuleActionParameterDbAdapter.getSqliteCreateStatement());
+
+    db.execSQL(RuleActionDbAdapter.CREATE_RULE_INDEX);
+    db.execSQL(RuleActionParameterDbAdapter.CREATE_RULE_ACTION_INDEX);
+    db.execSQL(RuleFilterDbAdapter.CREATE_RULE_INDEX);
+  }
+
+  /**
+   * Populate the registries and the default rules. Within each table the rows are inserted in the
+   * order the migrations insert them.
+   * 
+   * @param context
+   *          the context to read the default rules from
+   * @param db
+   *          SQLiteDatabase object to work with
+   */
+  private static void populate(Context context, SQLiteDatabase db) {
+    /*
+     * Populate data types and their data filters
+     */
+    DataTypeDbAdapter dataTypeDbAdapter = new DataTypeDbAdapter(db);
+    DataFilterDbAdapter dataFilterDbAdapter = new DataFilterDbAdapter(db);
+
+    long dataTypeIdText = dataTypeDbAdapter.insert(OmniText.DB_NAME, OmniText.class.getName());
+    long dataTypeIdPhoneNumber = dataTypeDbAdapter.insert(OmniPhoneNumber.DB_NAME,
+        OmniPhoneNumber.class.getName());
+    long dataTypeIdDayOfWeek = dataTypeDbAdapter.insert(OmniDayOfWeek.DB_NAME, OmniDayOfWeek.class
+        .getName());
+    long dataTypeIdTimePeriod = dataTypeDbAdapter.insert(OmniTimePeriod.DB_NAME,
+        OmniTimePeriod.class.getName());
+    long dataTypeIdDate = dataTypeDbAdapter.insert(OmniDate.DB_NAME, OmniDate.class.getName());
+    long dataTypeIdArea = dataTypeDbAdapter.insert(OmniArea.DB_NAME, OmniArea.class.getName());
+    dataTypeDbAdapter.insert(OmniPasswordInput.DB_NAME, OmniPasswordInput.class.getName());
+    long dataTypeIdAccount = dataTypeDbAdapter.insert(OmniUserAccount.DB_NAME,
+        OmniUserAccount.class.getName());
+
+    dataFilterDbAdapter.insert(OmniText.Filter.EQUALS.toString(),
+        OmniText.Filter.EQUALS.displayName, dataTypeIdText, dataTypeIdText);
+    dataFilterDbAdapter.insert(OmniText.Filter.CONTAINS.toString(),
+        OmniText.Filter.CONTAINS.displayName, dataTypeIdText, dataTypeIdText);
+    dataFilterDbAdapter.insert(OmniPhoneNumber.Filter.EQUALS.toString(),
+        OmniPhoneNumber.Filter.EQUALS.displayName, dataTypeIdPhoneNumber, dataTypeIdPhoneNumber);
+    dataFilterDbAdapter.insert(OmniTimePeriod.Filter.DURING_EVERYDAY.toString(),
+        OmniTimePeriod.Filter.DURING_EVERYDAY.displayName, dataTypeIdTimePeriod, dataTypeIdDate);
+    dataFilterDbAdapter.insert(OmniTimePeriod.Filter.EXCEPT_EVERYDAY.toString(),
+        OmniTimePeriod.Filter.EXCEPT_EVERYDAY.displayName, dataTypeIdTimePeriod, dataTypeIdDate);
+    long dataFilterIdIsEveryday = dataFilterDbAdapter.insert(OmniDate.Filter.IS_EVERYDAY
+        .toString(), OmniDate.Filter.IS_EVERYDAY.displayName, dataTypeIdDate, dataTypeIdDate);
+    dataFilterDbAdapter.insert(OmniDate.Filter.IS_NOT_EVERYDAY.toString(),
+        OmniDate.Filter.IS_NOT_EVERYDAY.displayName, dataTypeIdDate, dataTypeIdDate);
+    dataFilterDbAdapter.insert(OmniDate.Filter.BEFORE_EVERYDAY.toString(),
+        OmniDate.Filter.BEFORE_EVERYDAY.displayName, dataTypeIdDate, dataTypeIdDate);
+    dataFilterDbAdapter.insert(OmniDate.Filter.AFTER_EVERYDAY.toString(),
+        OmniDate.Filter.AFTER_EVERYDAY.displayName, dataTypeIdDate, dataTypeIdDate);
+    dataFilterDbAdapter.insert(OmniDate.Filter.DURING_EVERYDAY.toString(),
+        OmniDate.Filter.DURING_EVERYDAY.displayName, dataTypeIdDate, dataTypeIdTimePeriod);
+    dataFilterDbAdapter.insert(OmniDate.Filter.EXCEPT_EVERYDAY.toString(),
+        OmniDate.Filter.EXCEPT_EVERYDAY.displayName, dataTypeIdDate, dataTypeIdTimePeriod);
+    dataFilterDbAdapter.insert(OmniDate.Filter.ISDAYOFWEEK.toString(),
+        OmniDate.Filter.ISDAYOFWEEK.displayName, dataTypeIdDate, dataTypeIdDayOfWeek);
+    dataFilterDbAdapter.insert(OmniArea.Filter.NEAR.toString(), OmniArea.Filter.NEAR.displayName,
+        dataTypeIdArea, dataTypeIdArea);
+    dataFilterDbAdapter.insert(OmniArea.Filter.AWAY.toString(), OmniArea.Filter.AWAY.displayName,
+        dataTypeIdArea, dataTypeIdArea);
+    // Added after the other filters, see DbMigration.addPhoneNumberNotEqualsFilter
+    dataFilterDbAdapter.insert(OmniPhoneNumber.Filter.NOTEQUALS.toString(),
+        OmniPhoneNumber.Filter.NOTEQUALS.displayName, dataTypeIdPhoneNumber, dataTypeIdPhoneNumber);
+
+    /*
+     * Populate registered applications
+     */
+    RegisteredAppDbAdapter appDbAdapter = new RegisteredAppDbAdapter(db);
+    long appIdSms = appDbAdapter.insert(DbHelper.AppName.SMS, "", true);
+    long appIdPhone = appDbAdapter.insert(DbHelper.AppName.PHONE, "", true);
+    long appIdGPS = appDbAdapter.insert(DbHelper.AppName.GPS, "", true);
+    long appIdGmail = appDbAdapter.insert(DbHelper.AppName.GMAIL, "", true, true);
+    long appIdTwitter = appDbAdapter.insert(DbHelper.AppName.TWITTER, "", true, true);
+    long appIdOmnidroid = appDbAdapter.insert(OmniAction.APP_NAME, "", true);
+    long appIdAndroid = appDbAdapter.insert(SystemEvent.PowerConnectedEvent.APPLICATION_NAME, "",
+        true);
+
+    /*
+     * Populate registered events
+     */
+    RegisteredEventDbAdapter eventDbAdapter = new RegisteredEventDbAdapter(db);
+
+    long eventIdBatteryLow = -1;
+    for (SystemEvent e : SystemEvent.values()) {
+      long eventId = eventDbAdapter.insert(e.EVENT_NAME, appIdAndroid);
+      if (e == SystemEvent.BatteryLowEvent) {
+        eventIdBatteryLow = eventId;
+      }
+    }
+    long eventIdSmsRec = eventDbAdapter.insert(SMSReceivedEvent.EVENT_NAME, appIdSms);
+    long eventIdPhoneRings = eventDbAdapter.insert(PhoneRingingEvent.EVENT_NAME, appIdPhone);
+    eventDbAdapter.insert(LocationChangedEvent.EVENT_NAME, appIdGPS);
+    long eventIdTimeTick = eventDbAdapter.insert(TimeTickEvent.EVENT_NAME, appIdAndroid);
+    eventDbAdapter.insert(CallEndedEvent.EVENT_NAME, appIdPhone);
+    eventDbAdapter.insert(InternetAvailableEvent.EVENT_NAME, appIdOmnidroid);
+    eventDbAdapter.insert(ServiceAvailableEvent.EVENT_NAME, appIdOmnidroid);
+    long eventIdMissedCall = eventDbAdapter.insert(MissedCallEvent.EVENT_NAME, appIdPhone);
+
+    /*
+     * Populate event attributes. The time and location attributes of single events were replaced
+     * by the general ones, see DbMigration.addSupportForGlobalEventAttributes.
+     */
+    RegisteredEventAttributeDbAdapter eventAttributeDbAdapter = new 
+        RegisteredEventAttributeDbAdapter(db);
+
+    eventAttributeDbAdapter.insert(SMSReceivedEvent.ATTRIB_PHONE_NO, eventIdSmsRec,
+        dataTypeIdPhoneNumber);
+    eventAttributeDbAdapter.insert(SMSReceivedEvent.ATTRIB_MESSAGE_TEXT, eventIdSmsRec,
+        dataTypeIdText);
+    // SMS message time
+    skipIds(db, RegisteredEventAttributeDbAdapter.DATABASE_TABLE, 1);
+    eventAttributeDbAdapter.insert(PhoneRingingEvent.ATTRIBUTE_PHONE_NUMBER, eventIdPhoneRings,
+        dataTypeIdPhoneNumber);
+    // Phone ringing time stamp, current location, current time and call ended time stamp
+    skipIds(db, RegisteredEventAttributeDbAdapter.DATABASE_TABLE, 4);
+    long attributeIdTime = eventAttributeDbAdapter.insertGeneralAttribute(Event.ATTRIBUTE_TIME,
+        dataTypeIdDate);
+    eventAttributeDbAdapter.insertGeneralAttribute(Event.ATTRIBUTE_LOCATION, dataTypeIdArea);
+    eventAttributeDbAdapter.insert(MissedCallEvent.ATTRIBUTE_PHONE_NUMBER, eventIdMissedCall,
+        dataTypeIdPhoneNumber);
+
+    /*
+     * Populate registered actions and action parameters. The user name and password parameters of
+     * the Gmail and Twitter actions were replaced by a user account, see
+     * DbMigration.modifyGmailAndTwitterParam.
+     */
+    RegisteredActionDbAdapter actionDbAdapter = new RegisteredActionDbAdapter(db);
+    RegisteredActionParameterDbAdapter actionParameterDbAdapter = new 
+        RegisteredActionParameterDbAdapter(db);
+
+    long actionIdDisplayMessage = actionDbAdapter.insert(ShowAlertAction.ACTION_NAME,
+        appIdOmnidroid);
+    long actionIdNotifyMessage = actionDbAdapter.insert(ShowNotificationAction.ACTION_NAME,
+        appIdOmnidroid);
+    long actionIdShowWebsite = actionDbAdapter
+        .insert(ShowWebsiteAction.ACTION_NAME, appIdOmnidroid);
+    long actionIdSetBrightness = actionDbAdapter.insert(SetScreenBrightnessAction.ACTION_NAME,
+        appIdOmnidroid);
+    long actionIdLoud = actionDbAdapter.insert(SetPhoneLoudAction.ACTION_NAME, appIdOmnidroid);
+    long actionIdSilent = actionDbAdapter.insert(SetPhoneSilentAction.ACTION_NAME, appIdOmnidroid);
+    actionDbAdapter.insert(SetPhoneVibrateAction.ACTION_NAME, appIdOmnidroid);
+    long actionIdSmsSend = actionDbAdapter.insert(SendSmsAction.ACTION_NAME, appIdSms);
+    long actionIdPhoneCall = actionDbAdapter.insert(CallPhoneAction.ACTION_NAME, appIdPhone);
+    long actionIdGmailSend = actionDbAdapter.insert(SendGmailAction.ACTION_NAME, appIdGmail);
+    long actionIdTwitterUpdate = actionDbAdapter.insert(UpdateTwitterStatusAction.ACTION_NAME,
+        appIdTwitter);
+    long actionIdWifiOff = actionDbAdapter.insert(TurnOffWifiAction.ACTION_NAME, appIdOmnidroid);
+    actionDbAdapter.insert(TurnOnWifiAction.ACTION_NAME, appIdOmnidroid);
+
+    actionParameterDbAdapter.insert(ShowAlertAction.PARAM_ALERT_MESSAGE, actionIdDisplayMessage,
+        dataTypeIdText);
+    actionParameterDbAdapter.insert(ShowNotificationAction.PARAM_ALERT_MESSAGE,
+        actionIdNotifyMessage, dataTypeIdText);
+    actionParameterDbAdapter.insert(ShowWebsiteAction.PARAM_WEB_URL, actionIdShowWebsite,
+        dataTypeIdText);
+    actionParameterDbAdapter.insert(SetScreenBrightnessAction.PARAM_BRIGHTNESS,
+        actionIdSetBrightness, dataTypeIdText);
+    long paramIdSmsPhoneNo = actionParameterDbAdapter.insert(SendSmsAction.PARAM_PHONE_NO,
+        actionIdSmsSend, dataTypeIdPhoneNumber);
+    long paramIdSmsMessage = actionParameterDbAdapter.insert(SendSmsAction.PARAM_SMS,
+        actionIdSmsSend, dataTypeIdText);
+    actionParameterDbAdapter.insert(CallPhoneAction.PARAM_PHONE_NO, actionIdPhoneCall,
+        dataTypeIdPhoneNumber);
+    actionParameterDbAdapter.insert(SendGmailAction.PARAM_USER_ACCOUNT, actionIdGmailSend,
+        dataTypeIdAccount);
+    // Gmail password
+    skipIds(db, RegisteredActionParameterDbAdapter.DATABASE_TABLE, 1);
+    actionParameterDbAdapter.insert(SendGmailAction.PARAM_TO, actionIdGmailSend, dataTypeIdText);
+    actionParameterDbAdapter.insert(SendGmailAction.PARAM_SUBJECT, actionIdGmailSend,
+        dataTypeIdText);
+    actionParameterDbAdapter.insert(SendGmailAction.PARAM_BODY, actionIdGmailSend, dataTypeIdText);
+    actionParameterDbAdapter.insert(UpdateTwitterStatusAction.PARAM_USER_ACCOUNT,
+        actionIdTwitterUpdate, dataTypeIdAccount);
+    // Twitter password
+    skipIds(db, RegisteredActionParameterDbAdapter.DATABASE_TABLE, 1);
+    actionParameterDbAdapter.insert(UpdateTwitterStatusAction.PARAM_MESSAGE, actionIdTwitterUpdate,
+        dataTypeIdText);
+
+    /*
+     * Set the default rules, see DbMigration.setDefaultRules
+     */
+    RuleDbAdapter ruleAdapter = new RuleDbAdapter(db);
+    RuleActionDbAdapter ruleActionAdapter = new RuleActionDbAdapter(db);
+    RuleActionParameterDbAdapter ruleActionParametersAdapter = new RuleActionParameterDbAdapter(db);
+    RuleFilterDbAdapter ruleFilterAdapter = new RuleFilterDbAdapter(db);
+
+    // Sent back sms "Busy, in meeting. Will get back to you later" when phone is ringing
+    long phoneToSMSRuleID = ruleAdapter.insert(eventIdPhoneRings, context
+        .getString(R.string.phoneRingToSMSRuleName), context
+        .getString(R.string.phoneRingToSMSRuleDesc), false);
+    long phoneToSMSRuleActionID = ruleActionAdapter.insert(phoneToSMSRuleID, actionIdSmsSend);
+    ruleActionParametersAdapter.insert(phoneToSMSRuleActionID, paramIdSmsPhoneNo, "<"
+        + PhoneRingingEvent.ATTRIBUTE_PHONE_NUMBER + ">");
+    ruleActionParametersAdapter.insert(phoneToSMSRuleActionID, paramIdSmsMessage, context
+        .getString(R.string.phoneRingToSMSRuleMessage));
+
+    // Sleep during night, when time is after midnight set phone silent
+    long timeToSilentRuleID = ruleAdapter.insert(eventIdTimeTick, context
+        .getString(R.string.timeToSilentRuleName), context
+        .getString(R.string.timeToSilentRuleDesc), false);
+    ruleActionAdapter.insert(timeToSilentRuleID, actionIdSilent);
+    ruleFilterAdapter.insert(timeToSilentRuleID, attributeIdTime, -1l, dataFilterIdIsEveryday,
+        -1l, TIME_NIGHT);
+
+    // Wake up during daytime, when time is after 9am set phone loud
+    long timeToLoudRuleID = ruleAdapter.insert(eventIdTimeTick, context
+        .getString(R.string.timeToLoudRuleName), context.getString(R.string.timeToLoudRuleDesc),
+        false);
+    ruleActionAdapter.insert(timeToLoudRuleID, actionIdLoud);
+    ruleFilterAdapter.insert(timeToLoudRuleID, attributeIdTime, -1l, dataFilterIdIsEveryday, -1l,
+        TIME_MORNING);
+
+    // Disable WiFi, when battery is low
+    long batteryLowToSetWifiOffRuleID = ruleAdapter.insert(eventIdBatteryLow, context
+        .getString(R.string.batteryLowToSetWifiOffRuleName), context
+        .getString(R.string.batteryLowToSetWifiOffRuleDesc), false);
+    ruleActionAdapter.insert(batteryLowToSetWifiOffRuleID, actionIdWifiOff);
+  }
+
+  /**
+   * Skip the next ids of a table, where the migrations inserted rows they later deleted.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   * @param table
+   *          the table, which has had a row inserted already
+   * @param count
+   *          number of ids to skip
+   */
+  private static void skipIds(SQLiteDatabase db, String table, int count) {
+    new DbAdapter(db).executeUpdateDelete(SQL_SKIP_IDS, count, table);
+  }
+}
@@ -15,17 +15,32 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model.db;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import edu.nyu.cs.omnidroid.app.controller.util.IOUtil;
+import edu.nyu.cs.omnidroid.app.model.UIDbCache;
 
 /**
  * This class extends SQLiteOpenHelper to handle creating/open/close database, creating/deleting
  * tables and migrations.
+ * 
+ * All helpers of a database share one writer connection, handed out by
+ * {@link #getWritableDatabase()}, so writes from the services queue on that connection instead of
+ * contending for the file lock. A helper that only reads, like the account lookups of the
+ * services, takes a read-only connection of its own through {@link #getReadableDatabase()}. Where
+ * SQLite supports write-ahead logging those readers run concurrently with the writer.
+ * 
+ * This helper manages the rules and registries. The logs live in a database of their own, see
+ * {@link LogDbHelper}.
  */
 public class DbHelper extends SQLiteOpenHelper  {
   public static class AppName {
@@ -39,26 +54,211 @@ public class DbHelper extends SQLiteOpenHelper  {
   private static final String TAG = DbHelper.class.getName();
 
   // This version number needs to increase whenever a data schema change is made
-  private static final int DATABASE_VERSION = 18;
+  private static final int DATABASE_VERSION = 25;
 
 
   private static final String DATABASE_NAME = "omnidroid";
-  private static final String DATABASE_NAME_BACKUP = "omnidroid_backup";
+  private static final String BACKUP_SUFFIX = "_backup";
+  private static final String MANIFEST_SUFFIX = ".manifest";
+  private static final String WAL_SUFFIX = "-wal";
   private static final String DATABASE_FOLDER = "/databases/";
   private static final String PKG_ROOT = "/data/data/";
 
+  // Files SQLite keeps next to the database, which must go along with it
+  private static final String[] DATABASE_SIDE_FILES = { "-journal", WAL_SUFFIX, "-shm" };
+
+  // Write-ahead logging is available from this SQLite version on, older platforms keep the
+  // rollback journal
+  private static final int[] WAL_MIN_VERSION = { 3, 7, 0 };
+
+  // Pages the write-ahead log may grow to before it is checkpointed into the database. Smaller
+  // than the SQLite default of 1000 to keep the log, which readers have to scan, short.
+  private static final int WAL_AUTOCHECKPOINT = 500;
+
+  // Serializes opening the database across helpers, since startup opens it from more than one
+  // thread and only one of them may run the migrations
+  private static final Object OPEN_LOCK = new Object();
+
+  /**
+   * The writer connection shared by all helpers of a database, the helper that opened it and the
+   * number of helpers using it.
+   */
+  private static class SharedWriter {
+    private DbHelper owner;
+    private SQLiteDatabase database;
+    private int users;
+  }
+
+  // Shared writers by database name
+  private static final HashMap<String, SharedWriter> writers = new HashMap<String, SharedWriter>();
+
+  // Open read-only connections by database name, guarded by OPEN_LOCK
+  private static final HashMap<String, ArrayList<SQLiteDatabase>> readers =
+      new HashMap<String, ArrayList<SQLiteDatabase>>();
+
   private Context context;
+  private final String name;
+  private final int version;
+
+  // The read-only connection opened by this helper, closed with it
+  private SQLiteDatabase reader;
+
+  // The shared writer this helper holds a reference on, if any
+  private SQLiteDatabase heldWriter;
 
   public DbHelper(Context context) {
+    this(context, DATABASE_NAME, DATABASE_VERSION);
+  }
+
+  /**
+   * @param context
+   *          context to open the database in
+   * @param name
+   *          file name of the database
+   * @param version
+   *          latest schema version of the database
+   */
+  protected DbHelper(Context context, String name, int version) {
     // Set the CursorFactory to null since we don't use it.
-    super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    super(context, name, null, version);
     this.context = context;
+    this.name = name;
+    this.version = version;
+  }
+
+  /**
+   * @return a new helper for the same database, to own its shared writer
+   */
+  protected DbHelper newHelper(Context context) {
+    return new DbHelper(context);
+  }
+
+  /**
+   * @return the writer connection shared by all helpers. It stays open until every helper that
+   *         got it is closed, so it must not be closed directly.
+   */
+  @Override
+  public SQLiteDatabase getWritableDatabase() {
+    synchronized (OPEN_LOCK) {
+      SharedWriter writer = writers.get(name);
+      if (writer == null || !writer.database.isOpen()) {
+        closeWriter(name);
+        writer = new SharedWriter();
+        writer.owner = newHelper(context.getApplicationContext());
+        writer.database = writer.owner.openConnection();
+        writers.put(name, writer);
+      }
+      if (heldWriter != writer.database) {
+        heldWriter = writer.database;
+        writer.users++;
+      }
+      return writer.database;
+    }
+  }
+
+  /**
+   * @return a read-only connection of this helper's own, for readers that should not queue behind
+   *         the shared writer. It is closed with this helper.
+   */
+  @Override
+  public SQLiteDatabase getReadableDatabase() {
+    synchronized (OPEN_LOCK) {
+      if (reader == null || !reader.isOpen()) {
+        reader = openReader();
+        ArrayList<SQLiteDatabase> open = readers.get(name);
+        if (open == null) {
+          open = new ArrayList<SQLiteDatabase>();
+          readers.put(name, open);
+        }
+        open.add(reader);
+      }
+      return reader;
+    }
+  }
+
+  /**
+   * Open a read-only connection, creating or migrating the database through the shared writer
+   * first if it is missing or outdated. Callers hold OPEN_LOCK.
+   */
+  private SQLiteDatabase openReader() {
+    String databaseFile = databaseDir() + name;
+    if (new File(databaseFile).exists()) {
+      SQLiteDatabase db = SQLiteDatabase.openDatabase(databaseFile, null,
+          SQLiteDatabase.OPEN_READONLY);
+      if (db.getVersion() == version) {
+        return db;
+      }
+      db.close();
+    }
+    getWritableDatabase();
+    return SQLiteDatabase.openDatabase(databaseFile, null, SQLiteDatabase.OPEN_READONLY);
+  }
+
+  @Override
+  public void close() {
+    synchronized (OPEN_LOCK) {
+      if (reader != null) {
+        closeReader(name, reader);
+        reader = null;
+      }
+      super.close();
+      if (heldWriter != null) {
+        SharedWriter writer = writers.get(name);
+        if (writer != null && heldWriter == writer.database && --writer.users == 0) {
+          closeWriter(name);
+        }
+        heldWriter = null;
+      }
+    }
+  }
+
+  /**
+   * @return whether this helper still holds an open connection.
+   */
+  public boolean isOpen() {
+    synchronized (OPEN_LOCK) {
+      return (heldWriter != null && heldWriter.isOpen()) || (reader != null && reader.isOpen());
+    }
+  }
+
+  /**
+   * Open the connection of this helper, bypassing the shared writer.
+   */
+  private SQLiteDatabase openConnection() {
+    return super.getWritableDatabase();
+  }
+
+  /**
+   * Close a read-only connection of the named database, unless its user closed it already.
+   * Callers hold OPEN_LOCK.
+   */
+  private static void closeReader(String name, SQLiteDatabase db) {
+    ArrayList<SQLiteDatabase> open = readers.get(name);
+    if (open != null) {
+      open.remove(db);
+    }
+    DbAdapter.releaseStatements(db);
+    if (db.isOpen()) {
+      db.close();
+    }
+  }
+
+  /**
+   * Close the shared writer of the named database, if open, and forget its users. Its statements
+   * are released once the last adapter running one is done. Callers hold OPEN_LOCK.
+   */
+  private static void closeWriter(String name) {
+    SharedWriter writer = writers.remove(name);
+    if (writer != null) {
+      DbAdapter.releaseStatements(writer.database);
+      writer.owner.close();
+    }
   }
 
   @Override
   public void onCreate(SQLiteDatabase db) {
-    // If the first install, upgrade starting from DB version 1
-    DbMigration.migrateToLatest(context, db, 1);
+    // If the first install, create the latest version directly instead of migrating to it
+    DbBootstrap.createLatest(context, db);
   }
 
   @Override
@@ -67,6 +267,82 @@ public class DbHelper extends SQLiteOpenHelper  {
     DbMigration.migrateToLatest(context, db, oldVersion);
   }
 
+  @Override
+  public void onOpen(SQLiteDatabase db) {
+    if (!db.isReadOnly()) {
+      configureJournal(db);
+    }
+  }
+
+  /**
+   * Switch the database to write-ahead logging where SQLite supports it, so readers no longer
+   * block the writer and the other way around. In WAL mode a synchronous level of NORMAL only
+   * syncs at checkpoints and still can't corrupt the database. Older SQLite versions keep the
+   * rollback journal with full syncs, but persist the journal file instead of creating and
+   * deleting it for every transaction.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   */
+  private static void configureJournal(SQLiteDatabase db) {
+    if (supportsWal(db) && "wal".equalsIgnoreCase(pragma(db, "journal_mode=WAL"))) {
+      db.execSQL("PRAGMA synchronous=NORMAL");
+      pragma(db, "wal_autocheckpoint=" + WAL_AUTOCHECKPOINT);
+    } else {
+      pragma(db, "journal_mode=PERSIST");
+    }
+  }
+
+  /**
+   * @param db
+   *          SQLiteDatabase object to work with
+   * @return whether the SQLite library behind db supports write-ahead logging
+   */
+  private static boolean supportsWal(SQLiteDatabase db) {
+    String[] version = queryValue(db, "SELECT sqlite_version()").split("\\.");
+    try {
+      for (int i = 0; i < WAL_MIN_VERSION.length; i++) {
+        int part = i < version.length ? Integer.parseInt(version[i]) : 0;
+        if (part != WAL_MIN_VERSION[i]) {
+          return part > WAL_MIN_VERSION[i];
+        }
+      }
+      return true;
+    } catch (NumberFormatException e) {
+      Log.w(TAG, "Unknown SQLite version, keeping the rollback journal", e);
+      return false;
+    }
+  }
+
+  /**
+   * Run a pragma that reports a value.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   * @param pragma
+   *          the pragma without the PRAGMA keyword, e.g. "journal_mode=WAL"
+   * @return the value reported, or null if there is none
+   */
+  static String pragma(SQLiteDatabase db, String pragma) {
+    return queryValue(db, "PRAGMA " + pragma);
+  }
+
+  /**
+   * @param db
+   *          SQLiteDatabase object to work with
+   * @param sql
+   *          a statement returning a single value
+   * @return the value in the first column of the first row, or null if there is none
+   */
+  private static String queryValue(SQLiteDatabase db, String sql) {
+    Cursor cursor = db.rawQuery(sql, null);
+    try {
+      return cursor.moveToFirst() ? cursor.getString(0) : null;
+    } finally {
+      cursor.close();
+    }
+  }
+
   /**
    * Cleanup the DB, including user defined rules
    * 
@@ -76,6 +352,7 @@ public class DbHelper extends SQLiteOpenHelper  {
   public void cleanup(SQLiteDatabase db) {
     // Log using standard log since the DB may not be setup yet
     Log.w(TAG, "Resetting database");
+    DbAdapter.releaseStatements(db);
     dropTables(db);
     onCreate(db);
   }
@@ -86,7 +363,7 @@ public class DbHelper extends SQLiteOpenHelper  {
    * @param db
    *          SQLiteDatabase object to work with
    */
-  private void dropTables(SQLiteDatabase db) {
+  protected void dropTables(SQLiteDatabase db) {
     db.execSQL(RegisteredAppDbAdapter.DATABASE_DROP);
     db.execSQL(RegisteredEventDbAdapter.DATABASE_DROP);
     db.execSQL(RegisteredEventAttributeDbAdapter.DATABASE_DROP);
@@ -99,20 +376,97 @@ public class DbHelper extends SQLiteOpenHelper  {
     db.execSQL(RuleFilterDbAdapter.DATABASE_DROP);
     db.execSQL(RuleActionDbAdapter.DATABASE_DROP);
     db.execSQL(RuleActionParameterDbAdapter.DATABASE_DROP);
-    db.execSQL(LogEventDbAdapter.DATABASE_DROP);
-    db.execSQL(LogActionDbAdapter.DATABASE_DROP);
-    db.execSQL(LogGeneralDbAdapter.DATABASE_DROP);
-    db.execSQL(FailedActionsDbAdapter.DATABASE_DROP);
-    db.execSQL(FailedActionParameterDbAdapter.DATABASE_DROP);
   }
 
   /**
-   * Back up the database by backing up the sqlite file.
+   * Give the free pages of the database back to the file system, where the database is set up to
+   * vacuum incrementally, and refresh the statistics the query planner chooses indexes by.
+   * 
+   * @return number of bytes the database file shrank by
+   */
+  public long vacuumAndAnalyze() {
+    SQLiteDatabase db = getWritableDatabase();
+    String databaseFile = databaseDir() + name;
+    // Pages only leave the database file at a checkpoint in write-ahead logging mode
+    pragma(db, "wal_checkpoint");
+    long size = new File(databaseFile).length();
+
+    // One page is freed for each row returned, so all rows must be read. Databases that don't
+    // vacuum incrementally return none.
+    Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum", null);
+    cursor.getCount();
+    cursor.close();
+    db.execSQL("ANALYZE");
+
+    pragma(db, "wal_checkpoint");
+    return size - new File(databaseFile).length();
+  }
+
+  /**
+   * @return whether a quick check of the database found it intact
+   */
+  public boolean checkIntegrity() {
+    return "ok".equalsIgnoreCase(pragma(getWritableDatabase(), "quick_check"));
+  }
+
+  /**
+   * @return the size in bytes of the database on disk, its write-ahead log included
+   */
+  public long getSize() {
+    String databaseFile = databaseDir() + name;
+    return new File(databaseFile).length() + new File(databaseFile + WAL_SUFFIX).length();
+  }
+
+  /**
+   * Back up the database by backing up the sqlite file, along with its write-ahead log if it has
+   * one. The copy is a consistent snapshot even while other threads use the database, but it must
+   * not be taken inside a transaction of the calling thread. A manifest of the backup files'
+   * checksums is written next to them, for {@link #restore()} to check.
    */
   public void backup() {
     // Log using standard log since the DB may not be setup yet
-    Log.w(TAG, "Backing up" + DATABASE_NAME);
-    IOUtil.copy(databaseDir() + DATABASE_NAME, databaseDir() + DATABASE_NAME_BACKUP);
+    Log.w(TAG, "Backing up " + name);
+    String backup = databaseDir() + name + BACKUP_SUFFIX;
+    // A log left from an earlier backup would be applied to this one
+    IOUtil.remove(backup + WAL_SUFFIX);
+
+    SQLiteDatabase db = currentConnection();
+    if (db == null || db.isReadOnly()) {
+      copyFiles(backup);
+    } else {
+      // Checkpoint first, so little of the write-ahead log is left to copy. SQLite versions
+      // without write-ahead logging ignore the pragma.
+      pragma(db, "wal_checkpoint");
+
+      /*
+       * The exclusive transaction keeps writers from committing while the files are copied.
+       * Checkpoints may still write to the database file meanwhile, but only pages the log holds
+       * as well, and the log is copied after the database.
+       */
+      db.beginTransaction();
+      try {
+        copyFiles(backup);
+      } finally {
+        db.endTransaction();
+      }
+    }
+  }
+
+  /**
+   * Copy the database file, and its write-ahead log if it has one, and write their manifest.
+   * 
+   * @param backup
+   *          path of the database backup
+   */
+  private void copyFiles(String backup) {
+    String databaseFile = databaseDir() + name;
+    IOUtil.copy(databaseFile, backup);
+    if (new File(databaseFile + WAL_SUFFIX).length() > 0) {
+      IOUtil.copy(databaseFile + WAL_SUFFIX, backup + WAL_SUFFIX);
+      IOUtil.writeManifest(backup + MANIFEST_SUFFIX, backup, backup + WAL_SUFFIX);
+    } else {
+      IOUtil.writeManifest(backup + MANIFEST_SUFFIX, backup);
+    }
   }
 
   /**
@@ -120,25 +474,70 @@ public class DbHelper extends SQLiteOpenHelper  {
    */
   public void remove() {
     // Log using standard log since the DB may not be setup yet
-    Log.w(TAG, "Removing" + DATABASE_NAME);
-    IOUtil.remove(databaseDir() + DATABASE_NAME);
+    Log.w(TAG, "Removing" + name);
+    IOUtil.remove(databaseDir() + name);
+
+    // A stale journal or write-ahead log would be applied to the next database in this place
+    for (String sideFile : DATABASE_SIDE_FILES) {
+      IOUtil.remove(databaseDir() + name + sideFile);
+    }
   }
 
   /**
-   * Restore the database by using the sqlite file backed up.
+   * Restore the database by using the sqlite file backed up. The backup is checked against its
+   * manifest first, and the database left as it is if the backup is not intact.
+   * 
+   * @throws IllegalStateException
+   *           if the backup files don't match their manifest
    */
   public void restore() {
     // Log using standard log since the DB may not be setup yet
-    Log.w(TAG, "Restoring " + DATABASE_NAME);
+    Log.w(TAG, "Restoring " + name);
+    String backup = databaseDir() + name + BACKUP_SUFFIX;
+    if (!IOUtil.verifyManifest(backup + MANIFEST_SUFFIX)) {
+      throw new IllegalStateException("Backup of " + name + " is corrupt.");
+    }
+
+    /*
+     * Helpers opened after this must see the restored file, so every connection to the old one is
+     * closed. Closing waits for the statements running on a connection, the helpers that used it
+     * report themselves closed afterwards.
+     */
+    synchronized (OPEN_LOCK) {
+      closeWriter(name);
+      ArrayList<SQLiteDatabase> open = readers.remove(name);
+      if (open != null) {
+        for (SQLiteDatabase db : open) {
+          closeReader(name, db);
+        }
+      }
+    }
     remove();
-    IOUtil.move(databaseDir() + DATABASE_NAME_BACKUP, databaseDir() + DATABASE_NAME);
+    IOUtil.move(backup, databaseDir() + name);
+    if (IOUtil.exist(backup + WAL_SUFFIX)) {
+      IOUtil.move(backup + WAL_SUFFIX, databaseDir() + name + WAL_SUFFIX);
+    }
+    IOUtil.remove(backup + MANIFEST_SUFFIX);
+    UIDbCache.invalidateAll();
+  }
+
+  /**
+   * @return the open connection of the database, the shared writer or else this helper's own, or
+   *         null if neither is open
+   */
+  private SQLiteDatabase currentConnection() {
+    synchronized (OPEN_LOCK) {
+      SharedWriter writer = writers.get(name);
+      SQLiteDatabase db = writer != null ? writer.database : reader;
+      return db != null && db.isOpen() ? db : null;
+    }
   }
 
   /**
    * @return whether the database backup file exists.
    */
   public boolean isBackedUp() {
-    return IOUtil.exist(databaseDir() + DATABASE_NAME_BACKUP);
+    return IOUtil.exist(databaseDir() + name + BACKUP_SUFFIX);
   }
 
   /**
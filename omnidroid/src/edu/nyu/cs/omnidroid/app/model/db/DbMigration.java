@@ -19,6 +19,7 @@ import static edu.nyu.cs.omnidroid.app.model.CursorHelper.getLongFromCursor;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.util.Log;
@@ -57,6 +58,7 @@ import edu.nyu.cs.omnidroid.app.controller.events.ServiceAvailableEvent;
 import edu.nyu.cs.omnidroid.app.controller.events.SystemEvent;
 import edu.nyu.cs.omnidroid.app.controller.events.TimeTickEvent;
 import edu.nyu.cs.omnidroid.app.model.CursorHelper;
+import edu.nyu.cs.omnidroid.app.model.UIDbCache;
 
 /**
  * Class used for migrating a database for Omnidroid from one version to another.
@@ -122,18 +124,36 @@ public class DbMigration {
       alterFailedActionsTable(db);
     case 17:
       addMissedCallEvent(db);
+    case 18:
+      addLogTimestampIndexes(db);
+    case 19:
+      addLogSearch(db);
+    case 20:
+      partitionLogs(db);
+    case 21:
+      addRulePriority(db);
+    case 22:
+      addRuleIndexes(db);
+    case 23:
+      moveLogs(context, db);
+    case 24:
+      addActionReceivers(db);
 
 
       /*
        * Insert new versions before this line and do not forget to update {@code
        * DbHelper.DATABASE_VERSION}. Otherwise, the constructor call on SQLiteOpenHelper will not
-       * trigger the {@code onUpgrade} callback method.
+       * trigger the {@code onUpgrade} callback method. Fresh installs don't run these migrations,
+       * make the same change in {@link DbBootstrap}.
        */
       break;
     default:
       Log.w(TAG, "Attempting to migrate from an unknown version!");
       break;
     }
+
+    // Migrations register applications, events and actions, so cached registries are stale
+    UIDbCache.invalidateAll();
   }
 
   /**
@@ -915,4 +935,180 @@ public class DbMigration {
         eventIdMissedCall, dataTypeIdPhoneNumber);
   }
 
+  /**
+   * Index the log tables by timestamp so the log viewer can page through them newest first.
+   * 
+   * @param db
+   *          the database instance to work with
+   */
+  private static void addLogTimestampIndexes(SQLiteDatabase db) {
+    db.execSQL(LogEventDbAdapter.CREATE_TIMESTAMP_INDEX);
+    db.execSQL(LogActionDbAdapter.CREATE_TIMESTAMP_INDEX);
+    db.execSQL(LogGeneralDbAdapter.CREATE_TIMESTAMP_INDEX);
+  }
+
+  /**
+   * Add the full text search index over the logs and index the logs already stored.
+   * 
+   * @param db
+   *          the database instance to work with
+   */
+  private static void addLogSearch(SQLiteDatabase db) {
+    db.execSQL(LogSearchDbAdapter.DATABASE_CREATE);
+    db.execSQL(LogSearchDbAdapter.DATABASE_CREATE_DOC);
+    db.execSQL(LogSearchDbAdapter.DATABASE_CREATE_DOC_INDEX);
+    for (String statement : LogSearchDbAdapter.DATABASE_POPULATE) {
+      db.execSQL(statement);
+    }
+  }
+
+  /**
+   * Move the logs into hourly partitions so old logs can be pruned by dropping whole partitions.
+   * 
+   * @param db
+   *          the database instance to work with
+   */
+  private static void partitionLogs(SQLiteDatabase db) {
+    LogEventDbAdapter.createPartitions(db).partitionTable();
+    LogActionDbAdapter.createPartitions(db).partitionTable();
+    LogGeneralDbAdapter.createPartitions(db).partitionTable();
+  }
+
+  /**
+   * Add the priority and exclusive flag that order the evaluation of the rules of an event.
+   * 
+   * @param db
+   *          the database instance to work with
+   */
+  private static void addRulePriority(SQLiteDatabase db) {
+    db.execSQL(RuleDbAdapter.ADD_PRIORITY_COLUMN);
+    db.execSQL(RuleDbAdapter.ADD_EXCLUSIVE_COLUMN);
+  }
+
+  /**
+   * Index the rule action, parameter and filter tables by the record they belong to, so a rule's
+   * records can be loaded and deleted without scanning these tables.
+   * 
+   * @param db
+   *          the database instance to work with
+   */
+  private static void addRuleIndexes(SQLiteDatabase db) {
+    db.execSQL(RuleActionDbAdapter.CREATE_RULE_INDEX);
+    db.execSQL(RuleActionParameterDbAdapter.CREATE_RULE_ACTION_INDEX);
+    db.execSQL(RuleFilterDbAdapter.CREATE_RULE_INDEX);
+  }
+
+  /**
+   * Add the receiver class that the applications registering actions at runtime perform them with.
+   * 
+   * @param db
+   *          the database instance to work with
+   */
+  private static void addActionReceivers(SQLiteDatabase db) {
+    db.execSQL(RegisteredAppDbAdapter.ADD_RECEIVER_COLUMN);
+  }
+
+  /**
+   * Move the logs, their search index and the failed actions into the log database, see
+   * {@link LogDbHelper}. The search index is rebuilt there rather than copied, and only if logs
+   * were moved, so logs already in the log database aren't indexed twice. The logs are only dropped
+   * here once all of them were copied.
+   * 
+   * The log database commits before this upgrade does, so the move may run again after the copy
+   * already went through, and the log database may hold logs written before the upgrade. Logs are
+   * copied with their ids, skipping ids the log database has already. Failed actions are only
+   * copied into an empty queue, since their ids are assigned per database and the parameters refer
+   * to them.
+   * 
+   * @param context
+   *          the context to open the log database in
+   * @param db
+   *          the database instance to work with
+   */
+  static void moveLogs(Context context, SQLiteDatabase db) {
+    LogDbHelper logDbHelper = new LogDbHelper(context);
+    SQLiteDatabase logDb = logDbHelper.getWritableDatabase();
+    logDb.beginTransaction();
+    try {
+      int logsMoved = copyPartitions(db, LogEventDbAdapter.createPartitions(db), logDb,
+          LogEventDbAdapter.createPartitions(logDb));
+      logsMoved += copyPartitions(db, LogActionDbAdapter.createPartitions(db), logDb,
+          LogActionDbAdapter.createPartitions(logDb));
+      logsMoved += copyPartitions(db, LogGeneralDbAdapter.createPartitions(db), logDb,
+          LogGeneralDbAdapter.createPartitions(logDb));
+      if (isEmpty(logDb, FailedActionsDbAdapter.DATABASE_TABLE)) {
+        copyRows(db, logDb, FailedActionsDbAdapter.DATABASE_TABLE);
+        copyRows(db, logDb, FailedActionParameterDbAdapter.DATABASE_TABLE);
+      }
+      if (logsMoved > 0) {
+        new LogSearchDbAdapter(logDb).deleteAll();
+        for (String statement : LogSearchDbAdapter.DATABASE_POPULATE) {
+          logDb.execSQL(statement);
+        }
+      }
+      logDb.setTransactionSuccessful();
+    } finally {
+      logDb.endTransaction();
+      logDbHelper.close();
+    }
+
+    LogDbHelper.dropLogTables(db);
+  }
+
+  /**
+   * Copy the logs of every partition into the same partition of another database.
+   * 
+   * @return number of logs copied
+   */
+  private static int copyPartitions(SQLiteDatabase db, LogPartitions partitions,
+      SQLiteDatabase targetDb, LogPartitions targetPartitions) {
+    int copied = 0;
+    for (long number : partitions.partitionNumbers()) {
+      String partition = targetPartitions.partitionFor(number * LogPartitions.PARTITION_SPAN);
+      copied += copyRows(db, targetDb, partition);
+    }
+    return copied;
+  }
+
+  /**
+   * Copy all rows of a table, ids included, into the table of the same name in another database.
+   * Rows whose id the target table has already are skipped, so copying again changes nothing.
+   * 
+   * @return number of rows copied
+   * @throws SQLException
+   *           if a row could not be inserted, which rolls back the migration
+   */
+  private static int copyRows(SQLiteDatabase db, SQLiteDatabase targetDb, String table) {
+    Cursor cursor = db.query(table, null, null, null, null, null, null);
+    // Unlike executeInsert, executeUpdateDelete reports failures rather than logging them
+    String insert = DbAdapter.insertSql(table, cursor.getColumnNames()).replaceFirst("^INSERT",
+        "INSERT OR IGNORE");
+    DbAdapter target = new DbAdapter(targetDb);
+    Object[] values = new Object[cursor.getColumnCount()];
+    int copied = 0;
+    try {
+      while (cursor.moveToNext()) {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = cursor.isNull(i) ? null : cursor.getString(i);
+        }
+        copied += target.executeUpdateDelete(insert, values);
+      }
+    } finally {
+      cursor.close();
+    }
+    return copied;
+  }
+
+  /**
+   * @return whether a table has no rows
+   */
+  private static boolean isEmpty(SQLiteDatabase db, String table) {
+    Cursor cursor = db.rawQuery("SELECT 1 FROM " + table + " LIMIT 1", null);
+    try {
+      return !cursor.moveToFirst();
+    } finally {
+      cursor.close();
+    }
+  }
+
 }
\ No newline at end of file
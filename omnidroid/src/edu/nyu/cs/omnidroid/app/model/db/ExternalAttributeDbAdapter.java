@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database adapter class for the ExternalAttributes table. Defines basic CRUD methods. 
@@ -54,6 +53,12 @@ public class ExternalAttributeDbAdapter extends DbAdapter {
       + KEY_DATATYPEID + " integer);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_EXTERNALATTRIBUTENAME,
+      KEY_APPID, KEY_DATATYPEID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_EXTERNALATTRIBUTEID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_EXTERNALATTRIBUTEID);
+
   /**
    * Constructor.
    * 
@@ -81,12 +86,7 @@ public class ExternalAttributeDbAdapter extends DbAdapter {
     if (attributeName == null || appID == null || dataTypeID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_EXTERNALATTRIBUTENAME, attributeName);
-    initialValues.put(KEY_APPID, appID);
-    initialValues.put(KEY_DATATYPEID, dataTypeID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, attributeName, appID, dataTypeID);
   }
 
   /**
@@ -101,8 +101,7 @@ public class ExternalAttributeDbAdapter extends DbAdapter {
     if (attributeID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_EXTERNALATTRIBUTEID + "=" + attributeID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, attributeID) > 0;
   }
 
   /**
@@ -128,9 +127,7 @@ public class ExternalAttributeDbAdapter extends DbAdapter {
     if (attributeID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_EXTERNALATTRIBUTEID + "="
-        + attributeID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, attributeID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -157,21 +154,8 @@ public class ExternalAttributeDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RegisteredAction records which matches the parameters.
    */
   public Cursor fetchAll(String attributeName, Long appID, Long dataTypeID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (attributeName != null) {
-      qb.appendWhere(" AND " + KEY_EXTERNALATTRIBUTENAME + " = ");
-      qb.appendWhereEscapeString(attributeName);
-    }
-    if (appID != null) {
-      qb.appendWhere(" AND " + KEY_APPID + " = " + appID);
-    }
-    if (dataTypeID != null) {
-      qb.appendWhere(" AND " + KEY_DATATYPEID + " = " + dataTypeID);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_EXTERNALATTRIBUTENAME, KEY_APPID,
+        KEY_DATATYPEID }, new Object[] { attributeName, appID, dataTypeID }, null);
   }
 
   /**
@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the FailedActionParameters table. Defines basic CRUD methods.
@@ -44,7 +43,7 @@ public class FailedActionParameterDbAdapter extends DbAdapter {
       KEY_ACTIONPARAMETERNAME, KEY_FAILEDACTIONPARAMETERDATA };
 
   /* Table name */
-  private static final String DATABASE_TABLE = "FailedActionParameters";
+  protected static final String DATABASE_TABLE = "FailedActionParameters";
 
   /* Create and drop statement. */
   protected static final String DATABASE_CREATE = "create table " + DATABASE_TABLE + " ("
@@ -54,6 +53,13 @@ public class FailedActionParameterDbAdapter extends DbAdapter {
       + KEY_FAILEDACTIONPARAMETERDATA + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_FAILEDACTIONID,
+      KEY_ACTIONPARAMETERNAME, KEY_FAILEDACTIONPARAMETERDATA);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_FAILEDACTIONID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS,
+      KEY_FAILEDACTIONPARAMETERID);
+
   /**
    * Constructor.
    * 
@@ -82,11 +88,8 @@ public class FailedActionParameterDbAdapter extends DbAdapter {
     if (failedActionID == null || actionParameterName == null || failedActionParameterData == null){
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_FAILEDACTIONID, failedActionID);
-    initialValues.put(KEY_ACTIONPARAMETERNAME, actionParameterName);
-    initialValues.put(KEY_FAILEDACTIONPARAMETERDATA, failedActionParameterData);
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, failedActionID, actionParameterName,
+        failedActionParameterData);
   }
 
   /**
@@ -102,8 +105,7 @@ public class FailedActionParameterDbAdapter extends DbAdapter {
     if (failedActionID == null) {
       throw new IllegalArgumentException("null");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_FAILEDACTIONID + "=" + failedActionID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, failedActionID) > 0;
   }
 
   /**
@@ -130,9 +132,7 @@ public class FailedActionParameterDbAdapter extends DbAdapter {
     if (failedActionParameterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_FAILEDACTIONPARAMETERID + "="
-        + failedActionParameterID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, failedActionParameterID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -161,21 +161,9 @@ public class FailedActionParameterDbAdapter extends DbAdapter {
   public Cursor fetchAll(Long failedActionID, String actionParameterName, 
       String failedActionParameterData) {
 
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (failedActionID != null) {
-      qb.appendWhere(" AND " + KEY_FAILEDACTIONID + " = " + failedActionID);
-    }
-    if (actionParameterName != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONPARAMETERNAME + " = " + actionParameterName);
-    }
-    if (failedActionParameterData != null) {
-      qb.appendWhere(" AND " + KEY_FAILEDACTIONPARAMETERDATA + " = ");
-      qb.appendWhereEscapeString(failedActionParameterData);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_FAILEDACTIONID,
+        KEY_ACTIONPARAMETERNAME, KEY_FAILEDACTIONPARAMETERDATA }, new Object[] { failedActionID,
+        actionParameterName, failedActionParameterData }, null);
   }
 
   /**
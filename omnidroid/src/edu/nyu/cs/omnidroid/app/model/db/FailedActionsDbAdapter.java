@@ -20,7 +20,6 @@ import java.util.Date;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the FailedActions table. Defines basic CRUD methods. 
@@ -46,7 +45,7 @@ public class FailedActionsDbAdapter extends DbAdapter {
       KEY_FAILURE_TYPE, KEY_MESSAGE, KEY_TIMESTAMP};
 
   /* Table name */
-  private static final String DATABASE_TABLE = "FailedActions";
+  protected static final String DATABASE_TABLE = "FailedActions";
 
   /* Create and drop statement. */
   protected static final String DATABASE_CREATE = "create table " + DATABASE_TABLE + " ("
@@ -57,6 +56,12 @@ public class FailedActionsDbAdapter extends DbAdapter {
       + KEY_MESSAGE + " text, "
       + KEY_TIMESTAMP + " integer not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_RULEID, KEY_ACTIONID,
+      KEY_FAILURE_TYPE, KEY_MESSAGE, KEY_TIMESTAMP);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_FAILEDACTIONID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_FAILEDACTIONID);
   
 
   /**
@@ -88,13 +93,8 @@ public class FailedActionsDbAdapter extends DbAdapter {
     if (ruleID == null || actionID == null || failureType == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_RULEID, ruleID);
-    initialValues.put(KEY_ACTIONID, actionID);
-    initialValues.put(KEY_FAILURE_TYPE, failureType);
-    initialValues.put(KEY_MESSAGE, message);
-    initialValues.put(KEY_TIMESTAMP, (new Date()).getTime());
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, ruleID, actionID, failureType, message,
+        (new Date()).getTime());
   }
 
   /**
@@ -110,8 +110,7 @@ public class FailedActionsDbAdapter extends DbAdapter {
     if (failedActionID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_FAILEDACTIONID + "=" + failedActionID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, failedActionID) > 0;
   }
 
   /**
@@ -137,9 +136,7 @@ public class FailedActionsDbAdapter extends DbAdapter {
     if (failedActionID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_FAILEDACTIONID + "="
-        + failedActionID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, failedActionID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -168,20 +165,8 @@ public class FailedActionsDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RuleAction records which matches the parameters.
    */
   public Cursor fetchAll(Long ruleID, Long actionID, Integer failureType) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (ruleID != null) {
-      qb.appendWhere(" AND " + KEY_RULEID + "=" + ruleID);
-    }
-    if (actionID != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONID + "=" + actionID);
-    }
-    if (failureType != null) {
-      qb.appendWhere(" AND " + KEY_FAILURE_TYPE + "=" + failureType);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_RULEID, KEY_ACTIONID,
+        KEY_FAILURE_TYPE }, new Object[] { ruleID, actionID, failureType }, null);
   }
 
   /**
@@ -232,10 +217,12 @@ public class FailedActionsDbAdapter extends DbAdapter {
   }
   
   private static final int HOUR = 3600000;
+
+  private static final String SELECTION_BEFORE = KEY_TIMESTAMP + " < ?";
   
   public Cursor fetchOldActions() {
     long timeAnHourAgo = (new Date()).getTime() - HOUR;
-    return database.query(DATABASE_TABLE, KEYS, KEY_TIMESTAMP + "<" + timeAnHourAgo, 
-        null, null, null, null);
+    return database.query(DATABASE_TABLE, KEYS, SELECTION_BEFORE,
+        new String[] { Long.toString(timeAnHourAgo) }, null, null, null);
   }
 }
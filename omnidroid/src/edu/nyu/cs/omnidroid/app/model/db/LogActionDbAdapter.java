@@ -17,7 +17,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 
 import edu.nyu.cs.omnidroid.app.model.Log;
 import edu.nyu.cs.omnidroid.app.model.ActionLog;
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
@@ -51,8 +50,31 @@ public class LogActionDbAdapter extends LogDbAdapter {
       + KEY_DESCRIPTION + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Column definitions of each hourly partition. */
+  protected static final String PARTITION_COLUMNS = KEY_ID + " integer primary key autoincrement, "
+      + KEY_TIMESTAMP + " integer, " + KEY_LOGEVENTID + " integer, " + KEY_RULENAME
+      + " text not null, " + KEY_ACTIONAPPNAME + " text not null, " + KEY_ACTIONEVENTNAME
+      + " text not null, " + KEY_ACTIONPARAMETERS + " text not null, " + KEY_DESCRIPTION
+      + " text not null";
+
+  /* Columns set by insert */
+  private static final String[] INSERT_COLUMNS = { KEY_TIMESTAMP, KEY_LOGEVENTID, KEY_RULENAME,
+      KEY_ACTIONAPPNAME, KEY_ACTIONEVENTNAME, KEY_ACTIONPARAMETERS, KEY_DESCRIPTION };
+
+  /* Index backing the newest first paged queries. */
+  protected static final String CREATE_TIMESTAMP_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE + "_" + KEY_TIMESTAMP + " ON " + DATABASE_TABLE + " (" + KEY_TIMESTAMP
+      + ", " + KEY_ID + ")";
+
   public LogActionDbAdapter(SQLiteDatabase database) {
-    super(database);
+    super(database, createPartitions(database));
+  }
+
+  /**
+   * @return the partitions of the {@code LogAction} table in database
+   */
+  public static LogPartitions createPartitions(SQLiteDatabase database) {
+    return new LogPartitions(database, DATABASE_TABLE, PARTITION_COLUMNS, KEYS);
   }
 
   /**
@@ -80,62 +102,8 @@ public class LogActionDbAdapter extends LogDbAdapter {
         || actionParameters == null || description == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_TIMESTAMP, timeStamp);
-    initialValues.put(KEY_LOGEVENTID, logEventID);
-    initialValues.put(KEY_RULENAME, ruleName);
-    initialValues.put(KEY_ACTIONAPPNAME, actionAppName);
-    initialValues.put(KEY_ACTIONEVENTNAME, actionEventName);
-    initialValues.put(KEY_ACTIONPARAMETERS, actionParameters);
-    initialValues.put(KEY_DESCRIPTION, description);
-    return database.insert(DATABASE_TABLE, null, initialValues);
-  }
-
-  /**
-   * deletes the specified LogAction from the database
-   * 
-   * @param id
-   *          - ID of the database entry to delete
-   * @return true if success, or false otherwise.
-   */
-  public boolean delete(long id) {
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_ID + "=" + id, null) > 0;
-  }
-
-  /**
-   * Delete all LogAction records.
-   * 
-   * @return true if success, or false if failed or nothing to be deleted.
-   */
-  public boolean deleteAll() {
-    // Set where and whereArgs to null here.
-    return database.delete(DATABASE_TABLE, null, null) > 0;
-  }
-
-  /**
-   * Return a Cursor pointing to the record matches the logActionID.
-   * 
-   * @param id
-   *          - ID of the database entry to retrieve
-   * @return the matching cursor.
-   */
-  public Cursor fetch(long id) {
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_ID + "=" + id, null, null,
-        null, null, null);
-    if (mCursor != null) {
-      mCursor.moveToFirst();
-    }
-    return mCursor;
-  }
-
-  /**
-   * @return a Cursor that contains all LogAction records sorted by timestamp in descending order.
-   */
-  public Cursor fetchAll() {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    return database.query(DATABASE_TABLE, KEYS, null, null, null, null, KEY_TIMESTAMP + " desc");
+    return insertIntoPartition(timeStamp, INSERT_COLUMNS, timeStamp, logEventID, ruleName,
+        actionAppName, actionEventName, actionParameters, description);
   }
 
   /**
@@ -156,18 +124,13 @@ public class LogActionDbAdapter extends LogDbAdapter {
         .getAppName(), myLog.getActionName(), myLog.getParameters(), myLog.getText());
   }
 
-  @Override
-  public Cursor fetchAllBefore(long timestamp) {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    String selection = KEY_TIMESTAMP + " < " + timestamp;
-    return database.query(DATABASE_TABLE, KEYS, selection, null, null, null, null);
-  }
-
-  @Override
-  public int deleteAllBefore(long timestamp) {
-    // Set where to before timestamp and whereArgs to null here.
-    String where = KEY_TIMESTAMP + " < " + timestamp;
-    return database.delete(DATABASE_TABLE, where, null);
+  /**
+   * @return a Cursor over the LogAction records whose parameter of that name may have the value,
+   *         newest first
+   * @see LogDbAdapter#fetchAllWithParameter(String, String, String)
+   */
+  public Cursor fetchAllWithParameter(String name, String value) {
+    return fetchAllWithParameter(KEY_ACTIONPARAMETERS, name, value);
   }
 
 }
@@ -15,13 +15,22 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model.db;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.nyu.cs.omnidroid.app.model.Log;
+import edu.nyu.cs.omnidroid.app.model.LogParameters;
 import android.database.Cursor;
+import android.database.MergeCursor;
 import android.database.sqlite.SQLiteDatabase;
 
 /**
  * This class represents a Omnidroid log. Logs are displayed on the ActivityEventLog for users to
  * see what is going on.
+ * <p>
+ * Logs are stored in hourly partitions managed by {@link LogPartitions}. Queries over a time range
+ * only read the partitions in that range, and old logs are pruned by dropping whole partitions.
+ * </p>
  */
 public abstract class LogDbAdapter extends DbAdapter {
   /* Timestamp conversion constants */
@@ -35,25 +44,200 @@ public abstract class LogDbAdapter extends DbAdapter {
   public static final String KEY_TIMESTAMP = "TimeStamp";
   public static final String KEY_DESCRIPTION = "Description";
 
-  public LogDbAdapter(SQLiteDatabase database) {
+  /* Newest first ordering used by the paged queries, ties broken by row id */
+  protected static final String PAGE_ORDER = KEY_TIMESTAMP + " desc, " + KEY_ID + " desc";
+
+  /* Keyset selection for the rows that come after a (timestamp, id) position in PAGE_ORDER */
+  protected static final String PAGE_SELECTION = KEY_TIMESTAMP + " < ? OR (" + KEY_TIMESTAMP
+      + " = ? AND " + KEY_ID + " < ?)";
+
+  /* Selection of the logs before a timestamp */
+  private static final String SELECTION_BEFORE = KEY_TIMESTAMP + " < ?";
+
+  /* The partitions holding the logs */
+  protected final LogPartitions partitions;
+
+  // The partition last inserted into and its insert statement, the partition changes hourly
+  private String[] lastInsert = { null, null };
+
+  public LogDbAdapter(SQLiteDatabase database, LogPartitions partitions) {
     super(database);
+    this.partitions = partitions;
   }
 
-  abstract public Cursor fetchAll();
+  abstract public long insert(Log log);
 
-  abstract public Cursor fetch(long id);
+  /**
+   * @return a Cursor that contains all Log records sorted by timestamp in descending order.
+   */
+  public Cursor fetchAll() {
+    return queryPartitions(partitions.partitions(), null, null, KEY_TIMESTAMP + " desc", null);
+  }
 
-  abstract public long insert(Log log);
+  /**
+   * Return a Cursor pointing to the record matching the id.
+   * 
+   * @param id
+   *          - ID of the log to retrieve
+   * @return the matching cursor.
+   */
+  public Cursor fetch(long id) {
+    String partition = partitions.partitionForId(id);
+    if (partition == null || !partitions.hasPartition(partition)) {
+      partition = partitions.getTable();
+    }
+    Cursor mCursor = rawQuery(selectSql(partition, partitions.getColumns(), KEY_ID), id);
+    if (mCursor != null) {
+      mCursor.moveToFirst();
+    }
+    return mCursor;
+  }
 
   /**
    * @return a Cursor that contains all Log records before timestamp
    */
-  abstract public Cursor fetchAllBefore(long timestamp);
+  public Cursor fetchAllBefore(long timestamp) {
+    return queryPartitions(partitions.partitionsInRange(null, timestamp), SELECTION_BEFORE,
+        new String[] { Long.toString(timestamp) }, null, null);
+  }
+
+  /**
+   * Insert a log into the partition of its timestamp.
+   * 
+   * @param timeStamp
+   *          the time stamp of the log
+   * @param columns
+   *          the columns set, in the order of values
+   * @param values
+   *          the values of the columns
+   * @return the row ID of the newly inserted row, or -1 if an error occurred
+   */
+  protected long insertIntoPartition(long timeStamp, String[] columns, Object... values) {
+    String partition = partitions.partitionFor(timeStamp);
+    String[] insert = lastInsert;
+    if (!partition.equals(insert[0])) {
+      insert = new String[] { partition, insertSql(partition, columns) };
+      lastInsert = insert;
+    }
+    return executeInsert(insert[1], values);
+  }
+
+  /**
+   * Fetch the logs whose parameters may hold the value for the name, newest first. LIKE ignores the
+   * case of ASCII letters, so callers wanting an exact match have to compare the decoded value.
+   * 
+   * @param parametersColumn
+   *          the column holding the parameters encoded by {@link LogParameters}
+   * @return a Cursor over the matching rows
+   */
+  protected Cursor fetchAllWithParameter(String parametersColumn, String name, String value) {
+    String selection = parametersColumn + " LIKE ? ESCAPE '" + LogParameters.LIKE_ESCAPE + "'";
+    String[] selectionArgs = { LogParameters.likePattern(name, value) };
+    return queryPartitions(partitions.partitions(), selection, selectionArgs, PAGE_ORDER, null);
+  }
+
+  /**
+   * Delete the logs before timestamp a whole partition at a time. Logs in the partition spanning
+   * timestamp are kept until that partition is old enough to be dropped.
+   * 
+   * @return number of partitions dropped
+   */
+  public int deleteAllBefore(long timestamp) {
+    return partitions.dropBefore(timestamp);
+  }
+
+  /**
+   * deletes the specified log from the database
+   * 
+   * @param id
+   *          - ID of the log to delete
+   * @return true if success, or false otherwise.
+   */
+  public boolean delete(long id) {
+    String partition = partitions.partitionForId(id);
+    if (partition != null) {
+      return partitions.hasPartition(partition)
+          && executeUpdateDelete(deleteSql(partition, KEY_ID), id) > 0;
+    }
+    // Logs kept from before partitioning could be in any partition
+    for (String each : partitions.partitions()) {
+      if (executeUpdateDelete(deleteSql(each, KEY_ID), id) > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Delete all log records.
+   * 
+   * @return true if success, or false if failed or nothing to be deleted.
+   */
+  public boolean deleteAll() {
+    return partitions.dropAll() > 0;
+  }
 
   /**
-   * @return number of logs deleted that were before timestamp
+   * Run the same query against each partition and combine the results in partition order, newest
+   * first. Stops reading partitions once {@code limit} rows have been found.
+   * 
+   * @param partitionNames
+   *          the partitions to query, newest first
+   * @param limit
+   *          maximum number of rows to return, or null for no limit
+   * @return a Cursor over the matching rows of all partitions
    */
-  abstract public int deleteAllBefore(long timestamp);
+  protected Cursor queryPartitions(List<String> partitionNames, String selection,
+      String[] selectionArgs, String orderBy, Integer limit) {
+    if (partitionNames.isEmpty()) {
+      // Query the view so the caller still gets a cursor with all the columns
+      return database.query(partitions.getTable(), partitions.getColumns(), "0", null, null, null,
+          null);
+    }
 
-  abstract public boolean delete(long id);
+    ArrayList<Cursor> cursors = new ArrayList<Cursor>(partitionNames.size());
+    int remaining = limit == null ? -1 : limit;
+    for (String partition : partitionNames) {
+      Cursor cursor = database.query(partition, partitions.getColumns(), selection,
+          selectionArgs, null, null, orderBy, remaining < 0 ? null : Integer.toString(remaining));
+      cursors.add(cursor);
+      if (remaining >= 0) {
+        remaining -= cursor.getCount();
+        if (remaining <= 0) {
+          break;
+        }
+      }
+    }
+    if (cursors.size() == 1) {
+      return cursors.get(0);
+    }
+    return new MergeCursor(cursors.toArray(new Cursor[cursors.size()]));
+  }
+
+  /**
+   * Fetch one page of logs, newest first. Pages are addressed by the (timestamp, id) of the last
+   * row of the previous page rather than by an offset, so each page is a range scan on the
+   * timestamp index no matter how deep into the logs it is.
+   * 
+   * @param beforeTimestamp
+   *          timestamp of the last row of the previous page, or null for the first page
+   * @param beforeId
+   *          id of the last row of the previous page, ignored for the first page
+   * @param limit
+   *          maximum number of rows to return
+   * @return a Cursor that contains at most {@code limit} rows ordered by timestamp and id in
+   *         descending order
+   */
+  public Cursor fetchPage(Long beforeTimestamp, long beforeId, int limit) {
+    String selection = null;
+    String[] selectionArgs = null;
+    if (beforeTimestamp != null) {
+      selection = PAGE_SELECTION;
+      selectionArgs = new String[] { beforeTimestamp.toString(), beforeTimestamp.toString(),
+          Long.toString(beforeId) };
+    }
+    // Partitions cover disjoint hours, so reading them newest first keeps the page in order
+    return queryPartitions(partitions.partitionsInRange(null, beforeTimestamp), selection,
+        selectionArgs, PAGE_ORDER, limit);
+  }
 }
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Handles creating, opening and closing the log database. The event, action and general logs,
+ * their search index and the failed actions queued for retry are kept in this file, apart from the
+ * rules and registries in the main database, so their churn doesn't bloat the file the rules are
+ * read from and the rules can be backed up without them.
+ */
+public class LogDbHelper extends DbHelper {
+  // This version number needs to increase whenever a log schema change is made
+  private static final int DATABASE_VERSION = 2;
+
+  private static final String DATABASE_NAME = "omnidroid_logs";
+
+  private static final String AUTO_VACUUM_INCREMENTAL = "PRAGMA auto_vacuum = INCREMENTAL";
+
+  // What PRAGMA auto_vacuum reports for a database that keeps its free pages
+  private static final String AUTO_VACUUM_NONE = "0";
+
+  public LogDbHelper(Context context) {
+    super(context, DATABASE_NAME, DATABASE_VERSION);
+  }
+
+  @Override
+  protected DbHelper newHelper(Context context) {
+    return new LogDbHelper(context);
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase db) {
+    createTables(db);
+  }
+
+  @Override
+  public void onOpen(SQLiteDatabase db) {
+    if (!db.isReadOnly() && AUTO_VACUUM_NONE.equals(pragma(db, "auto_vacuum"))) {
+      enableIncrementalVacuum(db);
+    }
+    super.onOpen(db);
+  }
+
+  /**
+   * Pruning drops whole partitions once an hour, let the file shrink with them instead of keeping
+   * the free pages. The pages are given back by the scheduled maintenance rather than by the commit
+   * that frees them, see DbMaintenance.
+   * 
+   * The platform creates its metadata table before onCreate, and auto_vacuum can only be turned on
+   * afterwards by a VACUUM, which can't run in the transaction of onCreate. So it is done on open,
+   * once per file.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   */
+  private static void enableIncrementalVacuum(SQLiteDatabase db) {
+    db.execSQL(AUTO_VACUUM_INCREMENTAL);
+    db.execSQL("VACUUM");
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    // Add migrations here, starting from oldVersion, when the log schema changes
+    switch (oldVersion) {
+    case 1:
+      /*
+       * Version 1 meant to vacuum on every commit, but its pragma came too late to take effect, so
+       * its files keep their free pages. Turning auto_vacuum on takes a full VACUUM, which can't
+       * run in this transaction. onOpen runs it right after the upgrade.
+       */
+      break;
+    default:
+      break;
+    }
+  }
+
+  /**
+   * Create the log tables with their latest schema.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   */
+  static void createTables(SQLiteDatabase db) {
+    LogEventDbAdapter.createPartitions(db).updateView();
+    LogActionDbAdapter.createPartitions(db).updateView();
+    LogGeneralDbAdapter.createPartitions(db).updateView();
+    db.execSQL(LogSearchDbAdapter.DATABASE_CREATE);
+    db.execSQL(LogSearchDbAdapter.DATABASE_CREATE_DOC);
+    db.execSQL(LogSearchDbAdapter.DATABASE_CREATE_DOC_INDEX);
+    db.execSQL(FailedActionsDbAdapter.DATABASE_CREATE);
+    db.execSQL(FailedActionParameterDbAdapter.DATABASE_CREATE);
+  }
+
+  /**
+   * Drop the log tables.
+   * 
+   * @param db
+   *          SQLiteDatabase object to work with
+   */
+  static void dropLogTables(SQLiteDatabase db) {
+    LogEventDbAdapter.createPartitions(db).drop();
+    LogActionDbAdapter.createPartitions(db).drop();
+    LogGeneralDbAdapter.createPartitions(db).drop();
+    db.execSQL(LogSearchDbAdapter.DATABASE_DROP);
+    db.execSQL(LogSearchDbAdapter.DATABASE_DROP_DOC);
+    db.execSQL(FailedActionsDbAdapter.DATABASE_DROP);
+    db.execSQL(FailedActionParameterDbAdapter.DATABASE_DROP);
+  }
+
+  @Override
+  protected void dropTables(SQLiteDatabase db) {
+    dropLogTables(db);
+  }
+}
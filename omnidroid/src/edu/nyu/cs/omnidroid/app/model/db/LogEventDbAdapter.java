@@ -17,7 +17,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 
 import edu.nyu.cs.omnidroid.app.model.EventLog;
 import edu.nyu.cs.omnidroid.app.model.Log;
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
@@ -50,8 +49,33 @@ public class LogEventDbAdapter extends LogDbAdapter {
       + " text not null," + KEY_DESCRIPTION + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Column definitions of each hourly partition. */
+  protected static final String PARTITION_COLUMNS = KEY_ID + " integer primary key autoincrement, "
+      + KEY_TIMESTAMP + " integer, " + KEY_APPNAME + " text not null, " + KEY_EVENTNAME
+      + " text not null, " + KEY_EVENTPARAMETERS + " text not null, " + KEY_DESCRIPTION
+      + " text not null";
+
+  /* Columns set by insert */
+  private static final String[] INSERT_COLUMNS = { KEY_TIMESTAMP, KEY_APPNAME, KEY_EVENTNAME,
+      KEY_EVENTPARAMETERS, KEY_DESCRIPTION };
+
+  /* Selection of the logs since a timestamp */
+  private static final String SELECTION_SINCE = KEY_TIMESTAMP + " > ?";
+
+  /* Index backing the newest first paged queries. */
+  protected static final String CREATE_TIMESTAMP_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE + "_" + KEY_TIMESTAMP + " ON " + DATABASE_TABLE + " (" + KEY_TIMESTAMP
+      + ", " + KEY_ID + ")";
+
   public LogEventDbAdapter(SQLiteDatabase database) {
-    super(database);
+    super(database, createPartitions(database));
+  }
+
+  /**
+   * @return the partitions of the {@code LogEvent} table in database
+   */
+  public static LogPartitions createPartitions(SQLiteDatabase database) {
+    return new LogPartitions(database, DATABASE_TABLE, PARTITION_COLUMNS, KEYS);
   }
 
   /**
@@ -74,60 +98,8 @@ public class LogEventDbAdapter extends LogDbAdapter {
     if (appName == null || eventName == null || eventParameters == null || description == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_TIMESTAMP, timeStamp);
-    initialValues.put(KEY_APPNAME, appName);
-    initialValues.put(KEY_EVENTNAME, eventName);
-    initialValues.put(KEY_EVENTPARAMETERS, eventParameters);
-    initialValues.put(KEY_DESCRIPTION, description);
-    return database.insert(DATABASE_TABLE, null, initialValues);
-  }
-
-  /**
-   * deletes the specified LogEvent from the database
-   * 
-   * @param id
-   *          - ID of the LogEvent to delete
-   * @return true if success, or false otherwise.
-   */
-  public boolean delete(long id) {
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_ID + "=" + id, null) > 0;
-  }
-
-  /**
-   * Delete all LogEvent records.
-   * 
-   * @return true if success, or false if failed or nothing to be deleted.
-   */
-  public boolean deleteAll() {
-    // Set where and whereArgs to null here.
-    return database.delete(DATABASE_TABLE, null, null) > 0;
-  }
-
-  /**
-   * Return a Cursor pointing to the record matches the logEventID.
-   * 
-   * @param id
-   *          - ID of the LogEvent to delete
-   * @return the matching cursor.
-   */
-  public Cursor fetch(long id) {
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_ID + "=" + id, null, null,
-        null, null, null);
-    if (mCursor != null) {
-      mCursor.moveToFirst();
-    }
-    return mCursor;
-  }
-
-  /**
-   * @return a Cursor that contains all LogEvent records sorted by timestamp in descending order.
-   */
-  public Cursor fetchAll() {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    return database.query(DATABASE_TABLE, KEYS, null, null, null, null, KEY_TIMESTAMP + " desc");
+    return insertIntoPartition(timeStamp, INSERT_COLUMNS, timeStamp, appName, eventName,
+        eventParameters, description);
   }
 
   /**
@@ -149,26 +121,20 @@ public class LogEventDbAdapter extends LogDbAdapter {
   }
 
   /**
-   * @return a Cursor that contains all LogEvent records since timestamp
+   * @return a Cursor over the LogEvent records whose attribute of that name may have the value,
+   *         newest first
+   * @see LogDbAdapter#fetchAllWithParameter(String, String, String)
    */
-  public Cursor fetchAllSince(long timestamp) {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    String selection = KEY_TIMESTAMP + " > " + timestamp;
-    return database.query(DATABASE_TABLE, KEYS, selection, null, null, null, null);
+  public Cursor fetchAllWithParameter(String name, String value) {
+    return fetchAllWithParameter(KEY_EVENTPARAMETERS, name, value);
   }
 
-  @Override
-  public Cursor fetchAllBefore(long timestamp) {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    String selection = KEY_TIMESTAMP + " < " + timestamp;
-    return database.query(DATABASE_TABLE, KEYS, selection, null, null, null, null);
-  }
-
-  @Override
-  public int deleteAllBefore(long timestamp) {
-    // Set where to before timestamp and whereArgs to null here.
-    String where = KEY_TIMESTAMP + " < " + timestamp;
-    return database.delete(DATABASE_TABLE, where, null);
+  /**
+   * @return a Cursor that contains all LogEvent records since timestamp
+   */
+  public Cursor fetchAllSince(long timestamp) {
+    return queryPartitions(partitions.partitionsInRange(timestamp, null), SELECTION_SINCE,
+        new String[] { Long.toString(timestamp) }, null, null);
   }
 
 }
@@ -18,8 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import edu.nyu.cs.omnidroid.app.model.GeneralLog;
 import edu.nyu.cs.omnidroid.app.model.Log;
-import android.content.ContentValues;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
 /**
@@ -48,12 +46,32 @@ public class LogGeneralDbAdapter extends LogDbAdapter {
       + " integer primary key autoincrement, " + KEY_TIMESTAMP + " integer, " + KEY_DESCRIPTION
       + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
+
+  /* Column definitions of each hourly partition. */
+  protected static final String PARTITION_COLUMNS = KEY_ID + " integer primary key autoincrement, "
+      + KEY_TIMESTAMP + " integer, " + KEY_DESCRIPTION + " text not null, " + KEY_LEVEL
+      + " integer not null DEFAULT " + LOG_LEVEL_DEFAULT;
+
+  /* Columns set by insert */
+  private static final String[] INSERT_COLUMNS = { KEY_TIMESTAMP, KEY_DESCRIPTION, KEY_LEVEL };
+
+  /* Index backing the newest first paged queries. */
+  protected static final String CREATE_TIMESTAMP_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE + "_" + KEY_TIMESTAMP + " ON " + DATABASE_TABLE + " (" + KEY_TIMESTAMP
+      + ", " + KEY_ID + ")";
   
   protected static final String ADD_LEVEL_COLUMN = "ALTER TABLE " + DATABASE_TABLE  
                + " ADD " + KEY_LEVEL + " integer not null DEFAULT " + LOG_LEVEL_DEFAULT;
 
   public LogGeneralDbAdapter(SQLiteDatabase database) {
-    super(database);
+    super(database, createPartitions(database));
+  }
+
+  /**
+   * @return the partitions of the {@code LogGeneral} table in database
+   */
+  public static LogPartitions createPartitions(SQLiteDatabase database) {
+    return new LogPartitions(database, DATABASE_TABLE, PARTITION_COLUMNS, KEYS);
   }
 
   /**
@@ -67,59 +85,7 @@ public class LogGeneralDbAdapter extends LogDbAdapter {
     if (description == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_TIMESTAMP, timeStamp);
-    initialValues.put(KEY_DESCRIPTION, description);
-    initialValues.put(KEY_LEVEL, level);
-    return database.insert(DATABASE_TABLE, null, initialValues);
-  }
-
-  /**
-   * deletes the specified LogAction from the database
-   * 
-   * @param id
-   *          - ID of the database entry to delete
-   * @return true if success, or false otherwise.
-   */
-  public boolean delete(long id) {
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_ID + "=" + id, null) > 0;
-  }
-
-  /**
-   * Delete all LogAction records.
-   * 
-   * @return true if success, or false if failed or nothing to be deleted.
-   */
-  public boolean deleteAll() {
-    // Set where and whereArgs to null here.
-    return database.delete(DATABASE_TABLE, null, null) > 0;
-  }
-
-  /**
-   * Return a Cursor pointing to the record matches the databse row id.
-   * 
-   * @param id
-   *          - ID of the database entry to retrieve
-   * @return the matching cursor.
-   */
-  public Cursor fetch(long id) {
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_ID + "=" + id, null, null,
-        null, null, null);
-    if (mCursor != null) {
-      mCursor.moveToFirst();
-    }
-    return mCursor;
-  }
-
-  /**
-   * @return a Cursor that contains all {@code LogGeneral} records sorted by timestamp in descending
-   *         order.
-   */
-  public Cursor fetchAll() {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    return database.query(DATABASE_TABLE, KEYS, null, null, null, null, KEY_TIMESTAMP + " desc");
+    return insertIntoPartition(timeStamp, INSERT_COLUMNS, timeStamp, description, level);
   }
 
   /**
@@ -137,18 +103,4 @@ public class LogGeneralDbAdapter extends LogDbAdapter {
     GeneralLog myLog = (GeneralLog) log;
     return insert(myLog.getTimestamp(), myLog.getText(), myLog.getLevel());
   }
-
-  @Override
-  public Cursor fetchAllBefore(long timestamp) {
-    // Set selections, selectionArgs, groupBy, having, orderBy to null to fetch all rows.
-    String selection = KEY_TIMESTAMP + " < " + timestamp;
-    return database.query(DATABASE_TABLE, KEYS, selection, null, null, null, null);
-  }
-
-  @Override
-  public int deleteAllBefore(long timestamp) {
-    // Set where to before timestamp and whereArgs to null here.
-    String where = KEY_TIMESTAMP + " < " + timestamp;
-    return database.delete(DATABASE_TABLE, where, null);
-  }
 }
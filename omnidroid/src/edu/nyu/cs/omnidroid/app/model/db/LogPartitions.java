@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Manages the hourly partitions of one log table.
+ * <p>
+ * Each hour of logs is stored in its own table named after the log table and the hour, for example
+ * {@code LogEvent_490000}. A view with the log table's name unions all partitions so the logs can
+ * still be queried as one table. Pruning old logs drops whole partitions instead of deleting rows,
+ * and queries over a time range only need to look at the partitions in that range.
+ * </p>
+ * <p>
+ * Row ids stay unique across partitions: each partition's ids start at its hour times
+ * {@link #ID_SPAN}, so the partition of a log can also be found from its id alone.
+ * </p>
+ */
+public class LogPartitions {
+  /** Length of time covered by one partition */
+  public static final long PARTITION_SPAN = LogDbAdapter.TIME_IN_HOUR;
+
+  /** Range of row ids reserved for each partition */
+  public static final long ID_SPAN = 1000000000L;
+
+  private static final char SEPARATOR = '_';
+
+  private final SQLiteDatabase database;
+  private final String table;
+  private final String columnDefinitions;
+  private final String[] columns;
+
+  // The partition most recently inserted into, to avoid checking it exists on every insert
+  private String currentPartition = null;
+
+  /**
+   * @param database
+   *          the database holding the partitions
+   * @param table
+   *          name of the log table, used as the view name and the partition name prefix
+   * @param columnDefinitions
+   *          the column definitions of a partition table, without the enclosing parentheses
+   * @param columns
+   *          the column names of a partition table, in the order they are defined
+   */
+  public LogPartitions(SQLiteDatabase database, String table, String columnDefinitions,
+      String[] columns) {
+    this.database = database;
+    this.table = table;
+    this.columnDefinitions = columnDefinitions;
+    this.columns = columns;
+  }
+
+  /**
+   * @return the name of the view over all partitions
+   */
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * @return the column names of a partition
+   */
+  public String[] getColumns() {
+    return columns;
+  }
+
+  /**
+   * @return the hour number of the partition that holds logs at timestamp
+   */
+  public static long partitionNumber(long timestamp) {
+    return timestamp / PARTITION_SPAN;
+  }
+
+  /**
+   * @return the earliest time held by the partition that holds logs at timestamp
+   */
+  public static long partitionStart(long timestamp) {
+    return partitionNumber(timestamp) * PARTITION_SPAN;
+  }
+
+  /**
+   * @return the name of the partition that holds logs with the hour number
+   */
+  private String partitionName(long partitionNumber) {
+    return table + SEPARATOR + partitionNumber;
+  }
+
+  /**
+   * @return the hour number of the partition name, or -1 if it is not one of our partitions
+   */
+  private long partitionNumber(String partitionName) {
+    try {
+      return Long.parseLong(partitionName.substring(table.length() + 1));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the hour numbers of all existing partitions, newest first
+   */
+  public List<Long> partitionNumbers() {
+    ArrayList<Long> numbers = new ArrayList<Long>();
+    Cursor cursor = database.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND "
+        + "name LIKE ? ESCAPE '!'", new String[] { table + "!" + SEPARATOR + "%" });
+    while (cursor.moveToNext()) {
+      long number = partitionNumber(cursor.getString(0));
+      if (number >= 0) {
+        numbers.add(number);
+      }
+    }
+    cursor.close();
+    Collections.sort(numbers, Collections.reverseOrder());
+    return numbers;
+  }
+
+  /**
+   * @return the names of all existing partitions, newest first
+   */
+  public List<String> partitions() {
+    return partitionsInRange(null, null);
+  }
+
+  /**
+   * @param fromTimestamp
+   *          earliest time of interest, or null for no lower bound
+   * @param toTimestamp
+   *          latest time of interest, or null for no upper bound
+   * @return the names of the existing partitions that can hold logs in the time range, newest first
+   */
+  public List<String> partitionsInRange(Long fromTimestamp, Long toTimestamp) {
+    List<Long> numbers = partitionNumbers();
+    ArrayList<String> names = new ArrayList<String>(numbers.size());
+    for (long number : numbers) {
+      if (fromTimestamp != null && number < partitionNumber(fromTimestamp)) {
+        continue;
+      }
+      if (toTimestamp != null && number > partitionNumber(toTimestamp)) {
+        continue;
+      }
+      names.add(partitionName(number));
+    }
+    return names;
+  }
+
+  /**
+   * @return the name of the partition holding the log with id, or null if the id predates
+   *         partitioning and the log could be in any partition
+   */
+  public String partitionForId(long id) {
+    long number = id / ID_SPAN;
+    return number > 0 ? partitionName(number) : null;
+  }
+
+  /**
+   * Get the partition for a new log at timestamp, creating it if needed.
+   * 
+   * @return the name of the partition to insert the log into
+   */
+  public String partitionFor(long timestamp) {
+    long number = partitionNumber(timestamp);
+    String name = partitionName(number);
+    if (!name.equals(currentPartition)) {
+      createPartition(number);
+      currentPartition = name;
+    }
+    return name;
+  }
+
+  /**
+   * @return true if the table exists
+   */
+  public boolean hasPartition(String name) {
+    return getType(name) != null;
+  }
+
+  /**
+   * @return the sqlite_master type of the named object, or null if it does not exist
+   */
+  private String getType(String name) {
+    Cursor cursor = database.rawQuery("SELECT type FROM sqlite_master WHERE name = ?",
+        new String[] { name });
+    String type = cursor.moveToFirst() ? cursor.getString(0) : null;
+    cursor.close();
+    return type;
+  }
+
+  /**
+   * Create the partition with the hour number if it does not exist yet, and add it to the view.
+   */
+  private void createPartition(long number) {
+    String name = partitionName(number);
+    if (hasPartition(name)) {
+      return;
+    }
+
+    database.execSQL("CREATE TABLE " + name + " (" + columnDefinitions + ")");
+    database.execSQL("CREATE INDEX " + name + SEPARATOR + LogDbAdapter.KEY_TIMESTAMP + " ON "
+        + name + " (" + LogDbAdapter.KEY_TIMESTAMP + ", " + LogDbAdapter.KEY_ID + ")");
+    // Start this partition's autoincrement ids at the beginning of its id range
+    database.execSQL("INSERT INTO sqlite_sequence (name, seq) VALUES (?, ?)", new Object[] { name,
+        number * ID_SPAN });
+    updateView();
+  }
+
+  /**
+   * Drop the partitions that only hold logs older than timestamp. Logs in the partition spanning
+   * timestamp are kept until the whole partition is older than timestamp.
+   * 
+   * @return number of partitions dropped
+   */
+  public int dropBefore(long timestamp) {
+    long oldestKept = partitionNumber(timestamp);
+    int dropped = 0;
+    for (long number : partitionNumbers()) {
+      if (number < oldestKept) {
+        dropPartition(partitionName(number));
+        dropped++;
+      }
+    }
+    if (dropped > 0) {
+      currentPartition = null;
+      updateView();
+    }
+    return dropped;
+  }
+
+  /**
+   * Drop a partition. SQLite removes its autoincrement sequence along with it.
+   */
+  private void dropPartition(String name) {
+    database.execSQL("DROP TABLE IF EXISTS " + name);
+  }
+
+  /**
+   * Drop all partitions.
+   * 
+   * @return number of partitions dropped
+   */
+  public int dropAll() {
+    List<String> partitions = partitions();
+    for (String partition : partitions) {
+      dropPartition(partition);
+    }
+    currentPartition = null;
+    updateView();
+    return partitions.size();
+  }
+
+  /**
+   * Recreate the view over all partitions. An empty first select defines the column names, so the
+   * view stays valid when there are no partitions.
+   */
+  public void updateView() {
+    StringBuilder columnList = new StringBuilder();
+    StringBuilder emptyRow = new StringBuilder();
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        columnList.append(", ");
+        emptyRow.append(", ");
+      }
+      columnList.append(columns[i]);
+      emptyRow.append("NULL AS ").append(columns[i]);
+    }
+
+    StringBuilder view = new StringBuilder("CREATE VIEW " + table + " AS SELECT " + emptyRow
+        + " WHERE 0");
+    for (String partition : partitions()) {
+      view.append(" UNION ALL SELECT ").append(columnList).append(" FROM ").append(partition);
+    }
+
+    database.execSQL("DROP VIEW IF EXISTS " + table);
+    database.execSQL(view.toString());
+  }
+
+  /**
+   * Convert the unpartitioned log table into partitions, keeping the ids of the existing logs, and
+   * replace it with the view.
+   */
+  public void partitionTable() {
+    String legacyTable = table + "Legacy";
+    database.execSQL("ALTER TABLE " + table + " RENAME TO " + legacyTable);
+
+    StringBuilder columnList = new StringBuilder();
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        columnList.append(", ");
+      }
+      columnList.append(columns[i]);
+    }
+    String partitionNumber = "IFNULL(" + LogDbAdapter.KEY_TIMESTAMP + ", 0) / " + PARTITION_SPAN;
+
+    Cursor cursor = database.rawQuery("SELECT DISTINCT " + partitionNumber + " FROM "
+        + legacyTable, null);
+    while (cursor.moveToNext()) {
+      long number = cursor.getLong(0);
+      createPartition(number);
+      database.execSQL("INSERT INTO " + partitionName(number) + " (" + columnList + ") SELECT "
+          + columnList + " FROM " + legacyTable + " WHERE " + partitionNumber + " = " + number);
+    }
+    cursor.close();
+
+    database.execSQL("DROP TABLE " + legacyTable);
+    updateView();
+  }
+
+  /**
+   * Drop all partitions and the view, or the log table if it has not been partitioned yet.
+   */
+  public void drop() {
+    for (String partition : partitions()) {
+      dropPartition(partition);
+    }
+    currentPartition = null;
+    if ("table".equals(getType(table))) {
+      database.execSQL("DROP TABLE IF EXISTS " + table);
+    } else {
+      database.execSQL("DROP VIEW IF EXISTS " + table);
+    }
+  }
+}
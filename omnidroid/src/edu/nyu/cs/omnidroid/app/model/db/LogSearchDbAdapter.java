@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright 2010 Omnidroid - http://code.google.com/p/omnidroid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package edu.nyu.cs.omnidroid.app.model.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Database Adapter for the full text search index over the log tables.
+ * <p>
+ * The index is split over two tables. LogSearch is an FTS3 virtual table holding the searchable
+ * text of each log: its name, description, parameters, application and rule name. LogSearchDoc
+ * shares its row ids and records which log each entry belongs to along with its timestamp, so
+ * results can be restricted to a time range and traced back to the log table they came from.
+ * </p>
+ */
+public class LogSearchDbAdapter extends DbAdapter {
+
+  /* Types of the indexed logs, stored in KEY_LOGTYPE */
+  public static final int LOG_TYPE_GENERAL = 1;
+  public static final int LOG_TYPE_EVENT = 2;
+  public static final int LOG_TYPE_ACTION = 3;
+
+  /* Column names of LogSearch */
+  public static final String KEY_NAME = "Name";
+  public static final String KEY_DESCRIPTION = "Description";
+  public static final String KEY_PARAMETERS = "Parameters";
+  public static final String KEY_APPNAME = "AppName";
+  public static final String KEY_RULENAME = "RuleName";
+
+  /* Column names of LogSearchDoc */
+  public static final String KEY_ID = "_ID";
+  public static final String KEY_LOGTYPE = "LogType";
+  public static final String KEY_LOGID = "FK_LogID";
+  public static final String KEY_TIMESTAMP = "TimeStamp";
+
+  /* Column holding the number of term matches in search results */
+  public static final String KEY_MATCHES = "Matches";
+
+  /* Table names */
+  private static final String DATABASE_TABLE = "LogSearch";
+  private static final String DATABASE_TABLE_DOC = "LogSearchDoc";
+
+  /* Create and drop statements. */
+  protected static final String DATABASE_CREATE = "CREATE VIRTUAL TABLE " + DATABASE_TABLE
+      + " USING fts3(" + KEY_NAME + ", " + KEY_DESCRIPTION + ", " + KEY_PARAMETERS + ", "
+      + KEY_APPNAME + ", " + KEY_RULENAME + ");";
+  protected static final String DATABASE_CREATE_DOC = "create table " + DATABASE_TABLE_DOC + " ("
+      + KEY_ID + " integer primary key autoincrement, " + KEY_LOGTYPE + " integer not null, "
+      + KEY_LOGID + " integer not null, " + KEY_TIMESTAMP + " integer);";
+  protected static final String DATABASE_CREATE_DOC_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE_DOC + "_" + KEY_TIMESTAMP + " ON " + DATABASE_TABLE_DOC + " ("
+      + KEY_LOGTYPE + ", " + KEY_TIMESTAMP + ")";
+  protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
+  protected static final String DATABASE_DROP_DOC = "DROP TABLE IF EXISTS " + DATABASE_TABLE_DOC;
+
+  /* Statements that index the logs already stored when the index is first created */
+  protected static final String[] DATABASE_POPULATE = {
+      populateDocStatement(LOG_TYPE_EVENT, "LogEvent"),
+      populateStatement(LOG_TYPE_EVENT, "LogEvent", LogEventDbAdapter.KEY_EVENTNAME,
+          LogEventDbAdapter.KEY_EVENTPARAMETERS, LogEventDbAdapter.KEY_APPNAME, "''"),
+      populateDocStatement(LOG_TYPE_ACTION, "LogAction"),
+      populateStatement(LOG_TYPE_ACTION, "LogAction", LogActionDbAdapter.KEY_ACTIONEVENTNAME,
+          LogActionDbAdapter.KEY_ACTIONPARAMETERS, LogActionDbAdapter.KEY_ACTIONAPPNAME,
+          LogActionDbAdapter.KEY_RULENAME),
+      populateDocStatement(LOG_TYPE_GENERAL, "LogGeneral"),
+      populateStatement(LOG_TYPE_GENERAL, "LogGeneral", "''", "''", "''", "''") };
+
+  /*
+   * Number of term matches of a search result. offsets() lists four space separated integers per
+   * match, FTS3 has no ranking function of its own.
+   */
+  private static final String MATCHES = "(length(offsets(" + DATABASE_TABLE + ")) - length("
+      + "replace(offsets(" + DATABASE_TABLE + "), ' ', '')) + 1) / 4";
+
+  /* Selection of the doc rows of one log type older than a timestamp */
+  private static final String SELECTION_BEFORE = KEY_LOGTYPE + " = ? AND " + KEY_TIMESTAMP
+      + " < ?";
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT_DOC = insertSql(DATABASE_TABLE_DOC, KEY_LOGTYPE,
+      KEY_LOGID, KEY_TIMESTAMP);
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, "rowid", KEY_NAME,
+      KEY_DESCRIPTION, KEY_PARAMETERS, KEY_APPNAME, KEY_RULENAME);
+
+  public LogSearchDbAdapter(SQLiteDatabase database) {
+    super(database);
+  }
+
+  private static String populateDocStatement(int logType, String logTable) {
+    return "INSERT INTO " + DATABASE_TABLE_DOC + " (" + KEY_LOGTYPE + ", " + KEY_LOGID + ", "
+        + KEY_TIMESTAMP + ") SELECT " + logType + ", " + LogDbAdapter.KEY_ID + ", "
+        + LogDbAdapter.KEY_TIMESTAMP + " FROM " + logTable;
+  }
+
+  private static String populateStatement(int logType, String logTable, String nameColumn,
+      String parametersColumn, String appNameColumn, String ruleNameColumn) {
+    return "INSERT INTO " + DATABASE_TABLE + " (rowid, " + KEY_NAME + ", " + KEY_DESCRIPTION
+        + ", " + KEY_PARAMETERS + ", " + KEY_APPNAME + ", " + KEY_RULENAME + ") SELECT d."
+        + KEY_ID + ", l." + nameColumn + ", l." + LogDbAdapter.KEY_DESCRIPTION + ", l."
+        + parametersColumn + ", l." + appNameColumn + ", l." + ruleNameColumn + " FROM "
+        + DATABASE_TABLE_DOC + " d JOIN " + logTable + " l ON d." + KEY_LOGID + " = l."
+        + LogDbAdapter.KEY_ID + " WHERE d." + KEY_LOGTYPE + " = " + logType;
+  }
+
+  /**
+   * Add a log to the search index.
+   * 
+   * @param logType
+   *          the type of the log, one of the LOG_TYPE constants
+   * @param logID
+   *          the id of the log in its own table
+   * @param timestamp
+   *          the time stamp of the log
+   * @param name
+   *          the name of the event or action logged, or the description for general logs
+   * @param description
+   *          a description of the log
+   * @param parameters
+   *          the event or action parameters, or an empty string
+   * @param appName
+   *          the application of the event or action, or an empty string
+   * @param ruleName
+   *          the rule that fired the action, or an empty string
+   * @return the row ID of the newly inserted index entry, or -1 if an error occurred
+   */
+  public long insert(int logType, long logID, long timestamp, String name, String description,
+      String parameters, String appName, String ruleName) {
+    if (name == null || description == null || parameters == null || appName == null
+        || ruleName == null) {
+      throw new IllegalArgumentException("insert parameter null.");
+    }
+    long docID = executeInsert(SQL_INSERT_DOC, logType, logID, timestamp);
+    if (docID == -1) {
+      return -1;
+    }
+    return executeInsert(SQL_INSERT, docID, name, description, parameters, appName, ruleName);
+  }
+
+  /**
+   * Remove the index entries of one log type that are older than timestamp.
+   * 
+   * @return number of index entries deleted
+   */
+  public int deleteAllBefore(int logType, long timestamp) {
+    String[] whereArgs = { Integer.toString(logType), Long.toString(timestamp) };
+    database.delete(DATABASE_TABLE, "rowid IN (SELECT " + KEY_ID + " FROM " + DATABASE_TABLE_DOC
+        + " WHERE " + SELECTION_BEFORE + ")", whereArgs);
+    return database.delete(DATABASE_TABLE_DOC, SELECTION_BEFORE, whereArgs);
+  }
+
+  /**
+   * Remove the index entries of one log type.
+   * 
+   * @return true if success, or false if failed or nothing to be deleted.
+   */
+  public boolean deleteAll(int logType) {
+    String[] whereArgs = { Integer.toString(logType) };
+    database.delete(DATABASE_TABLE, "rowid IN (SELECT " + KEY_ID + " FROM " + DATABASE_TABLE_DOC
+        + " WHERE " + KEY_LOGTYPE + " = ?)", whereArgs);
+    return database.delete(DATABASE_TABLE_DOC, KEY_LOGTYPE + " = ?", whereArgs) > 0;
+  }
+
+  /**
+   * Remove every index entry.
+   * 
+   * @return true if success, or false if failed or nothing to be deleted.
+   */
+  public boolean deleteAll() {
+    database.delete(DATABASE_TABLE, null, null);
+    return database.delete(DATABASE_TABLE_DOC, null, null) > 0;
+  }
+
+  /**
+   * Search the index. All terms are looked up through the full text index; the time range is only
+   * applied to the entries that matched. Each keyword is matched as a literal term, so user input
+   * can't form FTS3 operators or a malformed query. Results are ranked by the number of times the
+   * terms occur in the log, most recent first among equally ranked logs, and only the best ones are
+   * returned.
+   * 
+   * @param keywords
+   *          whitespace separated terms that must all occur in one of the indexed columns, or null
+   *          to match on appName and ruleName only
+   * @param appName
+   *          only match logs of this application, or null for any
+   * @param ruleName
+   *          only match logs of this rule, or null for any
+   * @param fromTimestamp
+   *          only match logs at or after this time, or null for no lower bound
+   * @param toTimestamp
+   *          only match logs at or before this time, or null for no upper bound
+   * @param limit
+   *          maximum number of matches to return
+   * @return a Cursor with the {@link #KEY_LOGTYPE}, {@link #KEY_LOGID}, {@link #KEY_TIMESTAMP},
+   *         {@link #KEY_NAME}, {@link #KEY_DESCRIPTION} and {@link #KEY_MATCHES} of each match,
+   *         best match first, or null if there is nothing to search for
+   */
+  public Cursor search(String keywords, String appName, String ruleName, Long fromTimestamp,
+      Long toTimestamp, int limit) {
+    StringBuilder match = new StringBuilder();
+    appendTerms(match, keywords);
+    appendColumnPhrase(match, KEY_APPNAME, appName);
+    appendColumnPhrase(match, KEY_RULENAME, ruleName);
+    if (match.length() == 0) {
+      return null;
+    }
+
+    StringBuilder sql = new StringBuilder("SELECT d." + KEY_LOGTYPE + ", d." + KEY_LOGID + ", d."
+        + KEY_TIMESTAMP + ", " + DATABASE_TABLE + "." + KEY_NAME + ", " + DATABASE_TABLE + "."
+        + KEY_DESCRIPTION + ", " + MATCHES + " AS " + KEY_MATCHES + " FROM "
+        + DATABASE_TABLE + " JOIN " + DATABASE_TABLE_DOC + " d ON d." + KEY_ID + " = "
+        + DATABASE_TABLE + ".rowid WHERE " + DATABASE_TABLE + " MATCH ?");
+    int argCount = 2 + (fromTimestamp != null ? 1 : 0) + (toTimestamp != null ? 1 : 0);
+    String[] selectionArgs = new String[argCount];
+    int arg = 0;
+    selectionArgs[arg++] = match.toString();
+    if (fromTimestamp != null) {
+      sql.append(" AND d." + KEY_TIMESTAMP + " >= ?");
+      selectionArgs[arg++] = fromTimestamp.toString();
+    }
+    if (toTimestamp != null) {
+      sql.append(" AND d." + KEY_TIMESTAMP + " <= ?");
+      selectionArgs[arg++] = toTimestamp.toString();
+    }
+    sql.append(" ORDER BY " + KEY_MATCHES + " DESC, d." + KEY_TIMESTAMP + " DESC LIMIT ?");
+    selectionArgs[arg++] = Integer.toString(limit);
+    return database.rawQuery(sql.toString(), selectionArgs);
+  }
+
+  /**
+   * Add each whitespace separated keyword to an FTS3 query as a quoted term. Quotes are dropped
+   * from the keywords and those without a letter or digit are skipped, as the tokenizer would
+   * index nothing for them.
+   */
+  private static void appendTerms(StringBuilder match, String keywords) {
+    if (keywords == null) {
+      return;
+    }
+    for (String term : keywords.replace("\"", " ").split("\\s+")) {
+      if (!hasLetterOrDigit(term)) {
+        continue;
+      }
+      if (match.length() > 0) {
+        match.append(' ');
+      }
+      match.append('"').append(term).append('"');
+    }
+  }
+
+  private static boolean hasLetterOrDigit(String term) {
+    for (int i = 0; i < term.length(); i++) {
+      if (Character.isLetterOrDigit(term.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Restrict an FTS3 query to entries whose column contains the phrase.
+   */
+  private static void appendColumnPhrase(StringBuilder match, String column, String phrase) {
+    if (phrase == null || !hasLetterOrDigit(phrase)) {
+      return;
+    }
+    if (match.length() > 0) {
+      match.append(' ');
+    }
+    match.append(column).append(":\"").append(phrase.replace("\"", " ").trim()).append('"');
+  }
+}
@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RegisteredActions table. Defines basic CRUD methods. 
@@ -48,6 +47,11 @@ public class RegisteredActionDbAdapter extends DbAdapter {
       + KEY_APPID + " integer);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_ACTIONNAME, KEY_APPID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_ACTIONID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_ACTIONID);
+
   /**
    * Constructor.
    * 
@@ -73,11 +77,7 @@ public class RegisteredActionDbAdapter extends DbAdapter {
     if (actionName == null || appID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_ACTIONNAME, actionName);
-    initialValues.put(KEY_APPID, appID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, actionName, appID);
   }
 
   /**
@@ -92,8 +92,7 @@ public class RegisteredActionDbAdapter extends DbAdapter {
     if (actionID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_ACTIONID + "=" + actionID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, actionID) > 0;
   }
 
   /**
@@ -119,9 +118,7 @@ public class RegisteredActionDbAdapter extends DbAdapter {
     if (actionID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_ACTIONID + "=" + actionID,
-        null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, actionID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -146,18 +143,8 @@ public class RegisteredActionDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RegisteredAction records which matches the parameters.
    */
   public Cursor fetchAll(String actionName, Long appID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (actionName != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONNAME + " = ");
-      qb.appendWhereEscapeString(actionName);
-    }
-    if (appID != null) {
-      qb.appendWhere(" AND " + KEY_APPID + " = " + appID);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_ACTIONNAME, KEY_APPID },
+        new Object[] { actionName, appID }, null);
   }
 
   /**
@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RegisteredActionParameters table. Defines basic CRUD methods.
@@ -42,7 +41,7 @@ public class RegisteredActionParameterDbAdapter extends DbAdapter {
       KEY_ACTIONID, KEY_DATATYPEID };
 
   /* Table name */
-  private static final String DATABASE_TABLE = "RegisteredActionParameters";
+  protected static final String DATABASE_TABLE = "RegisteredActionParameters";
 
   /* Create and drop statement. */
   protected static final String DATABASE_CREATE = "create table " + DATABASE_TABLE + " ("
@@ -52,6 +51,12 @@ public class RegisteredActionParameterDbAdapter extends DbAdapter {
       + KEY_DATATYPEID + " integer);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_ACTIONPARAMETERNAME,
+      KEY_ACTIONID, KEY_DATATYPEID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_ACTIONPARAMETERID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_ACTIONPARAMETERID);
+
   /**
    * Constructor.
    * 
@@ -79,12 +84,7 @@ public class RegisteredActionParameterDbAdapter extends DbAdapter {
     if (parameterName == null || actionID == null || dataTypeID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_ACTIONPARAMETERNAME, parameterName);
-    initialValues.put(KEY_ACTIONID, actionID);
-    initialValues.put(KEY_DATATYPEID, dataTypeID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, parameterName, actionID, dataTypeID);
   }
 
   /**
@@ -100,8 +100,7 @@ public class RegisteredActionParameterDbAdapter extends DbAdapter {
     if (parameterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_ACTIONPARAMETERID + "=" + parameterID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, parameterID) > 0;
   }
 
   /**
@@ -127,9 +126,7 @@ public class RegisteredActionParameterDbAdapter extends DbAdapter {
     if (parameterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_ACTIONPARAMETERID + "="
-        + parameterID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, parameterID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -156,21 +153,8 @@ public class RegisteredActionParameterDbAdapter extends DbAdapter {
    * @return a Cursor contains all RegisteredActionParameter records which matches the parameters.
    */
   public Cursor fetchAll(String parameterName, Long actionID, Long dataTypeID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (parameterName != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONPARAMETERNAME + " = ");
-      qb.appendWhereEscapeString(parameterName);
-    }
-    if (actionID != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONID + " = " + actionID);
-    }
-    if (dataTypeID != null) {
-      qb.appendWhere(" AND " + KEY_DATATYPEID + " = " + dataTypeID);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_ACTIONPARAMETERNAME, KEY_ACTIONID,
+        KEY_DATATYPEID }, new Object[] { parameterName, actionID, dataTypeID }, null);
   }
 
   /**
@@ -19,7 +19,6 @@ import edu.nyu.cs.omnidroid.app.model.CursorHelper;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RegisteredApps table. Defines basic CRUD methods.
@@ -42,6 +41,8 @@ public class RegisteredAppDbAdapter extends DbAdapter {
   public static final String KEY_LOGIN = "Login";
   public static final String KEY_USERNAME = "Username";
   public static final String KEY_PASSWORD = "Password";
+  /** Receiver class of an application that registered actions at runtime, null for others */
+  public static final String KEY_RECEIVER = "Receiver";
 
   /* An array of all column names */
   public static final String[] KEYS = { KEY_APPID, KEY_APPNAME, KEY_PKGNAME, KEY_ENABLED,
@@ -57,6 +58,22 @@ public class RegisteredAppDbAdapter extends DbAdapter {
       + KEY_USERNAME + " text not null, " + KEY_PASSWORD + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  protected static final String ADD_RECEIVER_COLUMN = "ALTER TABLE " + DATABASE_TABLE + " ADD "
+      + KEY_RECEIVER + " text";
+
+  /* Create statement of the latest schema, the column above included, see DbBootstrap. */
+  protected static final String DATABASE_CREATE_LATEST = "create table " + DATABASE_TABLE + " ("
+      + KEY_APPID + " integer primary key autoincrement, " + KEY_APPNAME + " text not null, "
+      + KEY_PKGNAME + " text not null, " + KEY_ENABLED + " integer, " + KEY_LOGIN + " integer, "
+      + KEY_USERNAME + " text not null, " + KEY_PASSWORD + " text not null, " + KEY_RECEIVER
+      + " text);";
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_APPNAME, KEY_PKGNAME,
+      KEY_ENABLED, KEY_LOGIN, KEY_USERNAME, KEY_PASSWORD);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_APPID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_APPID);
+
   /**
    * Constructor.
    * 
@@ -90,15 +107,7 @@ public class RegisteredAppDbAdapter extends DbAdapter {
     if (appName == null || pkgName == null || enabled == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_APPNAME, appName);
-    initialValues.put(KEY_PKGNAME, pkgName);
-    initialValues.put(KEY_ENABLED, enabled);
-    initialValues.put(KEY_LOGIN, false);
-    initialValues.put(KEY_USERNAME, "");
-    initialValues.put(KEY_PASSWORD, "");
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, appName, pkgName, enabled, false, "", "");
   }
 
   /**
@@ -120,15 +129,7 @@ public class RegisteredAppDbAdapter extends DbAdapter {
     if (appName == null || pkgName == null || enabled == null || loginEnabled == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_APPNAME, appName);
-    initialValues.put(KEY_PKGNAME, pkgName);
-    initialValues.put(KEY_ENABLED, enabled);
-    initialValues.put(KEY_LOGIN, loginEnabled);
-    initialValues.put(KEY_USERNAME, "");
-    initialValues.put(KEY_PASSWORD, "");
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, appName, pkgName, enabled, loginEnabled, "", "");
   }
 
   /**
@@ -155,15 +156,7 @@ public class RegisteredAppDbAdapter extends DbAdapter {
     if (appName == null || pkgName == null || enabled == null || loginEnabled == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_APPNAME, appName);
-    initialValues.put(KEY_PKGNAME, pkgName);
-    initialValues.put(KEY_ENABLED, enabled);
-    initialValues.put(KEY_LOGIN, loginEnabled);
-    initialValues.put(KEY_USERNAME, username);
-    initialValues.put(KEY_PASSWORD, password);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, appName, pkgName, enabled, loginEnabled, username, password);
   }
 
   /**
@@ -179,8 +172,7 @@ public class RegisteredAppDbAdapter extends DbAdapter {
     if (appID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_APPID + "=" + appID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, appID) > 0;
   }
 
   /**
@@ -206,9 +198,7 @@ public class RegisteredAppDbAdapter extends DbAdapter {
     if (appID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_APPID + "=" + appID, null,
-        null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, appID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -223,6 +213,30 @@ public class RegisteredAppDbAdapter extends DbAdapter {
     return database.query(DATABASE_TABLE, KEYS, null, null, null, null, null);
   }
 
+  /**
+   * @return a Cursor with the id and receiver class of the applications that registered actions
+   *         at runtime
+   */
+  public Cursor fetchReceivers() {
+    return database.query(DATABASE_TABLE, new String[] { KEY_APPID, KEY_RECEIVER }, KEY_RECEIVER
+        + " IS NOT NULL", null, null, null, null);
+  }
+
+  /**
+   * Set the receiver class that performs the actions an application registered at runtime.
+   * 
+   * @param appID
+   *          is the application id.
+   * @param receiver
+   *          is the class name of the receiver within the application's package.
+   * @return true if success, or false otherwise.
+   */
+  public boolean updateReceiver(long appID, String receiver) {
+    ContentValues args = new ContentValues();
+    args.put(KEY_RECEIVER, receiver);
+    return database.update(DATABASE_TABLE, args, KEY_APPID + "=" + appID, null) > 0;
+  }
+
   /**
    * Return a Cursor that contains all RegisteredApp records which matches the parameters.
    * 
@@ -235,22 +249,8 @@ public class RegisteredAppDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RegisteredApp records which matches the parameters.
    */
   public Cursor fetchAll(String appName, String pkgName, Boolean enabled) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (appName != null) {
-      qb.appendWhere(" AND " + KEY_APPNAME + " = ");
-      qb.appendWhereEscapeString(appName);
-    }
-    if (pkgName != null) {
-      qb.appendWhere(" AND " + KEY_PKGNAME + " = ");
-      qb.appendWhereEscapeString(pkgName);
-    }
-    if (enabled != null) {
-      qb.appendWhere(" AND " + KEY_ENABLED + " = " + (enabled ? 1 : 0));
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_APPNAME, KEY_PKGNAME, KEY_ENABLED },
+        new Object[] { appName, pkgName, enabled }, null);
   }
 
   /**
@@ -272,33 +272,9 @@ public class RegisteredAppDbAdapter extends DbAdapter {
    */
   public Cursor fetchAll(String appName, String pkgName, Boolean enabled, Boolean loginEnabled,
       String username, String password) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (appName != null) {
-      qb.appendWhere(" AND " + KEY_APPNAME + " = ");
-      qb.appendWhereEscapeString(appName);
-    }
-    if (pkgName != null) {
-      qb.appendWhere(" AND " + KEY_PKGNAME + " = ");
-      qb.appendWhereEscapeString(pkgName);
-    }
-    if (enabled != null) {
-      qb.appendWhere(" AND " + KEY_ENABLED + " = " + (enabled ? 1 : 0));
-    }
-    if (loginEnabled != null) {
-      qb.appendWhere(" AND " + KEY_LOGIN + " = " + (loginEnabled ? 1 : 0));
-    }
-    if (username != null) {
-      qb.appendWhere(" AND " + KEY_USERNAME + " = ");
-      qb.appendWhereEscapeString(username);
-    }
-    if (password != null) {
-      qb.appendWhere(" AND " + KEY_PASSWORD + " = ");
-      qb.appendWhereEscapeString(password);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_APPNAME, KEY_PKGNAME, KEY_ENABLED,
+        KEY_LOGIN, KEY_USERNAME, KEY_PASSWORD }, new Object[] { appName, pkgName, enabled,
+        loginEnabled, username, password }, null);
   }
 
   /**
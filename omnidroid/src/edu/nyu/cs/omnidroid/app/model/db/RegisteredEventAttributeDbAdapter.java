@@ -18,7 +18,6 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RegisteredEventAttributes table. Defines basic CRUD methods.
@@ -45,7 +44,7 @@ public class RegisteredEventAttributeDbAdapter extends DbAdapter {
       KEY_DATATYPEID };
 
   /* Table name */
-  private static final String DATABASE_TABLE = "RegisteredEventAttributes";
+  protected static final String DATABASE_TABLE = "RegisteredEventAttributes";
   /*
    * FK_EventID used for global attributes. -1 is used since it is the number that will not appear
    * as the eventID of the RegisteredEvents table.
@@ -58,6 +57,12 @@ public class RegisteredEventAttributeDbAdapter extends DbAdapter {
       + " text not null, " + KEY_EVENTID + " integer, " + KEY_DATATYPEID + " integer);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_EVENTATTRIBUTENAME,
+      KEY_EVENTID, KEY_DATATYPEID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_EVENTATTRIBUTEID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_EVENTATTRIBUTEID);
+
   /**
    * Constructor.
    * 
@@ -85,12 +90,7 @@ public class RegisteredEventAttributeDbAdapter extends DbAdapter {
     if (attributeName == null || eventID == null || dataTypeID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_EVENTATTRIBUTENAME, attributeName);
-    initialValues.put(KEY_EVENTID, eventID);
-    initialValues.put(KEY_DATATYPEID, dataTypeID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, attributeName, eventID, dataTypeID);
   }
 
   /**
@@ -121,8 +121,7 @@ public class RegisteredEventAttributeDbAdapter extends DbAdapter {
     if (attributeID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_EVENTATTRIBUTEID + "=" + attributeID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, attributeID) > 0;
   }
 
   /**
@@ -148,9 +147,7 @@ public class RegisteredEventAttributeDbAdapter extends DbAdapter {
     if (attributeID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_EVENTATTRIBUTEID + "="
-        + attributeID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, attributeID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -196,21 +193,8 @@ public class RegisteredEventAttributeDbAdapter extends DbAdapter {
    * @return a Cursor contains all RegisteredEventAttribute records which matches the parameters.
    */
   public Cursor fetchAll(String attributeName, Long eventID, Long dataTypeID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (attributeName != null) {
-      qb.appendWhere(" AND " + KEY_EVENTATTRIBUTENAME + " = ");
-      qb.appendWhereEscapeString(attributeName);
-    }
-    if (eventID != null) {
-      qb.appendWhere(" AND " + KEY_EVENTID + " = " + eventID);
-    }
-    if (dataTypeID != null) {
-      qb.appendWhere(" AND " + KEY_DATATYPEID + " = " + dataTypeID);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_EVENTATTRIBUTENAME, KEY_EVENTID,
+        KEY_DATATYPEID }, new Object[] { attributeName, eventID, dataTypeID }, null);
   }
 
   /**
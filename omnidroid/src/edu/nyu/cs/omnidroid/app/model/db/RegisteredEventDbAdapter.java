@@ -20,7 +20,6 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.CursorIndexOutOfBoundsException;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RegisteredEvents table. Defines basic CRUD methods.
@@ -52,6 +51,11 @@ public class RegisteredEventDbAdapter extends DbAdapter {
       + KEY_APPID + " integer);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
 
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_EVENTNAME, KEY_APPID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_EVENTID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_EVENTID);
+
   /**
    * Constructor.
    * 
@@ -116,11 +120,7 @@ public class RegisteredEventDbAdapter extends DbAdapter {
     if (eventName == null || appID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_EVENTNAME, eventName);
-    initialValues.put(KEY_APPID, appID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, eventName, appID);
   }
 
   /**
@@ -136,8 +136,7 @@ public class RegisteredEventDbAdapter extends DbAdapter {
     if (eventID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_EVENTID + "=" + eventID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, eventID) > 0;
   }
 
   /**
@@ -163,9 +162,7 @@ public class RegisteredEventDbAdapter extends DbAdapter {
     if (eventID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_EVENTID + "=" + eventID, null,
-        null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, eventID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -200,18 +197,8 @@ public class RegisteredEventDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RegisteredEvent records which matches the parameters.
    */
   public Cursor fetchAll(String eventName, Long appID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (eventName != null) {
-      qb.appendWhere(" AND " + KEY_EVENTNAME + " = ");
-      qb.appendWhereEscapeString(eventName);
-    }
-    if (appID != null) {
-      qb.appendWhere(" AND " + KEY_APPID + " = " + appID);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_EVENTNAME, KEY_APPID },
+        new Object[] { eventName, appID }, null);
   }
 
   /**
@@ -15,10 +15,11 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model.db;
 
+import java.util.Collection;
+
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RuleActions table. Defines basic CRUD methods. 
@@ -48,6 +49,13 @@ public class RuleActionDbAdapter extends DbAdapter {
       + KEY_RULEID + " integer not null, " 
       + KEY_ACTIONID + " integer not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
+  protected static final String CREATE_RULE_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE + "_" + KEY_RULEID + " ON " + DATABASE_TABLE + " (" + KEY_RULEID + ")";
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_RULEID, KEY_ACTIONID);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_RULEACTIONID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_RULEACTIONID);
 
   /**
    * Constructor.
@@ -74,11 +82,7 @@ public class RuleActionDbAdapter extends DbAdapter {
     if (ruleID == null || actionID == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_RULEID, ruleID);
-    initialValues.put(KEY_ACTIONID, actionID);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, ruleID, actionID);
   }
 
   /**
@@ -94,8 +98,33 @@ public class RuleActionDbAdapter extends DbAdapter {
     if (ruleActionID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_RULEACTIONID + "=" + ruleActionID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, ruleActionID) > 0;
+  }
+
+  /**
+   * Delete the RuleAction records of a set of rules in one statement.
+   * 
+   * @param ruleIDs
+   *          are ids of the rules whose actions are deleted
+   * @return number of records deleted
+   */
+  public int deleteByRules(Collection<Long> ruleIDs) {
+    if (ruleIDs.isEmpty()) {
+      return 0;
+    }
+    return database.delete(DATABASE_TABLE, KEY_RULEID + " IN " + inList(ruleIDs), null);
+  }
+
+  /**
+   * Build a sub query that selects the ids of the RuleAction records of a set of rules.
+   * 
+   * @param ruleIDs
+   *          are ids of the rules, must not be empty
+   * @return the sub query, without enclosing parentheses
+   */
+  static String selectByRules(Collection<Long> ruleIDs) {
+    return "SELECT " + KEY_RULEACTIONID + " FROM " + DATABASE_TABLE + " WHERE " + KEY_RULEID
+        + " IN " + inList(ruleIDs);
   }
 
   /**
@@ -121,9 +150,7 @@ public class RuleActionDbAdapter extends DbAdapter {
     if (ruleActionID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_RULEACTIONID + "="
-        + ruleActionID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, ruleActionID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -148,18 +175,8 @@ public class RuleActionDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RuleAction records which matches the parameters.
    */
   public Cursor fetchAll(Long ruleID, Long actionID) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (ruleID != null) {
-      qb.appendWhere(" AND " + KEY_RULEID + " = " + ruleID);
-    }
-    if (actionID != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONID + " = " + actionID);
-    }
-
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_RULEID, KEY_ACTIONID },
+        new Object[] { ruleID, actionID }, null);
   }
 
   /**
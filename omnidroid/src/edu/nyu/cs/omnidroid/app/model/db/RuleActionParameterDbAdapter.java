@@ -15,6 +15,8 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model.db;
 
+import java.util.Collection;
+
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -54,6 +56,16 @@ public class RuleActionParameterDbAdapter extends DbAdapter {
       + KEY_ACTIONPARAMETERID + " integer not null, "
       + KEY_RULEACTIONPARAMETERDATA + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
+  protected static final String CREATE_RULE_ACTION_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE + "_" + KEY_RULEACTIONID + " ON " + DATABASE_TABLE + " ("
+      + KEY_RULEACTIONID + ")";
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_RULEACTIONID,
+      KEY_ACTIONPARAMETERID, KEY_RULEACTIONPARAMETERDATA);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_RULEACTIONPARAMETERID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS,
+      KEY_RULEACTIONPARAMETERID);
 
   /**
    * Constructor.
@@ -82,12 +94,7 @@ public class RuleActionParameterDbAdapter extends DbAdapter {
     if (ruleActionID == null || actionParameterID == null || ruleActionParameterData == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_RULEACTIONID, ruleActionID);
-    initialValues.put(KEY_ACTIONPARAMETERID, actionParameterID);
-    initialValues.put(KEY_RULEACTIONPARAMETERDATA, ruleActionParameterData);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, ruleActionID, actionParameterID, ruleActionParameterData);
   }
 
   /**
@@ -103,9 +110,23 @@ public class RuleActionParameterDbAdapter extends DbAdapter {
     if (ruleActionParameterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_RULEACTIONPARAMETERID + "=" + ruleActionParameterID,
-        null) > 0;
+    return executeUpdateDelete(SQL_DELETE, ruleActionParameterID) > 0;
+  }
+
+  /**
+   * Delete the RuleActionParameter records of the actions of a set of rules in one statement.
+   * Call it before the RuleAction records of these rules are deleted.
+   * 
+   * @param ruleIDs
+   *          are ids of the rules whose action parameters are deleted
+   * @return number of records deleted
+   */
+  public int deleteByRules(Collection<Long> ruleIDs) {
+    if (ruleIDs.isEmpty()) {
+      return 0;
+    }
+    return database.delete(DATABASE_TABLE, KEY_RULEACTIONID + " IN ("
+        + RuleActionDbAdapter.selectByRules(ruleIDs) + ")", null);
   }
 
   /**
@@ -132,9 +153,7 @@ public class RuleActionParameterDbAdapter extends DbAdapter {
     if (ruleActionParameterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_RULEACTIONPARAMETERID + "="
-        + ruleActionParameterID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, ruleActionParameterID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -161,22 +180,9 @@ public class RuleActionParameterDbAdapter extends DbAdapter {
    * @return a Cursor that contains all RuleActionParameter records which matches the parameters.
    */
   public Cursor fetchAll(Long ruleActionID, Long actionParameterID, String ruleActionParameterData) {
-
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (ruleActionID != null) {
-      qb.appendWhere(" AND " + KEY_RULEACTIONID + " = " + ruleActionID);
-    }
-    if (actionParameterID != null) {
-      qb.appendWhere(" AND " + KEY_ACTIONPARAMETERID + " = " + actionParameterID);
-    }
-    if (ruleActionParameterData != null) {
-      qb.appendWhere(" AND " + KEY_RULEACTIONPARAMETERDATA + " = ");
-      qb.appendWhereEscapeString(ruleActionParameterData);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_RULEACTIONID, KEY_ACTIONPARAMETERID,
+        KEY_RULEACTIONPARAMETERDATA }, new Object[] { ruleActionID, actionParameterID,
+        ruleActionParameterData }, null);
   }
 
   /**
@@ -18,9 +18,9 @@ package edu.nyu.cs.omnidroid.app.model.db;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 
 /**
  * Database helper class for the Rules table. Defines basic CRUD methods. 
@@ -34,6 +34,9 @@ import java.text.SimpleDateFormat;
  * Enabled is whether this rule is activated. 
  * Created is the time stamp of when this rule is created
  * Updated is the time stamp of when this rule is last updated
+ * Notification is whether the rule's actions show a notification
+ * Priority orders the rules of an event, higher priorities are evaluated first
+ * Exclusive is whether no further rules are evaluated once this rule matches
  * 
  */
 public class RuleDbAdapter extends DbAdapter {
@@ -47,13 +50,18 @@ public class RuleDbAdapter extends DbAdapter {
   public static final String KEY_CREATED = "Created";
   public static final String KEY_UPDATED = "Updated";
   public static final String KEY_NOTIFICATION = "Notification";
+  public static final String KEY_PRIORITY = "Priority";
+  public static final String KEY_EXCLUSIVE = "Exclusive";
  
   //set this 
   private static boolean notification=true;
 
   /* An array of all column names */
   public static final String[] KEYS = { KEY_RULEID, KEY_EVENTID, KEY_RULENAME, KEY_RULEDESC,
-      KEY_ENABLED, KEY_CREATED, KEY_UPDATED, KEY_NOTIFICATION };
+      KEY_ENABLED, KEY_CREATED, KEY_UPDATED, KEY_NOTIFICATION, KEY_PRIORITY, KEY_EXCLUSIVE };
+
+  /* Order in which the rules of an event are evaluated */
+  public static final String ORDER_BY_PRIORITY = KEY_PRIORITY + " DESC, " + KEY_RULEID;
 
   /* Table name */
   private static final String DATABASE_TABLE = "Rules";
@@ -71,6 +79,29 @@ public class RuleDbAdapter extends DbAdapter {
   
   protected static final String ADD_NOTIFICATION_COLUMN = "ALTER TABLE " + DATABASE_TABLE  
                + " ADD " + KEY_NOTIFICATION + " integer not null DEFAULT 1";
+  protected static final String ADD_PRIORITY_COLUMN = "ALTER TABLE " + DATABASE_TABLE
+      + " ADD " + KEY_PRIORITY + " integer not null DEFAULT 0";
+  protected static final String ADD_EXCLUSIVE_COLUMN = "ALTER TABLE " + DATABASE_TABLE
+      + " ADD " + KEY_EXCLUSIVE + " integer not null DEFAULT 0";
+
+  /* Create statement of the latest schema, the columns above included, see DbBootstrap. */
+  protected static final String DATABASE_CREATE_LATEST = "create table " + DATABASE_TABLE + " ("
+      + KEY_RULEID + " integer primary key autoincrement, " 
+      + KEY_EVENTID + " integer not null, "
+      + KEY_RULENAME + " text not null, " 
+      + KEY_RULEDESC + " text not null, " 
+      + KEY_ENABLED + " integer not null, " 
+      + KEY_CREATED + " datetime, " 
+      + KEY_UPDATED + " datetime, "
+      + KEY_NOTIFICATION + " integer not null DEFAULT 1, "
+      + KEY_PRIORITY + " integer not null DEFAULT 0, "
+      + KEY_EXCLUSIVE + " integer not null DEFAULT 0);";
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_EVENTID, KEY_RULENAME,
+      KEY_RULEDESC, KEY_ENABLED, KEY_CREATED, KEY_UPDATED, KEY_NOTIFICATION);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_RULEID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_RULEID);
 
   /**
    * Constructor.
@@ -106,17 +137,8 @@ public class RuleDbAdapter extends DbAdapter {
     SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     String insertTime = dateFormat.format(new Timestamp(System.currentTimeMillis()));
 
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_EVENTID, eventID);
-    initialValues.put(KEY_RULENAME, ruleName);
-    initialValues.put(KEY_RULEDESC, ruleDesc);
-    initialValues.put(KEY_ENABLED, enabled);
-    initialValues.put(KEY_CREATED, insertTime);
-    initialValues.put(KEY_UPDATED, insertTime);
-    initialValues.put(KEY_NOTIFICATION, notification);
-    
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, eventID, ruleName, ruleDesc, enabled, insertTime, insertTime,
+        notification);
   }
 
   /**
@@ -132,8 +154,22 @@ public class RuleDbAdapter extends DbAdapter {
     if (ruleID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_RULEID + "=" + ruleID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, ruleID) > 0;
+  }
+
+  /**
+   * Delete a set of Rule records in one statement. Their RuleActions, RuleActionParameters and
+   * RuleFilters records are left to the caller.
+   * 
+   * @param ruleIDs
+   *          are ids of the records to delete
+   * @return number of records deleted
+   */
+  public int deleteRules(Collection<Long> ruleIDs) {
+    if (ruleIDs.isEmpty()) {
+      return 0;
+    }
+    return database.delete(DATABASE_TABLE, KEY_RULEID + " IN " + inList(ruleIDs), null);
   }
 
   /**
@@ -159,9 +195,7 @@ public class RuleDbAdapter extends DbAdapter {
     if (ruleID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_RULEID + "=" + ruleID, null,
-        null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, ruleID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -195,27 +229,9 @@ public class RuleDbAdapter extends DbAdapter {
    */
   public Cursor fetchAll(Long eventID, String ruleName, String ruleDesc, Boolean enabled,
       String orderBy) {
-
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (eventID != null) {
-      qb.appendWhere(" AND " + KEY_EVENTID + " = " + eventID);
-    }
-    if (ruleName != null) {
-      qb.appendWhere(" AND " + KEY_RULENAME + " = ");
-      qb.appendWhereEscapeString(ruleName);
-    }
-    if (ruleDesc != null) {
-      qb.appendWhere(" AND " + KEY_RULEDESC + " = ");
-      qb.appendWhereEscapeString(ruleDesc);
-    }
-    if (enabled != null) {
-      qb.appendWhere(" AND " + KEY_ENABLED + " = " + (enabled ? 1 : 0));
-    }
-
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, orderBy);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_EVENTID, KEY_RULENAME,
+        KEY_RULEDESC, KEY_ENABLED }, new Object[] { eventID, ruleName, ruleDesc, enabled },
+        orderBy);
   }
 
   /**
@@ -271,6 +287,38 @@ public class RuleDbAdapter extends DbAdapter {
     return false;
   }
   
+  /**
+   * Update the evaluation order of a rule record.
+   * 
+   * @param ruleID
+   *          is id of the record to be updated
+   * @param priority
+   *          is the priority of the rule, or null if not updating it
+   * @param exclusive
+   *          is whether no further rules are evaluated once the rule matches, or null if not
+   *          updating it
+   * @return true if success, or false otherwise.
+   * @throws IllegalArgumentException
+   *           if ruleID is null
+   */
+  public boolean updatePriority(Long ruleID, Integer priority, Boolean exclusive) {
+    if (ruleID == null) {
+      throw new IllegalArgumentException("primary key null.");
+    }
+    ContentValues args = new ContentValues();
+    if (priority != null) {
+      args.put(KEY_PRIORITY, priority);
+    }
+    if (exclusive != null) {
+      args.put(KEY_EXCLUSIVE, exclusive);
+    }
+    if (args.size() > 0) {
+      // Set whereArg to null here
+      return database.update(DATABASE_TABLE, args, KEY_RULEID + "=" + ruleID, null) > 0;
+    }
+    return false;
+  }
+
   /** Sets notifications  */
   public static void setDefaultNotificationValue(Boolean notificationValue) {
     notification=notificationValue;
@@ -15,10 +15,11 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.model.db;
 
+import java.util.Collection;
+
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
 
 /**
  * Database helper class for the RuleFilters table. Defines basic CRUD methods. 
@@ -69,6 +70,15 @@ public class RuleFilterDbAdapter extends DbAdapter {
       + KEY_PARENTRULEFILTERID + " integer not null, " 
       + KEY_RULEFILTERDATA + " text not null);";
   protected static final String DATABASE_DROP = "DROP TABLE IF EXISTS " + DATABASE_TABLE;
+  protected static final String CREATE_RULE_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + DATABASE_TABLE + "_" + KEY_RULEID + " ON " + DATABASE_TABLE + " (" + KEY_RULEID + ")";
+
+  /* Parameterized statements, see DbAdapter. */
+  private static final String SQL_INSERT = insertSql(DATABASE_TABLE, KEY_RULEID,
+      KEY_EVENTATTRIBUTEID, KEY_EXTERNALATTRIBUTEID, KEY_DATAFILTERID, KEY_PARENTRULEFILTERID,
+      KEY_RULEFILTERDATA);
+  private static final String SQL_DELETE = deleteSql(DATABASE_TABLE, KEY_RULEFILTERID);
+  private static final String SQL_FETCH = selectSql(DATABASE_TABLE, KEYS, KEY_RULEFILTERID);
 
   /**
    * Constructor.
@@ -106,15 +116,8 @@ public class RuleFilterDbAdapter extends DbAdapter {
         || dataFilterID == null || parentRuleFilterID == null || ruleFilterData == null) {
       throw new IllegalArgumentException("insert parameter null.");
     }
-    ContentValues initialValues = new ContentValues();
-    initialValues.put(KEY_RULEID, ruleID);
-    initialValues.put(KEY_EVENTATTRIBUTEID, eventAttributeID);
-    initialValues.put(KEY_EXTERNALATTRIBUTEID, externalAttributeID);
-    initialValues.put(KEY_DATAFILTERID, dataFilterID);
-    initialValues.put(KEY_PARENTRULEFILTERID, parentRuleFilterID);
-    initialValues.put(KEY_RULEFILTERDATA, ruleFilterData);
-    // Set null because don't use 'null column hack'.
-    return database.insert(DATABASE_TABLE, null, initialValues);
+    return executeInsert(SQL_INSERT, ruleID, eventAttributeID, externalAttributeID, dataFilterID,
+        parentRuleFilterID, ruleFilterData);
   }
 
   /**
@@ -130,8 +133,21 @@ public class RuleFilterDbAdapter extends DbAdapter {
     if (ruleFilterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set the whereArgs to null here.
-    return database.delete(DATABASE_TABLE, KEY_RULEFILTERID + "=" + ruleFilterID, null) > 0;
+    return executeUpdateDelete(SQL_DELETE, ruleFilterID) > 0;
+  }
+
+  /**
+   * Delete the RuleFilter records of a set of rules in one statement.
+   * 
+   * @param ruleIDs
+   *          are ids of the rules whose filters are deleted
+   * @return number of records deleted
+   */
+  public int deleteByRules(Collection<Long> ruleIDs) {
+    if (ruleIDs.isEmpty()) {
+      return 0;
+    }
+    return database.delete(DATABASE_TABLE, KEY_RULEID + " IN " + inList(ruleIDs), null);
   }
 
   /**
@@ -157,9 +173,7 @@ public class RuleFilterDbAdapter extends DbAdapter {
     if (ruleFilterID == null) {
       throw new IllegalArgumentException("primary key null.");
     }
-    // Set selectionArgs, groupBy, having, orderBy and limit to be null.
-    Cursor mCursor = database.query(true, DATABASE_TABLE, KEYS, KEY_RULEFILTERID + "="
-        + ruleFilterID, null, null, null, null, null);
+    Cursor mCursor = rawQuery(SQL_FETCH, ruleFilterID);
     if (mCursor != null) {
       mCursor.moveToFirst();
     }
@@ -193,30 +207,10 @@ public class RuleFilterDbAdapter extends DbAdapter {
    */
   public Cursor fetchAll(Long ruleID, Long eventAttributeID, Long externalAttributeID,
       Long dataFilterID, Long parentRuleFilterID, String ruleFilterData) {
-    SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-    qb.setTables(DATABASE_TABLE);
-    qb.appendWhere("1=1");
-    if (ruleID != null) {
-      qb.appendWhere(" AND " + KEY_RULEID + " = " + ruleID);
-    }
-    if (eventAttributeID != null) {
-      qb.appendWhere(" AND " + KEY_EVENTATTRIBUTEID + " = " + eventAttributeID);
-    }
-    if (externalAttributeID != null) {
-      qb.appendWhere(" AND " + KEY_EXTERNALATTRIBUTEID + " = " + externalAttributeID);
-    }
-    if (dataFilterID != null) {
-      qb.appendWhere(" AND " + KEY_DATAFILTERID + " = " + dataFilterID);
-    }
-    if (parentRuleFilterID != null) {
-      qb.appendWhere(" AND " + KEY_PARENTRULEFILTERID + " = " + parentRuleFilterID);
-    }
-    if (ruleFilterData != null) {
-      qb.appendWhere(" AND " + KEY_RULEFILTERDATA + " = ");
-      qb.appendWhereEscapeString(ruleFilterData);
-    }
-    // Not using additional selections, selectionArgs, groupBy, having, orderBy, set them to null.
-    return qb.query(database, KEYS, null, null, null, null, null);
+    return fetchWhere(DATABASE_TABLE, KEYS, new String[] { KEY_RULEID, KEY_EVENTATTRIBUTEID,
+        KEY_EXTERNALATTRIBUTEID, KEY_DATAFILTERID, KEY_PARENTRULEFILTERID, KEY_RULEFILTERDATA },
+        new Object[] { ruleID, eventAttributeID, externalAttributeID, dataFilterID,
+        parentRuleFilterID, ruleFilterData }, null);
   }
 
   /**
@@ -24,7 +24,6 @@ import android.view.View;
 import android.view.View.OnClickListener;
 import android.widget.TextView;
 import edu.nyu.cs.omnidroid.app.R;
-import edu.nyu.cs.omnidroid.app.model.UIDbHelper;
 import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
 
 /**
@@ -72,8 +71,8 @@ public class ActivityDlgLog extends Activity {
   private void initializeUI() {
     setContentView(R.layout.activity_dlg_log);
     TextView logInfo = (TextView) findViewById(R.id.activity_dlg_log_info);
-    UIDbHelper dbHelper = new UIDbHelper(this);
-    ModelLog log = dbHelper.getLog(type, id);
+    UIDbHelperStore.init(this);
+    ModelLog log = UIDbHelperStore.instance().db().getLog(type, id);
     setTitle(log.getTypeString());
     logInfo.setText(log.getLog(this).toString());
     
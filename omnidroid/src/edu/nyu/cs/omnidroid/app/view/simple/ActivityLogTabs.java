@@ -15,10 +15,15 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.view.simple;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.AlertDialog.Builder;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Typeface;
@@ -32,6 +37,7 @@ import android.view.ViewGroup.LayoutParams;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.ListView;
@@ -39,6 +45,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 import android.widget.AdapterView.OnItemClickListener;
 import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.model.PagedLogIterator;
 import edu.nyu.cs.omnidroid.app.view.simple.model.ModelLog;
 
 /**
@@ -65,6 +72,10 @@ public class ActivityLogTabs extends Activity {
   // Menu items
   private static final int MENU_SETTINGS = 0;
   private static final int MENU_CLEAR_LOGS = 1;
+  private static final int MENU_SEARCH = 2;
+
+  // Maximum number of logs shown for a search
+  private static final int SEARCH_LIMIT = 100;
 
   
   // General global variables
@@ -73,6 +84,9 @@ public class ActivityLogTabs extends Activity {
   // What type of logs are we viewing
   private int logTypeSelected;
 
+  // Keywords of the search being shown, or null when browsing all logs
+  private String searchKeywords;
+
   @Override
   public void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -143,6 +157,7 @@ public class ActivityLogTabs extends Activity {
     listView = (ListView) findViewById(R.id.activity_logs_listview);
     listView.setChoiceMode(ListView.CHOICE_MODE_SINGLE);
     listView.setAdapter(logAdapter);
+    listView.setOnScrollListener(logAdapter);
 
     // Restore UI control values if possible.
     state = getSharedPreferences(KEY_STATE, Context.MODE_WORLD_READABLE
@@ -169,6 +184,8 @@ public class ActivityLogTabs extends Activity {
     menu.add(Menu.NONE, MENU_CLEAR_LOGS, Menu.NONE,
         getString(R.string.clear_logs)).setAlphabeticShortcut('c')
         .setIcon(android.R.drawable.ic_menu_close_clear_cancel);
+    menu.add(Menu.NONE, MENU_SEARCH, Menu.NONE, getString(R.string.search_logs))
+        .setAlphabeticShortcut('f').setIcon(android.R.drawable.ic_menu_search);
     return super.onCreateOptionsMenu(menu);
   }
 
@@ -179,6 +196,9 @@ public class ActivityLogTabs extends Activity {
     case MENU_SETTINGS:
       startActivity(new Intent(this, ActivitySettings.class));
       return true;
+    case MENU_SEARCH:
+      showSearchDialog();
+      return true;
     case MENU_CLEAR_LOGS:
       switch (logTypeSelected) {
       case KEY_EVENT_LOGS:
@@ -199,34 +219,125 @@ public class ActivityLogTabs extends Activity {
     return super.onOptionsItemSelected(item);
   }
 
+  /** Called when the search key is pressed */
+  @Override
+  public boolean onSearchRequested() {
+    showSearchDialog();
+    return true;
+  }
+
+  /**
+   * Ask for the keywords to search the logs for. Searching for nothing goes back to showing all
+   * logs.
+   */
+  private void showSearchDialog() {
+    final EditText keywords = new EditText(this);
+    keywords.setSingleLine(true);
+    keywords.setHint(R.string.search_logs_hint);
+    if (searchKeywords != null) {
+      keywords.setText(searchKeywords);
+    }
+
+    Builder search = new AlertDialog.Builder(this);
+    search.setTitle(R.string.search_logs);
+    search.setView(keywords);
+    search.setPositiveButton(R.string.search, new DialogInterface.OnClickListener() {
+      public void onClick(DialogInterface dialog, int whichButton) {
+        String text = keywords.getText().toString().trim();
+        searchKeywords = text.length() == 0 ? null : text;
+        updateUI();
+      }
+    });
+    search.setNegativeButton(R.string.cancel, null);
+    search.show();
+  }
+
+  /**
+   * Search all logs for {@link #searchKeywords}, keeping those of the type being viewed.
+   */
+  private Iterator<ModelLog> searchLogs() {
+    List<ModelLog> logs = UIDbHelperStore.instance().db().searchLogs(searchKeywords, null, null,
+        null, null, SEARCH_LIMIT);
+    int type;
+    switch (logTypeSelected) {
+    case KEY_EVENT_LOGS:
+      type = ModelLog.TYPE_EVENT;
+      break;
+    case KEY_ACTION_LOGS:
+      type = ModelLog.TYPE_ACTION;
+      break;
+    case KEY_GENERAL_LOGS:
+      type = ModelLog.TYPE_GENERAL;
+      break;
+    default:
+      return logs.iterator();
+    }
+    for (Iterator<ModelLog> i = logs.iterator(); i.hasNext();) {
+      if (i.next().getType() != type) {
+        i.remove();
+      }
+    }
+    return logs.iterator();
+  }
+
   /**
-   * Handles rendering of log items for our ListView.
+   * Handles rendering of log items for our ListView. Logs are pulled from the database a page at a
+   * time as the user scrolls towards the end of the ones already loaded.
    * 
    */
-  private class LogAdapter extends BaseAdapter {
+  private class LogAdapter extends BaseAdapter implements AbsListView.OnScrollListener {
+    // Start loading the next page when the user gets this close to the last loaded log
+    private static final int LOAD_AHEAD = 10;
+
     private Context context;
-    private List<ModelLog> logs;
+    private Iterator<ModelLog> source;
+    private ArrayList<ModelLog> logs = new ArrayList<ModelLog>();
 
     public LogAdapter(Context context) {
       this.context = context;
 
-      // Get a list of logs from the database.
-      if (logTypeSelected == KEY_ALL_LOGS) {
-        logs = UIDbHelperStore.instance().db().getAllLogs();
+      // Get the logs from the database.
+      if (searchKeywords != null) {
+        source = searchLogs();
       } else if (logTypeSelected == KEY_EVENT_LOGS) {
-        logs = UIDbHelperStore.instance().db().getEventLogs();
+        source = UIDbHelperStore.instance().db().getEventLogIterator();
       } else if (logTypeSelected == KEY_ACTION_LOGS) {
-        logs = UIDbHelperStore.instance().db().getActionLogs();
+        source = UIDbHelperStore.instance().db().getActionLogIterator();
       } else if (logTypeSelected == KEY_GENERAL_LOGS) {
-        logs = UIDbHelperStore.instance().db().getGeneralLogs();
+        source = UIDbHelperStore.instance().db().getGeneralLogIterator();
+      } else {
+        source = UIDbHelperStore.instance().db().getAllLogIterator();
       }
+      loadNextPage();
      
       // Tell our user when empty
       if (logs.isEmpty()) {
-        Toast.makeText(context, getString(R.string.no_logs), Toast.LENGTH_LONG).show();
+        int message = searchKeywords != null ? R.string.no_matching_logs : R.string.no_logs;
+        Toast.makeText(context, getString(message), Toast.LENGTH_LONG).show();
+      }
+    }
+
+    /**
+     * Append the next page of logs from the source to the loaded logs.
+     */
+    private void loadNextPage() {
+      for (int i = 0; i < PagedLogIterator.DEFAULT_PAGE_SIZE && source.hasNext(); i++) {
+        logs.add(source.next());
       }
     }
 
+    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+        int totalItemCount) {
+      if (firstVisibleItem + visibleItemCount + LOAD_AHEAD >= totalItemCount && source.hasNext()) {
+        loadNextPage();
+        notifyDataSetChanged();
+      }
+    }
+
+    public void onScrollStateChanged(AbsListView view, int scrollState) {
+      // Nothing to do, more logs are loaded from onScroll
+    }
+
     public int getCount() {
       return logs.size();
     }
@@ -33,6 +33,7 @@ import android.view.View.OnClickListener;
 import android.widget.Button;
 import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.OmnidroidManager;
+import edu.nyu.cs.omnidroid.app.controller.util.StartupTracer;
 
 /**
  * This is the main entry point of the application. Here the user will see a main menu where they
@@ -54,11 +55,14 @@ public class ActivityMain extends Activity {
   @Override
   public void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
+    StartupTracer.Step traceCreate = StartupTracer.instance().begin("ActivityMain.onCreate");
     setContentView(R.layout.activity_main);
 
     // Initialize singleton instance of UIDbHelperStore, which is
     // our connection to the omnidroid database.
+    StartupTracer.Step traceDb = StartupTracer.instance().begin("UIDbHelperStore.init");
     UIDbHelperStore.init(this);
+    traceDb.end();
 
     // Link up click handlers with their buttons.
     Button btnCreateRule = (Button) findViewById(R.id.activity_main_btnCreateRule);
@@ -80,6 +84,7 @@ public class ActivityMain extends Activity {
     } else {
       showDisclaimer();
     }
+    traceCreate.end();
   }
 
   /*
@@ -15,6 +15,14 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.view.simple;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 
 import android.app.AlertDialog;
@@ -25,6 +33,7 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Environment;
 import android.text.Html;
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
@@ -41,24 +50,38 @@ import android.widget.TextView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 import android.widget.Toast;
 import edu.nyu.cs.omnidroid.app.R;
+import edu.nyu.cs.omnidroid.app.controller.util.IOUtil;
+import edu.nyu.cs.omnidroid.app.controller.util.Logger;
 import edu.nyu.cs.omnidroid.app.view.simple.model.Rule;
 
 /**
  * This activity shows all rules currently in the system, and their on/off status.
  */
 public class ActivitySavedRules extends ListActivity {
+  private static final String TAG = ActivitySavedRules.class.getSimpleName();
+
   // Options Menu IDs
   private static final int MENU_SETTINGS = 0;
   private static final int MENU_ADD_RULE = 1;
   private static final int MENU_ENABLE_ALL = 2;
   private static final int MENU_DISABLE_ALL = 3;
   private static final int MENU_HELP = 4;
+  private static final int MENU_EXPORT = 5;
+  private static final int MENU_IMPORT = 6;
+
+  // File rules are exported to and imported from, on the SD card
+  private static final String RULES_FILE = "omnidroid_rules.dat";
 
   // Context Menu Options
   private static final int MENU_EDIT = 0;
   private static final int MENU_DELETE = 1;
   private static final int MENU_TOGGLE = 2;
   private static final int MENU_NOTIFICATION = 3;
+  private static final int MENU_PRIORITY = 4;
+  private static final int MENU_EXCLUSIVE = 5;
+
+  // Priorities offered for the entries of R.array.rule_priority_list
+  private static final int[] PRIORITIES = { 1, 0, -1 };
   
   // Activity Request codes for activity results
   private static final int REQUEST_ACTIVITY_EDIT_RULE = 0;
@@ -135,6 +158,10 @@ public class ActivitySavedRules extends ListActivity {
     menu.add(ContextMenu.NONE, MENU_DELETE, ContextMenu.NONE, R.string.delete_rule);
     menu.add(ContextMenu.NONE, MENU_NOTIFICATION, ContextMenu.NONE, 
         getNotificationTitle(info.position));
+    menu.add(ContextMenu.NONE, MENU_PRIORITY, ContextMenu.NONE, R.string.rule_priority);
+    menu.add(ContextMenu.NONE, MENU_EXCLUSIVE, ContextMenu.NONE,
+        ruleListAdapter.getItem(info.position).isExclusive() ? R.string.disable_exclusive
+            : R.string.enable_exclusive);
   }
 
   private CharSequence getNotificationTitle(int position) {
@@ -160,6 +187,14 @@ public class ActivitySavedRules extends ListActivity {
       return true;
     case MENU_NOTIFICATION:
       ruleListAdapter.setNotification(info.position);
+      return true;
+    case MENU_PRIORITY:
+      choosePriority(info.position);
+      return true;
+    case MENU_EXCLUSIVE:
+      Rule rule = ruleListAdapter.getItem(info.position);
+      ruleListAdapter.setPriority(info.position, rule.getPriority(), !rule.isExclusive());
+      return true;
     default:
       return super.onContextItemSelected(item);
     }
@@ -176,6 +211,10 @@ public class ActivitySavedRules extends ListActivity {
         .setAlphabeticShortcut('e').setIcon(android.R.drawable.checkbox_on_background);
     menu.add(Menu.NONE, MENU_DISABLE_ALL, Menu.NONE, getString(R.string.disable_all))
         .setAlphabeticShortcut('d').setIcon(android.R.drawable.checkbox_off_background);
+    menu.add(Menu.NONE, MENU_EXPORT, Menu.NONE, getString(R.string.export_rules))
+        .setIcon(android.R.drawable.ic_menu_save);
+    menu.add(Menu.NONE, MENU_IMPORT, Menu.NONE, getString(R.string.import_rules))
+        .setIcon(android.R.drawable.ic_menu_upload);
     return super.onCreateOptionsMenu(menu);
   }
 
@@ -208,10 +247,53 @@ public class ActivitySavedRules extends ListActivity {
     case MENU_HELP:
       help();
       return true;
+    case MENU_EXPORT:
+      exportRules();
+      return true;
+    case MENU_IMPORT:
+      importRules();
+      return true;
     }
     return super.onOptionsItemSelected(item);
   }
 
+  private void exportRules() {
+    File file = new File(Environment.getExternalStorageDirectory(), RULES_FILE);
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(file));
+      int count = UIDbHelperStore.instance().db().exportRules(out);
+      out.close();
+      out = null;
+      Toast.makeText(this, getString(R.string.rules_exported, count, file.getPath()),
+          Toast.LENGTH_LONG).show();
+    } catch (IOException e) {
+      Logger.e(TAG, "Failed to export rules", e);
+      Toast.makeText(this, getString(R.string.rules_export_failed, e.getMessage()),
+          Toast.LENGTH_LONG).show();
+    } finally {
+      IOUtil.close(out);
+    }
+  }
+
+  private void importRules() {
+    File file = new File(Environment.getExternalStorageDirectory(), RULES_FILE);
+    InputStream in = null;
+    try {
+      in = new BufferedInputStream(new FileInputStream(file));
+      int count = UIDbHelperStore.instance().db().importRules(in);
+      Toast.makeText(this, getString(R.string.rules_imported, count, file.getPath()),
+          Toast.LENGTH_LONG).show();
+      ruleListAdapter.notifyDataSetChanged();
+    } catch (IOException e) {
+      Logger.e(TAG, "Failed to import rules", e);
+      Toast.makeText(this, getString(R.string.rules_import_failed, e.getMessage()),
+          Toast.LENGTH_LONG).show();
+    } finally {
+      IOUtil.close(in);
+    }
+  }
+
   private void help() {
     Builder help = new AlertDialog.Builder(this);
     help.setIcon(android.R.drawable.ic_menu_help);
@@ -239,6 +321,26 @@ public class ActivitySavedRules extends ListActivity {
     }).show();
   }
 
+  /**
+   * Let the user pick the priority of a rule, which orders it among the rules of its event
+   */
+  private void choosePriority(final int position) {
+    final Rule rule = ruleListAdapter.getItem(position);
+    int checked = -1;
+    for (int i = 0; i < PRIORITIES.length; i++) {
+      if (PRIORITIES[i] == rule.getPriority()) {
+        checked = i;
+      }
+    }
+    new AlertDialog.Builder(this).setTitle(rule.getName()).setSingleChoiceItems(
+        R.array.rule_priority_list, checked, new DialogInterface.OnClickListener() {
+          public void onClick(DialogInterface dialog, int which) {
+            ruleListAdapter.setPriority(position, PRIORITIES[which], rule.isExclusive());
+            dialog.dismiss();
+          }
+        }).setNegativeButton(getString(R.string.cancel), null).show();
+  }
+
   private void editRule(int selectedItemPosition) {
     // The user wants to view and possibly edit an existing rule. We can send them to
     // the ActivityChooseFiltersAndActions activity which can handle rendering and
@@ -401,5 +503,11 @@ public class ActivitySavedRules extends ListActivity {
            !rule.isNotificationEnabled());
       notifyDataSetChanged();
     }
+
+    private void setPriority(int position, int priority, boolean exclusive) {
+      Rule rule = ruleListAdapter.getItem(position);
+      UIDbHelperStore.instance().db().setRulePriority(rule.getDatabaseId(), priority, exclusive);
+      notifyDataSetChanged();
+    }
   }
 }
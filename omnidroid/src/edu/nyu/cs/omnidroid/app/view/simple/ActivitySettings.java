@@ -15,6 +15,9 @@
  *******************************************************************************/
 package edu.nyu.cs.omnidroid.app.view.simple;
 
+import java.text.DateFormat;
+import java.util.Date;
+
 import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
@@ -24,8 +27,10 @@ import android.os.Bundle;
 import android.preference.Preference;
 import android.preference.PreferenceActivity;
 import android.preference.Preference.OnPreferenceClickListener;
+import android.text.format.Formatter;
 import edu.nyu.cs.omnidroid.app.R;
 import edu.nyu.cs.omnidroid.app.controller.OmnidroidManager;
+import edu.nyu.cs.omnidroid.app.model.DbMaintenance;
 import edu.nyu.cs.omnidroid.app.model.db.RuleDbAdapter;
 
 /**
@@ -86,6 +91,7 @@ public class ActivitySettings extends PreferenceActivity implements
   public void onResume() {
     getPreferenceScreen().getSharedPreferences().registerOnSharedPreferenceChangeListener(this);
     setOmnidroidEnabledPrefName();
+    setDbMaintenancePrefDescription();
     super.onResume();
   }
 
@@ -133,6 +139,30 @@ public class ActivitySettings extends PreferenceActivity implements
     findPreference(getString(R.string.pref_key_omnidroid_enabled)).setSummary(prefSummary);
   }
 
+  /**
+   * Show the size of the databases and the outcome of their last scheduled maintenance
+   */
+  private void setDbMaintenancePrefDescription() {
+    DbMaintenance maintenance = new DbMaintenance(this);
+    String sizes = getString(R.string.db_maintenance_sizes, Formatter.formatFileSize(this,
+        maintenance.getRulesDatabaseSize()), Formatter.formatFileSize(this, maintenance
+        .getLogDatabaseSize()));
+
+    final String lastRun;
+    if (maintenance.getLastRun() == 0) {
+      lastRun = getString(R.string.db_maintenance_never);
+    } else {
+      String when = DateFormat.getDateTimeInstance().format(new Date(maintenance.getLastRun()));
+      if (maintenance.wasIntact()) {
+        lastRun = getString(R.string.db_maintenance_last_run, when, maintenance.getLastDuration(),
+            Formatter.formatFileSize(this, maintenance.getLastReclaimed()));
+      } else {
+        lastRun = getString(R.string.db_maintenance_damaged, when);
+      }
+    }
+    findPreference(getString(R.string.pref_key_db_maintenance)).setSummary(sizes + "\n" + lastRun);
+  }
+
   /**
    * Restore the Database to it's initial install state
    */
@@ -21,6 +21,7 @@ import edu.nyu.cs.omnidroid.app.model.CoreEventLogsDbHelper;
 import edu.nyu.cs.omnidroid.app.model.CoreGeneralLogsDbHelper;
 import edu.nyu.cs.omnidroid.app.model.CoreLogsDbHelper;
 import edu.nyu.cs.omnidroid.app.model.Log;
+import edu.nyu.cs.omnidroid.app.model.db.LogSearchDbAdapter;
 
 /**
  * UI representation of an Log.
@@ -32,9 +33,9 @@ public class ModelLog extends ModelItem {
   int type = -1;
 
   // Types of ModelLogs that might be viewed
-  public static final int TYPE_GENERAL = 1;
-  public static final int TYPE_EVENT = 2;
-  public static final int TYPE_ACTION = 3;
+  public static final int TYPE_GENERAL = LogSearchDbAdapter.LOG_TYPE_GENERAL;
+  public static final int TYPE_EVENT = LogSearchDbAdapter.LOG_TYPE_EVENT;
+  public static final int TYPE_ACTION = LogSearchDbAdapter.LOG_TYPE_ACTION;
 
   public ModelLog(long databaseId, String name, String description, int iconResId,
       long timestamp, int type) {
@@ -73,6 +74,10 @@ public class ModelLog extends ModelItem {
     return type;
   }
 
+  public long getTimestamp() {
+    return timestamp;
+  }
+
   /**
    * @return Human readable String representation of the the type of log stored.
    */
@@ -46,6 +46,12 @@ public class Rule {
 
   /** Shows whether notifications service is on or off for this Rule */
   private boolean showNotification;
+
+  /** Rules with a higher priority are evaluated first */
+  private int priority;
+
+  /** Whether no further rules are evaluated once this rule matches */
+  private boolean exclusive;
   
   /**
    * The rule tree can look like: 
@@ -234,4 +240,20 @@ public class Rule {
     return showNotification;
   }
 
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setExclusive(boolean exclusive) {
+    this.exclusive = exclusive;
+  }
+
+  public boolean isExclusive() {
+    return exclusive;
+  }
+
 }
\ No newline at end of file